@@ -0,0 +1,155 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
+
+/**
+ * Compares two JMH result files written with {@code -rf json} and reports the relative change of
+ * every benchmark present in both. Exits with a non-zero status when any benchmark regressed by
+ * more than the allowed percentage, so that it can gate a release on codec throughput:
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar -rf json -rff current.json
+ * java -cp target/benchmarks.jar org.apache.phoenix.benchmarks.BenchmarkBaselineComparator \
+ *     baseline.json current.json 10
+ * </pre>
+ */
+public class BenchmarkBaselineComparator {
+
+    public static final double DEFAULT_MAX_REGRESSION_PERCENT = 10.0;
+
+    /**
+     * Outcome of comparing one benchmark (including its parameters) against the baseline.
+     */
+    public static class Comparison {
+        private final String key;
+        private final String unit;
+        private final double baselineScore;
+        private final double currentScore;
+        private final double changePercent;
+        private final boolean regression;
+
+        Comparison(String key, String unit, double baselineScore, double currentScore, boolean higherIsBetter,
+                double maxRegressionPercent) {
+            this.key = key;
+            this.unit = unit;
+            this.baselineScore = baselineScore;
+            this.currentScore = currentScore;
+            this.changePercent = baselineScore == 0 ? 0 : (currentScore - baselineScore) * 100.0 / baselineScore;
+            // Normalize so that a positive value always means "got worse"
+            double slowdownPercent = higherIsBetter ? -changePercent : changePercent;
+            this.regression = slowdownPercent > maxRegressionPercent;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public double getChangePercent() {
+            return changePercent;
+        }
+
+        public boolean isRegression() {
+            return regression;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-100s %14.3f %14.3f %-12s %+8.2f%%%s", key, baselineScore, currentScore, unit,
+                changePercent, regression ? "  REGRESSION" : "");
+        }
+    }
+
+    private BenchmarkBaselineComparator() {
+    }
+
+    public static List<Comparison> compare(JsonNode baseline, JsonNode current, double maxRegressionPercent) {
+        Map<String, JsonNode> baselineByKey = indexByKey(baseline);
+        Map<String, JsonNode> currentByKey = indexByKey(current);
+        List<Comparison> comparisons = new ArrayList<Comparison>();
+        for (Map.Entry<String, JsonNode> entry : currentByKey.entrySet()) {
+            JsonNode base = baselineByKey.get(entry.getKey());
+            if (base == null) {
+                continue;
+            }
+            JsonNode cur = entry.getValue();
+            // Throughput is the only JMH mode where a bigger score is better
+            boolean higherIsBetter = "thrpt".equals(cur.path("mode").getTextValue());
+            comparisons.add(new Comparison(entry.getKey(), cur.path("primaryMetric").path("scoreUnit").getTextValue(),
+                    base.path("primaryMetric").path("score").getDoubleValue(),
+                    cur.path("primaryMetric").path("score").getDoubleValue(), higherIsBetter, maxRegressionPercent));
+        }
+        return comparisons;
+    }
+
+    private static Map<String, JsonNode> indexByKey(JsonNode results) {
+        Map<String, JsonNode> byKey = new TreeMap<String, JsonNode>();
+        for (JsonNode result : results) {
+            StringBuilder key = new StringBuilder(result.path("benchmark").getTextValue());
+            key.append(':').append(result.path("mode").getTextValue());
+            JsonNode params = result.path("params");
+            // Parameters are sorted so that the key does not depend on JSON field order
+            Map<String, String> sortedParams = new TreeMap<String, String>();
+            for (Iterator<Map.Entry<String, JsonNode>> it = params.getFields(); it.hasNext();) {
+                Map.Entry<String, JsonNode> param = it.next();
+                sortedParams.put(param.getKey(), param.getValue().asText());
+            }
+            for (Map.Entry<String, String> param : sortedParams.entrySet()) {
+                key.append(',').append(param.getKey()).append('=').append(param.getValue());
+            }
+            byKey.put(key.toString(), result);
+        }
+        return byKey;
+    }
+
+    static boolean report(List<Comparison> comparisons, PrintStream out) {
+        boolean regressed = false;
+        for (Comparison comparison : comparisons) {
+            out.println(comparison);
+            regressed |= comparison.isRegression();
+        }
+        return regressed;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2 || args.length > 3) {
+            System.err.println("Usage: " + BenchmarkBaselineComparator.class.getSimpleName()
+                    + " <baseline.json> <current.json> [maxRegressionPercent]");
+            System.exit(2);
+        }
+        double maxRegressionPercent = args.length == 3 ? Double.parseDouble(args[2]) : DEFAULT_MAX_REGRESSION_PERCENT;
+        ObjectMapper mapper = new ObjectMapper();
+        List<Comparison> comparisons = compare(mapper.readTree(new File(args[0])), mapper.readTree(new File(args[1])),
+                maxRegressionPercent);
+        if (report(comparisons, System.out)) {
+            System.err.println("Benchmark regression of more than " + maxRegressionPercent + "% detected");
+            System.exit(1);
+        }
+    }
+}
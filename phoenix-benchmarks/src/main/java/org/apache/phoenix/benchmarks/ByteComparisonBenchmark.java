@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.execute.DescVarLengthFastByteComparisons;
+import org.apache.phoenix.query.QueryConstants;
+import org.apache.phoenix.util.ByteUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Raw byte comparison and key manipulation helpers used while navigating row keys:
+ * {@link DescVarLengthFastByteComparisons} (with {@link Bytes#compareTo} as reference)
+ * and the {@link ByteUtil} key and vint helpers.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ByteComparisonBenchmark {
+
+    @Param({ "8", "32", "256" })
+    public int keyLength;
+
+    private byte[] lhs;
+    private byte[] rhs;
+    private byte[] prefix;
+    private byte[] key;
+    private byte[] vintBuffer;
+
+    @Setup
+    public void setup() {
+        lhs = new byte[keyLength];
+        for (int i = 0; i < keyLength; i++) {
+            lhs[i] = (byte)(i * 31);
+        }
+        // Differ only in the last byte so that the comparers walk the full key
+        rhs = lhs.clone();
+        rhs[keyLength - 1]++;
+        // Shorter key with the same prefix, which DESC sorts after the longer one
+        prefix = new byte[keyLength / 2];
+        System.arraycopy(lhs, 0, prefix, 0, prefix.length);
+        key = lhs.clone();
+        vintBuffer = new byte[Bytes.SIZEOF_LONG + 1];
+    }
+
+    @Benchmark
+    public int descVarLengthCompare() {
+        return DescVarLengthFastByteComparisons.compareTo(lhs, 0, lhs.length, rhs, 0, rhs.length);
+    }
+
+    @Benchmark
+    public int descVarLengthComparePrefix() {
+        return DescVarLengthFastByteComparisons.compareTo(lhs, 0, lhs.length, prefix, 0, prefix.length);
+    }
+
+    @Benchmark
+    public int bytesCompare() {
+        return Bytes.compareTo(lhs, 0, lhs.length, rhs, 0, rhs.length);
+    }
+
+    @Benchmark
+    public boolean nextAndPreviousKey() {
+        // Round trip so the key is left unchanged between invocations
+        return ByteUtil.nextKey(key, key.length) && ByteUtil.previousKey(key, key.length);
+    }
+
+    @Benchmark
+    public byte[] concat() {
+        return ByteUtil.concat(lhs, QueryConstants.SEPARATOR_BYTE_ARRAY, rhs);
+    }
+
+    @Benchmark
+    public int vintRoundTrip() {
+        ByteUtil.vintToBytes(vintBuffer, 0, keyLength * 1000003L);
+        return ByteUtil.vintFromBytes(vintBuffer, 0);
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.phoenix.schema.SortOrder;
+import org.apache.phoenix.schema.types.PArrayDataTypeDecoder;
+import org.apache.phoenix.schema.types.PDataType;
+import org.apache.phoenix.schema.types.PhoenixArray;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Encode/decode and element access throughput for the {@link org.apache.phoenix.schema.types.PArrayDataType}
+ * family, for both fixed width (BIGINT ARRAY) and variable length (VARCHAR ARRAY) element types.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PArrayDataTypeBenchmark {
+
+    @Param({ "BIGINT ARRAY", "VARCHAR ARRAY" })
+    public String typeName;
+
+    @Param({ "16", "256" })
+    public int elementCount;
+
+    @Param({ "ASC", "DESC" })
+    public SortOrder sortOrder;
+
+    private PDataType arrayType;
+    private PDataType baseType;
+    private PhoenixArray array;
+    private byte[] encoded;
+    private final ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+
+    @Setup
+    public void setup() {
+        arrayType = PDataType.fromSqlTypeName(typeName);
+        baseType = PDataType.arrayBaseType(arrayType);
+        Object[] elements = new Object[elementCount];
+        for (int i = 0; i < elementCount; i++) {
+            elements[i] = baseType.isFixedWidth() ? (Object)(long)i * 7919 : "element-" + i;
+        }
+        array = PDataType.instantiatePhoenixArray(baseType, elements);
+        encoded = arrayType.toBytes(array, sortOrder);
+    }
+
+    @Benchmark
+    public byte[] toBytes() {
+        return arrayType.toBytes(array, sortOrder);
+    }
+
+    @Benchmark
+    public Object toObject() {
+        return arrayType.toObject(encoded, 0, encoded.length, arrayType, sortOrder);
+    }
+
+    @Benchmark
+    public ImmutableBytesWritable positionAtLastElement() {
+        ptr.set(encoded, 0, encoded.length);
+        PArrayDataTypeDecoder.positionAtArrayElement(ptr, elementCount - 1, baseType, null);
+        return ptr;
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.benchmarks;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.phoenix.schema.SortOrder;
+import org.apache.phoenix.schema.types.PDataType;
+import org.apache.phoenix.schema.types.PDecimal;
+import org.apache.phoenix.schema.types.PLong;
+import org.apache.phoenix.schema.types.PTimestamp;
+import org.apache.phoenix.schema.types.PVarchar;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Encode/decode throughput of the scalar {@link PDataType} codecs that sit on
+ * every row key and column value path: {@link PDataType#toBytes(Object, SortOrder)},
+ * {@link PDataType#toObject(byte[], int, int, PDataType, SortOrder)} and
+ * {@link PDataType#coerceBytes(ImmutableBytesWritable, PDataType, SortOrder, SortOrder)}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PDataTypeCodecBenchmark {
+
+    @Param({ "BIGINT", "DECIMAL", "VARCHAR", "TIMESTAMP" })
+    public String typeName;
+
+    @Param({ "ASC", "DESC" })
+    public SortOrder sortOrder;
+
+    private PDataType type;
+    private Object value;
+    private byte[] encoded;
+    private final ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+
+    @Setup
+    public void setup() {
+        type = PDataType.fromSqlTypeName(typeName);
+        value = sampleValue(type);
+        encoded = type.toBytes(value, sortOrder);
+    }
+
+    static Object sampleValue(PDataType type) {
+        if (type == PLong.INSTANCE) {
+            return 1234567890123L;
+        } else if (type == PDecimal.INSTANCE) {
+            return new BigDecimal("12345678.901234");
+        } else if (type == PVarchar.INSTANCE) {
+            return "phoenix-benchmark-row-key-0000042";
+        } else if (type == PTimestamp.INSTANCE) {
+            Timestamp ts = new Timestamp(1546300800000L);
+            ts.setNanos(123456789);
+            return ts;
+        }
+        throw new IllegalArgumentException("No sample value for " + type);
+    }
+
+    @Benchmark
+    public byte[] toBytes() {
+        return type.toBytes(value, sortOrder);
+    }
+
+    @Benchmark
+    public Object toObject() {
+        return type.toObject(encoded, 0, encoded.length, type, sortOrder);
+    }
+
+    @Benchmark
+    public ImmutableBytesWritable coerceBytesFlipSortOrder() {
+        // coerceBytes may rewrite the pointer, so reset it on each invocation
+        ptr.set(encoded, 0, encoded.length);
+        type.coerceBytes(ptr, type, sortOrder, sortOrder == SortOrder.ASC ? SortOrder.DESC : SortOrder.ASC);
+        return ptr;
+    }
+
+    @Benchmark
+    public ImmutableBytesWritable coerceBytesSameSortOrder() {
+        ptr.set(encoded, 0, encoded.length);
+        type.coerceBytes(ptr, type, sortOrder, sortOrder);
+        return ptr;
+    }
+}
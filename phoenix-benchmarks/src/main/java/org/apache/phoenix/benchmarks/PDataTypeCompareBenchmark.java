@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.phoenix.schema.SortOrder;
+import org.apache.phoenix.schema.types.PDataType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of the byte level {@link PDataType} comparators for every combination
+ * of {@link SortOrder} on the left and right hand side. Mixed sort orders take the
+ * byte-inverting slow path, matching sort orders go through the fast comparers.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PDataTypeCompareBenchmark {
+
+    @Param({ "BIGINT", "DECIMAL", "VARCHAR", "TIMESTAMP" })
+    public String typeName;
+
+    @Param({ "ASC", "DESC" })
+    public SortOrder lhsSortOrder;
+
+    @Param({ "ASC", "DESC" })
+    public SortOrder rhsSortOrder;
+
+    private PDataType type;
+    private byte[] lhs;
+    private byte[] rhs;
+
+    @Setup
+    public void setup() {
+        type = PDataType.fromSqlTypeName(typeName);
+        Object value = PDataTypeCodecBenchmark.sampleValue(type);
+        lhs = type.toBytes(value, lhsSortOrder);
+        // Equal values force a full scan of both keys, which is the worst case
+        rhs = type.toBytes(value, rhsSortOrder);
+    }
+
+    @Benchmark
+    public int compareBytes() {
+        return type.compareTo(lhs, 0, lhs.length, lhsSortOrder, rhs, 0, rhs.length, rhsSortOrder);
+    }
+
+    @Benchmark
+    public int compareBytesWithType() {
+        return type.compareTo(lhs, 0, lhs.length, lhsSortOrder, rhs, 0, rhs.length, rhsSortOrder, type);
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.benchmarks;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValueUtil;
+import org.apache.hadoop.hbase.filter.Filter.ReturnCode;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.filter.SkipScanFilter;
+import org.apache.phoenix.query.KeyRange;
+import org.apache.phoenix.schema.PDatum;
+import org.apache.phoenix.schema.RowKeySchema;
+import org.apache.phoenix.schema.RowKeySchema.RowKeySchemaBuilder;
+import org.apache.phoenix.schema.SortOrder;
+import org.apache.phoenix.schema.types.PChar;
+import org.apache.phoenix.schema.types.PDataType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.Lists;
+
+/**
+ * {@link SkipScanFilter} over a single slot of point keys, as compiled for a large IN list:
+ * seeking through the keys as a region scan does, with rows between the keys so that every
+ * row is answered with a seek hint, and intersecting the slot with region boundaries as the
+ * client does when it plans the scans.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SkipScanFilterBenchmark {
+    private static final int KEY_LENGTH = 10;
+    private static final int REGION_COUNT = 64;
+
+    @Param({ "1000", "10000", "100000" })
+    public int keyCount;
+
+    // Number of keys skipped between the rows seen by the filter
+    @Param({ "1", "100" })
+    public int stride;
+
+    private SkipScanFilter filter;
+    private List<Cell> rows;
+    private byte[][] regionBoundaries;
+    private int region;
+
+    private static byte[] key(long value) {
+        return Bytes.toBytes(String.format("%0" + KEY_LENGTH + "d", value));
+    }
+
+    private static RowKeySchema newSchema() {
+        RowKeySchemaBuilder builder = new RowKeySchemaBuilder(1);
+        builder.addField(new PDatum() {
+            @Override
+            public boolean isNullable() {
+                return false;
+            }
+
+            @Override
+            public PDataType getDataType() {
+                return PChar.INSTANCE;
+            }
+
+            @Override
+            public Integer getMaxLength() {
+                return KEY_LENGTH;
+            }
+
+            @Override
+            public Integer getScale() {
+                return null;
+            }
+
+            @Override
+            public SortOrder getSortOrder() {
+                return SortOrder.getDefault();
+            }
+        }, false, SortOrder.getDefault());
+        return builder.build();
+    }
+
+    @Setup
+    public void setup() {
+        // Even keys, so that the odd rows in between are seeked past
+        List<KeyRange> keys = Lists.newArrayListWithExpectedSize(keyCount);
+        for (int i = 0; i < keyCount; i++) {
+            byte[] key = key(i * 2L);
+            keys.add(PChar.INSTANCE.getKeyRange(key, true, key, true));
+        }
+        filter = new SkipScanFilter(Collections.singletonList(keys), newSchema());
+        rows = Lists.newArrayList();
+        for (int i = 0; i < keyCount; i += stride) {
+            rows.add(KeyValueUtil.createFirstOnRow(key(i * 2L + 1)));
+        }
+        regionBoundaries = new byte[REGION_COUNT + 1][];
+        for (int i = 0; i <= REGION_COUNT; i++) {
+            regionBoundaries[i] = key(2L * keyCount * i / REGION_COUNT);
+        }
+    }
+
+    @Benchmark
+    @SuppressWarnings("deprecation")
+    public int seekThroughKeys() throws Exception {
+        // A new filter, positioned at the first key, as each region scan starts with
+        SkipScanFilter scanFilter = new SkipScanFilter(filter, false);
+        int seeks = 0;
+        for (Cell row : rows) {
+            if (scanFilter.filterKeyValue(row) == ReturnCode.SEEK_NEXT_USING_HINT) {
+                seeks++;
+            }
+        }
+        return seeks;
+    }
+
+    @Benchmark
+    public boolean intersectRegion() {
+        region = (region + 1) % REGION_COUNT;
+        return filter.hasIntersect(regionBoundaries[region], regionBoundaries[region + 1]);
+    }
+}
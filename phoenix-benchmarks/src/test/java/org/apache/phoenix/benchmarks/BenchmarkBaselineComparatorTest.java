@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.benchmarks;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.phoenix.benchmarks.BenchmarkBaselineComparator.Comparison;
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.junit.Test;
+
+public class BenchmarkBaselineComparatorTest {
+
+    private static JsonNode results(String mode, double score, String sortOrder) throws IOException {
+        return new ObjectMapper().readTree("[{\"benchmark\":\"org.apache.phoenix.benchmarks.Foo.bar\","
+                + "\"mode\":\"" + mode + "\",\"params\":{\"typeName\":\"BIGINT\",\"sortOrder\":\"" + sortOrder + "\"},"
+                + "\"primaryMetric\":{\"score\":" + score + ",\"scoreUnit\":\"ops/us\"}}]");
+    }
+
+    @Test
+    public void testThroughputRegression() throws Exception {
+        List<Comparison> comparisons = BenchmarkBaselineComparator.compare(results("thrpt", 100, "ASC"),
+            results("thrpt", 80, "ASC"), 10);
+        assertEquals(1, comparisons.size());
+        assertEquals(-20.0, comparisons.get(0).getChangePercent(), 0.001);
+        assertTrue(comparisons.get(0).isRegression());
+    }
+
+    @Test
+    public void testThroughputImprovement() throws Exception {
+        List<Comparison> comparisons = BenchmarkBaselineComparator.compare(results("thrpt", 100, "ASC"),
+            results("thrpt", 150, "ASC"), 10);
+        assertFalse(comparisons.get(0).isRegression());
+    }
+
+    @Test
+    public void testAverageTimeRegression() throws Exception {
+        // For time based modes a larger score is slower
+        List<Comparison> comparisons = BenchmarkBaselineComparator.compare(results("avgt", 100, "ASC"),
+            results("avgt", 115, "ASC"), 10);
+        assertTrue(comparisons.get(0).isRegression());
+        comparisons = BenchmarkBaselineComparator.compare(results("avgt", 100, "ASC"),
+            results("avgt", 85, "ASC"), 10);
+        assertFalse(comparisons.get(0).isRegression());
+    }
+
+    @Test
+    public void testParamsAreMatched() throws Exception {
+        List<Comparison> comparisons = BenchmarkBaselineComparator.compare(results("thrpt", 100, "ASC"),
+            results("thrpt", 10, "DESC"), 10);
+        assertTrue(comparisons.isEmpty());
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.end2end;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.phoenix.jdbc.PhoenixConnection;
+import org.apache.phoenix.jdbc.PhoenixPreparedStatement;
+import org.apache.phoenix.jdbc.PhoenixResultSet;
+import org.apache.phoenix.jdbc.PhoenixStatement;
+import org.junit.Test;
+
+public class AsyncQueryIT extends ParallelStatsDisabledIT {
+
+    private static final int NUM_ROWS = 100;
+
+    @Test
+    public void testAsyncQuery() throws Exception {
+        String tableName = generateUniqueName();
+        try (Connection conn = DriverManager.getConnection(getUrl())) {
+            PhoenixConnection pconn = conn.unwrap(PhoenixConnection.class);
+            conn.createStatement().execute("CREATE TABLE " + tableName + " (k INTEGER PRIMARY KEY, v VARCHAR)");
+            PhoenixPreparedStatement upsert = conn.prepareStatement("UPSERT INTO " + tableName
+                    + " VALUES (?, ?)").unwrap(PhoenixPreparedStatement.class);
+            for (int i = 0; i < NUM_ROWS; i++) {
+                upsert.setInt(1, i);
+                upsert.setString(2, "v" + i);
+                assertEquals(1, upsert.executeUpdateAsync().get(60, TimeUnit.SECONDS).intValue());
+            }
+            pconn.commitAsync().get(60, TimeUnit.SECONDS);
+
+            PhoenixStatement stmt = conn.createStatement().unwrap(PhoenixStatement.class);
+            PhoenixResultSet rs = stmt.executeQueryAsync("SELECT k, v FROM " + tableName)
+                    .get(60, TimeUnit.SECONDS);
+            int count = 0;
+            int numRows;
+            while ((numRows = rs.fetchAsync(7).get(60, TimeUnit.SECONDS)) > 0) {
+                for (int i = 0; i < numRows; i++) {
+                    assertTrue(rs.next());
+                    assertEquals(count, rs.getInt(1));
+                    assertEquals("v" + count, rs.getString(2));
+                    count++;
+                }
+            }
+            assertFalse(rs.next());
+            assertEquals(NUM_ROWS, count);
+            rs.close();
+        }
+    }
+
+    @Test
+    public void testAsyncUpdate() throws Exception {
+        String tableName = generateUniqueName();
+        try (Connection conn = DriverManager.getConnection(getUrl())) {
+            conn.createStatement().execute("CREATE TABLE " + tableName + " (k INTEGER PRIMARY KEY, v VARCHAR)");
+            PhoenixStatement stmt = conn.createStatement().unwrap(PhoenixStatement.class);
+            stmt.executeUpdateAsync("UPSERT INTO " + tableName + " VALUES (1, 'a')").get(60, TimeUnit.SECONDS);
+            conn.unwrap(PhoenixConnection.class).commitAsync().get(60, TimeUnit.SECONDS);
+            assertEquals(1, stmt.executeUpdateAsync("DELETE FROM " + tableName)
+                    .get(60, TimeUnit.SECONDS).intValue());
+            conn.commit();
+            PhoenixResultSet rs = stmt.executeQueryAsync("SELECT * FROM " + tableName).get(60, TimeUnit.SECONDS);
+            assertEquals(0, rs.fetchAsync(1).get(60, TimeUnit.SECONDS).intValue());
+            assertFalse(rs.next());
+        }
+    }
+
+    @Test
+    public void testAsyncFetchOfAggregateQuery() throws Exception {
+        String tableName = generateUniqueName();
+        try (Connection conn = DriverManager.getConnection(getUrl())) {
+            conn.createStatement().execute("CREATE TABLE " + tableName + " (k INTEGER PRIMARY KEY, g INTEGER)");
+            for (int i = 0; i < NUM_ROWS; i++) {
+                conn.createStatement().execute("UPSERT INTO " + tableName + " VALUES (" + i + ", " + i % 10 + ")");
+            }
+            conn.commit();
+            PhoenixStatement stmt = conn.createStatement().unwrap(PhoenixStatement.class);
+            PhoenixResultSet rs = stmt.executeQueryAsync("SELECT g, COUNT(*) FROM " + tableName
+                    + " GROUP BY g").get(60, TimeUnit.SECONDS);
+            try {
+                rs.fetchAsync(5).get(60, TimeUnit.SECONDS);
+                fail();
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof SQLFeatureNotSupportedException);
+            }
+            // The rows are still read synchronously, one group at a time
+            for (int i = 0; i < 10; i++) {
+                assertTrue(rs.next());
+                assertEquals(i, rs.getInt(1));
+                assertEquals(NUM_ROWS / 10, rs.getLong(2));
+            }
+            assertFalse(rs.next());
+            rs.close();
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.end2end;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.phoenix.jdbc.PhoenixConnection;
+import org.apache.phoenix.mapreduce.index.IndexBuildCoordinator;
+import org.apache.phoenix.mapreduce.index.IndexTool;
+import org.apache.phoenix.query.QueryServices;
+import org.apache.phoenix.schema.PIndexState;
+import org.apache.phoenix.schema.PTable;
+import org.apache.phoenix.schema.task.Task;
+import org.apache.phoenix.util.EnvironmentEdgeManager;
+import org.apache.phoenix.util.IndexScrutiny;
+import org.apache.phoenix.util.PhoenixRuntime;
+import org.apache.phoenix.util.ReadOnlyProps;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.google.common.collect.Maps;
+
+public class IndexToolInProcessIT extends BaseUniqueNamesOwnClusterIT {
+
+    @BeforeClass
+    public static void doSetup() throws Exception {
+        Map<String, String> serverProps = Maps.newHashMapWithExpectedSize(1);
+        serverProps.put(QueryServices.MAX_SERVER_METADATA_CACHE_TIME_TO_LIVE_MS_ATTRIB, Long.toString(5));
+        setUpTestDriver(new ReadOnlyProps(serverProps.entrySet().iterator()), ReadOnlyProps.EMPTY_PROPS);
+    }
+
+    private static int runIndexTool(String dataTableName, String indexTableName) throws Exception {
+        IndexTool indexingTool = new IndexTool();
+        Configuration conf = new Configuration(getUtility().getConfiguration());
+        conf.setInt(IndexBuildCoordinator.PARALLELISM_CONF_KEY, 2);
+        indexingTool.setConf(conf);
+        return indexingTool.run(new String[] { "-dt", dataTableName, "-it", indexTableName, "-direct", "-inproc" });
+    }
+
+    private static void createDataTable(Connection conn, String dataTableName) throws Exception {
+        conn.createStatement().execute("CREATE TABLE " + dataTableName
+                + " (id VARCHAR NOT NULL PRIMARY KEY, val VARCHAR) SPLIT ON ('b', 'd', 'f')");
+        PreparedStatement stmt = conn.prepareStatement("UPSERT INTO " + dataTableName + " VALUES (?, ?)");
+        for (char c = 'a'; c <= 'g'; c++) {
+            for (int i = 0; i < 10; i++) {
+                stmt.setString(1, c + Integer.toString(i));
+                stmt.setString(2, "v" + i);
+                stmt.execute();
+            }
+        }
+        conn.commit();
+    }
+
+    private static List<Task.TaskRecord> getCheckpoints(Connection conn, String dataTableName, String indexTableName)
+            throws Exception {
+        List<Task.TaskRecord> checkpoints = new ArrayList<>();
+        for (Task.TaskRecord taskRecord : Task.queryTaskTable(conn, null, dataTableName,
+                PTable.TaskType.INDEX_REBUILD, null, indexTableName)) {
+            if (IndexBuildCoordinator.isCheckpoint(taskRecord)) {
+                checkpoints.add(taskRecord);
+            }
+        }
+        return checkpoints;
+    }
+
+    private static void addCheckpoint(Connection conn, String dataTableName, String indexTableName,
+            long buildTimestamp, String completedRanges) throws Exception {
+        String data = "{\"" + IndexBuildCoordinator.CHECKPOINT + "\":true,\"IndexName\":\"" + indexTableName
+                + "\",\"" + IndexBuildCoordinator.BUILD_TIMESTAMP + "\":" + buildTimestamp + ",\""
+                + IndexBuildCoordinator.COMPLETED_RANGES + "\":" + completedRanges + "}";
+        Task.addTask(conn.unwrap(PhoenixConnection.class), PTable.TaskType.INDEX_REBUILD, null, null,
+                dataTableName, PTable.TaskStatus.STARTED.toString(), data, null,
+                new Timestamp(buildTimestamp), null, false);
+    }
+
+    private void testBuild(boolean localIndex) throws Exception {
+        String dataTableName = generateUniqueName();
+        String indexTableName = generateUniqueName();
+        try (Connection conn = DriverManager.getConnection(getUrl())) {
+            createDataTable(conn, dataTableName);
+            conn.createStatement().execute("CREATE " + (localIndex ? "LOCAL " : "") + "INDEX " + indexTableName
+                    + " ON " + dataTableName + " (val) ASYNC");
+            assertEquals(PIndexState.BUILDING, PhoenixRuntime.getTableNoCache(conn, indexTableName).getIndexState());
+
+            assertEquals(0, runIndexTool(dataTableName, indexTableName));
+
+            assertEquals(PIndexState.ACTIVE, PhoenixRuntime.getTableNoCache(conn, indexTableName).getIndexState());
+            assertEquals(70, IndexScrutiny.scrutinizeIndex(conn, dataTableName, indexTableName));
+            // The checkpoint is deleted once the build completes
+            assertTrue(getCheckpoints(conn, dataTableName, indexTableName).isEmpty());
+        }
+    }
+
+    @Test
+    public void testGlobalIndexBuild() throws Exception {
+        testBuild(false);
+    }
+
+    @Test
+    public void testLocalIndexBuild() throws Exception {
+        testBuild(true);
+    }
+
+    @Test
+    public void testResumeBuild() throws Exception {
+        String dataTableName = generateUniqueName();
+        String indexTableName = generateUniqueName();
+        try (Connection conn = DriverManager.getConnection(getUrl())) {
+            createDataTable(conn, dataTableName);
+            conn.createStatement().execute("CREATE INDEX " + indexTableName + " ON " + dataTableName
+                    + " (val) ASYNC");
+            // An abandoned build that completed the last two regions, and a later build that completed the
+            // first two regions, neither of them having actually built them
+            long buildTimestamp = EnvironmentEdgeManager.currentTimeMillis();
+            addCheckpoint(conn, dataTableName, indexTableName, buildTimestamp - 1, "[[\"d\",\"\"]]");
+            addCheckpoint(conn, dataTableName, indexTableName, buildTimestamp, "[[\"\",\"d\"]]");
+            assertEquals(2, getCheckpoints(conn, dataTableName, indexTableName).size());
+
+            assertEquals(0, runIndexTool(dataTableName, indexTableName));
+
+            // Only the rows of the regions left to build were indexed
+            ResultSet rs = conn.createStatement().executeQuery("SELECT COUNT(*) FROM " + indexTableName);
+            assertTrue(rs.next());
+            assertEquals(40, rs.getInt(1));
+            rs = conn.createStatement().executeQuery("SELECT MIN(\":ID\") FROM " + indexTableName);
+            assertTrue(rs.next());
+            assertEquals("d0", rs.getString(1));
+            // The checkpoint of the abandoned build is deleted along with the one of the resumed build
+            assertTrue(getCheckpoints(conn, dataTableName, indexTableName).isEmpty());
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.end2end;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Map;
+
+import org.apache.phoenix.query.QueryServices;
+import org.apache.phoenix.util.ReadOnlyProps;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.google.common.collect.Maps;
+
+/*
+ * Run in own cluster since it limits every query to a single parallel scan at a time
+ * and asks for virtual threads, which are used if the JVM supports them.
+ */
+public class MaxConcurrentScansIT extends BaseUniqueNamesOwnClusterIT {
+
+    private static final int NUM_ROWS = 1000;
+
+    @BeforeClass
+    public static void doSetup() throws Exception {
+        Map<String, String> props = Maps.newHashMapWithExpectedSize(2);
+        props.put(QueryServices.MAX_CONCURRENT_SCANS_PER_QUERY_ATTRIB, Integer.toString(1));
+        props.put(QueryServices.VIRTUAL_THREADS_ENABLED_ATTRIB, Boolean.TRUE.toString());
+        setUpTestDriver(new ReadOnlyProps(props.entrySet().iterator()));
+    }
+
+    @Test
+    public void testScansOfSaltedTable() throws Exception {
+        try (Connection conn = DriverManager.getConnection(getUrl())) {
+            String tableName = generateUniqueName();
+            conn.createStatement().execute("CREATE TABLE " + tableName
+                    + " (k INTEGER NOT NULL PRIMARY KEY, v INTEGER) SALT_BUCKETS = 8");
+            PreparedStatement stmt = conn.prepareStatement("UPSERT INTO " + tableName + " VALUES (?, ?)");
+            for (int i = 0; i < NUM_ROWS; i++) {
+                stmt.setInt(1, i);
+                stmt.setInt(2, i % 10);
+                stmt.execute();
+            }
+            conn.commit();
+
+            ResultSet rs = conn.createStatement().executeQuery("SELECT k FROM " + tableName + " ORDER BY k");
+            for (int i = 0; i < NUM_ROWS; i++) {
+                assertTrue(rs.next());
+                assertEquals(i, rs.getInt(1));
+            }
+            assertFalse(rs.next());
+
+            rs = conn.createStatement().executeQuery(
+                    "SELECT v, COUNT(*) FROM " + tableName + " GROUP BY v ORDER BY v");
+            for (int i = 0; i < 10; i++) {
+                assertTrue(rs.next());
+                assertEquals(i, rs.getInt(1));
+                assertEquals(NUM_ROWS / 10, rs.getInt(2));
+            }
+            assertFalse(rs.next());
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.end2end;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Map;
+
+import org.apache.phoenix.query.QueryServices;
+import org.apache.phoenix.util.ReadOnlyProps;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.google.common.collect.Maps;
+
+/*
+ * Run in own cluster since it updates QueryServices.MAX_MEMORY_SIZE_ATTRIB
+ * so that the off heap group by table has to spill its partitions.
+ */
+public class OffHeapGroupByIT extends BaseUniqueNamesOwnClusterIT {
+
+    private static final int NUM_GROUPS = 5000;
+
+    @BeforeClass
+    public static void doSetup() throws Exception {
+        Map<String, String> props = Maps.newHashMapWithExpectedSize(4);
+        props.put(QueryServices.GROUPBY_OFF_HEAP_ENABLED_ATTRIB, Boolean.TRUE.toString());
+        props.put(QueryServices.GROUPBY_OFF_HEAP_PARTITIONS_ATTRIB, Integer.toString(4));
+        // Large enough to hold a partition, but small enough to spill
+        props.put(QueryServices.MAX_MEMORY_SIZE_ATTRIB, Integer.toString(200000));
+        props.put(QueryServices.STATS_COLLECTION_ENABLED, Boolean.toString(false));
+        setUpTestDriver(new ReadOnlyProps(props.entrySet().iterator()));
+    }
+
+    private String createAndLoad(Connection conn) throws Exception {
+        String tableName = generateUniqueName();
+        conn.createStatement().execute("CREATE TABLE " + tableName
+                + " (k INTEGER NOT NULL PRIMARY KEY, g VARCHAR, l BIGINT, d DOUBLE)");
+        PreparedStatement stmt = conn.prepareStatement("UPSERT INTO " + tableName + " VALUES (?, ?, ?, ?)");
+        // Two rows per group, far apart in the scan so that the first may have been spilled
+        for (int i = 0; i < 2 * NUM_GROUPS; i++) {
+            int group = i % NUM_GROUPS;
+            stmt.setInt(1, i);
+            stmt.setString(2, "group" + group);
+            stmt.setLong(3, group);
+            stmt.setDouble(4, 0.5);
+            stmt.execute();
+            if (i % 1000 == 0) {
+                conn.commit();
+            }
+        }
+        conn.commit();
+        return tableName;
+    }
+
+    @Test
+    public void testSpilledGroupBy() throws Exception {
+        try (Connection conn = DriverManager.getConnection(getUrl())) {
+            String tableName = createAndLoad(conn);
+            ResultSet rs = conn.createStatement().executeQuery("SELECT g, COUNT(*), SUM(l), SUM(d) FROM "
+                    + tableName + " GROUP BY g");
+            boolean[] seen = new boolean[NUM_GROUPS];
+            int count = 0;
+            while (rs.next()) {
+                int group = Integer.parseInt(rs.getString(1).substring("group".length()));
+                assertFalse(seen[group]);
+                seen[group] = true;
+                assertEquals(2, rs.getLong(2));
+                assertEquals(2L * group, rs.getLong(3));
+                assertEquals(1.0, rs.getDouble(4), 0.0);
+                count++;
+            }
+            assertEquals(NUM_GROUPS, count);
+
+            rs = conn.createStatement().executeQuery("SELECT COUNT(*) FROM (SELECT g, SUM(l) FROM "
+                    + tableName + " GROUP BY g)");
+            assertTrue(rs.next());
+            assertEquals(NUM_GROUPS, rs.getLong(1));
+        }
+    }
+
+    @Test
+    public void testAllNullSum() throws Exception {
+        try (Connection conn = DriverManager.getConnection(getUrl())) {
+            String tableName = generateUniqueName();
+            conn.createStatement().execute("CREATE TABLE " + tableName
+                    + " (k INTEGER NOT NULL PRIMARY KEY, g VARCHAR, l BIGINT, d DOUBLE)");
+            conn.createStatement().execute("UPSERT INTO " + tableName + " VALUES (1, 'a', 1, 1.5)");
+            conn.createStatement().execute("UPSERT INTO " + tableName + " VALUES (2, 'a', 2, null)");
+            conn.createStatement().execute("UPSERT INTO " + tableName + " VALUES (3, 'b', null, null)");
+            conn.commit();
+            ResultSet rs = conn.createStatement().executeQuery("SELECT g, COUNT(*), COUNT(l), SUM(l), SUM(d) FROM "
+                    + tableName + " GROUP BY g ORDER BY g");
+            assertTrue(rs.next());
+            assertEquals("a", rs.getString(1));
+            assertEquals(2, rs.getLong(2));
+            assertEquals(2, rs.getLong(3));
+            assertEquals(3, rs.getLong(4));
+            assertEquals(1.5, rs.getDouble(5), 0.0);
+            assertTrue(rs.next());
+            assertEquals("b", rs.getString(1));
+            assertEquals(1, rs.getLong(2));
+            assertEquals(0, rs.getLong(3));
+            rs.getLong(4);
+            assertTrue(rs.wasNull());
+            rs.getDouble(5);
+            assertTrue(rs.wasNull());
+            assertFalse(rs.next());
+        }
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.end2end;
+
+import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_OFFSET_CHUNK_SKIPPED_COUNTER;
+import static org.apache.phoenix.util.TestUtil.TEST_PROPERTIES;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.coprocessor.ObserverContext;
+import org.apache.hadoop.hbase.coprocessor.RegionCoprocessorEnvironment;
+import org.apache.hadoop.hbase.coprocessor.SimpleRegionObserver;
+import org.apache.phoenix.coprocessor.BaseScannerRegionObserver;
+import org.apache.phoenix.exception.SQLExceptionCode;
+import org.apache.phoenix.query.QueryServices;
+import org.apache.phoenix.util.EnvironmentEdgeManager;
+import org.apache.phoenix.util.PropertiesUtil;
+import org.apache.phoenix.util.TestUtil;
+import org.junit.Test;
+
+public class OffsetChunkCountIT extends ParallelStatsDisabledIT {
+
+    private static final String[] STRINGS = { "a", "b", "c", "d", "e", "f", "g", "h", "i", "j", "k", "l", "m", "n",
+            "o", "p", "q", "r", "s", "t", "u", "v", "w", "x", "y", "z" };
+    private static final long COUNT_SLEEP_MS = 10000;
+    private static volatile String SLOW_COUNT_TABLE_NAME;
+
+    private static Connection getConnection(boolean countOffsetChunks) throws Exception {
+        return getConnection(countOffsetChunks, new Properties());
+    }
+
+    private static Connection getConnection(boolean countOffsetChunks, Properties props) throws Exception {
+        props.putAll(PropertiesUtil.deepCopy(TEST_PROPERTIES));
+        props.setProperty(QueryServices.OFFSET_CHUNK_COUNT_ENABLED_ATTRIB, Boolean.toString(countOffsetChunks));
+        props.setProperty(QueryServices.OFFSET_CHUNK_COUNT_MIN_OFFSET_ATTRIB, "1");
+        return DriverManager.getConnection(getUrl(), props);
+    }
+
+    private static String createTable(Connection conn) throws Exception {
+        String tableName = generateUniqueName();
+        conn.createStatement().execute("CREATE TABLE " + tableName
+                + " (k VARCHAR NOT NULL PRIMARY KEY, v INTEGER) SPLIT ON ('e','i','o')");
+        PreparedStatement stmt = conn.prepareStatement("UPSERT INTO " + tableName + " VALUES (?, ?)");
+        for (int i = 0; i < STRINGS.length; i++) {
+            stmt.setString(1, STRINGS[i]);
+            stmt.setInt(2, i);
+            stmt.execute();
+        }
+        conn.commit();
+        return tableName;
+    }
+
+    private static void assertRows(Connection conn, String query, int from, int to) throws Exception {
+        ResultSet rs = conn.createStatement().executeQuery(query);
+        for (int i = from; i < to; i++) {
+            assertTrue(rs.next());
+            assertEquals(STRINGS[i], rs.getString(1));
+        }
+        assertFalse(rs.next());
+    }
+
+    @Test
+    public void testOffsetWithinChunks() throws Exception {
+        try (Connection conn = getConnection(true)) {
+            String tableName = createTable(conn);
+            // The chunks have 4, 4, 6 and 12 rows
+            int[][] offsetSkippedChunks = { { 2, 0 }, { 4, 1 }, { 8, 2 }, { 10, 2 }, { 14, 3 }, { 25, 3 }, { 26, 4 }, { 30, 4 } };
+            for (int[] offsetSkipped : offsetSkippedChunks) {
+                int offset = offsetSkipped[0];
+                long count = GLOBAL_OFFSET_CHUNK_SKIPPED_COUNTER.getMetric().getValue();
+                assertRows(conn, "SELECT k FROM " + tableName + " OFFSET " + offset,
+                        Math.min(offset, STRINGS.length), STRINGS.length);
+                assertEquals("offset " + offset, offsetSkipped[1],
+                        GLOBAL_OFFSET_CHUNK_SKIPPED_COUNTER.getMetric().getValue() - count);
+            }
+        }
+    }
+
+    @Test
+    public void testOneChunkCountedAtATime() throws Exception {
+        Properties props = new Properties();
+        props.setProperty(QueryServices.OFFSET_CHUNK_COUNT_MAX_CONCURRENT_ATTRIB, "1");
+        try (Connection conn = getConnection(true, props)) {
+            String tableName = createTable(conn);
+            for (int offset = 1; offset <= STRINGS.length + 1; offset++) {
+                assertRows(conn, "SELECT k FROM " + tableName + " OFFSET " + offset,
+                        Math.min(offset, STRINGS.length), STRINGS.length);
+            }
+        }
+    }
+
+    @Test
+    public void testLimitOffsetWithFilter() throws Exception {
+        try (Connection conn = getConnection(true)) {
+            String tableName = createTable(conn);
+            for (int offset = 1; offset <= STRINGS.length; offset++) {
+                assertRows(conn, "SELECT k FROM " + tableName + " LIMIT 3 OFFSET " + offset,
+                        offset, Math.min(offset + 3, STRINGS.length));
+            }
+            // Odd values only, so 13 rows with 2, 2, 3 and 6 per chunk
+            ResultSet rs = conn.createStatement().executeQuery(
+                    "SELECT k FROM " + tableName + " WHERE v % 2 = 1 LIMIT 4 OFFSET 5");
+            for (int i = 11; i < 19; i += 2) {
+                assertTrue(rs.next());
+                assertEquals(STRINGS[i], rs.getString(1));
+            }
+            assertFalse(rs.next());
+        }
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+        try (Connection conn = getConnection(false)) {
+            String tableName = createTable(conn);
+            long count = GLOBAL_OFFSET_CHUNK_SKIPPED_COUNTER.getMetric().getValue();
+            assertRows(conn, "SELECT k FROM " + tableName + " OFFSET 10", 10, STRINGS.length);
+            assertEquals(0, GLOBAL_OFFSET_CHUNK_SKIPPED_COUNTER.getMetric().getValue() - count);
+        }
+    }
+
+    @Test
+    public void testSlowCountsTimeOut() throws Exception {
+        try (Connection conn = getConnection(true)) {
+            String tableName = createTable(conn);
+            TestUtil.addCoprocessor(conn, tableName, SlowCountRegionObserver.class);
+            SLOW_COUNT_TABLE_NAME = tableName;
+            try {
+                Statement stmt = conn.createStatement();
+                stmt.setQueryTimeout(1);
+                long startTime = EnvironmentEdgeManager.currentTimeMillis();
+                ResultSet rs = stmt.executeQuery("SELECT k FROM " + tableName + " OFFSET 10");
+                try {
+                    rs.next();
+                    fail();
+                } catch (SQLException e) {
+                    assertEquals(SQLExceptionCode.OPERATION_TIMED_OUT.getErrorCode(), e.getErrorCode());
+                }
+                // The counts still in progress are cancelled, not waited for
+                rs.close();
+                assertTrue(EnvironmentEdgeManager.currentTimeMillis() - startTime < COUNT_SLEEP_MS);
+            } finally {
+                SLOW_COUNT_TABLE_NAME = null;
+            }
+        }
+    }
+
+    public static class SlowCountRegionObserver extends SimpleRegionObserver {
+        @Override
+        public void preScannerOpen(ObserverContext<RegionCoprocessorEnvironment> c, Scan scan)
+                throws IOException {
+            if (scan.getAttribute(BaseScannerRegionObserver.SCAN_OFFSET) != null
+                    && c.getEnvironment().getRegion().getRegionInfo().getTable().getNameAsString()
+                            .equals(SLOW_COUNT_TABLE_NAME)) {
+                try {
+                    Thread.sleep(COUNT_SLEEP_MS);
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+            }
+            super.preScannerOpen(c, scan);
+        }
+    }
+}
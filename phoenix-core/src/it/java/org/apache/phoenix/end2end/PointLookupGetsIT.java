@@ -0,0 +1,222 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.end2end;
+
+import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_MULTI_GET_BATCH_COUNTER;
+import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_POINT_LOOKUP_GET_COUNTER;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Properties;
+
+import org.apache.phoenix.query.QueryServices;
+import org.apache.phoenix.util.PhoenixRuntime;
+import org.junit.Test;
+
+public class PointLookupGetsIT extends ParallelStatsDisabledIT {
+
+    private static Connection getConnection(boolean useGets) throws Exception {
+        Properties props = new Properties();
+        props.setProperty(QueryServices.POINT_LOOKUP_GETS_ENABLED_ATTRIB, Boolean.toString(useGets));
+        props.setProperty(QueryServices.POINT_LOOKUP_GETS_MAX_KEYS_ATTRIB, Integer.toString(3));
+        return DriverManager.getConnection(getUrl(), props);
+    }
+
+    private static String createAndLoad(Connection conn, String options) throws Exception {
+        String tableName = generateUniqueName();
+        conn.createStatement().execute("CREATE TABLE " + tableName
+                + " (k1 VARCHAR NOT NULL, k2 INTEGER NOT NULL, v1 VARCHAR, v2 INTEGER"
+                + " CONSTRAINT pk PRIMARY KEY (k1, k2)) " + options);
+        PreparedStatement stmt = conn.prepareStatement("UPSERT INTO " + tableName + " VALUES (?, ?, ?, ?)");
+        for (int i = 0; i < 10; i++) {
+            stmt.setString(1, "a" + i);
+            stmt.setInt(2, i);
+            stmt.setString(3, "v" + i);
+            stmt.setInt(4, i * 10);
+            stmt.execute();
+        }
+        conn.commit();
+        return tableName;
+    }
+
+    private static long getCount() {
+        return GLOBAL_POINT_LOOKUP_GET_COUNTER.getMetric().getValue();
+    }
+
+    private static void assertPointLookups(Connection conn, String tableName, boolean useGets) throws Exception {
+        long count = getCount();
+        PreparedStatement stmt = conn.prepareStatement("SELECT v1, v2 FROM " + tableName + " WHERE k1 = ? AND k2 = ?");
+        stmt.setString(1, "a3");
+        stmt.setInt(2, 3);
+        ResultSet rs = stmt.executeQuery();
+        assertTrue(rs.next());
+        assertEquals("v3", rs.getString(1));
+        assertEquals(30, rs.getInt(2));
+        assertFalse(rs.next());
+
+        // Missing key
+        stmt.setString(1, "a3");
+        stmt.setInt(2, 4);
+        assertFalse(stmt.executeQuery().next());
+
+        // Multiple keys, one of them missing and one filtered out
+        rs = conn.createStatement().executeQuery("SELECT k1, k2 FROM " + tableName
+                + " WHERE (k1, k2) IN (('a1', 1), ('a2', 3), ('a5', 5)) AND v2 > 10");
+        assertTrue(rs.next());
+        assertEquals("a5", rs.getString(1));
+        assertEquals(5, rs.getInt(2));
+        assertFalse(rs.next());
+
+        rs = conn.createStatement().executeQuery("SELECT k2 FROM " + tableName
+                + " WHERE (k1, k2) IN (('a7', 7), ('a1', 1), ('a5', 5)) LIMIT 2");
+        assertTrue(rs.next());
+        assertEquals(1, rs.getInt(1));
+        assertTrue(rs.next());
+        assertEquals(5, rs.getInt(1));
+        assertFalse(rs.next());
+        assertEquals(useGets ? 4 : 0, getCount() - count);
+
+        // More keys than the max read with gets
+        rs = conn.createStatement().executeQuery("SELECT COUNT(*) FROM (SELECT v1 FROM " + tableName
+                + " WHERE (k1, k2) IN (('a1', 1), ('a2', 2), ('a3', 3), ('a4', 4)))");
+        assertTrue(rs.next());
+        assertEquals(4, rs.getLong(1));
+        assertEquals(useGets ? 4 : 0, getCount() - count);
+    }
+
+    @Test
+    public void testPointLookupGets() throws Exception {
+        try (Connection conn = getConnection(true)) {
+            assertPointLookups(conn, createAndLoad(conn, ""), true);
+        }
+    }
+
+    @Test
+    public void testPointLookupGetsOnSaltedTable() throws Exception {
+        try (Connection conn = getConnection(true)) {
+            assertPointLookups(conn, createAndLoad(conn, "SALT_BUCKETS=4"), true);
+        }
+    }
+
+    @Test
+    public void testPointLookupGetsOnImmutableTable() throws Exception {
+        try (Connection conn = getConnection(true)) {
+            assertPointLookups(conn, createAndLoad(conn,
+                    "IMMUTABLE_ROWS=true, IMMUTABLE_STORAGE_SCHEME=SINGLE_CELL_ARRAY_WITH_OFFSETS"), true);
+        }
+    }
+
+    @Test
+    public void testPointLookupGetsDisabled() throws Exception {
+        try (Connection conn = getConnection(false)) {
+            assertPointLookups(conn, createAndLoad(conn, ""), false);
+        }
+    }
+
+    @Test
+    public void testPointLookupGetsWithScn() throws Exception {
+        String tableName;
+        try (Connection conn = getConnection(true)) {
+            tableName = createAndLoad(conn, "");
+        }
+        long scn = System.currentTimeMillis();
+        Thread.sleep(10);
+        try (Connection conn = getConnection(true)) {
+            conn.createStatement().execute("UPSERT INTO " + tableName + " VALUES ('a1', 1, 'new', 0)");
+            conn.commit();
+        }
+        Properties props = new Properties();
+        props.setProperty(QueryServices.POINT_LOOKUP_GETS_ENABLED_ATTRIB, Boolean.TRUE.toString());
+        props.setProperty(PhoenixRuntime.CURRENT_SCN_ATTRIB, Long.toString(scn));
+        try (Connection conn = DriverManager.getConnection(getUrl(), props)) {
+            long count = getCount();
+            ResultSet rs = conn.createStatement().executeQuery("SELECT v1 FROM " + tableName
+                    + " WHERE k1 = 'a1' AND k2 = 1");
+            assertTrue(rs.next());
+            assertEquals("v1", rs.getString(1));
+            assertFalse(rs.next());
+            assertEquals(1, getCount() - count);
+        }
+    }
+
+    private static Connection getMultiGetConnection(boolean useMultiGets) throws Exception {
+        return getMultiGetConnection(useMultiGets, new Properties());
+    }
+
+    private static Connection getMultiGetConnection(boolean useMultiGets, Properties props) throws Exception {
+        props.setProperty(QueryServices.MULTI_GET_ENABLED_ATTRIB, Boolean.toString(useMultiGets));
+        props.setProperty(QueryServices.MULTI_GET_MIN_KEYS_ATTRIB, Integer.toString(4));
+        props.setProperty(QueryServices.MULTI_GET_BATCH_SIZE_ATTRIB, Integer.toString(2));
+        return DriverManager.getConnection(getUrl(), props);
+    }
+
+    private static void assertMultiGets(Connection conn, String tableName, int expectedBatches) throws Exception {
+        long count = GLOBAL_MULTI_GET_BATCH_COUNTER.getMetric().getValue();
+        ResultSet rs = conn.createStatement().executeQuery("SELECT k2, v1 FROM " + tableName
+                + " WHERE (k1, k2) IN (('a8', 8), ('a0', 0), ('a1', 1), ('a2', 2), ('a4', 4), ('a5', 6), ('a7', 7))"
+                + " AND v2 <> 10");
+        for (int i : new int[] { 0, 2, 4, 7, 8 }) {
+            assertTrue(rs.next());
+            assertEquals(i, rs.getInt(1));
+            assertEquals("v" + i, rs.getString(2));
+        }
+        assertFalse(rs.next());
+        assertEquals(expectedBatches, GLOBAL_MULTI_GET_BATCH_COUNTER.getMetric().getValue() - count);
+
+        // Fewer keys than the min read with multi-gets
+        count = GLOBAL_MULTI_GET_BATCH_COUNTER.getMetric().getValue();
+        rs = conn.createStatement().executeQuery("SELECT k2 FROM " + tableName
+                + " WHERE (k1, k2) IN (('a0', 0), ('a4', 4), ('a8', 8))");
+        assertTrue(rs.next());
+        assertTrue(rs.next());
+        assertTrue(rs.next());
+        assertFalse(rs.next());
+        assertEquals(0, GLOBAL_MULTI_GET_BATCH_COUNTER.getMetric().getValue() - count);
+    }
+
+    @Test
+    public void testMultiGets() throws Exception {
+        try (Connection conn = getMultiGetConnection(true)) {
+            // The keys of the first region are read in two batches, those of the others in one
+            assertMultiGets(conn, createAndLoad(conn, "SPLIT ON ('a3', 'a6')"), 4);
+        }
+    }
+
+    @Test
+    public void testMultiGetsDisabled() throws Exception {
+        try (Connection conn = getMultiGetConnection(false)) {
+            assertMultiGets(conn, createAndLoad(conn, "SPLIT ON ('a3', 'a6')"), 0);
+        }
+    }
+
+    @Test
+    public void testMultiGetsOnSaltedTableInRowKeyOrder() throws Exception {
+        // The batches of the buckets are read in parallel, which doesn't preserve the row key order
+        // across buckets, so a skip scan is used
+        Properties props = new Properties();
+        props.setProperty(QueryServices.FORCE_ROW_KEY_ORDER_ATTRIB, Boolean.TRUE.toString());
+        try (Connection conn = getMultiGetConnection(true, props)) {
+            assertMultiGets(conn, createAndLoad(conn, "SALT_BUCKETS=4"), 0);
+        }
+    }
+}
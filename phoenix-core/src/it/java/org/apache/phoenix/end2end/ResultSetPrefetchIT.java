@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.end2end;
+
+import static org.apache.phoenix.util.TestUtil.TEST_PROPERTIES;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.phoenix.iterate.PrefetchingResultIterator;
+import org.apache.phoenix.jdbc.PhoenixResultSet;
+import org.apache.phoenix.monitoring.MetricType;
+import org.apache.phoenix.query.QueryServices;
+import org.apache.phoenix.util.PhoenixRuntime;
+import org.apache.phoenix.util.PropertiesUtil;
+import org.junit.Test;
+
+public class ResultSetPrefetchIT extends ParallelStatsDisabledIT {
+
+    private static Connection getConnection() throws Exception {
+        Properties props = PropertiesUtil.deepCopy(TEST_PROPERTIES);
+        props.setProperty(QueryServices.RESULT_SET_PREFETCH_ENABLED_ATTRIB, Boolean.toString(true));
+        props.setProperty(QueryServices.RESULT_SET_PREFETCH_MAX_ROWS_ATTRIB, Integer.toString(16));
+        props.setProperty(QueryServices.COLLECT_REQUEST_LEVEL_METRICS, Boolean.toString(true));
+        return DriverManager.getConnection(getUrl(), props);
+    }
+
+    @Test
+    public void testPrefetchedRows() throws Exception {
+        String tableName = generateUniqueName();
+        int numRows = 500;
+        try (Connection conn = getConnection()) {
+            conn.createStatement().execute("CREATE TABLE " + tableName
+                    + " (k INTEGER NOT NULL PRIMARY KEY, v VARCHAR) SALT_BUCKETS=4");
+            PreparedStatement stmt = conn.prepareStatement("UPSERT INTO " + tableName + " VALUES (?, ?)");
+            for (int i = 0; i < numRows; i++) {
+                stmt.setInt(1, i);
+                stmt.setString(2, "v" + i);
+                stmt.execute();
+            }
+            conn.commit();
+
+            ResultSet rs = conn.createStatement().executeQuery("SELECT k, v FROM " + tableName + " ORDER BY k");
+            assertFalse(rs.unwrap(PhoenixResultSet.class).getUnderlyingIterator() instanceof PrefetchingResultIterator);
+            for (int i = 0; i < numRows; i++) {
+                assertTrue(rs.next());
+                assertEquals(i, rs.getInt(1));
+                assertEquals("v" + i, rs.getString(2));
+            }
+            assertFalse(rs.next());
+            Map<MetricType, Long> metrics = PhoenixRuntime.getOverAllReadRequestMetricInfo(rs);
+            assertTrue(metrics.get(MetricType.RESULT_SET_PREFETCH_STALL_TIME_MS) >= 0);
+            rs.close();
+
+            // Close before all rows were read
+            rs = conn.createStatement().executeQuery("SELECT v FROM " + tableName);
+            assertTrue(rs.next());
+            rs.close();
+
+            rs = conn.createStatement().executeQuery("SELECT COUNT(*) FROM " + tableName);
+            assertTrue(rs.next());
+            assertEquals(numRows, rs.getLong(1));
+            assertFalse(rs.next());
+        }
+    }
+    @Test
+    public void testAggregateRowsNotPrefetched() throws Exception {
+        String tableName = generateUniqueName();
+        int numGroups = 50;
+        try (Connection conn = getConnection()) {
+            conn.createStatement().execute("CREATE TABLE " + tableName
+                    + " (k INTEGER NOT NULL PRIMARY KEY, g INTEGER) SALT_BUCKETS=4");
+            PreparedStatement stmt = conn.prepareStatement("UPSERT INTO " + tableName + " VALUES (?, ?)");
+            // Group i holds i + 1 rows
+            int k = 0;
+            for (int i = 0; i < numGroups; i++) {
+                for (int j = 0; j <= i; j++) {
+                    stmt.setInt(1, k++);
+                    stmt.setInt(2, i);
+                    stmt.execute();
+                }
+            }
+            conn.commit();
+
+            ResultSet rs = conn.createStatement().executeQuery(
+                    "SELECT g, COUNT(*), SUM(k) FROM " + tableName + " GROUP BY g ORDER BY g");
+            k = 0;
+            for (int i = 0; i < numGroups; i++) {
+                assertTrue(rs.next());
+                assertEquals(i, rs.getInt(1));
+                assertEquals(i + 1, rs.getLong(2));
+                long sum = 0;
+                for (int j = 0; j <= i; j++) {
+                    sum += k++;
+                }
+                assertEquals(sum, rs.getLong(3));
+            }
+            assertFalse(rs.next());
+            rs.close();
+
+            // Unordered groups are returned by the aggregating iterator as they are read
+            rs = conn.createStatement().executeQuery(
+                    "SELECT g, COUNT(*) FROM " + tableName + " GROUP BY g");
+            int numRows = 0;
+            while (rs.next()) {
+                assertEquals(rs.getInt(1) + 1, rs.getLong(2));
+                numRows++;
+            }
+            assertEquals(numGroups, numRows);
+        }
+    }
+}
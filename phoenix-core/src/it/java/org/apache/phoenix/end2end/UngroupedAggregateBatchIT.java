@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.end2end;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Map;
+
+import org.apache.phoenix.query.QueryServices;
+import org.apache.phoenix.util.ReadOnlyProps;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.google.common.collect.Maps;
+
+/*
+ * Run in own cluster since it sets QueryServices.AGGREGATE_BATCH_SIZE_ATTRIB
+ * on the region servers.
+ */
+public class UngroupedAggregateBatchIT extends BaseUniqueNamesOwnClusterIT {
+
+    private static final int NUM_ROWS = 100;
+
+    @BeforeClass
+    public static void doSetup() throws Exception {
+        Map<String, String> props = Maps.newHashMapWithExpectedSize(1);
+        // Small batch size that does not divide the row count, so a partial batch is flushed
+        props.put(QueryServices.AGGREGATE_BATCH_SIZE_ATTRIB, Integer.toString(7));
+        setUpTestDriver(new ReadOnlyProps(props.entrySet().iterator()));
+    }
+
+    private String createAndLoad(Connection conn) throws Exception {
+        String tableName = generateUniqueName();
+        conn.createStatement().execute("CREATE TABLE " + tableName
+                + " (k INTEGER NOT NULL PRIMARY KEY, a BIGINT, b DOUBLE, c VARCHAR)");
+        PreparedStatement stmt = conn.prepareStatement("UPSERT INTO " + tableName + " VALUES (?, ?, ?, ?)");
+        for (int i = 1; i <= NUM_ROWS; i++) {
+            stmt.setInt(1, i);
+            if (i % 10 == 0) {
+                stmt.setNull(2, java.sql.Types.BIGINT);
+            } else {
+                stmt.setLong(2, i);
+            }
+            stmt.setDouble(3, i / 2.0);
+            stmt.setString(4, "v" + i);
+            stmt.execute();
+        }
+        conn.commit();
+        return tableName;
+    }
+
+    @Test
+    public void testBatchedAggregation() throws Exception {
+        try (Connection conn = DriverManager.getConnection(getUrl())) {
+            String tableName = createAndLoad(conn);
+            long expectedSum = 0;
+            for (int i = 1; i <= NUM_ROWS; i++) {
+                if (i % 10 != 0) {
+                    expectedSum += i;
+                }
+            }
+            ResultSet rs = conn.createStatement().executeQuery("SELECT COUNT(*), COUNT(a), SUM(a), MIN(a), MAX(b), "
+                    + "MAX(c) FROM " + tableName);
+            assertTrue(rs.next());
+            assertEquals(NUM_ROWS, rs.getLong(1));
+            assertEquals(NUM_ROWS - NUM_ROWS / 10, rs.getLong(2));
+            assertEquals(expectedSum, rs.getLong(3));
+            assertEquals(1, rs.getLong(4));
+            assertEquals(NUM_ROWS / 2.0, rs.getDouble(5), 0.0);
+            assertEquals("v99", rs.getString(6));
+            assertFalse(rs.next());
+
+            rs = conn.createStatement().executeQuery("SELECT COUNT(*), SUM(k) FROM " + tableName + " WHERE k > 90");
+            assertTrue(rs.next());
+            assertEquals(10, rs.getLong(1));
+            assertEquals(955, rs.getLong(2));
+            assertFalse(rs.next());
+
+            rs = conn.createStatement().executeQuery("SELECT COUNT(*), SUM(a) FROM " + tableName + " WHERE k > 1000");
+            assertTrue(rs.next());
+            assertEquals(0, rs.getLong(1));
+            rs.getLong(2);
+            assertTrue(rs.wasNull());
+            assertFalse(rs.next());
+        }
+    }
+
+    @Test
+    public void testBatchedExpressions() throws Exception {
+        try (Connection conn = DriverManager.getConnection(getUrl())) {
+            String tableName = createAndLoad(conn);
+            long expectedSum = 0;
+            for (int i = 1; i <= NUM_ROWS; i++) {
+                if (i % 10 != 0) {
+                    expectedSum += i;
+                }
+            }
+            ResultSet rs = conn.createStatement().executeQuery("SELECT SUM(a * 2 + k), "
+                    + "SUM(CASE WHEN a > 50 THEN 1 ELSE 0 END), MAX(b * 2 - a), MIN(k - a), "
+                    + "COUNT(CASE WHEN b > 25 THEN c END), AVG(a) FROM " + tableName);
+            assertTrue(rs.next());
+            assertEquals(3 * expectedSum, rs.getLong(1));
+            assertEquals(45, rs.getLong(2));
+            assertEquals(0.0, rs.getDouble(3), 0.0);
+            assertEquals(0, rs.getLong(4));
+            assertEquals(50, rs.getLong(5));
+            assertEquals(expectedSum / (double)(NUM_ROWS - NUM_ROWS / 10), rs.getDouble(6), 0.0001);
+            assertFalse(rs.next());
+        }
+    }
+
+    @Test
+    public void testServerSideDeleteIsNotBatched() throws Exception {
+        try (Connection conn = DriverManager.getConnection(getUrl())) {
+            String tableName = createAndLoad(conn);
+            conn.setAutoCommit(true);
+            assertEquals(50, conn.createStatement().executeUpdate("DELETE FROM " + tableName + " WHERE k > 50"));
+            ResultSet rs = conn.createStatement().executeQuery("SELECT COUNT(*) FROM " + tableName);
+            assertTrue(rs.next());
+            assertEquals(50, rs.getLong(1));
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.end2end.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.phoenix.end2end.BaseUniqueNamesOwnClusterIT;
+import org.apache.phoenix.hbase.index.IndexRegionObserver;
+import org.apache.phoenix.util.ReadOnlyProps;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+public class AsyncPostIndexWriteIT extends BaseUniqueNamesOwnClusterIT {
+
+    @BeforeClass
+    public static void doSetup() throws Exception {
+        Map<String, String> serverProps = Maps.newHashMapWithExpectedSize(2);
+        serverProps.put(IndexRegionObserver.INDEX_ASYNC_POST_BATCH_WRITE, Boolean.TRUE.toString());
+        serverProps.put(IndexRegionObserver.INDEX_ASYNC_POST_BATCH_WRITE_MAX_PENDING, Integer.toString(10));
+        setUpTestDriver(new ReadOnlyProps(serverProps.entrySet().iterator()),
+                ReadOnlyProps.EMPTY_PROPS);
+    }
+
+    @Test
+    public void testPostIndexUpdatesAreWrittenAsynchronously() throws Exception {
+        String dataTableName = generateUniqueName();
+        String indexTableName = generateUniqueName();
+        try (Connection conn = DriverManager.getConnection(getUrl())) {
+            conn.createStatement().execute("CREATE TABLE " + dataTableName
+                    + " (id VARCHAR NOT NULL PRIMARY KEY, val1 VARCHAR, val2 INTEGER)");
+            conn.createStatement().execute("CREATE INDEX " + indexTableName + " ON "
+                    + dataTableName + " (val1) INCLUDE (val2)");
+            // More rows than the budget, so that some batches may be written on the handler
+            PreparedStatement stmt = conn.prepareStatement("UPSERT INTO " + dataTableName + " VALUES (?, ?, ?)");
+            for (int i = 0; i < 50; i++) {
+                stmt.setString(1, "id" + i);
+                stmt.setString(2, "v" + i);
+                stmt.setInt(3, i);
+                stmt.execute();
+                if (i % 5 == 4) {
+                    conn.commit();
+                }
+            }
+            conn.commit();
+            conn.createStatement().execute("UPSERT INTO " + dataTableName + " VALUES ('id0', 'w0', 100)");
+            conn.commit();
+
+            String selectSql = "SELECT val1, val2 FROM " + dataTableName + " WHERE val1 LIKE 'w%'";
+            ResultSet rs = conn.createStatement().executeQuery("EXPLAIN " + selectSql);
+            assertTrue(rs.next());
+            assertTrue(rs.getString(1).contains(indexTableName));
+            rs = conn.createStatement().executeQuery(selectSql);
+            assertTrue(rs.next());
+            assertEquals("w0", rs.getString(1));
+            assertEquals(100, rs.getInt(2));
+            assertFalse(rs.next());
+            rs = conn.createStatement().executeQuery("SELECT COUNT(*) FROM " + indexTableName);
+            assertTrue(rs.next());
+            assertEquals(50, rs.getInt(1));
+
+            // The pending post index updates eventually verify every index row
+            long deadline = System.currentTimeMillis() + 30000;
+            while (!ImmutableIndexIT.verifyRowsForEmptyColValue(conn, indexTableName,
+                    IndexRegionObserver.VERIFIED_BYTES)) {
+                assertTrue(System.currentTimeMillis() < deadline);
+                Thread.sleep(100);
+            }
+        }
+    }
+
+    @Test
+    public void testHotRowUpdatesAreCoalesced() throws Exception {
+        final String dataTableName = generateUniqueName();
+        String indexTableName = generateUniqueName();
+        try (Connection conn = DriverManager.getConnection(getUrl())) {
+            conn.createStatement().execute("CREATE TABLE " + dataTableName
+                    + " (id VARCHAR NOT NULL PRIMARY KEY, val1 VARCHAR, val2 INTEGER)");
+            conn.createStatement().execute("CREATE INDEX " + indexTableName + " ON "
+                    + dataTableName + " (val1) INCLUDE (val2)");
+            final int nThreads = 4;
+            final int nUpdates = 50;
+            ExecutorService executor = Executors.newFixedThreadPool(nThreads);
+            List<Future<Void>> futures = Lists.newArrayListWithExpectedSize(nThreads);
+            for (int t = 0; t < nThreads; t++) {
+                final int thread = t;
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        try (Connection conn = DriverManager.getConnection(getUrl())) {
+                            PreparedStatement stmt = conn.prepareStatement("UPSERT INTO " + dataTableName
+                                    + " VALUES ('hot', 'v', ?)");
+                            for (int i = 0; i < nUpdates; i++) {
+                                stmt.setInt(1, thread * nUpdates + i);
+                                stmt.execute();
+                                conn.commit();
+                            }
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+            executor.shutdown();
+
+            ResultSet rs = conn.createStatement().executeQuery("SELECT val2 FROM " + dataTableName);
+            assertTrue(rs.next());
+            int val2 = rs.getInt(1);
+            assertFalse(rs.next());
+            rs = conn.createStatement().executeQuery("SELECT \"0:VAL2\" FROM " + indexTableName);
+            assertTrue(rs.next());
+            assertEquals(val2, rs.getInt(1));
+            assertFalse(rs.next());
+
+            // Whichever verifying puts were skipped, the latest version of the index row ends up verified
+            long deadline = System.currentTimeMillis() + 30000;
+            while (!ImmutableIndexIT.verifyRowsForEmptyColValue(conn, indexTableName,
+                    IndexRegionObserver.VERIFIED_BYTES)) {
+                assertTrue(System.currentTimeMillis() < deadline);
+                Thread.sleep(100);
+            }
+        }
+    }
+}
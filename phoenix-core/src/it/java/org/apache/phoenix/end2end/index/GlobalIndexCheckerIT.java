@@ -33,6 +33,9 @@ import com.google.common.collect.Maps;
 import org.apache.phoenix.end2end.BaseUniqueNamesOwnClusterIT;
 import org.apache.phoenix.end2end.IndexToolIT;
 import org.apache.phoenix.hbase.index.IndexRegionObserver;
+import org.apache.phoenix.hbase.index.metrics.MetricsIndexerSource;
+import org.apache.phoenix.hbase.index.metrics.MetricsIndexerSourceFactory;
+import org.apache.phoenix.hbase.index.metrics.MetricsIndexerSourceImpl;
 import org.apache.phoenix.util.QueryUtil;
 import org.apache.phoenix.util.ReadOnlyProps;
 import org.junit.BeforeClass;
@@ -250,4 +253,54 @@ public class GlobalIndexCheckerIT extends BaseUniqueNamesOwnClusterIT {
         assertFalse(rs.next());
         conn.close();
     }
+
+    @Test
+    public void testBatchedReadRepair() throws Exception {
+        String dataTableName = generateUniqueName();
+        populateTable(dataTableName);
+        Connection conn = DriverManager.getConnection(getUrl());
+        String indexName = generateUniqueName();
+        conn.createStatement().execute("CREATE INDEX " + indexName + " on " +
+                dataTableName + " (val1) include (val2, val3)" + (async ? "ASYNC" : ""));
+        if (async) {
+            // run the index MR job.
+            IndexToolIT.runIndexTool(true, false, null, dataTableName, indexName);
+        }
+        // Leave the index rows of the upserted rows unverified, so that they are repaired on read
+        IndexRegionObserver.setSkipPostIndexUpdatesForTesting(true);
+        try {
+            for (int i = 0; i < 10; i++) {
+                conn.createStatement().execute("upsert into " + dataTableName + " values ('c" + i + "', 'cd" + i
+                        + "', 'cde" + i + "', 'cdef" + i + "')");
+            }
+            conn.commit();
+        } finally {
+            IndexRegionObserver.setSkipPostIndexUpdatesForTesting(false);
+        }
+        MetricsIndexerSourceImpl metricsSource =
+                (MetricsIndexerSourceImpl) MetricsIndexerSourceFactory.getInstance().create();
+        long repairedRows = metricsSource.getMetricsRegistry().getCounter(MetricsIndexerSource.INDEX_REPAIR_ROWS, 0L).value();
+        String selectSql =  "SELECT val1, val2, id from " + dataTableName + " WHERE val1 >= 'cd'";
+        // Verify that we will read from the index table
+        assertExplainPlan(conn, selectSql, dataTableName, indexName);
+        ResultSet rs = conn.createStatement().executeQuery(selectSql);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(rs.next());
+            assertEquals("cd" + i, rs.getString(1));
+            assertEquals("cde" + i, rs.getString(2));
+            assertEquals("c" + i, rs.getString(3));
+        }
+        assertFalse(rs.next());
+        assertEquals(10, metricsSource.getMetricsRegistry().getCounter(MetricsIndexerSource.INDEX_REPAIR_ROWS, 0L).value()
+                - repairedRows);
+        // The repaired rows are verified, so reading them again doesn't repair them
+        rs = conn.createStatement().executeQuery(selectSql);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(rs.next());
+        }
+        assertFalse(rs.next());
+        assertEquals(10, metricsSource.getMetricsRegistry().getCounter(MetricsIndexerSource.INDEX_REPAIR_ROWS, 0L).value()
+                - repairedRows);
+        conn.close();
+    }
 }
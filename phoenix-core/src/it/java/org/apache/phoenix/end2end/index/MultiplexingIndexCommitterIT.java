@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.end2end.index;
+
+import static org.junit.Assert.assertEquals;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.phoenix.end2end.BaseUniqueNamesOwnClusterIT;
+import org.apache.phoenix.hbase.index.write.IndexWriteMultiplexer;
+import org.apache.phoenix.hbase.index.write.IndexWriter;
+import org.apache.phoenix.hbase.index.write.MultiplexingIndexCommitter;
+import org.apache.phoenix.util.IndexScrutiny;
+import org.apache.phoenix.util.ReadOnlyProps;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+public class MultiplexingIndexCommitterIT extends BaseUniqueNamesOwnClusterIT {
+
+    @BeforeClass
+    public static void doSetup() throws Exception {
+        Map<String, String> serverProps = Maps.newHashMapWithExpectedSize(2);
+        serverProps.put(IndexWriter.INDEX_COMMITTER_CONF_KEY, MultiplexingIndexCommitter.class.getName());
+        serverProps.put(IndexWriteMultiplexer.FLUSH_INTERVAL_MS_CONF_KEY, Long.toString(5));
+        setUpTestDriver(new ReadOnlyProps(serverProps.entrySet().iterator()),
+                ReadOnlyProps.EMPTY_PROPS);
+    }
+
+    private void testConcurrentWrites(String indexDdl) throws Exception {
+        final String dataTableName = generateUniqueName();
+        String indexTableName = generateUniqueName();
+        try (Connection conn = DriverManager.getConnection(getUrl())) {
+            conn.createStatement().execute("CREATE TABLE " + dataTableName
+                    + " (id VARCHAR NOT NULL PRIMARY KEY, val1 VARCHAR, val2 INTEGER)");
+            conn.createStatement().execute(String.format(indexDdl, indexTableName, dataTableName));
+            final int nThreads = 4;
+            final int nBatches = 20;
+            ExecutorService executor = Executors.newFixedThreadPool(nThreads);
+            List<Future<Void>> futures = Lists.newArrayListWithExpectedSize(nThreads);
+            for (int t = 0; t < nThreads; t++) {
+                final int thread = t;
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        try (Connection conn = DriverManager.getConnection(getUrl())) {
+                            PreparedStatement stmt = conn.prepareStatement("UPSERT INTO " + dataTableName
+                                    + " VALUES (?, ?, ?)");
+                            for (int i = 0; i < nBatches; i++) {
+                                // Rows shared by the threads and rows of their own
+                                stmt.setString(1, "id" + (i % 5));
+                                stmt.setString(2, "v" + thread);
+                                stmt.setInt(3, i);
+                                stmt.execute();
+                                stmt.setString(1, "id" + thread + "_" + i);
+                                stmt.execute();
+                                conn.commit();
+                            }
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+            executor.shutdown();
+            conn.createStatement().execute("DELETE FROM " + dataTableName + " WHERE id = 'id0'");
+            conn.commit();
+
+            assertEquals(nThreads * nBatches + 4, IndexScrutiny.scrutinizeIndex(conn, dataTableName, indexTableName));
+            // The retrying and the no retries multiplexers
+            assertEquals(2, IndexWriteMultiplexer.getMultiplexersCount());
+        }
+    }
+
+    @Test
+    public void testGlobalIndex() throws Exception {
+        testConcurrentWrites("CREATE INDEX %s ON %s (val1) INCLUDE (val2)");
+    }
+
+    @Test
+    public void testLocalIndexIsWrittenLocally() throws Exception {
+        // The local index updates do not go through the multiplexer, but the global one still does
+        final String dataTableName = generateUniqueName();
+        String localIndexName = generateUniqueName();
+        String globalIndexName = generateUniqueName();
+        try (Connection conn = DriverManager.getConnection(getUrl())) {
+            conn.createStatement().execute("CREATE TABLE " + dataTableName
+                    + " (id VARCHAR NOT NULL PRIMARY KEY, val1 VARCHAR, val2 INTEGER)");
+            conn.createStatement().execute("CREATE LOCAL INDEX " + localIndexName + " ON "
+                    + dataTableName + " (val2)");
+            conn.createStatement().execute("CREATE INDEX " + globalIndexName + " ON "
+                    + dataTableName + " (val1)");
+            PreparedStatement stmt = conn.prepareStatement("UPSERT INTO " + dataTableName + " VALUES (?, ?, ?)");
+            for (int i = 0; i < 10; i++) {
+                stmt.setString(1, "id" + i);
+                stmt.setString(2, "v" + i);
+                stmt.setInt(3, i);
+                stmt.execute();
+            }
+            conn.commit();
+            assertEquals(10, IndexScrutiny.scrutinizeIndex(conn, dataTableName, localIndexName));
+            assertEquals(10, IndexScrutiny.scrutinizeIndex(conn, dataTableName, globalIndexName));
+        }
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.end2end.join;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.filter.Filter;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.end2end.BaseUniqueNamesOwnClusterIT;
+import org.apache.phoenix.jdbc.PhoenixConnection;
+import org.apache.phoenix.jdbc.PhoenixStatement;
+import org.apache.phoenix.query.QueryServices;
+import org.apache.phoenix.util.ReadOnlyProps;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.google.common.collect.Maps;
+
+public class HashJoinRuntimeFilterIT extends BaseUniqueNamesOwnClusterIT {
+
+    @BeforeClass
+    public static void doSetup() throws Exception {
+        Map<String, String> props = Maps.newHashMapWithExpectedSize(2);
+        props.put(QueryServices.HASH_JOIN_RUNTIME_FILTER_ENABLED_ATTRIB, Boolean.TRUE.toString());
+        // Build sides with more than two distinct keys are filtered by range
+        props.put(QueryServices.HASH_JOIN_RUNTIME_FILTER_MAX_IN_LIST_SIZE_ATTRIB, Integer.toString(2));
+        setUpTestDriver(new ReadOnlyProps(props.entrySet().iterator()));
+    }
+
+    private static void createTables(Connection conn, String orders, String items) throws SQLException {
+        conn.createStatement().execute("CREATE TABLE " + orders + " (id INTEGER PRIMARY KEY, item_id INTEGER, qty INTEGER)");
+        conn.createStatement().execute("CREATE TABLE " + items + " (id INTEGER PRIMARY KEY, name VARCHAR)");
+        PreparedStatement upsertOrder = conn.prepareStatement("UPSERT INTO " + orders + " VALUES (?, ?, ?)");
+        PreparedStatement upsertItem = conn.prepareStatement("UPSERT INTO " + items + " VALUES (?, ?)");
+        for (int i = 0; i < 100; i++) {
+            upsertOrder.setInt(1, i);
+            if (i % 10 == 0) {
+                upsertOrder.setNull(2, java.sql.Types.INTEGER);
+            } else {
+                upsertOrder.setInt(2, i % 20);
+            }
+            upsertOrder.setInt(3, i);
+            upsertOrder.execute();
+        }
+        for (int i = 0; i < 20; i++) {
+            upsertItem.setInt(1, i);
+            upsertItem.setString(2, i % 3 == 0 ? "A" : "B");
+            upsertItem.execute();
+        }
+        conn.commit();
+    }
+
+    private static void assertCount(Connection conn, String query, long expected) throws SQLException {
+        assertCount(conn, conn.createStatement(), query, expected);
+    }
+
+    private static void assertCount(Connection conn, Statement stmt, String query, long expected) throws SQLException {
+        ResultSet rs = stmt.executeQuery(query);
+        assertTrue(rs.next());
+        assertEquals(expected, rs.getLong(1));
+        assertFalse(rs.next());
+    }
+
+    /**
+     * Runs a join and then scans the probe side table with only the filter of the join's probe
+     * side scan, to check how many rows the region servers kept before the join.
+     */
+    private static void assertRowsKept(Connection conn, String query, String table, long expectedCount,
+            String expectedFilter, long expectedRowsKept) throws Exception {
+        PhoenixStatement stmt = conn.createStatement().unwrap(PhoenixStatement.class);
+        assertCount(conn, stmt, query, expectedCount);
+        Filter filter = stmt.getQueryPlan().getContext().getScan().getFilter();
+        assertTrue(filter.toString(), filter.toString().contains(expectedFilter));
+        Scan scan = new Scan();
+        scan.setFilter(filter);
+        long rowsKept = 0;
+        try (Table htable = conn.unwrap(PhoenixConnection.class).getQueryServices().getTable(Bytes.toBytes(table));
+                ResultScanner scanner = htable.getScanner(scan)) {
+            while (scanner.next() != null) {
+                rowsKept++;
+            }
+        }
+        assertEquals(expectedRowsKept, rowsKept);
+    }
+
+    @Test
+    public void testInnerJoin() throws Exception {
+        String orders = generateUniqueName();
+        String items = generateUniqueName();
+        try (Connection conn = DriverManager.getConnection(getUrl())) {
+            createTables(conn, orders, items);
+            // Two build side keys, filtered by IN list
+            assertCount(conn, "SELECT count(*) FROM " + orders + " o JOIN " + items
+                    + " i ON o.item_id = i.id WHERE i.id IN (3, 7)", 10);
+            // More build side keys than the IN list allows, filtered by range
+            assertCount(conn, "SELECT count(*) FROM " + orders + " o JOIN " + items
+                    + " i ON o.item_id = i.id WHERE i.name = 'A'", 30);
+            // Empty build side
+            assertCount(conn, "SELECT count(*) FROM " + orders + " o JOIN " + items
+                    + " i ON o.item_id = i.id WHERE i.name = 'C'", 0);
+            // Probe side filter combined with the runtime filter
+            assertCount(conn, "SELECT count(*) FROM " + orders + " o JOIN " + items
+                    + " i ON o.item_id = i.id WHERE i.name = 'A' AND o.qty < 50", 15);
+        }
+    }
+
+    @Test
+    public void testProbeSideRowsFiltered() throws Exception {
+        String orders = generateUniqueName();
+        String items = generateUniqueName();
+        try (Connection conn = DriverManager.getConnection(getUrl())) {
+            createTables(conn, orders, items);
+            // Only the 10 orders of items 3 and 7 reach the join
+            assertRowsKept(conn, "SELECT count(*) FROM " + orders + " o JOIN " + items
+                    + " i ON o.item_id = i.id WHERE i.id IN (3, 7)", orders, 10, "ITEM_ID IN (3,7)", 10);
+            // Items 0 to 18 are within the range, which leaves out the orders with a null item or item 19
+            assertRowsKept(conn, "SELECT count(*) FROM " + orders + " o JOIN " + items
+                    + " i ON o.item_id = i.id WHERE i.name = 'A'", orders, 30, "ITEM_ID >= 0", 85);
+        }
+    }
+
+    @Test
+    public void testJoinKeysOfDifferentTypes() throws Exception {
+        String orders = generateUniqueName();
+        String items = generateUniqueName();
+        String prices = generateUniqueName();
+        try (Connection conn = DriverManager.getConnection(getUrl())) {
+            createTables(conn, orders, items);
+            conn.createStatement().execute("CREATE TABLE " + prices + " (id INTEGER PRIMARY KEY, qty DECIMAL, big_qty BIGINT)");
+            conn.createStatement().execute("UPSERT INTO " + prices + " VALUES (1, 11.5, 11)");
+            conn.createStatement().execute("UPSERT INTO " + prices + " VALUES (2, 12, 12)");
+            conn.createStatement().execute("UPSERT INTO " + prices + " VALUES (3, 99.0, 99)");
+            conn.commit();
+            // INTEGER probe side keys against DECIMAL and BIGINT build side keys
+            assertCount(conn, "SELECT count(*) FROM " + orders + " o JOIN " + prices
+                    + " p ON o.qty = p.qty", 2);
+            assertCount(conn, "SELECT count(*) FROM " + orders + " o JOIN " + prices
+                    + " p ON o.qty = p.big_qty", 3);
+            conn.createStatement().execute("UPSERT INTO " + prices + " VALUES (4, 0.5, 0)");
+            conn.commit();
+            // Filtered by range
+            assertCount(conn, "SELECT count(*) FROM " + orders + " o JOIN " + prices
+                    + " p ON o.qty = p.qty", 2);
+            assertCount(conn, "SELECT count(*) FROM " + orders + " o JOIN " + prices
+                    + " p ON o.qty = p.big_qty", 4);
+        }
+    }
+
+    @Test
+    public void testSemiJoin() throws Exception {
+        String orders = generateUniqueName();
+        String items = generateUniqueName();
+        try (Connection conn = DriverManager.getConnection(getUrl())) {
+            createTables(conn, orders, items);
+            assertCount(conn, "SELECT count(*) FROM " + orders + " WHERE item_id IN (SELECT id FROM "
+                    + items + " WHERE name = 'A')", 30);
+            assertCount(conn, "SELECT count(*) FROM " + orders + " WHERE item_id IN (SELECT id FROM "
+                    + items + " WHERE id = 4)", 5);
+        }
+    }
+
+    @Test
+    public void testLeftJoinNotFiltered() throws Exception {
+        String orders = generateUniqueName();
+        String items = generateUniqueName();
+        try (Connection conn = DriverManager.getConnection(getUrl())) {
+            createTables(conn, orders, items);
+            assertCount(conn, "SELECT count(*) FROM " + orders + " o LEFT JOIN " + items
+                    + " i ON o.item_id = i.id AND i.name = 'A'", 100);
+        }
+    }
+}
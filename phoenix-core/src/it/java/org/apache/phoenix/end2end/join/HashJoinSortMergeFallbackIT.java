@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.end2end.join;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+
+import org.apache.phoenix.end2end.BaseUniqueNamesOwnClusterIT;
+import org.apache.phoenix.monitoring.GlobalClientMetrics;
+import org.apache.phoenix.query.QueryServices;
+import org.apache.phoenix.util.ReadOnlyProps;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.google.common.collect.Maps;
+
+public class HashJoinSortMergeFallbackIT extends BaseUniqueNamesOwnClusterIT {
+
+    @BeforeClass
+    public static void doSetup() throws Exception {
+        Map<String, String> props = Maps.newHashMapWithExpectedSize(2);
+        // Small enough that the build side below never fits in the hash cache
+        props.put(QueryServices.MAX_SERVER_CACHE_SIZE_ATTRIB, Integer.toString(1024));
+        props.put(QueryServices.HASH_JOIN_SORT_MERGE_FALLBACK_ENABLED_ATTRIB, Boolean.TRUE.toString());
+        setUpTestDriver(new ReadOnlyProps(props.entrySet().iterator()));
+    }
+
+    private static void createTables(Connection conn, String lhs, String rhs) throws SQLException {
+        conn.createStatement().execute("CREATE TABLE " + lhs + " (id INTEGER PRIMARY KEY, rhs_id INTEGER)");
+        conn.createStatement().execute("CREATE TABLE " + rhs + " (id INTEGER PRIMARY KEY, name VARCHAR)");
+        PreparedStatement upsertLhs = conn.prepareStatement("UPSERT INTO " + lhs + " VALUES (?, ?)");
+        PreparedStatement upsertRhs = conn.prepareStatement("UPSERT INTO " + rhs + " VALUES (?, ?)");
+        for (int i = 0; i < 200; i++) {
+            upsertLhs.setInt(1, i);
+            upsertLhs.setInt(2, i % 100);
+            upsertLhs.execute();
+            upsertRhs.setInt(1, i);
+            upsertRhs.setString(2, "name of a row that is long enough to fill the cache " + i);
+            upsertRhs.execute();
+        }
+        conn.commit();
+    }
+
+    @Test
+    public void testFallbackToSortMergeJoin() throws Exception {
+        String lhs = generateUniqueName();
+        String rhs = generateUniqueName();
+        try (Connection conn = DriverManager.getConnection(getUrl())) {
+            createTables(conn, lhs, rhs);
+            long fallbacks = GlobalClientMetrics.GLOBAL_HASH_JOIN_SORT_MERGE_FALLBACK_COUNTER.getMetric().getValue();
+            ResultSet rs = conn.createStatement().executeQuery("SELECT count(*), max(r.name) FROM " + lhs
+                    + " l JOIN " + rhs + " r ON l.rhs_id = r.id");
+            assertTrue(rs.next());
+            assertEquals(200, rs.getLong(1));
+            assertEquals("name of a row that is long enough to fill the cache 99", rs.getString(2));
+            assertFalse(rs.next());
+            assertEquals(fallbacks + 1,
+                GlobalClientMetrics.GLOBAL_HASH_JOIN_SORT_MERGE_FALLBACK_COUNTER.getMetric().getValue());
+        }
+    }
+
+    @Test
+    public void testFallbackToSortMergeJoinInDerivedTable() throws Exception {
+        String lhs = generateUniqueName();
+        String rhs = generateUniqueName();
+        try (Connection conn = DriverManager.getConnection(getUrl())) {
+            createTables(conn, lhs, rhs);
+            long fallbacks = GlobalClientMetrics.GLOBAL_HASH_JOIN_SORT_MERGE_FALLBACK_COUNTER.getMetric().getValue();
+            // The join is in the derived table, so hinting only the outer select would not avoid the hash join
+            ResultSet rs = conn.createStatement().executeQuery("SELECT count(*), max(t.n) FROM (SELECT l.rhs_id, max(r.name) n FROM "
+                    + lhs + " l JOIN " + rhs + " r ON l.rhs_id = r.id GROUP BY l.rhs_id) t");
+            assertTrue(rs.next());
+            assertEquals(100, rs.getLong(1));
+            assertEquals("name of a row that is long enough to fill the cache 99", rs.getString(2));
+            assertFalse(rs.next());
+            assertEquals(fallbacks + 1,
+                GlobalClientMetrics.GLOBAL_HASH_JOIN_SORT_MERGE_FALLBACK_COUNTER.getMetric().getValue());
+        }
+    }
+}
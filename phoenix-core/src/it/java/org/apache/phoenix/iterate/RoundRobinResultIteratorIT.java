@@ -210,6 +210,33 @@ public class RoundRobinResultIteratorIT extends ParallelStatsDisabledIT {
         tryWithFetchSize(new HashSet<>(insertedKeys), 4, stmt, 1);
     }
 
+    @Test
+    public void testAdaptiveChunking() throws Exception {
+        String tableName = generateUniqueName();
+        int numRows = 1000;
+        Set<String> expectedKeys = createTableAndInsertRows(tableName, numRows, false, false);
+        Properties props = PropertiesUtil.deepCopy(TEST_PROPERTIES);
+        props.setProperty(QueryServices.FORCE_ROW_KEY_ORDER_ATTRIB, Boolean.toString(false));
+        props.setProperty(QueryServices.ADAPTIVE_CHUNKING_ENABLED_ATTRIB, Boolean.toString(true));
+        props.setProperty(QueryServices.ADAPTIVE_CHUNKING_MAX_SPLITS_ATTRIB, Integer.toString(8));
+        try (Connection conn = DriverManager.getConnection(getUrl(), props)) {
+            Statement stmt = conn.createStatement();
+            // The single scan of the table lags behind, so its key range is split while threads are idle
+            stmt.setFetchSize(10);
+            ResultSet rs = stmt.executeQuery("SELECT K, V FROM " + tableName);
+            int numRowsRead = 0;
+            while (rs.next()) {
+                assertTrue("Duplicate row " + rs.getString(1), expectedKeys.remove(rs.getString(1)));
+                numRowsRead++;
+            }
+            assertEquals(numRows, numRowsRead);
+            assertTrue("Not all rows were returned - " + expectedKeys, expectedKeys.isEmpty());
+            RoundRobinResultIterator itr = (RoundRobinResultIterator)getResultIterator(rs);
+            assertTrue(itr.getNumberOfSplits() > 0);
+            assertTrue(itr.getNumberOfSplits() <= 8);
+        }
+    }
+
     private static void tryWithFetchSize(Set<String> expectedKeys, int fetchSize, PreparedStatement stmt, int numFetches) throws Exception {
         stmt.setFetchSize(fetchSize);
         ResultSet rs = stmt.executeQuery();
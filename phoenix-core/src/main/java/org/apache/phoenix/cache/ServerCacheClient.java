@@ -272,6 +272,10 @@ public class ServerCacheClient {
             // Size these based on worst case
             futures = new ArrayList<Future<Boolean>>(nRegions);
             Set<HRegionLocation> servers = new HashSet<HRegionLocation>(nRegions);
+            // The request is immutable and wraps the cache without copying it, so build it
+            // once and share it across the RPCs to all servers
+            final AddServerCacheRequest request = newAddServerCacheRequest(cacheUsingTable, cacheId, cachePtr,
+                    cacheFactory, txState, usePersistentCache);
             for (HRegionLocation entry : locations) {
                 // Keep track of servers we've sent to and only send once
                 byte[] regionStartKey = entry.getRegion().getStartKey();
@@ -292,7 +296,7 @@ public class ServerCacheClient {
                         
                         @Override
                         public Boolean call() throws Exception {
-                            return addServerCache(htable, key, cacheUsingTable, cacheId, cachePtr, cacheFactory, txState, usePersistentCache);
+                            return addServerCache(htable, key, request);
                         }
 
                         /**
@@ -492,9 +496,12 @@ public class ServerCacheClient {
     public boolean addServerCache(Table htable, byte[] key, final PTable cacheUsingTable, final byte[] cacheId,
             final ImmutableBytesWritable cachePtr, final ServerCacheFactory cacheFactory, final byte[] txState, final boolean usePersistentCache)
             throws Exception {
-        byte[] keyInRegion = getKeyInRegion(key);
-        final Map<byte[], AddServerCacheResponse> results;
+        return addServerCache(htable, key, newAddServerCacheRequest(cacheUsingTable, cacheId, cachePtr, cacheFactory, txState, usePersistentCache));
+    }
 
+    private AddServerCacheRequest newAddServerCacheRequest(final PTable cacheUsingTable, final byte[] cacheId,
+            final ImmutableBytesWritable cachePtr, final ServerCacheFactory cacheFactory, final byte[] txState, final boolean usePersistentCache)
+            throws IOException {
         AddServerCacheRequest.Builder builder = AddServerCacheRequest.newBuilder();
         final byte[] tenantIdBytes;
         if (cacheUsingTable.isMultiTenant()) {
@@ -523,8 +530,12 @@ public class ServerCacheClient {
         builder.setCacheFactory(svrCacheFactoryBuider.build());
         builder.setTxState(ByteStringer.wrap(txState));
         builder.setClientVersion(MetaDataProtocol.PHOENIX_VERSION);
-        final AddServerCacheRequest request = builder.build();
+        return builder.build();
+    }
 
+    private boolean addServerCache(Table htable, byte[] key, final AddServerCacheRequest request) throws Exception {
+        byte[] keyInRegion = getKeyInRegion(key);
+        final Map<byte[], AddServerCacheResponse> results;
         try {
             results = htable.coprocessorService(ServerCachingService.class, keyInRegion, keyInRegion,
                     new Batch.Call<ServerCachingService, AddServerCacheResponse>() {
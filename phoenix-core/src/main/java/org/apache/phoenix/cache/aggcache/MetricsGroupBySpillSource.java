@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.cache.aggcache;
+
+import org.apache.hadoop.hbase.metrics.BaseSource;
+
+/**
+ * Interface for metrics about the spilling of server side group by caches.
+ */
+public interface MetricsGroupBySpillSource extends BaseSource {
+  // Metrics2 and JMX constants
+  String METRICS_NAME = "PhoenixGroupBySpill";
+  String METRICS_CONTEXT = "phoenix";
+  String METRICS_DESCRIPTION = "Metrics about the spilling of Phoenix group by caches";
+  String METRICS_JMX_CONTEXT = "RegionServer,sub=" + METRICS_NAME;
+
+  String SPILL_BYTES = "spillBytes";
+  String SPILL_BYTES_DESC = "The number of bytes of group by state spilled to disk";
+  String SPILL_PARTITIONS = "spillPartitions";
+  String SPILL_PARTITIONS_DESC = "The number of group by partitions spilled to disk";
+  String SPILLED_GROUPS = "spilledGroups";
+  String SPILLED_GROUPS_DESC = "The number of groups spilled to disk";
+  String SPILL_MERGE_TIME = "spillMergeTime";
+  String SPILL_MERGE_TIME_DESC = "Histogram for the time in milliseconds for merging back the spilled groups of a scan";
+
+  /**
+   * Updates the number of bytes spilled to disk
+   * @param bytes number of bytes spilled
+   */
+  void incrementSpillBytes(long bytes);
+
+  /**
+   * Updates the number of partitions spilled to disk
+   * @param partitions number of partitions spilled
+   */
+  void incrementSpillPartitions(long partitions);
+
+  /**
+   * Updates the number of groups spilled to disk
+   * @param groups number of groups spilled
+   */
+  void incrementSpilledGroups(long groups);
+
+  /**
+   * Updates the histogram for the time to merge back spilled groups
+   * @param t time taken in milliseconds
+   */
+  void updateSpillMergeTime(long t);
+}
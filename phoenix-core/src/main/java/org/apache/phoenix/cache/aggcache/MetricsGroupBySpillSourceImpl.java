@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.cache.aggcache;
+
+import org.apache.hadoop.hbase.metrics.BaseSourceImpl;
+import org.apache.hadoop.metrics2.MetricHistogram;
+import org.apache.hadoop.metrics2.lib.MutableFastCounter;
+
+/**
+ * Implementation for tracking the spilling of Phoenix group by caches.
+ */
+public class MetricsGroupBySpillSourceImpl extends BaseSourceImpl implements MetricsGroupBySpillSource {
+
+    private final MutableFastCounter spillBytes;
+    private final MutableFastCounter spillPartitions;
+    private final MutableFastCounter spilledGroups;
+    private final MetricHistogram spillMergeTimeHisto;
+
+    public MetricsGroupBySpillSourceImpl() {
+        this(METRICS_NAME, METRICS_DESCRIPTION, METRICS_CONTEXT, METRICS_JMX_CONTEXT);
+    }
+
+    public MetricsGroupBySpillSourceImpl(String metricsName, String metricsDescription,
+        String metricsContext, String metricsJmxContext) {
+        super(metricsName, metricsDescription, metricsContext, metricsJmxContext);
+
+        spillBytes = getMetricsRegistry().newCounter(SPILL_BYTES, SPILL_BYTES_DESC, 0L);
+        spillPartitions = getMetricsRegistry().newCounter(SPILL_PARTITIONS, SPILL_PARTITIONS_DESC, 0L);
+        spilledGroups = getMetricsRegistry().newCounter(SPILLED_GROUPS, SPILLED_GROUPS_DESC, 0L);
+        spillMergeTimeHisto = getMetricsRegistry().newHistogram(SPILL_MERGE_TIME, SPILL_MERGE_TIME_DESC);
+    }
+
+    @Override
+    public void incrementSpillBytes(long bytes) {
+        spillBytes.incr(bytes);
+    }
+
+    @Override
+    public void incrementSpillPartitions(long partitions) {
+        spillPartitions.incr(partitions);
+    }
+
+    @Override
+    public void incrementSpilledGroups(long groups) {
+        spilledGroups.incr(groups);
+    }
+
+    @Override
+    public void updateSpillMergeTime(long t) {
+        spillMergeTimeHisto.add(t);
+    }
+}
@@ -0,0 +1,678 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.phoenix.cache.aggcache;
+
+import static org.apache.phoenix.query.QueryConstants.AGG_TIMESTAMP;
+import static org.apache.phoenix.query.QueryConstants.SINGLE_COLUMN;
+import static org.apache.phoenix.query.QueryConstants.SINGLE_COLUMN_FAMILY;
+import static org.apache.phoenix.query.QueryServices.GROUPBY_OFF_HEAP_PARTITIONS_ATTRIB;
+import static org.apache.phoenix.query.QueryServices.GROUPBY_SPILLABLE_ATTRIB;
+import static org.apache.phoenix.query.QueryServicesOptions.DEFAULT_GROUPBY_OFF_HEAP_PARTITIONS;
+import static org.apache.phoenix.query.QueryServicesOptions.DEFAULT_GROUPBY_SPILLABLE;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.util.List;
+import java.util.UUID;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.coprocessor.RegionCoprocessorEnvironment;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.regionserver.RegionScanner;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.io.WritableUtils;
+import org.apache.phoenix.cache.GlobalCache;
+import org.apache.phoenix.coprocessor.BaseRegionScanner;
+import org.apache.phoenix.coprocessor.GroupByCache;
+import org.apache.phoenix.expression.aggregator.Aggregator;
+import org.apache.phoenix.expression.aggregator.PrimitiveGroupAggregators;
+import org.apache.phoenix.expression.aggregator.ServerAggregators;
+import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
+import org.apache.phoenix.memory.InsufficientMemoryException;
+import org.apache.phoenix.memory.MemoryManager;
+import org.apache.phoenix.memory.MemoryManager.MemoryChunk;
+import org.apache.phoenix.query.QueryServices;
+import org.apache.phoenix.util.Closeables;
+import org.apache.phoenix.util.DirectBufferUtil;
+import org.apache.phoenix.util.EnvironmentEdgeManager;
+import org.apache.phoenix.util.PhoenixKeyValueUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Group by cache that keeps the distinct keys and the state of their aggregators in direct
+ * memory instead of in a map of objects, so that the number of groups adds nothing to the
+ * work of the garbage collector. Only aggregators supported by {@link PrimitiveGroupAggregators}
+ * are handled, since their state has a fixed width.
+ *
+ * The groups are hash partitioned. Each partition is an open addressing table with linear
+ * probing, whose buckets hold the hash of a key and the offset of its entry in an arena, and
+ * whose arena holds each key followed by the slots of its aggregators. All the direct memory
+ * is accounted for in a chunk of the tenant MemoryManager. When the chunk cannot grow, the
+ * largest partition is appended to its spill file and emptied, and aggregation goes on. When
+ * the groups are returned, the runs spilled by a partition are merged back into its table one
+ * partition at a time, so only a single partition needs to fit in memory at that point.
+ * The direct buffers are freed as soon as they are replaced, spilled or returned, rather than
+ * left to the garbage collector.
+ */
+public class OffHeapGroupByCache implements GroupByCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OffHeapGroupByCache.class);
+
+    private static final int MIN_BUCKET_COUNT = 16;
+    private static final int MIN_ARENA_SIZE = 4096;
+    private static final int MAX_ARENA_SIZE = Integer.MAX_VALUE & ~(Bytes.SIZEOF_LONG - 1);
+    private static final int MAX_BUCKET_COUNT = 1 << 27;
+    // Hash of the key and offset of its entry plus one, zero marking an empty bucket
+    private static final int BUCKET_SIZE = 2 * Bytes.SIZEOF_INT;
+    // Rough guess of the group key length, only used to size the initial arenas
+    private static final int ESTIMATED_KEY_SIZE = 16;
+
+    private final ServerAggregators aggregators;
+    private final PrimitiveGroupAggregators groupAggregators;
+    private final int slotsPerGroup;
+    private final boolean spillable;
+    private final File spillDirectory;
+    private final MemoryChunk chunk;
+    private final Partition[] partitions;
+    private final MetricsGroupBySpillSource metricsSource;
+    private long distinctGroups;
+
+    public OffHeapGroupByCache(RegionCoprocessorEnvironment env, ImmutableBytesPtr tenantId,
+            ServerAggregators aggregators, int estDistVals) {
+        this(GlobalCache.getTenantCache(env, tenantId).getMemoryManager(), env.getConfiguration(),
+                aggregators, estDistVals);
+    }
+
+    OffHeapGroupByCache(MemoryManager memoryManager, Configuration conf, ServerAggregators aggregators,
+            int estDistVals) {
+        this.aggregators = aggregators;
+        this.groupAggregators = new PrimitiveGroupAggregators(aggregators.getAggregators());
+        this.slotsPerGroup = groupAggregators.getSlotsPerGroup();
+        this.spillable = conf.getBoolean(GROUPBY_SPILLABLE_ATTRIB, DEFAULT_GROUPBY_SPILLABLE);
+        this.spillDirectory = conf.get(QueryServices.SPOOL_DIRECTORY) != null
+                ? new File(conf.get(QueryServices.SPOOL_DIRECTORY)) : null;
+        int partitionCount = Math.max(1, conf.getInt(GROUPBY_OFF_HEAP_PARTITIONS_ATTRIB,
+                DEFAULT_GROUPBY_OFF_HEAP_PARTITIONS));
+        int estPartitionGroups = Math.max(1, Math.min(MAX_BUCKET_COUNT / 4, estDistVals / partitionCount));
+        int bucketCount = Math.max(MIN_BUCKET_COUNT, Integer.highestOneBit(estPartitionGroups * 2 - 1) * 2);
+        int arenaSize = (int)Math.min(MAX_ARENA_SIZE, Math.max(MIN_ARENA_SIZE,
+                (long)estPartitionGroups * getEntrySize(ESTIMATED_KEY_SIZE)));
+        arenaSize &= ~(Bytes.SIZEOF_LONG - 1);
+        this.chunk = memoryManager.allocate((long)partitionCount * ((long)bucketCount * BUCKET_SIZE + arenaSize));
+        this.partitions = new Partition[partitionCount];
+        this.metricsSource = MetricsGroupBySpillSourceFactory.getInstance().create();
+        for (int i = 0; i < partitionCount; i++) {
+            partitions[i] = new Partition(bucketCount, arenaSize);
+        }
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Instantiating off heap groupby cache of " + partitionCount + " partitions of "
+                    + bucketCount + " buckets and " + arenaSize + " bytes");
+        }
+    }
+
+    private static int mix(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static int align(int size) {
+        return (size + Bytes.SIZEOF_LONG - 1) & ~(Bytes.SIZEOF_LONG - 1);
+    }
+
+    private int getEntrySize(int keyLength) {
+        return align(Bytes.SIZEOF_INT + keyLength) + slotsPerGroup * Bytes.SIZEOF_LONG;
+    }
+
+    private static int getSlot(int offset, int keyLength) {
+        return (offset + align(Bytes.SIZEOF_INT + keyLength)) / Bytes.SIZEOF_LONG;
+    }
+
+    private Partition getPartition(int hash) {
+        // Use the high bits, as the low bits pick the bucket within the partition
+        return partitions[(int)(((hash & 0xFFFFFFFFL) * partitions.length) >>> Integer.SIZE)];
+    }
+
+    private boolean reserve(long nBytes) {
+        try {
+            chunk.resize(chunk.getSize() + nBytes);
+            return true;
+        } catch (InsufficientMemoryException e) {
+            if (!spillable) {
+                throw e;
+            }
+            return false;
+        }
+    }
+
+    private void release(long nBytes) {
+        chunk.resize(chunk.getSize() - nBytes);
+    }
+
+    private Partition getLargestPartition(Partition excluded) {
+        Partition largest = null;
+        for (Partition partition : partitions) {
+            if (partition != excluded && partition.groupCount > 0
+                    && (largest == null || partition.getMemorySize() > largest.getMemorySize())) {
+                largest = partition;
+            }
+        }
+        return largest;
+    }
+
+    /**
+     * Make room for an entry of the given size in a partition, spilling partitions as needed
+     * @param canSpillPartition whether the partition itself may be spilled, which is not the
+     * case while its spilled runs are being merged back
+     */
+    private void ensureCapacity(Partition partition, int entrySize, boolean canSpillPartition) throws IOException {
+        while (!partition.ensureCapacity(entrySize)) {
+            Partition victim = canSpillPartition && partition.isFull(entrySize)
+                    ? partition : getLargestPartition(canSpillPartition ? null : partition);
+            if (victim == null) {
+                throw new InsufficientMemoryException("Unable to fit an entry of " + entrySize
+                        + " bytes in a partition of " + partition.getMemorySize()
+                        + " bytes of the off heap groupby cache");
+            }
+            victim.spill();
+        }
+    }
+
+    /**
+     * Size function returns the number of distinct groups seen so far. A group added to a
+     * partition that has been spilled is only counted when its hash was never spilled by
+     * that partition, so a hash collision may leave a group uncounted but a group is never
+     * counted twice.
+     */
+    @Override
+    public long size() {
+        return distinctGroups;
+    }
+
+    @Override
+    public Aggregator[] cache(ImmutableBytesPtr cacheKey) {
+        int hash = mix(cacheKey.hashCode());
+        Partition partition = getPartition(hash);
+        int slot = partition.find(cacheKey, hash);
+        if (slot < 0) {
+            try {
+                ensureCapacity(partition, getEntrySize(cacheKey.getLength()), true);
+            } catch (IOException ioe) {
+                // Ensure that we always close and delete the temp files
+                try {
+                    throw new RuntimeException(ioe);
+                } finally {
+                    Closeables.closeQuietly(this);
+                }
+            }
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Adding new aggregate bucket for row key "
+                        + Bytes.toStringBinary(cacheKey.get(), cacheKey.getOffset(), cacheKey.getLength()));
+            }
+            slot = partition.insert(cacheKey, hash);
+            if (partition.spilledHashes == null || !partition.spilledHashes.contains(hash)) {
+                distinctGroups++;
+            }
+        }
+        return groupAggregators.getAggregators(partition.state, slot);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            for (Partition partition : partitions) {
+                Closeables.closeQuietly(partition);
+            }
+        } finally {
+            chunk.close();
+        }
+    }
+
+    @Override
+    public RegionScanner getScanner(final RegionScanner s) {
+        return new BaseRegionScanner(s) {
+            private int partitionIndex = -1;
+            private Partition partition;
+            private int offset;
+
+            @Override
+            public void close() throws IOException {
+                try {
+                    s.close();
+                } finally {
+                    // Always close gbCache and swallow possible Exceptions
+                    Closeables.closeQuietly(OffHeapGroupByCache.this);
+                }
+            }
+
+            private boolean hasNext() {
+                if (partition != null && offset < partition.arenaEnd) {
+                    return true;
+                }
+                for (int i = partitionIndex + 1; i < partitions.length; i++) {
+                    if (!partitions[i].isEmpty()) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+
+            @Override
+            public boolean next(List<Cell> results) throws IOException {
+                while (partition == null || offset >= partition.arenaEnd) {
+                    if (partition != null) {
+                        // Give back the memory of the groups already returned before
+                        // merging the spilled runs of the next partition
+                        partition.free();
+                    }
+                    if (++partitionIndex >= partitions.length) {
+                        partition = null;
+                        return false;
+                    }
+                    partition = partitions[partitionIndex];
+                    partition.load();
+                    offset = 0;
+                }
+                int keyLength = partition.arena.getInt(offset);
+                byte[] key = new byte[keyLength];
+                copyToArray(partition.arena, offset + Bytes.SIZEOF_INT, key, keyLength);
+                byte[] value = aggregators.toBytes(
+                        groupAggregators.getAggregators(partition.state, getSlot(offset, keyLength)));
+                offset += getEntrySize(keyLength);
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("Adding new distinct group: " + Bytes.toStringBinary(key)
+                            + " value = " + Bytes.toStringBinary(value));
+                }
+                results.add(PhoenixKeyValueUtil.newKeyValue(key, 0, keyLength, SINGLE_COLUMN_FAMILY,
+                        SINGLE_COLUMN, AGG_TIMESTAMP, value, 0, value.length));
+                return hasNext();
+            }
+        };
+    }
+
+    /**
+     * Open addressing table of a hash partition of the groups, with its spill file
+     */
+    private final class Partition implements Closeable {
+        private ByteBuffer buckets;
+        private int bucketMask;
+        private ByteBuffer arena;
+        private LongBuffer state;
+        private int arenaEnd;
+        private int groupCount;
+        private File spillFile;
+        private DataOutputStream spillOutput;
+        // Hashes of all the groups spilled so far, only used to count the distinct groups
+        private IntHashSet spilledHashes;
+
+        private Partition(int bucketCount, int arenaSize) {
+            allocate(bucketCount, arenaSize);
+        }
+
+        private void freeBuffers() {
+            DirectBufferUtil.free(buckets);
+            DirectBufferUtil.free(arena);
+            buckets = null;
+            arena = null;
+            state = null;
+        }
+
+        private void allocate(int bucketCount, int arenaSize) {
+            buckets = ByteBuffer.allocateDirect(bucketCount * BUCKET_SIZE);
+            bucketMask = bucketCount - 1;
+            arena = ByteBuffer.allocateDirect(arenaSize);
+            state = arena.asLongBuffer();
+            arenaEnd = 0;
+            groupCount = 0;
+        }
+
+        private long getMemorySize() {
+            return buckets == null ? 0 : (long)buckets.capacity() + arena.capacity();
+        }
+
+        private boolean isEmpty() {
+            return groupCount == 0 && spillFile == null;
+        }
+
+        private boolean isFull(int entrySize) {
+            return (long)arenaEnd + entrySize > MAX_ARENA_SIZE || (groupCount + 1) * 2L > MAX_BUCKET_COUNT;
+        }
+
+        /**
+         * @return the index of the first slot of the group with the given key, or -1 if absent
+         */
+        private int find(ImmutableBytesWritable key, int hash) {
+            int bucket = hash & bucketMask;
+            while (true) {
+                int position = bucket * BUCKET_SIZE;
+                int entry = buckets.getInt(position + Bytes.SIZEOF_INT);
+                if (entry == 0) {
+                    return -1;
+                }
+                if (buckets.getInt(position) == hash) {
+                    int offset = entry - 1;
+                    int keyLength = arena.getInt(offset);
+                    if (keyEquals(arena, offset + Bytes.SIZEOF_INT, keyLength,
+                            key.get(), key.getOffset(), key.getLength())) {
+                        return getSlot(offset, keyLength);
+                    }
+                }
+                bucket = (bucket + 1) & bucketMask;
+            }
+        }
+
+        /**
+         * Grow the arena and the buckets so that an entry of the given size may be inserted.
+         * @return false if the memory could not be reserved
+         */
+        private boolean ensureCapacity(int entrySize) {
+            if (isFull(entrySize)) {
+                return false;
+            }
+            int arenaSize = arena.capacity();
+            if (arenaEnd + entrySize > arenaSize) {
+                arenaSize = (int)Math.min(MAX_ARENA_SIZE, Math.max(arenaEnd + entrySize, arenaSize * 2L));
+            }
+            int bucketCount = bucketMask + 1;
+            // Keep the load factor under 0.75
+            if ((groupCount + 1) * 4L > bucketCount * 3L) {
+                bucketCount *= 2;
+            }
+            long delta = (long)(arenaSize - arena.capacity()) + (long)(bucketCount - bucketMask - 1) * BUCKET_SIZE;
+            if (delta == 0) {
+                return true;
+            }
+            if (!reserve(delta)) {
+                return false;
+            }
+            if (arenaSize != arena.capacity()) {
+                ByteBuffer newArena = ByteBuffer.allocateDirect(arenaSize);
+                ByteBuffer used = arena.duplicate();
+                used.position(0).limit(arenaEnd);
+                newArena.put(used);
+                newArena.clear();
+                DirectBufferUtil.free(arena);
+                arena = newArena;
+                state = arena.asLongBuffer();
+            }
+            if (bucketCount != bucketMask + 1) {
+                ByteBuffer oldBuckets = buckets;
+                buckets = ByteBuffer.allocateDirect(bucketCount * BUCKET_SIZE);
+                bucketMask = bucketCount - 1;
+                for (int position = 0; position < oldBuckets.capacity(); position += BUCKET_SIZE) {
+                    int entry = oldBuckets.getInt(position + Bytes.SIZEOF_INT);
+                    if (entry != 0) {
+                        putBucket(oldBuckets.getInt(position), entry);
+                    }
+                }
+                DirectBufferUtil.free(oldBuckets);
+            }
+            return true;
+        }
+
+        private void putBucket(int hash, int entry) {
+            int bucket = hash & bucketMask;
+            while (buckets.getInt(bucket * BUCKET_SIZE + Bytes.SIZEOF_INT) != 0) {
+                bucket = (bucket + 1) & bucketMask;
+            }
+            buckets.putInt(bucket * BUCKET_SIZE, hash);
+            buckets.putInt(bucket * BUCKET_SIZE + Bytes.SIZEOF_INT, entry);
+        }
+
+        /**
+         * Append a new group with empty state, which must fit in the current capacity
+         * @return the index of the first slot of the new group
+         */
+        private int insert(ImmutableBytesWritable key, int hash) {
+            int offset = arenaEnd;
+            int keyLength = key.getLength();
+            arena.putInt(offset, keyLength);
+            for (int i = 0; i < keyLength; i++) {
+                arena.put(offset + Bytes.SIZEOF_INT + i, key.get()[key.getOffset() + i]);
+            }
+            int slot = getSlot(offset, keyLength);
+            for (int i = 0; i < slotsPerGroup; i++) {
+                state.put(slot + i, 0);
+            }
+            arenaEnd = offset + getEntrySize(keyLength);
+            putBucket(hash, offset + 1);
+            groupCount++;
+            return slot;
+        }
+
+        /**
+         * Append all groups to the spill file of the partition and shrink it back to its
+         * minimum size
+         */
+        private void spill() throws IOException {
+            if (spillOutput == null) {
+                spillFile = File.createTempFile(UUID.randomUUID().toString(), null, spillDirectory);
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("Creating new spill file: " + spillFile.getAbsolutePath());
+                }
+                spillOutput = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(spillFile)));
+                metricsSource.incrementSpillPartitions(1);
+            }
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Spilling " + groupCount + " groups to " + spillFile.getAbsolutePath());
+            }
+            int spillSize = spillOutput.size();
+            byte[] key = new byte[0];
+            for (int offset = 0; offset < arenaEnd; ) {
+                int keyLength = arena.getInt(offset);
+                if (key.length < keyLength) {
+                    key = new byte[keyLength];
+                }
+                copyToArray(arena, offset + Bytes.SIZEOF_INT, key, keyLength);
+                WritableUtils.writeVInt(spillOutput, keyLength);
+                spillOutput.write(key, 0, keyLength);
+                int slot = getSlot(offset, keyLength);
+                for (int i = 0; i < slotsPerGroup; i++) {
+                    spillOutput.writeLong(state.get(slot + i));
+                }
+                offset += getEntrySize(keyLength);
+            }
+            metricsSource.incrementSpillBytes(spillOutput.size() - spillSize);
+            metricsSource.incrementSpilledGroups(groupCount);
+            long memorySize = getMemorySize() + getSpilledHashesSize();
+            if (spilledHashes == null) {
+                spilledHashes = new IntHashSet(groupCount);
+            }
+            for (int position = 0; position < buckets.capacity(); position += BUCKET_SIZE) {
+                if (buckets.getInt(position + Bytes.SIZEOF_INT) != 0) {
+                    spilledHashes.add(buckets.getInt(position));
+                }
+            }
+            freeBuffers();
+            allocate(MIN_BUCKET_COUNT, MIN_ARENA_SIZE);
+            // Only grows when the hashes take more room than the groups that were spilled
+            release(memorySize - getMemorySize() - getSpilledHashesSize());
+        }
+
+        private long getSpilledHashesSize() {
+            return spilledHashes == null ? 0 : spilledHashes.getMemorySize();
+        }
+
+        /**
+         * Merge the groups spilled by the partition back into its table, spilling the
+         * partitions not returned yet if needed
+         */
+        private void load() throws IOException {
+            if (spillOutput == null) {
+                return;
+            }
+            spillOutput.close();
+            spillOutput = null;
+            long startTime = EnvironmentEdgeManager.currentTimeMillis();
+            long[] values = new long[slotsPerGroup];
+            byte[] key = new byte[0];
+            DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(spillFile)));
+            try {
+                while (true) {
+                    int keyLength;
+                    try {
+                        keyLength = WritableUtils.readVInt(input);
+                    } catch (EOFException e) {
+                        break;
+                    }
+                    if (key.length < keyLength) {
+                        key = new byte[keyLength];
+                    }
+                    input.readFully(key, 0, keyLength);
+                    for (int i = 0; i < slotsPerGroup; i++) {
+                        values[i] = input.readLong();
+                    }
+                    ImmutableBytesPtr ptr = new ImmutableBytesPtr(key, 0, keyLength);
+                    int hash = mix(ptr.hashCode());
+                    int slot = find(ptr, hash);
+                    if (slot < 0) {
+                        OffHeapGroupByCache.this.ensureCapacity(this, getEntrySize(keyLength), false);
+                        slot = insert(ptr, hash);
+                    }
+                    groupAggregators.merge(state, slot, values);
+                }
+            } finally {
+                Closeables.closeQuietly(input);
+                deleteSpillFile();
+            }
+            metricsSource.updateSpillMergeTime(EnvironmentEdgeManager.currentTimeMillis() - startTime);
+        }
+
+        private void deleteSpillFile() {
+            if (spillFile != null) {
+                if (!spillFile.delete()) {
+                    LOGGER.warn("Unable to delete spill file " + spillFile.getAbsolutePath());
+                }
+                spillFile = null;
+            }
+        }
+
+        /**
+         * Release the memory of the partition once its groups have been returned
+         */
+        private void free() {
+            long memorySize = getMemorySize() + getSpilledHashesSize();
+            freeBuffers();
+            spilledHashes = null;
+            arenaEnd = 0;
+            groupCount = 0;
+            release(memorySize);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                Closeables.closeQuietly(spillOutput);
+                spillOutput = null;
+            } finally {
+                freeBuffers();
+                deleteSpillFile();
+            }
+        }
+    }
+
+    /*
+     * The arenas are accessed with the absolute methods of ByteBuffer rather than with HBase's
+     * ByteBufferUtils, whose unsafe access to direct buffers needs sun.nio.ch exported on Java 9+.
+     */
+    private static void copyToArray(ByteBuffer buffer, int offset, byte[] array, int length) {
+        for (int i = 0; i < length; i++) {
+            array[i] = buffer.get(offset + i);
+        }
+    }
+
+    private static boolean keyEquals(ByteBuffer buffer, int offset, int length, byte[] array, int arrayOffset,
+            int arrayLength) {
+        if (length != arrayLength) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (buffer.get(offset + i) != array[arrayOffset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Open addressing set of int hashes. Zero is stored as one, which at worst makes a
+     * group look like it was spilled when it was not.
+     */
+    private static final class IntHashSet {
+        private int[] table;
+        private int size;
+
+        private IntHashSet(int expectedSize) {
+            table = new int[Math.max(MIN_BUCKET_COUNT, Integer.highestOneBit(Math.max(1, expectedSize) * 2 - 1) * 2)];
+        }
+
+        private long getMemorySize() {
+            return (long)table.length * Bytes.SIZEOF_INT;
+        }
+
+        private boolean contains(int hash) {
+            int value = hash == 0 ? 1 : hash;
+            int mask = table.length - 1;
+            for (int i = value & mask; table[i] != 0; i = (i + 1) & mask) {
+                if (table[i] == value) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void add(int hash) {
+            int value = hash == 0 ? 1 : hash;
+            int mask = table.length - 1;
+            int i = value & mask;
+            for (; table[i] != 0; i = (i + 1) & mask) {
+                if (table[i] == value) {
+                    return;
+                }
+            }
+            table[i] = value;
+            // Keep the load factor at or under 0.5
+            if (++size * 2 > table.length) {
+                int[] oldTable = table;
+                table = new int[oldTable.length * 2];
+                mask = table.length - 1;
+                for (int old : oldTable) {
+                    if (old != 0) {
+                        int j = old & mask;
+                        while (table[j] != 0) {
+                            j = (j + 1) & mask;
+                        }
+                        table[j] = old;
+                    }
+                }
+            }
+        }
+    }
+}
@@ -21,6 +21,7 @@ package org.apache.phoenix.cache.aggcache;
 import com.google.common.collect.Maps;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.phoenix.util.Closeables;
+import org.apache.phoenix.util.DirectBufferUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -28,6 +29,7 @@ import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileChannel.MapMode;
@@ -56,14 +58,28 @@ public class SpillFile implements Closeable {
     private static class TempFile implements Closeable {
         private final RandomAccessFile rndFile;
         private final File file;
+        private MappedByteBuffer mappedFile;
 
         public TempFile(File file, RandomAccessFile rndFile) {
             this.file = file;
             this.rndFile = rndFile;
         }
 
+        // Read only mapping of the whole file, created on first use
+        private synchronized ByteBuffer getMappedFile() throws IOException {
+            if (mappedFile == null) {
+                mappedFile = rndFile.getChannel().map(MapMode.READ_ONLY, 0, SPILL_FILE_SIZE);
+            }
+            return mappedFile.duplicate();
+        }
+
         @Override
         public void close() throws IOException {
+            synchronized (this) {
+                // Unmap right away rather than when the mapping is garbage collected
+                DirectBufferUtil.free(mappedFile);
+                mappedFile = null;
+            }
             Closeables.closeQuietly(rndFile.getChannel());
             Closeables.closeQuietly(rndFile);
 
@@ -150,6 +166,45 @@ public class SpillFile implements Closeable {
         }
     }
 
+    /**
+     * Read only access to a page of the current spill file through a memory mapping of the file.
+     * Used to read the pages sequentially once no more pages are written.
+     * @param index
+     * @return a buffer holding exactly the page, to be released with {@link #releasePageBuffer}
+     * once read
+     */
+    public ByteBuffer getPageBuffer(int index) throws IOException {
+        long offset = (long) index * (long) DEFAULT_PAGE_SIZE;
+        int fileIndex = (int) (offset / SPILL_FILE_SIZE);
+        TempFile tempFile = tempFiles.get(fileIndex);
+        if (tempFile == null) {
+            throw new IOException("No spill file holds the page at index: " + index);
+        }
+        if (fileIndex == 0 && offset + DEFAULT_PAGE_SIZE <= SPILL_FILE_SIZE) {
+            ByteBuffer page = tempFile.getMappedFile();
+            page.position((int) offset);
+            page.limit((int) offset + DEFAULT_PAGE_SIZE);
+            return page.slice();
+        }
+        // Overflow files are written at the same offset as in the first file, see getPage
+        return tempFile.rndFile.getChannel().map(MapMode.READ_ONLY, offset, DEFAULT_PAGE_SIZE);
+    }
+
+    /**
+     * Release a buffer returned by {@link #getPageBuffer}. Pages of the first file are views of
+     * its mapping, which stays in place until close, while pages of overflow files are mapped
+     * one at a time and unmapped here.
+     * @param index
+     * @param page
+     */
+    public void releasePageBuffer(int index, ByteBuffer page) {
+        long offset = (long) index * (long) DEFAULT_PAGE_SIZE;
+        if (offset / SPILL_FILE_SIZE == 0 && offset + DEFAULT_PAGE_SIZE <= SPILL_FILE_SIZE) {
+            return;
+        }
+        DirectBufferUtil.free(page);
+    }
+
     @Override
     public void close() {
     	for(TempFile file : tempFiles.values()) {
@@ -26,7 +26,15 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.Cell;
@@ -44,11 +52,13 @@ import org.apache.phoenix.schema.ValueBitSet;
 import org.apache.phoenix.schema.tuple.SingleKeyValueTuple;
 import org.apache.phoenix.schema.tuple.Tuple;
 import org.apache.phoenix.util.Closeables;
+import org.apache.phoenix.util.EnvironmentEdgeManager;
 import org.apache.phoenix.util.PhoenixKeyValueUtil;
 import org.apache.phoenix.util.TupleUtil;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Uninterruptibles;
 
 /**
  * Class servers as an adapter between the in-memory LRU cache and the Spill data structures. It
@@ -95,11 +105,19 @@ public class SpillManager implements Closeable {
 
     }
 
+    // Number of deserialized entries handed over from the spill partitions to the scanner
+    private static final int MERGE_QUEUE_SIZE = 1024;
+    private static final Object END_OF_PARTITION = new Object();
+
     private final ArrayList<SpillMap> spillMaps;
+    // Whether a tuple was spilled to each partition, to count the partitions that spilled
+    private final boolean[] spilledPartitions;
     private final int numSpillFiles;
 
     private final ServerAggregators aggregators;
     private final Configuration conf;
+    private final SpillableGroupByCache.QueryCache cache;
+    private final MetricsGroupBySpillSource metricsSource;
 
     /**
      * SpillManager takes care of spilling and loading tuples from spilled data structs
@@ -111,9 +129,12 @@ public class SpillManager implements Closeable {
         try {
             int estValueSize = serverAggregators.getEstimatedByteSize();
             spillMaps = Lists.newArrayList();
+            spilledPartitions = new boolean[numSpillFiles];
             this.numSpillFiles = numSpillFiles;
             this.aggregators = serverAggregators;
             this.conf = conf;
+            this.cache = cache;
+            this.metricsSource = MetricsGroupBySpillSourceFactory.getInstance().create();
             File spillFilesDir = conf.get(QueryServices.SPOOL_DIRECTORY) != null ?
                 new File(conf.get(QueryServices.SPOOL_DIRECTORY)) : null;
             
@@ -260,10 +281,17 @@ public class SpillManager implements Closeable {
      * @throws IOException
      */
     public void spill(ImmutableBytesWritable key, Aggregator[] value) throws IOException {
-        SpillMap spillMap = spillMaps.get(getPartition(key));
+        int partition = getPartition(key);
+        SpillMap spillMap = spillMaps.get(partition);
         ImmutableBytesPtr keyPtr = new ImmutableBytesPtr(key);
         byte[] data = serialize(keyPtr, value, aggregators);
         spillMap.put(keyPtr, data);
+        if (!spilledPartitions[partition]) {
+            spilledPartitions[partition] = true;
+            metricsSource.incrementSpillPartitions(1);
+        }
+        metricsSource.incrementSpillBytes(data.length);
+        metricsSource.incrementSpilledGroups(1);
     }
 
     /**
@@ -297,6 +325,136 @@ public class SpillManager implements Closeable {
         return new SpillMapIterator();
     }
 
+    /**
+     * Function returns an iterator over all spilled tuples that were not loaded back into the LRU
+     * cache, deserialized into CacheEntries. The spill partitions hold disjoint keys, so each one is
+     * read in page order and deserialized by its own task on the given executor, and the entries are
+     * handed over through a bounded queue. The iterator must be closed to stop the tasks.
+     */
+    public SpilledEntryIterator newEntryIterator(ExecutorService executor) {
+        return new SpilledEntryIterator(executor);
+    }
+
+    public final class SpilledEntryIterator implements
+            Iterator<Map.Entry<ImmutableBytesWritable, Aggregator[]>>, Closeable {
+        private final BlockingQueue<Object> queue = new ArrayBlockingQueue<Object>(MERGE_QUEUE_SIZE);
+        private final List<Future<?>> tasks;
+        private final long startTime = EnvironmentEdgeManager.currentTimeMillis();
+        private volatile boolean closed;
+        private volatile Throwable error;
+        private int remainingTasks;
+        private Map.Entry<ImmutableBytesWritable, Aggregator[]> next;
+
+        private SpilledEntryIterator(ExecutorService executor) {
+            tasks = Lists.newArrayListWithExpectedSize(spillMaps.size());
+            remainingTasks = spillMaps.size();
+            for (final SpillMap spillMap : spillMaps) {
+                // Write out the last page before any task reads the file
+                final int[] pageIndexes = spillMap.getPageIndexes();
+                tasks.add(executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        readPartition(spillMap, pageIndexes);
+                    }
+                }));
+            }
+        }
+
+        private void readPartition(SpillMap spillMap, int[] pageIndexes) {
+            try {
+                for (int pageIndex : pageIndexes) {
+                    for (byte[] data : spillMap.readPage(pageIndex)) {
+                        // LRU Cache entries always take precedence,
+                        // since they are more up to date
+                        if (!cache.isKeyContained(getKey(data))
+                                && !offer(toCacheEntry(data))) {
+                            return;
+                        }
+                    }
+                }
+            } catch (Throwable t) {
+                error = t;
+            } finally {
+                offer(END_OF_PARTITION);
+            }
+        }
+
+        // Wait for room in the queue, unless the iterator was closed
+        private boolean offer(Object o) {
+            try {
+                while (!closed) {
+                    if (queue.offer(o, 100, TimeUnit.MILLISECONDS)) {
+                        return true;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return false;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean hasNext() {
+            if (next != null) {
+                return true;
+            }
+            while (remainingTasks > 0) {
+                Object o;
+                try {
+                    o = queue.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(e);
+                }
+                if (o == END_OF_PARTITION) {
+                    if (error != null) {
+                        throw new RuntimeException(error);
+                    }
+                    if (--remainingTasks == 0) {
+                        metricsSource.updateSpillMergeTime(EnvironmentEdgeManager.currentTimeMillis() - startTime);
+                    }
+                } else {
+                    next = (Map.Entry<ImmutableBytesWritable, Aggregator[]>) o;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public Map.Entry<ImmutableBytesWritable, Aggregator[]> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Map.Entry<ImmutableBytesWritable, Aggregator[]> entry = next;
+            next = null;
+            return entry;
+        }
+
+        @Override
+        public void remove() {
+            throw new IllegalAccessError("Remove is not supported for this type of iterator");
+        }
+
+        /**
+         * Stop the tasks and wait for them, so that the spill files may be unmapped and deleted.
+         * An interrupt does not cut the wait short, since a task still reading an unmapped file
+         * would crash the region server, and the tasks stop within one offer timeout anyway.
+         */
+        @Override
+        public void close() {
+            closed = true;
+            for (Future<?> task : tasks) {
+                try {
+                    Uninterruptibles.getUninterruptibly(task);
+                } catch (ExecutionException e) {
+                    // Already reported through hasNext
+                }
+            }
+        }
+    }
+
     private final class SpillMapIterator implements Iterator<byte[]> {
 
         int index = 0;
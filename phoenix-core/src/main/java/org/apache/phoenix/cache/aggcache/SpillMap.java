@@ -21,11 +21,14 @@ package org.apache.phoenix.cache.aggcache;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
 import java.util.AbstractMap;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -296,6 +299,42 @@ public class SpillMap extends AbstractMap<ImmutableBytesPtr, byte[]> implements
         return value;
     }
 
+    /**
+     * Write out the page currently in memory and return the indexes of all pages holding spilled
+     * elements, in file order so that they can be read sequentially with {@link #readPage(int)}
+     */
+    public int[] getPageIndexes() {
+        directory[curMapBufferIndex].flushBuffer();
+        HashSet<Integer> pages = new HashSet<Integer>();
+        for (FileMap fileMap : directory) {
+            pages.add(fileMap.pageIndex);
+        }
+        int[] pageIndexes = new int[pages.size()];
+        int i = 0;
+        for (Integer page : pages) {
+            pageIndexes[i++] = page;
+        }
+        Arrays.sort(pageIndexes);
+        return pageIndexes;
+    }
+
+    /**
+     * Read the elements of a page written out to the spill file, without paging it in
+     * @param pageIndex index of the page, as returned by {@link #getPageIndexes()}
+     */
+    public List<byte[]> readPage(int pageIndex) throws IOException {
+        ByteBuffer page = spillFile.getPageBuffer(pageIndex);
+        int numElements = page.getInt();
+        List<byte[]> elements = new ArrayList<byte[]>(numElements);
+        for (int i = 0; i < numElements; i++) {
+            byte[] data = new byte[page.getInt()];
+            page.get(data);
+            elements.add(data);
+        }
+        spillFile.releasePageBuffer(pageIndex, page);
+        return elements;
+    }
+
     /**
      * Function returns the current spill file
      */
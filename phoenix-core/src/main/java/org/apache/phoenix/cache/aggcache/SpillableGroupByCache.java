@@ -23,8 +23,10 @@ import static org.apache.phoenix.query.QueryConstants.SINGLE_COLUMN;
 import static org.apache.phoenix.query.QueryConstants.SINGLE_COLUMN_FAMILY;
 import static org.apache.phoenix.query.QueryServices.GROUPBY_MAX_CACHE_SIZE_ATTRIB;
 import static org.apache.phoenix.query.QueryServices.GROUPBY_SPILL_FILES_ATTRIB;
+import static org.apache.phoenix.query.QueryServices.GROUPBY_SPILL_MERGE_THREADS_ATTRIB;
 import static org.apache.phoenix.query.QueryServicesOptions.DEFAULT_GROUPBY_MAX_CACHE_MAX;
 import static org.apache.phoenix.query.QueryServicesOptions.DEFAULT_GROUPBY_SPILL_FILES;
+import static org.apache.phoenix.query.QueryServicesOptions.DEFAULT_GROUPBY_SPILL_MERGE_THREADS;
 
 import java.io.IOException;
 import java.util.Iterator;
@@ -32,6 +34,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ThreadPoolExecutor;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.Cell;
@@ -42,11 +45,14 @@ import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.phoenix.cache.GlobalCache;
 import org.apache.phoenix.cache.TenantCache;
 import org.apache.phoenix.cache.aggcache.SpillManager.CacheEntry;
+import org.apache.phoenix.cache.aggcache.SpillManager.SpilledEntryIterator;
 import org.apache.phoenix.coprocessor.BaseRegionScanner;
 import org.apache.phoenix.coprocessor.GroupByCache;
 import org.apache.phoenix.coprocessor.GroupedAggregateRegionObserver;
 import org.apache.phoenix.expression.aggregator.Aggregator;
 import org.apache.phoenix.expression.aggregator.ServerAggregators;
+import org.apache.phoenix.hbase.index.parallel.ThreadPoolBuilder;
+import org.apache.phoenix.hbase.index.parallel.ThreadPoolManager;
 import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
 import org.apache.phoenix.memory.InsufficientMemoryException;
 import org.apache.phoenix.memory.MemoryManager.MemoryChunk;
@@ -97,6 +103,7 @@ public class SpillableGroupByCache implements GroupByCache {
 
     // Min size of 1st level main memory cache in bytes --> lower bound
     private static final int SPGBY_CACHE_MIN_SIZE = 4096; // 4K
+    private static final String SPILL_MERGE_POOL_NAME = "PhoenixGroupBySpillMerge";
 
     // TODO Generally better to use Collection API with generics instead of
     // array types
@@ -106,6 +113,8 @@ public class SpillableGroupByCache implements GroupByCache {
     private final ServerAggregators aggregators;
     private final RegionCoprocessorEnvironment env;
     private final MemoryChunk chunk;
+    private ThreadPoolExecutor mergeExecutor = null;
+    private SpilledEntryIterator spilledEntryIterator = null;
 
     /*
      * inner class that makes cache queryable for other classes that should not get the full instance. Queryable view of
@@ -255,16 +264,21 @@ public class SpillableGroupByCache implements GroupByCache {
     /**
      * Iterator over the cache and the spilled data structures by returning CacheEntries. CacheEntries are either
      * extracted from the LRU cache or from the spillable data structures.The key/value tuples are returned in
-     * non-deterministic order.
+     * non-deterministic order. The spill partitions are read and deserialized in parallel on a pool shared by
+     * the region server, sized by GROUPBY_SPILL_MERGE_THREADS_ATTRIB.
      */
     private final class EntryIterator implements Iterator<Map.Entry<ImmutableBytesWritable, Aggregator[]>> {
         final Iterator<Map.Entry<ImmutableBytesWritable, Aggregator[]>> cacheIter;
-        final Iterator<byte[]> spilledCacheIter;
+        final Iterator<Map.Entry<ImmutableBytesWritable, Aggregator[]>> spilledCacheIter;
 
         private EntryIterator() {
             cacheIter = cache.entrySet().iterator();
             if (spillManager != null) {
-                spilledCacheIter = spillManager.newDataIterator();
+                mergeExecutor = ThreadPoolManager.getExecutor(
+                        new ThreadPoolBuilder(SPILL_MERGE_POOL_NAME, env.getConfiguration()).setMaxThread(
+                                GROUPBY_SPILL_MERGE_THREADS_ATTRIB, DEFAULT_GROUPBY_SPILL_MERGE_THREADS), env);
+                spilledEntryIterator = spillManager.newEntryIterator(mergeExecutor);
+                spilledCacheIter = spilledEntryIterator;
             } else {
                 spilledCacheIter = null;
             }
@@ -272,40 +286,15 @@ public class SpillableGroupByCache implements GroupByCache {
 
         @Override
         public boolean hasNext() {
-            return cacheIter.hasNext();
+            return (spilledCacheIter != null && spilledCacheIter.hasNext()) || cacheIter.hasNext();
         }
 
         @Override
         public Map.Entry<ImmutableBytesWritable, Aggregator[]> next() {
             if (spilledCacheIter != null && spilledCacheIter.hasNext()) {
-                try {
-                    byte[] value = spilledCacheIter.next();
-                    // Deserialize into a CacheEntry
-                    Map.Entry<ImmutableBytesWritable, Aggregator[]> spilledEntry = spillManager.toCacheEntry(value);
-
-                    boolean notFound = false;
-                    // check against map and return only if not present
-                    while (cache.containsKey(spilledEntry.getKey())) {
-                        // LRU Cache entries always take precedence,
-                        // since they are more up to date
-                        if (spilledCacheIter.hasNext()) {
-                            value = spilledCacheIter.next();
-                            spilledEntry = spillManager.toCacheEntry(value);
-                        } else {
-                            notFound = true;
-                            break;
-                        }
-                    }
-                    if (!notFound) {
-                        // Return a spilled entry, this only happens if the
-                        // entry was not
-                        // found in the LRU cache
-                        return spilledEntry;
-                    }
-                } catch (IOException ioe) {
-                    // TODO rework error handling
-                    throw new RuntimeException(ioe);
-                }
+                // Return a spilled entry, this only happens if the
+                // entry was not found in the LRU cache
+                return spilledCacheIter.next();
             }
             // Spilled elements exhausted
             // Finally return all elements from LRU cache
@@ -329,9 +318,16 @@ public class SpillableGroupByCache implements GroupByCache {
      */
     @Override
     public void close() throws IOException {
+        // Stop reading the spill files before closing them
+        Closeables.closeQuietly(spilledEntryIterator);
         // Close spillable resources
         Closeables.closeQuietly(spillManager);
         Closeables.closeQuietly(chunk);
+        if (mergeExecutor != null) {
+            // Release our reference to the shared pool
+            mergeExecutor.shutdown();
+            mergeExecutor = null;
+        }
     }
 
     @Override
@@ -55,6 +55,7 @@ import org.apache.phoenix.iterate.ParallelIteratorFactory;
 import org.apache.phoenix.jdbc.PhoenixConnection;
 import org.apache.phoenix.jdbc.PhoenixStatement;
 import org.apache.phoenix.join.HashJoinInfo;
+import org.apache.phoenix.join.HashJoinRuntimeFilter;
 import org.apache.phoenix.optimize.Cost;
 import org.apache.phoenix.parse.AliasedNode;
 import org.apache.phoenix.parse.EqualParseNode;
@@ -106,6 +107,7 @@ public class QueryCompiler {
     private final boolean optimizeSubquery;
     private final Map<TableRef, QueryPlan> dataPlans;
     private final boolean costBased;
+    private final boolean useHashJoinRuntimeFilter;
 
     public QueryCompiler(PhoenixStatement statement, SelectStatement select, ColumnResolver resolver, boolean projectTuples, boolean optimizeSubquery, Map<TableRef, QueryPlan> dataPlans) throws SQLException {
         this(statement, select, resolver, Collections.<PDatum>emptyList(), null, new SequenceManager(statement), projectTuples, optimizeSubquery, dataPlans);
@@ -124,6 +126,7 @@ public class QueryCompiler {
         this.usePersistentCache = select.getHint().hasHint(Hint.USE_PERSISTENT_CACHE);
         ConnectionQueryServices services = statement.getConnection().getQueryServices();
         this.costBased = services.getProps().getBoolean(QueryServices.COST_BASED_OPTIMIZER_ENABLED, QueryServicesOptions.DEFAULT_COST_BASED_OPTIMIZER_ENABLED);
+        this.useHashJoinRuntimeFilter = services.getProps().getBoolean(QueryServices.HASH_JOIN_RUNTIME_FILTER_ENABLED_ATTRIB, QueryServicesOptions.DEFAULT_HASH_JOIN_RUNTIME_FILTER_ENABLED);
         scan.setLoadColumnFamiliesOnDemand(true);
         if (select.getHint().hasHint(Hint.NO_CACHE)) {
             scan.setCacheBlocks(false);
@@ -341,7 +344,19 @@ public class QueryCompiler {
                     if (i < count - 1) {
                         fieldPositions[i + 1] = fieldPositions[i] + (tables[i] == null ? 0 : (tables[i].getColumns().size() - tables[i].getPKColumns().size()));
                     }
-                    hashPlans[i] = new HashSubPlan(i, subPlans[i], optimized ? null : hashExpressions, joinSpec.isSingleValueOnly(), usePersistentCache, keyRangeLhsExpression, keyRangeRhsExpression);
+                    // Without a key range on the row key, the build side keys can still be pushed to the
+                    // probe side scan as a filter, provided that the join is evaluated against the
+                    // base table rows and that rows without a match are discarded.
+                    ParseNode runtimeFilterLhsNode = null;
+                    Expression runtimeFilterRhsExpression = null;
+                    if (useHashJoinRuntimeFilter && keyRangeLhsExpression == null && !table.isSubselect()
+                            && starJoinVector != null && starJoinVector[i] && joinSpec.getOnConditions().size() == 1
+                            && (joinTypes[i] == JoinType.Inner || joinTypes[i] == JoinType.Semi)
+                            && HashJoinRuntimeFilter.isSupported(hashExpressions.get(0))) {
+                        runtimeFilterLhsNode = joinSpec.getOnConditions().get(0).getLHS();
+                        runtimeFilterRhsExpression = hashExpressions.get(0);
+                    }
+                    hashPlans[i] = new HashSubPlan(i, subPlans[i], optimized ? null : hashExpressions, joinSpec.isSingleValueOnly(), usePersistentCache, keyRangeLhsExpression, keyRangeRhsExpression, runtimeFilterLhsNode, runtimeFilterRhsExpression);
                 }
                 TupleProjector.serializeProjectorIntoScan(context.getScan(), tupleProjector,
                         wildcardIncludesDynamicCols);
@@ -20,10 +20,13 @@ package org.apache.phoenix.compile;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 
 import org.apache.phoenix.expression.Expression;
+import org.apache.phoenix.expression.function.SingleAggregateFunction;
 import org.apache.phoenix.expression.visitor.CloneExpressionVisitor;
+import org.apache.phoenix.expression.visitor.SingleAggregateFunctionVisitor;
 import org.apache.phoenix.schema.ColumnNotFoundException;
 import org.apache.phoenix.util.SchemaUtil;
 
@@ -52,6 +55,7 @@ public class RowProjector {
     private final boolean isProjectEmptyKeyValue;
     private final boolean cloneRequired;
     private final boolean hasUDFs;
+    private final boolean hasAggregateFunctions;
     private final boolean isProjectDynColsInWildcardQueries;
 
     public RowProjector(RowProjector projector, boolean isProjectEmptyKeyValue) {
@@ -115,6 +119,17 @@ public class RowProjector {
             }
         }
         this.cloneRequired = cloneRequired || hasUDFs;
+        final boolean[] hasAggregateFunctions = new boolean[1];
+        for (ColumnProjector colProjector : this.columnProjectors) {
+            colProjector.getExpression().accept(new SingleAggregateFunctionVisitor() {
+                @Override
+                public Iterator<Expression> visitEnter(SingleAggregateFunction node) {
+                    hasAggregateFunctions[0] = true;
+                    return Collections.emptyIterator();
+                }
+            });
+        }
+        this.hasAggregateFunctions = hasAggregateFunctions[0];
         this.isProjectDynColsInWildcardQueries = isProjectDynColsInWildcardQueries;
     }
 
@@ -154,6 +169,16 @@ public class RowProjector {
         return hasUDFs;
     }
 
+    /**
+     * Aggregate functions evaluate to the state of the aggregators of the plan, which the result
+     * iterator overwrites as it reads the next group. Rows of such projections must therefore be
+     * projected before the iterator is advanced, and may not be read ahead.
+     * @return true if any projected expression contains an aggregate function
+     */
+    public boolean hasAggregateFunctions() {
+        return hasAggregateFunctions;
+    }
+
     public boolean projectDynColsInWildcardQueries() {
         return isProjectDynColsInWildcardQueries;
     }
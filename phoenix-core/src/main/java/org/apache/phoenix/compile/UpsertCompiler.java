@@ -517,6 +517,8 @@ public class UpsertCompiler {
                 pkSlotIndexesToBe[i] = table.getRowTimestampColPos();
                 targetColumns.add(rowTimestampCol);
                 if (valueNodes != null && !valueNodes.isEmpty()) {
+                    // Copy the values, as the parsed statement may be cached and compiled again
+                    valueNodes = Lists.newArrayList(valueNodes);
                     valueNodes.add(getNodeForRowTimestampColumn(rowTimestampCol));
                 }
                 nColumnsToSet++;
@@ -21,8 +21,10 @@ import static org.apache.phoenix.query.QueryConstants.AGG_TIMESTAMP;
 import static org.apache.phoenix.query.QueryConstants.SINGLE_COLUMN;
 import static org.apache.phoenix.query.QueryConstants.SINGLE_COLUMN_FAMILY;
 import static org.apache.phoenix.query.QueryServices.GROUPBY_ESTIMATED_DISTINCT_VALUES_ATTRIB;
+import static org.apache.phoenix.query.QueryServices.GROUPBY_OFF_HEAP_ENABLED_ATTRIB;
 import static org.apache.phoenix.query.QueryServices.GROUPBY_SPILLABLE_ATTRIB;
 import static org.apache.phoenix.query.QueryServicesOptions.DEFAULT_GROUPBY_ESTIMATED_DISTINCT_VALUES;
+import static org.apache.phoenix.query.QueryServicesOptions.DEFAULT_GROUPBY_OFF_HEAP_ENABLED;
 import static org.apache.phoenix.query.QueryServicesOptions.DEFAULT_GROUPBY_SPILLABLE;
 
 import java.io.ByteArrayInputStream;
@@ -52,11 +54,13 @@ import org.apache.hadoop.hbase.util.Pair;
 import org.apache.hadoop.io.WritableUtils;
 import org.apache.phoenix.cache.GlobalCache;
 import org.apache.phoenix.cache.TenantCache;
+import org.apache.phoenix.cache.aggcache.OffHeapGroupByCache;
 import org.apache.phoenix.cache.aggcache.SpillableGroupByCache;
 import org.apache.phoenix.execute.TupleProjector;
 import org.apache.phoenix.expression.Expression;
 import org.apache.phoenix.expression.ExpressionType;
 import org.apache.phoenix.expression.aggregator.Aggregator;
+import org.apache.phoenix.expression.aggregator.PrimitiveGroupAggregators;
 import org.apache.phoenix.expression.aggregator.ServerAggregators;
 import org.apache.phoenix.hbase.index.covered.update.ColumnReference;
 import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
@@ -374,6 +378,11 @@ public class GroupedAggregateRegionObserver extends BaseScannerRegionObserver im
             Configuration conf = env.getConfiguration();
             boolean spillableEnabled =
                     conf.getBoolean(GROUPBY_SPILLABLE_ATTRIB, DEFAULT_GROUPBY_SPILLABLE);
+            if (conf.getBoolean(GROUPBY_OFF_HEAP_ENABLED_ATTRIB, DEFAULT_GROUPBY_OFF_HEAP_ENABLED)
+                    && PrimitiveGroupAggregators.isSupported(aggregators.getAggregators())) {
+                // Spills whole partitions on its own if spilling is enabled
+                return new OffHeapGroupByCache(env, tenantId, aggregators, estDistVals);
+            }
             if (spillableEnabled) {
                 return new SpillableGroupByCache(env, tenantId, aggregators, estDistVals);
             }
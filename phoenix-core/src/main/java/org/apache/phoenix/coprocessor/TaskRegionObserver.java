@@ -47,6 +47,7 @@ import org.apache.hadoop.hbase.coprocessor.RegionObserver;
 import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
 import org.apache.phoenix.jdbc.PhoenixConnection;
+import org.apache.phoenix.mapreduce.index.IndexBuildCoordinator;
 import org.apache.phoenix.query.QueryServices;
 import org.apache.phoenix.query.QueryServicesOptions;
 import org.apache.phoenix.schema.PTable;
@@ -174,6 +175,9 @@ public class TaskRegionObserver implements RegionObserver, RegionCoprocessor {
                 for (Task.TaskRecord taskRecord : taskRecords){
                     try {
                         TaskType taskType = taskRecord.getTaskType();
+                        if (IndexBuildCoordinator.isCheckpoint(taskRecord)) {
+                            continue;
+                        }
                         if (!classMap.containsKey(taskType)) {
                             LOG.warn("Don't know how to execute task type: " + taskType.name());
                             continue;
@@ -200,8 +204,15 @@ public class TaskRegionObserver implements RegionObserver, RegionCoprocessor {
 
                         if (result == null) {
                             // reread task record. There might be async setting of task status
-                            taskRecord = Task.queryTaskTable(connForTask, taskRecord.getSchemaName(), taskRecord.getTableName(),
-                                    taskType, taskRecord.getTenantId(), null).get(0);
+                            Timestamp taskTimestamp = taskRecord.getTimeStamp();
+                            for (Task.TaskRecord record : Task.queryTaskTable(connForTask, taskRecord.getSchemaName(),
+                                    taskRecord.getTableName(), taskType, taskRecord.getTenantId(), null)) {
+                                // Other tasks of the same type on the table, such as checkpoints, are left alone
+                                if (taskTimestamp.equals(record.getTimeStamp())) {
+                                    taskRecord = record;
+                                    break;
+                                }
+                            }
                             if (taskRecord.getStatus() != null && Arrays.stream(excludeStates).anyMatch(taskRecord.getStatus()::equals)) {
                                 continue;
                             }
@@ -95,7 +95,6 @@ import org.apache.phoenix.execute.TupleProjector;
 import org.apache.phoenix.expression.Expression;
 import org.apache.phoenix.expression.ExpressionType;
 import org.apache.phoenix.expression.aggregator.Aggregator;
-import org.apache.phoenix.expression.aggregator.Aggregators;
 import org.apache.phoenix.expression.aggregator.ServerAggregators;
 import org.apache.phoenix.hbase.index.ValueGetter;
 import org.apache.phoenix.hbase.index.covered.update.ColumnReference;
@@ -560,7 +559,7 @@ public class UngroupedAggregateRegionObserver extends BaseScannerRegionObserver
         boolean hasAny = false;
         boolean acquiredLock = false;
         boolean incrScanRefCount = false;
-        Aggregators aggregators = null;
+        ServerAggregators aggregators = null;
         Aggregator[] rowAggregators = null;
         final RegionScanner innerScanner = theScanner;
         final TenantCache tenantCache = GlobalCache.getTenantCache(env, ScanUtil.getTenantId(scan));
@@ -570,6 +569,18 @@ public class UngroupedAggregateRegionObserver extends BaseScannerRegionObserver
             rowAggregators = aggregators.getAggregators();
             Pair<Integer, Integer> minMaxQualifiers = EncodedColumnsUtil.getMinMaxQualifiersFromScan(scan);
             Tuple result = useQualifierAsIndex ? new PositionBasedMultiKeyValueTuple() : new MultiKeyValueTuple();
+            // Rows are only aggregated in batches when nothing is written back, as the row by row
+            // processing below has to see them in scan order
+            int aggregateBatchSize = needToWrite ? 0 : conf.getInt(QueryServices.AGGREGATE_BATCH_SIZE_ATTRIB,
+                    QueryServicesOptions.DEFAULT_AGGREGATE_BATCH_SIZE);
+            Tuple[] aggregateBatch = null;
+            int aggregateBatchCount = 0;
+            if (aggregateBatchSize > 1) {
+                aggregateBatch = new Tuple[aggregateBatchSize];
+                for (int i = 0; i < aggregateBatchSize; i++) {
+                    aggregateBatch[i] = useQualifierAsIndex ? new PositionBasedMultiKeyValueTuple() : new MultiKeyValueTuple();
+                }
+            }
             if (LOGGER.isDebugEnabled()) {
                 LOGGER.debug(LogUtil.addCustomAnnotations("Starting ungrouped coprocessor scan " + scan + " "+region.getRegionInfo(), ScanUtil.getCustomAnnotations(scan)));
             }
@@ -602,6 +613,15 @@ public class UngroupedAggregateRegionObserver extends BaseScannerRegionObserver
                     hasMore = innerScanner.nextRaw(results);
                     if (!results.isEmpty()) {
                         rowCount++;
+                        if (aggregateBatch != null) {
+                            aggregateBatch[aggregateBatchCount++].setKeyValues(results);
+                            if (aggregateBatchCount == aggregateBatch.length) {
+                                aggregators.aggregate(rowAggregators, aggregateBatch, aggregateBatchCount);
+                                aggregateBatchCount = 0;
+                            }
+                            hasAny = true;
+                            continue;
+                        }
                         result.setKeyValues(results);
                         if (isDescRowKeyOrderUpgrade) {
                             Arrays.fill(values, null);
@@ -834,6 +854,9 @@ public class UngroupedAggregateRegionObserver extends BaseScannerRegionObserver
                         hasAny = true;
                     }
                 } while (hasMore);
+                if (aggregateBatchCount > 0) {
+                    aggregators.aggregate(rowAggregators, aggregateBatch, aggregateBatchCount);
+                }
                 if (!mutations.isEmpty()) {
                     commit(region, mutations, indexUUID, blockingMemStoreSize, indexMaintainersPtr, txState,
                         targetHTable, useIndexProto, isPKChanging, clientVersionBytes);
@@ -156,6 +156,10 @@ public class ClientAggregatePlan extends ClientProcessingPlan {
                         context.getConnection().getQueryServices().getProps().getBoolean(
                             QueryServices.CLIENT_ORDERBY_SPOOLING_ENABLED_ATTRIB,
                             QueryServicesOptions.DEFAULT_CLIENT_ORDERBY_SPOOLING_ENABLED);
+                int sortThreads =
+                        context.getConnection().getQueryServices().getProps().getInt(
+                            QueryServices.CLIENT_ORDERBY_SORT_THREADS_ATTRIB,
+                            QueryServicesOptions.DEFAULT_CLIENT_ORDERBY_SORT_THREADS);
                 List<OrderByExpression> keyExpressionOrderBy = Lists.newArrayListWithExpectedSize(keyExpressions.size());
                 for (Expression keyExpression : keyExpressions) {
                     /**
@@ -173,7 +177,9 @@ public class ClientAggregatePlan extends ClientProcessingPlan {
                     iterator =
                             new OrderedResultIterator(iterator, keyExpressionOrderBy,
                                     spoolingEnabled, thresholdBytes, null, null,
-                                    projector.getEstimatedRowByteSize());
+                                    projector.getEstimatedRowByteSize(),
+                                    context.getConnection().getQueryServices().getExecutor(),
+                                    sortThreads);
                     aggResultIterator = new ClientGroupedAggregatingResultIterator(LookAheadResultIterator.wrap(iterator), serverAggregators, keyExpressions);
                 }
             }
@@ -99,10 +99,15 @@ public class ClientScanPlan extends ClientProcessingPlan {
                     context.getConnection().getQueryServices().getProps().getBoolean(
                         QueryServices.CLIENT_ORDERBY_SPOOLING_ENABLED_ATTRIB,
                         QueryServicesOptions.DEFAULT_CLIENT_ORDERBY_SPOOLING_ENABLED);
+            int sortThreads =
+                    context.getConnection().getQueryServices().getProps().getInt(
+                        QueryServices.CLIENT_ORDERBY_SORT_THREADS_ATTRIB,
+                        QueryServicesOptions.DEFAULT_CLIENT_ORDERBY_SORT_THREADS);
             iterator =
                     new OrderedResultIterator(iterator, orderBy.getOrderByExpressions(),
                             spoolingEnabled, thresholdBytes, limit, offset,
-                            projector.getEstimatedRowByteSize());
+                            projector.getEstimatedRowByteSize(),
+                            context.getConnection().getQueryServices().getExecutor(), sortThreads);
         } else {
             if (offset != null) {
                 iterator = new OffsetResultIterator(iterator, offset);
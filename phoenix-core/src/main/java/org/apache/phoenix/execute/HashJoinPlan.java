@@ -37,8 +37,10 @@ import org.apache.commons.codec.binary.Hex;
 import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.Pair;
 import org.apache.phoenix.cache.ServerCacheClient.ServerCache;
 import org.apache.phoenix.compile.ColumnProjector;
+import org.apache.phoenix.compile.ExpressionCompiler;
 import org.apache.phoenix.compile.ExplainPlan;
 import org.apache.phoenix.compile.FromCompiler;
 import org.apache.phoenix.compile.QueryPlan;
@@ -63,6 +65,7 @@ import org.apache.phoenix.jdbc.PhoenixConnection;
 import org.apache.phoenix.job.JobManager.JobCallable;
 import org.apache.phoenix.join.HashCacheClient;
 import org.apache.phoenix.join.HashJoinInfo;
+import org.apache.phoenix.join.HashJoinRuntimeFilter;
 import org.apache.phoenix.monitoring.TaskExecutionMetricsHolder;
 import org.apache.phoenix.optimize.Cost;
 import org.apache.phoenix.parse.FilterableStatement;
@@ -73,6 +76,7 @@ import org.apache.phoenix.query.ConnectionQueryServices;
 import org.apache.phoenix.query.QueryServices;
 import org.apache.phoenix.query.QueryServicesOptions;
 import org.apache.phoenix.schema.PTable;
+import org.apache.phoenix.schema.PTableType;
 import org.apache.phoenix.schema.TableRef;
 import org.apache.phoenix.schema.tuple.Tuple;
 import org.apache.phoenix.schema.types.PArrayDataType;
@@ -100,10 +104,12 @@ public class HashJoinPlan extends DelegateQueryPlan {
     private final Set<TableRef> tableRefs;
     private final int maxServerCacheTimeToLive;
     private final long serverCacheLimit;
+    private final int maxRuntimeFilterInListSize;
     private final Map<ImmutableBytesPtr,ServerCache> dependencies = Maps.newHashMap();
     private HashCacheClient hashClient;
     private AtomicLong firstJobEndTime;
     private List<Expression> keyRangeExpressions;
+    private List<Pair<ParseNode, HashJoinRuntimeFilter>> runtimeFilters;
     private Long estimatedRows;
     private Long estimatedBytes;
     private Long estimateInfoTs;
@@ -150,6 +156,8 @@ public class HashJoinPlan extends DelegateQueryPlan {
                 QueryServices.MAX_SERVER_CACHE_TIME_TO_LIVE_MS_ATTRIB, QueryServicesOptions.DEFAULT_MAX_SERVER_CACHE_TIME_TO_LIVE_MS);
         this.serverCacheLimit = services.getProps().getLong(
                 QueryServices.MAX_SERVER_CACHE_SIZE_ATTRIB, QueryServicesOptions.DEFAULT_MAX_SERVER_CACHE_SIZE);
+        this.maxRuntimeFilterInListSize = services.getProps().getInt(
+                QueryServices.HASH_JOIN_RUNTIME_FILTER_MAX_IN_LIST_SIZE_ATTRIB, QueryServicesOptions.DEFAULT_HASH_JOIN_RUNTIME_FILTER_MAX_IN_LIST_SIZE);
     }
     
     @Override
@@ -174,6 +182,7 @@ public class HashJoinPlan extends DelegateQueryPlan {
                   : new HashCacheClient(delegate.getContext().getConnection());
             firstJobEndTime = new AtomicLong(0);
             keyRangeExpressions = new CopyOnWriteArrayList<Expression>();
+            runtimeFilters = new CopyOnWriteArrayList<Pair<ParseNode, HashJoinRuntimeFilter>>();
         }
         
         for (int i = 0; i < count; i++) {
@@ -225,7 +234,8 @@ public class HashJoinPlan extends DelegateQueryPlan {
 
         Expression postFilter = null;
         boolean hasKeyRangeExpressions = keyRangeExpressions != null && !keyRangeExpressions.isEmpty();
-        if (recompileWhereClause || hasKeyRangeExpressions) {
+        boolean hasRuntimeFilters = runtimeFilters != null && !runtimeFilters.isEmpty();
+        if (recompileWhereClause || hasKeyRangeExpressions || hasRuntimeFilters) {
             StatementContext context = delegate.getContext();
             // Since we are going to compile the WHERE conditions all over again, we will clear
             // the old filter, otherwise there would be conflicts and would cause PHOENIX-4692.
@@ -236,8 +246,15 @@ public class HashJoinPlan extends DelegateQueryPlan {
             if (recompileWhereClause) {
                 postFilter = WhereCompiler.compile(delegate.getContext(), delegate.getStatement(), viewWhere, null);
             }
+            List<Expression> dynamicFilters = Lists.newArrayList();
             if (hasKeyRangeExpressions) {
-                WhereCompiler.compile(delegate.getContext(), delegate.getStatement(), viewWhere, keyRangeExpressions, null);
+                dynamicFilters.addAll(keyRangeExpressions);
+            }
+            if (hasRuntimeFilters) {
+                dynamicFilters.addAll(compileRuntimeFilters(context));
+            }
+            if (!dynamicFilters.isEmpty()) {
+                WhereCompiler.compile(delegate.getContext(), delegate.getStatement(), viewWhere, dynamicFilters, null);
             }
         }
 
@@ -280,6 +297,31 @@ public class HashJoinPlan extends DelegateQueryPlan {
         return peeking;
     }
 
+    private List<Expression> compileRuntimeFilters(StatementContext context) {
+        PTable table = context.getCurrentTable().getTable();
+        if (table.getType() == PTableType.PROJECTED || table.getType() == PTableType.SUBQUERY) {
+            return Collections.<Expression> emptyList();
+        }
+        List<Expression> filters = Lists.newArrayListWithExpectedSize(runtimeFilters.size());
+        ExpressionCompiler compiler = new ExpressionCompiler(context);
+        for (Pair<ParseNode, HashJoinRuntimeFilter> runtimeFilter : runtimeFilters) {
+            try {
+                compiler.reset();
+                Expression lhsExpression = runtimeFilter.getFirst().accept(compiler);
+                Expression filter = runtimeFilter.getSecond().newFilter(lhsExpression, context.getTempPtr(), table.rowKeyOrderOptimizable());
+                if (filter != null) {
+                    filters.add(filter);
+                }
+            } catch (SQLException e) {
+                // The join key may not resolve against the scanned table, for example when the
+                // scan has been rewritten against an index. The filter is only an optimization.
+                LOGGER.warn("Skipping hash join runtime filter " + runtimeFilter.getSecond() + " on "
+                        + runtimeFilter.getFirst() + ": " + e.getMessage());
+            }
+        }
+        return filters;
+    }
+
     private Expression createKeyRangeExpression(Expression lhsExpression,
             Expression rhsExpression, List<Expression> rhsValues, 
             ImmutableBytesWritable ptr, boolean rowKeyOrderOptimizable) throws SQLException {
@@ -505,6 +547,8 @@ public class HashJoinPlan extends DelegateQueryPlan {
         private final boolean usePersistentCache;
         private final Expression keyRangeLhsExpression;
         private final Expression keyRangeRhsExpression;
+        private final ParseNode runtimeFilterLhsNode;
+        private final Expression runtimeFilterRhsExpression;
         private final MessageDigest digest;
         
         public HashSubPlan(int index, QueryPlan subPlan, 
@@ -513,6 +557,18 @@ public class HashJoinPlan extends DelegateQueryPlan {
                 boolean usePersistentCache,
                 Expression keyRangeLhsExpression, 
                 Expression keyRangeRhsExpression) {
+            this(index, subPlan, hashExpressions, singleValueOnly, usePersistentCache,
+                    keyRangeLhsExpression, keyRangeRhsExpression, null, null);
+        }
+
+        public HashSubPlan(int index, QueryPlan subPlan, 
+                List<Expression> hashExpressions,
+                boolean singleValueOnly,
+                boolean usePersistentCache,
+                Expression keyRangeLhsExpression, 
+                Expression keyRangeRhsExpression,
+                ParseNode runtimeFilterLhsNode,
+                Expression runtimeFilterRhsExpression) {
             this.index = index;
             this.plan = subPlan;
             this.hashExpressions = hashExpressions;
@@ -520,6 +576,8 @@ public class HashJoinPlan extends DelegateQueryPlan {
             this.usePersistentCache = usePersistentCache;
             this.keyRangeLhsExpression = keyRangeLhsExpression;
             this.keyRangeRhsExpression = keyRangeRhsExpression;
+            this.runtimeFilterLhsNode = runtimeFilterLhsNode;
+            this.runtimeFilterRhsExpression = runtimeFilterRhsExpression;
             try {
                 this.digest = MessageDigest.getInstance("SHA-256");
             } catch (NoSuchAlgorithmException e) {
@@ -556,10 +614,15 @@ public class HashJoinPlan extends DelegateQueryPlan {
                     LOGGER.debug("Using cache ID " + Hex.encodeHexString(cacheId) + " for " + queryString);
                     if (cache == null) {
                         LOGGER.debug("Making RPC to add cache " + Hex.encodeHexString(cacheId));
+                        HashJoinRuntimeFilter runtimeFilter = runtimeFilterRhsExpression == null ? null
+                                : new HashJoinRuntimeFilter(runtimeFilterRhsExpression, parent.maxRuntimeFilterInListSize);
                         cache = parent.hashClient.addHashCache(ranges, cacheId, iterator,
                                 plan.getEstimatedSize(), hashExpressions, singleValueOnly, usePersistentCache,
                                 parent.delegate.getTableRef().getTable(), keyRangeRhsExpression,
-                                keyRangeRhsValues);
+                                keyRangeRhsValues, runtimeFilter);
+                        if (runtimeFilter != null) {
+                            parent.runtimeFilters.add(new Pair<ParseNode, HashJoinRuntimeFilter>(runtimeFilterLhsNode, runtimeFilter));
+                        }
                         long endTime = System.currentTimeMillis();
                         boolean isSet = parent.firstJobEndTime.compareAndSet(0, endTime);
                         if (!isSet && (endTime
@@ -21,19 +21,26 @@ package org.apache.phoenix.execute;
 import static org.apache.phoenix.util.ScanUtil.isPacingScannersPossible;
 import static org.apache.phoenix.util.ScanUtil.isRoundRobinPossible;
 
+import java.io.IOException;
 import java.sql.SQLException;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
 import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.client.Get;
 import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.hadoop.hbase.util.Pair;
 import org.apache.phoenix.cache.ServerCacheClient.ServerCache;
 import org.apache.phoenix.compile.GroupByCompiler.GroupBy;
 import org.apache.phoenix.compile.OrderByCompiler.OrderBy;
 import org.apache.phoenix.compile.QueryPlan;
 import org.apache.phoenix.compile.RowProjector;
+import org.apache.phoenix.compile.ScanRanges;
 import org.apache.phoenix.compile.StatementContext;
 import org.apache.phoenix.coprocessor.BaseScannerRegionObserver;
 import org.apache.phoenix.coprocessor.MetaDataProtocol;
@@ -48,10 +55,12 @@ import org.apache.phoenix.iterate.ConcatResultIterator;
 import org.apache.phoenix.iterate.LimitingResultIterator;
 import org.apache.phoenix.iterate.MergeSortRowKeyResultIterator;
 import org.apache.phoenix.iterate.MergeSortTopNResultIterator;
+import org.apache.phoenix.iterate.MultiGetResultIterator;
 import org.apache.phoenix.iterate.OffsetResultIterator;
 import org.apache.phoenix.iterate.ParallelIteratorFactory;
 import org.apache.phoenix.iterate.ParallelIterators;
 import org.apache.phoenix.iterate.ParallelScanGrouper;
+import org.apache.phoenix.iterate.PointLookupResultIterator;
 import org.apache.phoenix.iterate.ResultIterator;
 import org.apache.phoenix.iterate.RoundRobinResultIterator;
 import org.apache.phoenix.iterate.SequenceResultIterator;
@@ -67,17 +76,23 @@ import org.apache.phoenix.query.QueryServices;
 import org.apache.phoenix.query.QueryServicesOptions;
 import org.apache.phoenix.schema.PTable;
 import org.apache.phoenix.schema.PTable.IndexType;
+import org.apache.phoenix.schema.PTableType;
 import org.apache.phoenix.schema.SaltingUtil;
 import org.apache.phoenix.schema.TableRef;
 import org.apache.phoenix.schema.stats.StatisticsUtil;
 import org.apache.phoenix.util.CostUtil;
+import org.apache.phoenix.util.EncodedColumnsUtil;
 import org.apache.phoenix.util.ExpressionUtil;
 import org.apache.phoenix.util.QueryUtil;
+import org.apache.phoenix.util.ReadOnlyProps;
 import org.apache.phoenix.util.ScanUtil;
 import org.apache.phoenix.util.SchemaUtil;
+import org.apache.phoenix.util.ServerUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.collect.Lists;
+
 
 
 /**
@@ -98,6 +113,12 @@ public class ScanPlan extends BaseQueryPlan {
     private Long serialBytesEstimate;
     private Long serialEstimateInfoTs;
     private OrderBy actualOutputOrderBy;
+    // Set when the rows are processed by a factory of the caller, such as the upserts of an UPSERT SELECT
+    private final boolean hasCustomIteratorFactory;
+    // Set by the optimizer when reading the keys of a large point lookup with multi-gets is estimated
+    // to be cheaper than a skip scan
+    private boolean useMultiGet;
+    private Long pointLookupScanBytesEstimate;
 
     public ScanPlan(StatementContext context, FilterableStatement statement, TableRef table, RowProjector projector, Integer limit,
             Integer offset, OrderBy orderBy, ParallelIteratorFactory parallelIteratorFactory, boolean allowPageFilter, 
@@ -111,6 +132,7 @@ public class ScanPlan extends BaseQueryPlan {
                 parallelIteratorFactory != null ? parallelIteratorFactory :
                         buildResultIteratorFactory(context, statement, table, orderBy, limit, offset, allowPageFilter), dynamicFilter, dataPlan);
         this.allowPageFilter = allowPageFilter;
+        this.hasCustomIteratorFactory = parallelIteratorFactory != null;
         boolean isOrdered = !orderBy.getOrderByExpressions().isEmpty();
         if (isOrdered) { // TopN
             ScanRegionObserver.serializeIntoScan(context.getScan(),
@@ -215,7 +237,10 @@ public class ScanPlan extends BaseQueryPlan {
 
         int parallelLevel = CostUtil.estimateParallelLevel(
                 true, context.getConnection().getQueryServices());
-        Cost cost = new Cost(0, 0, byteCount);
+        // The keys of a point lookup read with multi-gets are read with a get each instead of a scan
+        Cost cost = useMultiGet
+                ? CostUtil.estimateMultiGetCost(context.getScanRanges().getPointLookupCount())
+                : new Cost(0, 0, byteCount);
         if (!orderBy.getOrderByExpressions().isEmpty()) {
             Cost orderByCost = CostUtil.estimateOrderByCost(byteCount, outputBytes, parallelLevel);
             cost = cost.plus(orderByCost);
@@ -279,6 +304,7 @@ public class ScanPlan extends BaseQueryPlan {
         estimatedRows = iterators.getEstimatedRowCount();
         estimatedSize = iterators.getEstimatedByteCount();
         estimateInfoTimestamp = iterators.getEstimateInfoTimestamp();
+        pointLookupScanBytesEstimate = iterators.getPointLookupScanBytesEstimate();
         splits = iterators.getSplits();
         scans = iterators.getScans();
         if (isOffsetOnServer) {
@@ -288,6 +314,14 @@ public class ScanPlan extends BaseQueryPlan {
             }
         } else if (isOrdered) {
             scanner = new MergeSortTopNResultIterator(iterators, limit, offset, orderBy.getOrderByExpressions());
+        } else if (isPointLookupGetPossible(scan, caches)) {
+            scanner = newPointLookupIterator(scan, iterators);
+            if (offset != null) {
+                scanner = new OffsetResultIterator(scanner, offset);
+            }
+            if (limit != null) {
+                scanner = new LimitingResultIterator(scanner, limit);
+            }
         } else {
             if ((isSalted || table.getIndexType() == IndexType.LOCAL) && ScanUtil.shouldRowsBeInRowKeyOrder(orderBy, context)) {
                 /*
@@ -320,6 +354,98 @@ public class ScanPlan extends BaseQueryPlan {
         return scanner;
     }
     
+    /**
+     * Returns whether the keys of a point lookup may be read with gets, either on the calling thread
+     * or with parallel multi-gets when chosen by the optimizer. The scan must not need the region
+     * observers, as gets don't go through them, and the rows must not need to be processed per scan.
+     */
+    private boolean isPointLookupGetPossible(Scan scan, Map<ImmutableBytesPtr,ServerCache> caches)
+            throws SQLException {
+        ScanRanges scanRanges = context.getScanRanges();
+        if (!scanRanges.isPointLookup()) {
+            return false;
+        }
+        PTable table = tableRef.getTable();
+        if (useMultiGet) {
+            // The batches of the regions are read in parallel, so the rows can't be merged back
+            // into row key order without the salt byte
+            if (table.getBucketNum() != null && ScanUtil.shouldRowsBeInRowKeyOrder(orderBy, context)) {
+                return false;
+            }
+        } else {
+            ReadOnlyProps props = context.getConnection().getQueryServices().getProps();
+            if (!props.getBoolean(QueryServices.POINT_LOOKUP_GETS_ENABLED_ATTRIB,
+                    QueryServicesOptions.DEFAULT_POINT_LOOKUP_GETS_ENABLED)
+                    || scanRanges.getPointLookupCount() > props.getInt(QueryServices.POINT_LOOKUP_GETS_MAX_KEYS_ATTRIB,
+                            QueryServicesOptions.DEFAULT_POINT_LOOKUP_GETS_MAX_KEYS)) {
+                return false;
+            }
+        }
+        return !hasCustomIteratorFactory && dataPlan == null && (caches == null || caches.isEmpty())
+                && table.getType() != PTableType.INDEX && !table.isTransactional()
+                && ScanUtil.isGetPossible(scan);
+    }
+
+    private ResultIterator newPointLookupIterator(Scan scan, BaseResultIterators iterators)
+            throws SQLException {
+        ScanRanges scanRanges = context.getScanRanges();
+        List<Get> gets = Lists.newArrayListWithExpectedSize(scanRanges.getPointLookupCount());
+        try {
+            Iterator<KeyRange> keys = scanRanges.getPointLookupKeyIterator();
+            while (keys.hasNext()) {
+                gets.add(ScanUtil.newGet(scan, keys.next().getLowerRange()));
+            }
+        } catch (IOException e) {
+            throw ServerUtil.parseServerException(e);
+        }
+        PTable table = tableRef.getTable();
+        if (useMultiGet) {
+            ConnectionQueryServices services = context.getConnection().getQueryServices();
+            return new MultiGetResultIterator(services, table.getPhysicalName().getBytes(), gets,
+                    services.getProps().getInt(QueryServices.MULTI_GET_BATCH_SIZE_ATTRIB,
+                            QueryServicesOptions.DEFAULT_MULTI_GET_BATCH_SIZE),
+                    TupleProjector.deserializeProjectorFromScan(scan),
+                    EncodedColumnsUtil.useNewValueColumnQualifier(scan), iterators,
+                    context.getStatement().getQueryTimeoutInMillis());
+        }
+        if (table.getBucketNum() != null && ScanUtil.shouldRowsBeInRowKeyOrder(orderBy, context)) {
+            // The keys are sorted by salt byte first, so sort them as the merge sort of the scans would
+            Collections.sort(gets, new Comparator<Get>() {
+                @Override
+                public int compare(Get get1, Get get2) {
+                    byte[] row1 = get1.getRow();
+                    byte[] row2 = get2.getRow();
+                    return Bytes.compareTo(row1, SaltingUtil.NUM_SALTING_BYTES, row1.length - SaltingUtil.NUM_SALTING_BYTES,
+                            row2, SaltingUtil.NUM_SALTING_BYTES, row2.length - SaltingUtil.NUM_SALTING_BYTES);
+                }
+            });
+        }
+        Table htable = context.getConnection().getMutationState().getHTable(table);
+        return new PointLookupResultIterator(htable, gets, TupleProjector.deserializeProjectorFromScan(scan),
+                EncodedColumnsUtil.useNewValueColumnQualifier(scan), iterators);
+    }
+
+    /**
+     * Sets whether the keys of a large point lookup are read with parallel multi-gets batched by
+     * region instead of a skip scan.
+     */
+    public void setUseMultiGet(boolean useMultiGet) {
+        this.useMultiGet = useMultiGet;
+    }
+
+    public boolean useMultiGet() {
+        return useMultiGet;
+    }
+
+    /**
+     * Returns the number of bytes estimated from the stats to be read when scanning the keys of a
+     * point lookup, or null if the query isn't a point lookup or the estimate isn't known.
+     */
+    public Long getPointLookupScanBytesEstimate() throws SQLException {
+        getEstimatedBytesToScan(); // Computes the estimates if needed
+        return pointLookupScanBytesEstimate;
+    }
+
     @Override
     public boolean useRoundRobinIterator() throws SQLException {
         return ScanUtil.isRoundRobinPossible(orderBy, context);
@@ -50,6 +50,13 @@ public class CountAggregator extends BaseAggregator {
         count++;
     }
 
+    /**
+     * Count a number of non null values at once
+     */
+    public void add(long count) {
+        this.count += count;
+    }
+
     @Override
     public boolean isNullable() {
         return false;
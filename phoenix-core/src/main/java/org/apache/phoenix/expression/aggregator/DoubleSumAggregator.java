@@ -55,6 +55,16 @@ public class DoubleSumAggregator extends BaseAggregator {
         }
     }
 
+    /**
+     * Add an already decoded non null value
+     */
+    public void add(double value) {
+        sum += value;
+        if (buffer == null) {
+            initBuffer();
+        }
+    }
+
     @Override
     public boolean evaluate(Tuple tuple, ImmutableBytesWritable ptr) {
         if (buffer == null) {
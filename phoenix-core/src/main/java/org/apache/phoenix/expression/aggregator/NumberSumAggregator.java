@@ -74,6 +74,16 @@ abstract public class NumberSumAggregator extends BaseAggregator {
         }
     }
 
+    /**
+     * Add the sum of a number of non null values at once
+     */
+    public void add(long value) {
+        sum += value;
+        if (buffer == null) {
+            initBuffer();
+        }
+    }
+
     @Override
     public boolean evaluate(Tuple tuple, ImmutableBytesWritable ptr) {
         if (buffer == null) {
@@ -0,0 +1,247 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.expression.aggregator;
+
+import java.nio.LongBuffer;
+
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.phoenix.schema.SortOrder;
+import org.apache.phoenix.schema.tuple.Tuple;
+import org.apache.phoenix.schema.types.PDataType;
+
+/**
+ * 
+ * Aggregation state of many groups kept in long slots, instead of one Aggregator[] per
+ * group. Only aggregators whose state is a single number are supported, namely COUNT and
+ * SUM over integral and floating point types. The slots are kept by the caller, for example
+ * in direct memory, and the state of a group is accessed through the aggregators returned by
+ * {@link #getAggregators(LongBuffer, int)}, which read and write the slots of that group and
+ * only encode the state into bytes when evaluated.
+ *
+ * Each group uses one slot per aggregator plus a leading slot holding a bit per
+ * aggregator that is set once the aggregator has seen a value.
+ *
+ * The only user is {@link org.apache.phoenix.cache.aggcache.OffHeapGroupByCache}, so the slots
+ * are only used when {@link org.apache.phoenix.query.QueryServices#GROUPBY_OFF_HEAP_ENABLED_ATTRIB}
+ * is set. The default spillable group by cache keeps an Aggregator[] per group.
+ * 
+ */
+public class PrimitiveGroupAggregators {
+    private final SlotAggregator[] slotAggregators;
+    private final int slotsPerGroup;
+    private LongBuffer slots;
+    private int offset;
+
+    /**
+     * @return true if the state of all the given aggregators can be kept in primitive slots
+     */
+    public static boolean isSupported(Aggregator[] aggregators) {
+        if (aggregators.length == 0 || aggregators.length > Long.SIZE) {
+            return false;
+        }
+        for (Aggregator aggregator : aggregators) {
+            if (!(aggregator instanceof CountAggregator
+                    || aggregator instanceof NumberSumAggregator
+                    || aggregator instanceof DoubleSumAggregator)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param aggregators newly created aggregators, used as templates for the type of each slot
+     */
+    public PrimitiveGroupAggregators(Aggregator[] aggregators) {
+        this.slotAggregators = new SlotAggregator[aggregators.length];
+        for (int i = 0; i < aggregators.length; i++) {
+            Aggregator aggregator = aggregators[i];
+            if (aggregator instanceof CountAggregator) {
+                slotAggregators[i] = new CountSlotAggregator((CountAggregator)aggregator, i);
+            } else if (aggregator instanceof NumberSumAggregator) {
+                slotAggregators[i] = new LongSumSlotAggregator((NumberSumAggregator)aggregator, i);
+            } else if (aggregator instanceof DoubleSumAggregator) {
+                slotAggregators[i] = new DoubleSumSlotAggregator((DoubleSumAggregator)aggregator, i);
+            } else {
+                throw new IllegalArgumentException("Unsupported aggregator " + aggregator);
+            }
+        }
+        this.slotsPerGroup = aggregators.length + 1;
+    }
+
+    /**
+     * Get the aggregators for a group whose slots are kept in the given buffer. The returned
+     * array is shared across groups, so it is only valid until the next call to this method.
+     * @param state the buffer holding the slots
+     * @param offset the index of the first slot of the group in the buffer
+     */
+    public Aggregator[] getAggregators(LongBuffer state, int offset) {
+        this.slots = state;
+        this.offset = offset;
+        return slotAggregators;
+    }
+
+    /**
+     * Combine the state of a group with state of the same group aggregated separately
+     * @param state the buffer holding the slots of the group
+     * @param offset the index of the first slot of the group in the buffer
+     * @param other the slots of the separately aggregated state
+     */
+    public void merge(LongBuffer state, int offset, long[] other) {
+        state.put(offset, state.get(offset) | other[0]);
+        for (int i = 0; i < slotAggregators.length; i++) {
+            int slot = offset + i + 1;
+            state.put(slot, slotAggregators[i].combine(state.get(slot), other[i + 1]));
+        }
+    }
+
+    public int getSlotsPerGroup() {
+        return slotsPerGroup;
+    }
+
+    private abstract class SlotAggregator extends BaseAggregator {
+        private final Aggregator template;
+        private final long mask;
+        private final int slotIndex;
+        private byte[] buffer;
+
+        SlotAggregator(Aggregator template, SortOrder sortOrder, int index) {
+            super(sortOrder);
+            this.template = template;
+            this.mask = 1L << index;
+            this.slotIndex = index + 1;
+        }
+
+        @Override
+        public void aggregate(Tuple tuple, ImmutableBytesWritable ptr) {
+            slots.put(offset, slots.get(offset) | mask);
+            aggregate(ptr, offset + slotIndex);
+        }
+
+        protected abstract void aggregate(ImmutableBytesWritable ptr, int slot);
+
+        protected abstract void encode(long value, byte[] buffer);
+
+        protected abstract long combine(long value, long otherValue);
+
+        @Override
+        public boolean evaluate(Tuple tuple, ImmutableBytesWritable ptr) {
+            if ((slots.get(offset) & mask) == 0 && isNullable()) {
+                return false;
+            }
+            if (buffer == null) {
+                buffer = new byte[getDataType().getByteSize()];
+            }
+            encode(slots.get(offset + slotIndex), buffer);
+            ptr.set(buffer);
+            return true;
+        }
+
+        @Override
+        public PDataType getDataType() {
+            return template.getDataType();
+        }
+
+        @Override
+        public boolean isNullable() {
+            return template.isNullable();
+        }
+
+        @Override
+        public void reset() {
+            slots.put(offset, slots.get(offset) & ~mask);
+            slots.put(offset + slotIndex, 0);
+            super.reset();
+        }
+
+        @Override
+        public String toString() {
+            return template.toString();
+        }
+    }
+
+    private class CountSlotAggregator extends SlotAggregator {
+        CountSlotAggregator(CountAggregator template, int index) {
+            super(template, template.sortOrder, index);
+        }
+
+        @Override
+        protected void aggregate(ImmutableBytesWritable ptr, int slot) {
+            slots.put(slot, slots.get(slot) + 1);
+        }
+
+        @Override
+        protected long combine(long value, long otherValue) {
+            return value + otherValue;
+        }
+
+        @Override
+        protected void encode(long value, byte[] buffer) {
+            getDataType().getCodec().encodeLong(value, buffer, 0);
+        }
+    }
+
+    private class LongSumSlotAggregator extends SlotAggregator {
+        private final PDataType inputDataType;
+
+        LongSumSlotAggregator(NumberSumAggregator template, int index) {
+            super(template, template.sortOrder, index);
+            this.inputDataType = template.getInputDataType();
+        }
+
+        @Override
+        protected void aggregate(ImmutableBytesWritable ptr, int slot) {
+            slots.put(slot, slots.get(slot) + inputDataType.getCodec().decodeLong(ptr, sortOrder));
+        }
+
+        @Override
+        protected long combine(long value, long otherValue) {
+            return value + otherValue;
+        }
+
+        @Override
+        protected void encode(long value, byte[] buffer) {
+            getDataType().getCodec().encodeLong(value, buffer, 0);
+        }
+    }
+
+    private class DoubleSumSlotAggregator extends SlotAggregator {
+        private final PDataType inputDataType;
+
+        DoubleSumSlotAggregator(DoubleSumAggregator template, int index) {
+            super(template, template.sortOrder, index);
+            this.inputDataType = template.getInputDataType();
+        }
+
+        @Override
+        protected void aggregate(ImmutableBytesWritable ptr, int slot) {
+            double sum = Double.longBitsToDouble(slots.get(slot)) + inputDataType.getCodec().decodeDouble(ptr, sortOrder);
+            slots.put(slot, Double.doubleToRawLongBits(sum));
+        }
+
+        @Override
+        protected long combine(long value, long otherValue) {
+            return Double.doubleToRawLongBits(Double.longBitsToDouble(value) + Double.longBitsToDouble(otherValue));
+        }
+
+        @Override
+        protected void encode(long value, byte[] buffer) {
+            getDataType().getCodec().encodeDouble(Double.longBitsToDouble(value), buffer, 0);
+        }
+    }
+}
@@ -24,17 +24,22 @@ import java.io.DataOutputStream;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.WritableUtils;
 import org.apache.phoenix.expression.Expression;
 import org.apache.phoenix.expression.ExpressionType;
+import org.apache.phoenix.expression.batch.BatchAggregator;
+import org.apache.phoenix.expression.batch.BatchExpression;
 import org.apache.phoenix.expression.function.SingleAggregateFunction;
 import org.apache.phoenix.memory.MemoryManager.MemoryChunk;
 import org.apache.phoenix.query.QueryServices;
 import org.apache.phoenix.query.QueryServicesOptions;
 import org.apache.phoenix.schema.tuple.Tuple;
 
+import com.google.common.collect.Maps;
+
 
 /**
  * 
@@ -43,6 +48,8 @@ import org.apache.phoenix.schema.tuple.Tuple;
  */
 public abstract class ServerAggregators extends Aggregators {
     protected final Expression[] expressions;
+    private BatchAggregator[] batchAggregators;
+    private long batchCount;
     
     protected ServerAggregators(SingleAggregateFunction[] functions, Aggregator[] aggregators, Expression[] expressions, int minNullableIndex) {
         super(functions, aggregators, minNullableIndex);
@@ -55,6 +62,41 @@ public abstract class ServerAggregators extends Aggregators {
     
     @Override
     public abstract void aggregate(Aggregator[] aggregators, Tuple result);
+
+    /**
+     * Aggregate a batch of rows. The arguments of COUNT, SUM, MIN and MAX are evaluated over the
+     * whole batch into primitive column vectors, and the other aggregators aggregate row by row.
+     * @param aggregators the aggregators to update
+     * @param results the rows of the batch, the length of which is the maximum size of every batch
+     * @param count the number of rows of the batch
+     */
+    public void aggregate(Aggregator[] aggregators, Tuple[] results, int count) {
+        if (batchAggregators == null) {
+            batchAggregators = new BatchAggregator[expressions.length];
+            Map<Expression, BatchExpression> shared = Maps.newHashMap();
+            for (int i = 0; i < expressions.length; i++) {
+                batchAggregators[i] = BatchAggregator.create(aggregators[i], expressions[i], results.length, shared);
+            }
+        }
+        batchCount++;
+        for (int i = 0; i < expressions.length; i++) {
+            aggregate(i, aggregators[i], results, count);
+        }
+    }
+
+    protected void aggregate(int index, Aggregator aggregator, Tuple[] results, int count) {
+        if (batchAggregators[index] != null) {
+            batchAggregators[index].aggregate(aggregator, results, count, batchCount);
+            return;
+        }
+        Expression expression = expressions[index];
+        for (int i = 0; i < count; i++) {
+            if (expression.evaluate(results[i], ptr) && ptr.getLength() != 0) {
+                aggregator.aggregate(results[i], ptr);
+            }
+            expression.reset();
+        }
+    }
     
     /**
      * Serialize an Aggregator into a byte array
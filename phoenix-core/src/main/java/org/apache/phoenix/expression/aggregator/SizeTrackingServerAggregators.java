@@ -49,6 +49,17 @@ public class SizeTrackingServerAggregators extends ServerAggregators {
             }
             expressions[i].reset();
         }
+        resize(dsize);
+    }
+
+    @Override
+    protected void aggregate(int index, Aggregator aggregator, Tuple[] results, int count) {
+        long dsize = memoryUsed - aggregator.getSize();
+        super.aggregate(index, aggregator, results, count);
+        resize(dsize + aggregator.getSize());
+    }
+
+    private void resize(long dsize) {
         while(dsize > chunk.getSize()) {
             LOGGER.info("Request: {}, resizing {} by 1024*1024", dsize, chunk.getSize());
             chunk.resize(chunk.getSize() + sizeIncrease);
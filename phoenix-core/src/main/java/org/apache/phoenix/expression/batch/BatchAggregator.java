@@ -0,0 +1,187 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.expression.batch;
+
+import java.util.Map;
+
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.phoenix.expression.Expression;
+import org.apache.phoenix.expression.aggregator.Aggregator;
+import org.apache.phoenix.expression.aggregator.CountAggregator;
+import org.apache.phoenix.expression.aggregator.DoubleSumAggregator;
+import org.apache.phoenix.expression.aggregator.MaxAggregator;
+import org.apache.phoenix.expression.aggregator.MinAggregator;
+import org.apache.phoenix.expression.aggregator.NumberSumAggregator;
+import org.apache.phoenix.expression.batch.ColumnVector.Kind;
+import org.apache.phoenix.schema.tuple.Tuple;
+
+/**
+ *
+ * Aggregates a batch of rows at a time into a COUNT, SUM, MIN or MAX server aggregator from the
+ * {@link ColumnVector} of its argument
+ *
+ */
+public abstract class BatchAggregator {
+    protected final BatchExpression expression;
+
+    protected BatchAggregator(BatchExpression expression) {
+        this.expression = expression;
+    }
+
+    /**
+     * Create the batch form of a server aggregator
+     * @param aggregator the server aggregator
+     * @param expression the argument of the aggregator
+     * @param capacity the maximum number of rows of a batch
+     * @param shared the batch expressions already created, used to evaluate common subexpressions once
+     * @return the batch form of the aggregator, or null if it must aggregate row by row
+     */
+    public static BatchAggregator create(Aggregator aggregator, Expression expression, int capacity,
+            Map<Expression, BatchExpression> shared) {
+        Kind kind = ColumnVector.getKind(expression.getDataType());
+        if (aggregator instanceof CountAggregator) {
+            return new CountBatchAggregator(BatchExpression.create(expression, capacity, shared));
+        } else if (aggregator instanceof NumberSumAggregator && kind == Kind.LONG) {
+            return new LongSumBatchAggregator(BatchExpression.create(expression, capacity, shared));
+        } else if (aggregator instanceof DoubleSumAggregator && kind == Kind.DOUBLE) {
+            return new DoubleSumBatchAggregator(BatchExpression.create(expression, capacity, shared));
+        } else if (aggregator instanceof MinAggregator && (kind == Kind.LONG || kind == Kind.DOUBLE)) {
+            return new MinMaxBatchAggregator(BatchExpression.create(expression, capacity, shared),
+                    aggregator instanceof MaxAggregator);
+        }
+        return null;
+    }
+
+    /**
+     * Aggregate a batch of rows
+     * @param aggregator the server aggregator, of the type the batch form was created for
+     * @param rows the rows of the batch
+     * @param count the number of rows of the batch
+     * @param batch the number of the batch, which differs from the number of the previous batch
+     */
+    public abstract void aggregate(Aggregator aggregator, Tuple[] rows, int count, long batch);
+
+    private static final class CountBatchAggregator extends BatchAggregator {
+
+        private CountBatchAggregator(BatchExpression expression) {
+            super(expression);
+        }
+
+        @Override
+        public void aggregate(Aggregator aggregator, Tuple[] rows, int count, long batch) {
+            boolean[] nulls = expression.evaluate(rows, count, batch).getNulls();
+            long nonNullCount = 0;
+            for (int i = 0; i < count; i++) {
+                if (!nulls[i]) {
+                    nonNullCount++;
+                }
+            }
+            ((CountAggregator)aggregator).add(nonNullCount);
+        }
+    }
+
+    private static final class LongSumBatchAggregator extends BatchAggregator {
+
+        private LongSumBatchAggregator(BatchExpression expression) {
+            super(expression);
+        }
+
+        @Override
+        public void aggregate(Aggregator aggregator, Tuple[] rows, int count, long batch) {
+            ColumnVector vector = expression.evaluate(rows, count, batch);
+            long[] values = vector.getLongs();
+            boolean[] nulls = vector.getNulls();
+            long sum = 0;
+            boolean hasValue = false;
+            for (int i = 0; i < count; i++) {
+                if (!nulls[i]) {
+                    sum += values[i];
+                    hasValue = true;
+                }
+            }
+            if (hasValue) {
+                ((NumberSumAggregator)aggregator).add(sum);
+            }
+        }
+    }
+
+    private static final class DoubleSumBatchAggregator extends BatchAggregator {
+
+        private DoubleSumBatchAggregator(BatchExpression expression) {
+            super(expression);
+        }
+
+        @Override
+        public void aggregate(Aggregator aggregator, Tuple[] rows, int count, long batch) {
+            ColumnVector vector = expression.evaluate(rows, count, batch);
+            double[] values = vector.getDoubles();
+            boolean[] nulls = vector.getNulls();
+            DoubleSumAggregator sumAggregator = (DoubleSumAggregator)aggregator;
+            // Floating point addition isn't associative, so add the values one by one in row order
+            for (int i = 0; i < count; i++) {
+                if (!nulls[i]) {
+                    sumAggregator.add(values[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the row with the least or greatest value of the batch, and only evaluates the argument
+     * of the aggregator row by row for that row to pass on its serialized value
+     */
+    private static final class MinMaxBatchAggregator extends BatchAggregator {
+        private final boolean isMax;
+        private final ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+
+        private MinMaxBatchAggregator(BatchExpression expression, boolean isMax) {
+            super(expression);
+            this.isMax = isMax;
+        }
+
+        @Override
+        public void aggregate(Aggregator aggregator, Tuple[] rows, int count, long batch) {
+            ColumnVector vector = expression.evaluate(rows, count, batch);
+            boolean[] nulls = vector.getNulls();
+            int index = -1;
+            if (vector.getKind() == Kind.LONG) {
+                long[] values = vector.getLongs();
+                for (int i = 0; i < count; i++) {
+                    if (!nulls[i] && (index < 0 || (isMax ? values[i] > values[index] : values[i] < values[index]))) {
+                        index = i;
+                    }
+                }
+            } else {
+                double[] values = vector.getDoubles();
+                for (int i = 0; i < count; i++) {
+                    if (!nulls[i] && (index < 0 || (isMax ? Double.compare(values[i], values[index]) > 0
+                            : Double.compare(values[i], values[index]) < 0))) {
+                        index = i;
+                    }
+                }
+            }
+            if (index >= 0) {
+                Expression argument = expression.getExpression();
+                if (argument.evaluate(rows[index], ptr) && ptr.getLength() != 0) {
+                    aggregator.aggregate(rows[index], ptr);
+                }
+                argument.reset();
+            }
+        }
+    }
+}
@@ -0,0 +1,475 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.expression.batch;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.hbase.filter.CompareFilter.CompareOp;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.phoenix.expression.CaseExpression;
+import org.apache.phoenix.expression.CoerceExpression;
+import org.apache.phoenix.expression.ColumnExpression;
+import org.apache.phoenix.expression.ComparisonExpression;
+import org.apache.phoenix.expression.DoubleAddExpression;
+import org.apache.phoenix.expression.DoubleMultiplyExpression;
+import org.apache.phoenix.expression.DoubleSubtractExpression;
+import org.apache.phoenix.expression.Expression;
+import org.apache.phoenix.expression.LiteralExpression;
+import org.apache.phoenix.expression.LongAddExpression;
+import org.apache.phoenix.expression.LongMultiplyExpression;
+import org.apache.phoenix.expression.LongSubtractExpression;
+import org.apache.phoenix.expression.batch.ColumnVector.Kind;
+import org.apache.phoenix.schema.SortOrder;
+import org.apache.phoenix.schema.tuple.Tuple;
+import org.apache.phoenix.schema.types.PBoolean;
+import org.apache.phoenix.schema.types.PDataType;
+import org.apache.phoenix.schema.types.PDouble;
+import org.apache.phoenix.schema.types.PLong;
+import org.apache.phoenix.util.ByteUtil;
+
+import com.google.common.collect.Lists;
+
+/**
+ *
+ * Evaluates an {@link Expression} over a batch of rows at a time into a {@link ColumnVector}.
+ * Columns and literals are decoded into primitive arrays, over which integral and floating point
+ * addition, subtraction and multiplication, comparisons, coercions and CASE then run as loops,
+ * instead of a virtual call, a decode and an encode for every row and node. An expression with no
+ * batch form is evaluated row by row and decoded, which is only done for the root of the tree, as
+ * its row by row evaluation would not have evaluated all its children for every row.
+ *
+ */
+public abstract class BatchExpression {
+    protected final Expression expression;
+    protected final ColumnVector vector;
+    private long evaluatedBatch = -1;
+
+    protected BatchExpression(Expression expression, Kind kind, int capacity) {
+        this.expression = expression;
+        this.vector = new ColumnVector(kind, capacity);
+    }
+
+    public Expression getExpression() {
+        return expression;
+    }
+
+    public Kind getKind() {
+        return vector.getKind();
+    }
+
+    /**
+     * @return true if the expression is evaluated row by row rather than over the whole batch
+     */
+    public boolean isRowByRow() {
+        return false;
+    }
+
+    /**
+     * Evaluate the expression over a batch of rows. An expression shared by several parents is only
+     * evaluated once per batch.
+     * @param rows the rows of the batch
+     * @param count the number of rows of the batch, at most the capacity of the vector
+     * @param batch the number of the batch, which differs from the number of the previous batch
+     * @return the values of the expression for the rows
+     */
+    public ColumnVector evaluate(Tuple[] rows, int count, long batch) {
+        if (batch != evaluatedBatch) {
+            evaluate(rows, count, batch, vector);
+            evaluatedBatch = batch;
+        }
+        return vector;
+    }
+
+    protected abstract void evaluate(Tuple[] rows, int count, long batch, ColumnVector vector);
+
+    /**
+     * Create the batch form of an expression
+     * @param expression the expression
+     * @param capacity the maximum number of rows of a batch
+     * @param shared the batch forms already created, used to evaluate common subexpressions once
+     * @return the batch form of the expression, which is evaluated row by row if it has none
+     */
+    public static BatchExpression create(Expression expression, int capacity,
+            Map<Expression, BatchExpression> shared) {
+        return create(expression, capacity, shared, true);
+    }
+
+    private static BatchExpression create(Expression expression, int capacity,
+            Map<Expression, BatchExpression> shared, boolean isRoot) {
+        BatchExpression batchExpression = shared.get(expression);
+        if (batchExpression == null) {
+            batchExpression = newBatchExpression(expression, capacity, shared);
+            if (batchExpression == null) {
+                if (!isRoot && !(expression instanceof ColumnExpression)) {
+                    return null;
+                }
+                batchExpression = new RowBatchExpression(expression, capacity);
+            }
+            shared.put(expression, batchExpression);
+        } else if (!isRoot && batchExpression.isRowByRow() && !(expression instanceof ColumnExpression)) {
+            return null;
+        }
+        return batchExpression;
+    }
+
+    private static BatchExpression newBatchExpression(Expression expression, int capacity,
+            Map<Expression, BatchExpression> shared) {
+        Kind kind = ColumnVector.getKind(expression.getDataType());
+        if (expression instanceof LiteralExpression) {
+            return new LiteralBatchExpression((LiteralExpression)expression, capacity);
+        }
+        if (kind == Kind.NULLS) {
+            return null;
+        }
+        ArithmeticOperator operator = null;
+        if (expression instanceof LongAddExpression || expression instanceof DoubleAddExpression) {
+            operator = ArithmeticOperator.ADD;
+        } else if (expression instanceof LongSubtractExpression || expression instanceof DoubleSubtractExpression) {
+            operator = ArithmeticOperator.SUBTRACT;
+        } else if (expression instanceof LongMultiplyExpression || expression instanceof DoubleMultiplyExpression) {
+            operator = ArithmeticOperator.MULTIPLY;
+        } else if (!(expression instanceof ComparisonExpression || expression instanceof CoerceExpression
+                || expression instanceof CaseExpression)) {
+            return null;
+        }
+        List<BatchExpression> children = Lists.newArrayListWithExpectedSize(expression.getChildren().size());
+        for (Expression child : expression.getChildren()) {
+            BatchExpression batchChild = create(child, capacity, shared, false);
+            if (batchChild == null) {
+                return null;
+            }
+            children.add(batchChild);
+        }
+        if (operator != null) {
+            for (BatchExpression child : children) {
+                if (kind == Kind.LONG ? child.getKind() != Kind.LONG : !isNumeric(child.getKind())) {
+                    return null;
+                }
+            }
+            return kind == Kind.LONG
+                    ? new LongArithmeticBatchExpression(expression, operator, children, capacity)
+                    : new DoubleArithmeticBatchExpression(expression, operator, children, capacity);
+        }
+        if (expression instanceof ComparisonExpression) {
+            Kind childKind = children.get(0).getKind();
+            if (!isNumeric(childKind) || children.get(1).getKind() != childKind) {
+                return null;
+            }
+            return new ComparisonBatchExpression((ComparisonExpression)expression, children, capacity);
+        }
+        if (expression instanceof CoerceExpression) {
+            BatchExpression child = children.get(0);
+            PDataType type = expression.getDataType();
+            if (child.getKind() == kind && (child.getExpression().getDataType() == type
+                    || type == PLong.INSTANCE || type == PDouble.INSTANCE)
+                    || child.getKind() == Kind.LONG && type == PDouble.INSTANCE) {
+                return new CoerceBatchExpression(expression, child, capacity);
+            }
+            return null;
+        }
+        for (int i = 0; i < children.size(); i++) {
+            // Conditions are at odd positions, and results, including the ELSE one, at even positions
+            if (children.get(i).getKind() != (i % 2 == 1 ? Kind.BOOLEAN : kind)) {
+                return null;
+            }
+        }
+        return new CaseBatchExpression(expression, children, capacity);
+    }
+
+    private static boolean isNumeric(Kind kind) {
+        return kind == Kind.LONG || kind == Kind.DOUBLE;
+    }
+
+    private static void decode(Expression expression, Tuple row, ImmutableBytesWritable ptr,
+            ColumnVector vector, int i) {
+        boolean[] nulls = vector.getNulls();
+        if (!expression.evaluate(row, ptr) || ptr.getLength() == 0) {
+            nulls[i] = true;
+            return;
+        }
+        nulls[i] = false;
+        PDataType type = expression.getDataType();
+        SortOrder sortOrder = expression.getSortOrder();
+        switch (vector.getKind()) {
+        case LONG:
+            vector.getLongs()[i] = type.getCodec().decodeLong(ptr, sortOrder);
+            break;
+        case DOUBLE:
+            vector.getDoubles()[i] = type.getCodec().decodeDouble(ptr, sortOrder);
+            break;
+        case BOOLEAN:
+            // Decoded the way CASE reads its conditions
+            vector.getLongs()[i] = Boolean.TRUE.equals(PBoolean.INSTANCE.toObject(ptr)) ? 1 : 0;
+            break;
+        default:
+            break;
+        }
+    }
+
+    /**
+     * Evaluates an expression row by row and decodes its values
+     */
+    private static final class RowBatchExpression extends BatchExpression {
+        private final ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+
+        private RowBatchExpression(Expression expression, int capacity) {
+            super(expression, ColumnVector.getKind(expression.getDataType()), capacity);
+        }
+
+        @Override
+        public boolean isRowByRow() {
+            return true;
+        }
+
+        @Override
+        protected void evaluate(Tuple[] rows, int count, long batch, ColumnVector vector) {
+            for (int i = 0; i < count; i++) {
+                decode(expression, rows[i], ptr, vector, i);
+                expression.reset();
+            }
+        }
+    }
+
+    /**
+     * Decodes the value of a literal once for all the rows of every batch
+     */
+    private static final class LiteralBatchExpression extends BatchExpression {
+
+        private LiteralBatchExpression(LiteralExpression expression, int capacity) {
+            super(expression, ColumnVector.getKind(expression.getDataType()), capacity);
+            ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+            decode(expression, null, ptr, vector, 0);
+            Arrays.fill(vector.getNulls(), vector.getNulls()[0]);
+            if (vector.getLongs() != null) {
+                Arrays.fill(vector.getLongs(), vector.getLongs()[0]);
+            }
+            if (vector.getDoubles() != null) {
+                Arrays.fill(vector.getDoubles(), vector.getDoubles()[0]);
+            }
+        }
+
+        @Override
+        protected void evaluate(Tuple[] rows, int count, long batch, ColumnVector vector) {
+        }
+    }
+
+    private enum ArithmeticOperator {ADD, SUBTRACT, MULTIPLY}
+
+    /**
+     * Adds, subtracts or multiplies longs, wrapping around on overflow like the row by row evaluation
+     */
+    private static final class LongArithmeticBatchExpression extends BatchExpression {
+        private final ArithmeticOperator operator;
+        private final List<BatchExpression> children;
+
+        private LongArithmeticBatchExpression(Expression expression, ArithmeticOperator operator,
+                List<BatchExpression> children, int capacity) {
+            super(expression, Kind.LONG, capacity);
+            this.operator = operator;
+            this.children = children;
+        }
+
+        @Override
+        protected void evaluate(Tuple[] rows, int count, long batch, ColumnVector vector) {
+            long[] result = vector.getLongs();
+            boolean[] resultNulls = vector.getNulls();
+            ColumnVector first = children.get(0).evaluate(rows, count, batch);
+            System.arraycopy(first.getLongs(), 0, result, 0, count);
+            System.arraycopy(first.getNulls(), 0, resultNulls, 0, count);
+            for (int c = 1; c < children.size(); c++) {
+                ColumnVector child = children.get(c).evaluate(rows, count, batch);
+                long[] values = child.getLongs();
+                boolean[] nulls = child.getNulls();
+                switch (operator) {
+                case ADD:
+                    for (int i = 0; i < count; i++) {
+                        result[i] += values[i];
+                    }
+                    break;
+                case SUBTRACT:
+                    for (int i = 0; i < count; i++) {
+                        result[i] -= values[i];
+                    }
+                    break;
+                default:
+                    for (int i = 0; i < count; i++) {
+                        result[i] *= values[i];
+                    }
+                    break;
+                }
+                for (int i = 0; i < count; i++) {
+                    resultNulls[i] |= nulls[i];
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds, subtracts or multiplies doubles. Like the row by row evaluation, the result is null when
+     * any operand is NaN or infinite, and a sum starts from zero and a product from one.
+     */
+    private static final class DoubleArithmeticBatchExpression extends BatchExpression {
+        private final ArithmeticOperator operator;
+        private final List<BatchExpression> children;
+
+        private DoubleArithmeticBatchExpression(Expression expression, ArithmeticOperator operator,
+                List<BatchExpression> children, int capacity) {
+            super(expression, Kind.DOUBLE, capacity);
+            this.operator = operator;
+            this.children = children;
+        }
+
+        @Override
+        protected void evaluate(Tuple[] rows, int count, long batch, ColumnVector vector) {
+            double[] result = vector.getDoubles();
+            boolean[] resultNulls = vector.getNulls();
+            Arrays.fill(result, 0, count, operator == ArithmeticOperator.MULTIPLY ? 1.0 : 0.0);
+            Arrays.fill(resultNulls, 0, count, false);
+            for (int c = 0; c < children.size(); c++) {
+                ColumnVector child = children.get(c).evaluate(rows, count, batch);
+                boolean[] nulls = child.getNulls();
+                for (int i = 0; i < count; i++) {
+                    double value = child.getDouble(i);
+                    if (nulls[i] || Double.isNaN(value) || Double.isInfinite(value)) {
+                        resultNulls[i] = true;
+                    } else if (operator == ArithmeticOperator.ADD) {
+                        result[i] += value;
+                    } else if (operator == ArithmeticOperator.MULTIPLY) {
+                        result[i] *= value;
+                    } else if (c == 0) {
+                        result[i] = value;
+                    } else {
+                        result[i] -= value;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Compares two vectors of the same numeric kind, with a null result when either side is null
+     */
+    private static final class ComparisonBatchExpression extends BatchExpression {
+        private final CompareOp op;
+        private final BatchExpression lhs;
+        private final BatchExpression rhs;
+
+        private ComparisonBatchExpression(ComparisonExpression expression, List<BatchExpression> children,
+                int capacity) {
+            super(expression, Kind.BOOLEAN, capacity);
+            this.op = expression.getFilterOp();
+            this.lhs = children.get(0);
+            this.rhs = children.get(1);
+        }
+
+        @Override
+        protected void evaluate(Tuple[] rows, int count, long batch, ColumnVector vector) {
+            long[] result = vector.getLongs();
+            boolean[] resultNulls = vector.getNulls();
+            ColumnVector left = lhs.evaluate(rows, count, batch);
+            ColumnVector right = rhs.evaluate(rows, count, batch);
+            boolean[] leftNulls = left.getNulls();
+            boolean[] rightNulls = right.getNulls();
+            if (left.getKind() == Kind.LONG) {
+                long[] leftValues = left.getLongs();
+                long[] rightValues = right.getLongs();
+                for (int i = 0; i < count; i++) {
+                    resultNulls[i] = leftNulls[i] || rightNulls[i];
+                    result[i] = ByteUtil.compare(op, Long.compare(leftValues[i], rightValues[i])) ? 1 : 0;
+                }
+            } else {
+                double[] leftValues = left.getDoubles();
+                double[] rightValues = right.getDoubles();
+                for (int i = 0; i < count; i++) {
+                    resultNulls[i] = leftNulls[i] || rightNulls[i];
+                    result[i] = ByteUtil.compare(op, Double.compare(leftValues[i], rightValues[i])) ? 1 : 0;
+                }
+            }
+        }
+    }
+
+    /**
+     * Widens integral values to longs or doubles, or floating point values to doubles
+     */
+    private static final class CoerceBatchExpression extends BatchExpression {
+        private final BatchExpression child;
+
+        private CoerceBatchExpression(Expression expression, BatchExpression child, int capacity) {
+            super(expression, ColumnVector.getKind(expression.getDataType()), capacity);
+            this.child = child;
+        }
+
+        @Override
+        protected void evaluate(Tuple[] rows, int count, long batch, ColumnVector vector) {
+            ColumnVector values = child.evaluate(rows, count, batch);
+            System.arraycopy(values.getNulls(), 0, vector.getNulls(), 0, count);
+            if (vector.getKind() == Kind.DOUBLE) {
+                double[] result = vector.getDoubles();
+                for (int i = 0; i < count; i++) {
+                    result[i] = values.getDouble(i);
+                }
+            } else {
+                System.arraycopy(values.getLongs(), 0, vector.getLongs(), 0, count);
+            }
+        }
+    }
+
+    /**
+     * Takes for each row the result of the first condition that is true, or the ELSE result
+     */
+    private static final class CaseBatchExpression extends BatchExpression {
+        private final List<BatchExpression> children;
+        private final boolean[] matched;
+
+        private CaseBatchExpression(Expression expression, List<BatchExpression> children, int capacity) {
+            super(expression, ColumnVector.getKind(expression.getDataType()), capacity);
+            this.children = children;
+            this.matched = new boolean[capacity];
+        }
+
+        @Override
+        protected void evaluate(Tuple[] rows, int count, long batch, ColumnVector vector) {
+            boolean[] resultNulls = vector.getNulls();
+            Arrays.fill(matched, 0, count, false);
+            Arrays.fill(resultNulls, 0, count, true);
+            int size = children.size();
+            for (int c = 0; c < size; c += 2) {
+                ColumnVector condition = null;
+                if (c + 1 < size) {
+                    condition = children.get(c + 1).evaluate(rows, count, batch);
+                }
+                ColumnVector values = children.get(c).evaluate(rows, count, batch);
+                for (int i = 0; i < count; i++) {
+                    if (matched[i] || condition != null
+                            && (condition.getNulls()[i] || condition.getLongs()[i] == 0)) {
+                        continue;
+                    }
+                    matched[i] = true;
+                    resultNulls[i] = values.getNulls()[i];
+                    if (vector.getKind() == Kind.DOUBLE) {
+                        vector.getDoubles()[i] = values.getDoubles()[i];
+                    } else {
+                        vector.getLongs()[i] = values.getLongs()[i];
+                    }
+                }
+            }
+        }
+    }
+}
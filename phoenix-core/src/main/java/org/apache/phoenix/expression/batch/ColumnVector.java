@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.expression.batch;
+
+import org.apache.phoenix.schema.types.PBoolean;
+import org.apache.phoenix.schema.types.PDataType;
+import org.apache.phoenix.schema.types.PDouble;
+import org.apache.phoenix.schema.types.PFloat;
+import org.apache.phoenix.schema.types.PInteger;
+import org.apache.phoenix.schema.types.PLong;
+import org.apache.phoenix.schema.types.PSmallint;
+import org.apache.phoenix.schema.types.PTinyint;
+import org.apache.phoenix.schema.types.PUnsignedDouble;
+import org.apache.phoenix.schema.types.PUnsignedFloat;
+import org.apache.phoenix.schema.types.PUnsignedInt;
+import org.apache.phoenix.schema.types.PUnsignedLong;
+import org.apache.phoenix.schema.types.PUnsignedSmallint;
+import org.apache.phoenix.schema.types.PUnsignedTinyint;
+
+/**
+ *
+ * The values of an expression over a batch of rows, decoded into primitive arrays
+ *
+ */
+public class ColumnVector {
+    /**
+     * How the values of a vector are held
+     */
+    public enum Kind {
+        /** Integral numbers, held as longs */
+        LONG,
+        /** Floating point numbers, held as doubles */
+        DOUBLE,
+        /** Booleans, held as longs that are 1 for true and 0 for false */
+        BOOLEAN,
+        /** Values with no primitive form, of which only whether they are null is held */
+        NULLS
+    }
+
+    private final Kind kind;
+    private final long[] longs;
+    private final double[] doubles;
+    private final boolean[] nulls;
+
+    public ColumnVector(Kind kind, int capacity) {
+        this.kind = kind;
+        this.longs = kind == Kind.LONG || kind == Kind.BOOLEAN ? new long[capacity] : null;
+        this.doubles = kind == Kind.DOUBLE ? new double[capacity] : null;
+        this.nulls = new boolean[capacity];
+    }
+
+    /**
+     * @return the kind of values held for the given type, or {@link Kind#NULLS} if the type has no
+     *         primitive form
+     */
+    public static Kind getKind(PDataType type) {
+        if (type == null) {
+            return Kind.NULLS;
+        }
+        if (PDataType.equalsAny(type, PLong.INSTANCE, PInteger.INSTANCE, PSmallint.INSTANCE, PTinyint.INSTANCE,
+                PUnsignedLong.INSTANCE, PUnsignedInt.INSTANCE, PUnsignedSmallint.INSTANCE,
+                PUnsignedTinyint.INSTANCE)) {
+            return Kind.LONG;
+        }
+        if (PDataType.equalsAny(type, PDouble.INSTANCE, PFloat.INSTANCE, PUnsignedDouble.INSTANCE,
+                PUnsignedFloat.INSTANCE)) {
+            return Kind.DOUBLE;
+        }
+        if (type == PBoolean.INSTANCE) {
+            return Kind.BOOLEAN;
+        }
+        return Kind.NULLS;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public int getCapacity() {
+        return nulls.length;
+    }
+
+    /**
+     * @return the values of a {@link Kind#LONG} or {@link Kind#BOOLEAN} vector
+     */
+    public long[] getLongs() {
+        return longs;
+    }
+
+    /**
+     * @return the values of a {@link Kind#DOUBLE} vector
+     */
+    public double[] getDoubles() {
+        return doubles;
+    }
+
+    /**
+     * @return whether the value of each row is null. The value held for a null row is undefined.
+     */
+    public boolean[] getNulls() {
+        return nulls;
+    }
+
+    /**
+     * @return the value of the row as a double, for a vector of either numeric kind
+     */
+    public double getDouble(int row) {
+        return kind == Kind.DOUBLE ? doubles[row] : longs[row];
+    }
+}
@@ -68,6 +68,8 @@ public class SkipScanFilter extends FilterBase implements Writable {
     private int[] slotSpan;
     // schema of the row key
     private RowKeySchema schema;
+    // comparator of the row key field of each slot
+    private BytesComparator[] comparators;
     private boolean includeMultipleVersions;
     // current position for each slot
     private int[] position;
@@ -120,6 +122,10 @@ public class SkipScanFilter extends FilterBase implements Writable {
         this.slots = slots;
         this.slotSpan = slotSpan;
         this.schema = schema;
+        this.comparators = new BytesComparator[slots.size()];
+        for (int i = 0; i < comparators.length; i++) {
+            comparators[i] = ScanUtil.getComparator(schema.getField(ScanUtil.getRowKeyPosition(slotSpan, i)));
+        }
         this.maxKeyLength = SchemaUtil.getMaxKeyLength(schema, slots);
         this.position = new int[slots.size()];
         this.startKey = new byte[maxKeyLength];
@@ -405,11 +411,9 @@ public class SkipScanFilter extends FilterBase implements Writable {
         schema.next(ptr, ScanUtil.getRowKeyPosition(slotSpan, i), maxOffset, slotSpan[i]);
         while (true) {
             // Comparator depends on field in schema
-            BytesComparator comparator = ScanUtil.getComparator(schema.getField(ScanUtil.getRowKeyPosition(slotSpan, i)));
-            // Increment to the next range while the upper bound of our current slot is less than our current key
-            while (position[i] < slots.get(i).size() && slots.get(i).get(position[i]).compareUpperToLowerBound(ptr, comparator) < 0) {
-                position[i]++;
-            }
+            BytesComparator comparator = comparators[i];
+            // Move to the next range while the upper bound of our current slot is less than our current key
+            position[i] = nextRangeAtOrAfter(slots.get(i), position[i], ptr, comparator);
             Arrays.fill(position, i+1, position.length, 0);
             if (position[i] >= slots.get(i).size()) {
                 // Our current key is bigger than the last range of the current slot.
@@ -514,6 +518,38 @@ public class SkipScanFilter extends FilterBase implements Writable {
         return getIncludeReturnCode();
     }
 
+    /**
+     * Returns the index of the first range at or after the given position whose upper bound is not
+     * less than the key, or the number of ranges if there is none. Gallops from the position, since
+     * the next key is usually in a nearby range, and then binary searches the last gallop, so that
+     * moving past many ranges of a large slot doesn't compare the key with each one of them.
+     */
+    private static int nextRangeAtOrAfter(List<KeyRange> ranges, int position, ImmutableBytesWritable ptr,
+            BytesComparator comparator) {
+        int size = ranges.size();
+        if (position >= size || ranges.get(position).compareUpperToLowerBound(ptr, comparator) >= 0) {
+            return position;
+        }
+        // The upper bound of the range at lower is less than the key, and the one at upper isn't
+        int lower = position;
+        int upper = position + 1;
+        int step = 1;
+        while (upper < size && ranges.get(upper).compareUpperToLowerBound(ptr, comparator) < 0) {
+            lower = upper;
+            step <<= 1;
+            upper = size - lower > step ? lower + step : size;
+        }
+        while (upper - lower > 1) {
+            int mid = (lower + upper) >>> 1;
+            if (ranges.get(mid).compareUpperToLowerBound(ptr, comparator) < 0) {
+                lower = mid;
+            } else {
+                upper = mid;
+            }
+        }
+        return upper;
+    }
+
     private boolean allTrailingNulls(int i) {
         for (; i < slots.size(); i++) {
             List<KeyRange> keyRanges = slots.get(i);
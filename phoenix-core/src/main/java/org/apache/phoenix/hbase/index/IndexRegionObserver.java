@@ -31,6 +31,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.BiFunction;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -70,9 +75,12 @@ import org.apache.phoenix.hbase.index.builder.IndexBuilder;
 import org.apache.phoenix.hbase.index.covered.IndexMetaData;
 import org.apache.phoenix.hbase.index.metrics.MetricsIndexerSource;
 import org.apache.phoenix.hbase.index.metrics.MetricsIndexerSourceFactory;
+import org.apache.phoenix.hbase.index.parallel.ThreadPoolBuilder;
+import org.apache.phoenix.hbase.index.parallel.ThreadPoolManager;
 import org.apache.phoenix.hbase.index.table.HTableInterfaceReference;
 import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
 import org.apache.phoenix.hbase.index.util.IndexManagementUtil;
+import org.apache.phoenix.hbase.index.write.AbstractParallelWriterIndexCommitter;
 import org.apache.phoenix.hbase.index.write.IndexFailurePolicy;
 import org.apache.phoenix.hbase.index.write.IndexWriter;
 import org.apache.phoenix.hbase.index.write.LazyParallelWriterIndexCommitter;
@@ -193,6 +201,20 @@ public class IndexRegionObserver implements RegionObserver, RegionCoprocessor {
   public static final String INDEX_LAZY_POST_BATCH_WRITE = "org.apache.hadoop.hbase.index.lazy.post_batch.write";
   private static final boolean INDEX_LAZY_POST_BATCH_WRITE_DEFAULT = false;
 
+  // Write the post index updates asynchronously instead of on the handler
+  public static final String INDEX_ASYNC_POST_BATCH_WRITE = "phoenix.index.async.post_batch.write";
+  private static final boolean INDEX_ASYNC_POST_BATCH_WRITE_DEFAULT = false;
+  // Max number of post index updates pending asynchronous writes in a region server
+  public static final String INDEX_ASYNC_POST_BATCH_WRITE_MAX_PENDING = "phoenix.index.async.post_batch.write.max.pending";
+  private static final int INDEX_ASYNC_POST_BATCH_WRITE_MAX_PENDING_DEFAULT = 100000;
+  public static final String INDEX_ASYNC_POST_BATCH_WRITE_THREADS = "phoenix.index.async.post_batch.write.threads";
+  private static final int INDEX_ASYNC_POST_BATCH_WRITE_THREADS_DEFAULT = 10;
+  // Skip the pending verifying puts of index rows that a later batch verifies again before they are written
+  public static final String INDEX_ASYNC_POST_BATCH_WRITE_COALESCE = "phoenix.index.async.post_batch.write.coalesce";
+  private static final boolean INDEX_ASYNC_POST_BATCH_WRITE_COALESCE_DEFAULT = true;
+  // Key of the permits for the pending post index updates, shared by the regions of a region server
+  private static final String ASYNC_POST_BATCH_WRITE_PERMITS_KEY = "phoenix.index.async.post_batch.write.permits";
+
   private static final String INDEXER_INDEX_WRITE_SLOW_THRESHOLD_KEY = "phoenix.indexer.slow.post.batch.mutate.threshold";
   private static final long INDEXER_INDEX_WRITE_SLOW_THRESHOLD_DEFAULT = 3_000;
   private static final String INDEXER_INDEX_PREPARE_SLOW_THRESHOLD_KEY = "phoenix.indexer.slow.pre.batch.mutate.threshold";
@@ -219,6 +241,13 @@ public class IndexRegionObserver implements RegionObserver, RegionCoprocessor {
    */
   private PerRegionIndexWriteCache failedIndexEdits = new PerRegionIndexWriteCache();
 
+  // Set when the post index updates are written asynchronously
+  private ExecutorService asyncPostWritePool;
+  private Semaphore asyncPostWritePermits;
+  private int maxAsyncPostWritePermits;
+  // The latest pending verifying put of each index row, keyed by the index table name and the index row key
+  private ConcurrentMap<Pair<ImmutableBytesPtr, ImmutableBytesPtr>, Mutation> pendingPostIndexPuts;
+
   private MetricsIndexerSource metricSource;
 
   private boolean stopped;
@@ -261,6 +290,22 @@ public class IndexRegionObserver implements RegionObserver, RegionCoprocessor {
             this.postWriter = this.preWriter;
         }
         
+        if (env.getConfiguration().getBoolean(INDEX_ASYNC_POST_BATCH_WRITE, INDEX_ASYNC_POST_BATCH_WRITE_DEFAULT)) {
+            this.maxAsyncPostWritePermits = env.getConfiguration().getInt(INDEX_ASYNC_POST_BATCH_WRITE_MAX_PENDING,
+                    INDEX_ASYNC_POST_BATCH_WRITE_MAX_PENDING_DEFAULT);
+            Semaphore permits = new Semaphore(maxAsyncPostWritePermits);
+            Object sharedPermits = env.getSharedData().putIfAbsent(ASYNC_POST_BATCH_WRITE_PERMITS_KEY, permits);
+            this.asyncPostWritePermits = sharedPermits == null ? permits : (Semaphore) sharedPermits;
+            this.asyncPostWritePool = ThreadPoolManager.getExecutor(
+                    new ThreadPoolBuilder(serverName + "-index-asyncPostWriter", env.getConfiguration())
+                            .setMaxThread(INDEX_ASYNC_POST_BATCH_WRITE_THREADS, INDEX_ASYNC_POST_BATCH_WRITE_THREADS_DEFAULT)
+                            .setCoreTimeout(AbstractParallelWriterIndexCommitter.INDEX_WRITER_KEEP_ALIVE_TIME_CONF_KEY), env);
+            if (env.getConfiguration().getBoolean(INDEX_ASYNC_POST_BATCH_WRITE_COALESCE,
+                    INDEX_ASYNC_POST_BATCH_WRITE_COALESCE_DEFAULT)) {
+                this.pendingPostIndexPuts = new ConcurrentHashMap<>();
+            }
+        }
+
         this.rowLockWaitDuration = env.getConfiguration().getInt("hbase.rowlock.wait.duration",
                 DEFAULT_ROWLOCK_WAIT_DURATION);
         this.lockManager = new LockManager();
@@ -309,6 +354,9 @@ public class IndexRegionObserver implements RegionObserver, RegionCoprocessor {
     this.builder.stop(msg);
     this.preWriter.stop(msg);
     this.postWriter.stop(msg);
+    if (this.asyncPostWritePool != null) {
+        this.asyncPostWritePool.shutdown();
+    }
   }
 
   /**
@@ -736,7 +784,9 @@ public class IndexRegionObserver implements RegionObserver, RegionCoprocessor {
 
           if (success) { // The pre-index and data table updates are successful, and now, do post index updates
               if (!skipPostIndexUpdatesForTesting) {
-                  doPost(c, context);
+                  if (asyncPostWritePool == null || !doPostAsync(context)) {
+                      doPost(c, context);
+                  }
               }
           }
        } finally {
@@ -763,6 +813,111 @@ public class IndexRegionObserver implements RegionObserver, RegionCoprocessor {
               "Somehow didn't complete the index update, but didn't return succesfully either!");
   }
 
+  /**
+   * Writes the post index updates asynchronously, so that the handler does not wait for the index RPCs.
+   * This is safe as the post index updates only verify the index rows that the pre index updates wrote
+   * unverified or delete the ones that are no longer valid, all with the timestamp of the batch, and the
+   * rows whose post index updates fail are repaired on read. The in-flight updates are bounded per region
+   * server, beyond which they are written on the handler. Unless disabled, a pending verifying put is
+   * dropped when a later batch verifies the same index row, see {@link #coalescePostIndexUpdates}.
+   * @return false if the post index updates have to be written on the handler
+   */
+  private boolean doPostAsync(final BatchMutateContext context) {
+      final Collection<Pair<Mutation, byte[]>> indexUpdates = context.postIndexUpdates;
+      if (indexUpdates.isEmpty()) {
+          return true;
+      }
+      final int permits = Math.min(indexUpdates.size(), maxAsyncPostWritePermits);
+      if (!asyncPostWritePermits.tryAcquire(permits)) {
+          metricSource.incrementNumAsyncPostIndexWriteFallbackCalls();
+          return false;
+      }
+      if (pendingPostIndexPuts != null) {
+          offerPostIndexPuts(indexUpdates);
+      }
+      try {
+          asyncPostWritePool.submit(new Runnable() {
+              @Override
+              public void run() {
+                  long start = EnvironmentEdgeManager.currentTimeMillis();
+                  try {
+                      Collection<Pair<Mutation, byte[]>> updates = pendingPostIndexPuts == null
+                              ? indexUpdates : coalescePostIndexUpdates(indexUpdates);
+                      if (!updates.isEmpty()) {
+                          postWriter.write(updates, false, context.clientVersion);
+                      }
+                  } catch (Throwable t) {
+                      LOG.warn("Failed to write " + indexUpdates.size()
+                              + " post index updates, leaving the index rows to be repaired on read", t);
+                  } finally {
+                      asyncPostWritePermits.release(permits);
+                      long duration = EnvironmentEdgeManager.currentTimeMillis() - start;
+                      if (duration >= slowIndexWriteThreshold) {
+                          if (LOG.isDebugEnabled()) {
+                              LOG.debug(getCallTooSlowMessage("asyncPostIndexWrite", duration, slowIndexWriteThreshold));
+                          }
+                          metricSource.incrementNumSlowIndexWriteCalls();
+                      }
+                      metricSource.updateIndexWriteTime(duration);
+                  }
+              }
+          });
+      } catch (RejectedExecutionException e) {
+          asyncPostWritePermits.release(permits);
+          if (pendingPostIndexPuts != null) {
+              coalescePostIndexUpdates(indexUpdates);
+          }
+          return false;
+      }
+      return true;
+  }
+
+  private static Pair<ImmutableBytesPtr, ImmutableBytesPtr> getPostIndexPutKey(Pair<Mutation, byte[]> update) {
+      return new Pair<>(new ImmutableBytesPtr(update.getSecond()), new ImmutableBytesPtr(update.getFirst().getRow()));
+  }
+
+  /**
+   * Registers the verifying puts of a batch as the pending ones of their index rows, unless a pending
+   * verifying put with a later timestamp is already registered for the same index row.
+   */
+  private void offerPostIndexPuts(Collection<Pair<Mutation, byte[]>> indexUpdates) {
+      for (Pair<Mutation, byte[]> update : indexUpdates) {
+          if (update.getFirst() instanceof Put) {
+              pendingPostIndexPuts.merge(getPostIndexPutKey(update), update.getFirst(),
+                      new BiFunction<Mutation, Mutation, Mutation>() {
+                          @Override
+                          public Mutation apply(Mutation pending, Mutation offered) {
+                              return getMaxTimestamp(offered) > getMaxTimestamp(pending) ? offered : pending;
+                          }
+                      });
+          }
+      }
+  }
+
+  /**
+   * Returns the post index updates of a batch that still have to be written. A verifying put is skipped
+   * once a later batch registered a verifying put for the same index row, as the index row key embeds the
+   * data row key and the later put verifies the latest version of the index row. An index row version left
+   * unverified this way is only visible to reads as of an earlier timestamp, which repair it. Deletes are
+   * always written.
+   */
+  private Collection<Pair<Mutation, byte[]>> coalescePostIndexUpdates(Collection<Pair<Mutation, byte[]>> indexUpdates) {
+      List<Pair<Mutation, byte[]>> updates = new ArrayList<>(indexUpdates.size());
+      int coalesced = 0;
+      for (Pair<Mutation, byte[]> update : indexUpdates) {
+          if (!(update.getFirst() instanceof Put)
+                  || pendingPostIndexPuts.remove(getPostIndexPutKey(update), update.getFirst())) {
+              updates.add(update);
+          } else {
+              coalesced++;
+          }
+      }
+      if (coalesced > 0) {
+          metricSource.incrementNumCoalescedPostIndexUpdates(coalesced);
+      }
+      return updates;
+  }
+
   private void doIndexWritesWithExceptions(BatchMutateContext context, boolean post)
             throws IOException {
       Collection<Pair<Mutation, byte[]>> indexUpdates = post ? context.postIndexUpdates : context.preIndexUpdates;
@@ -64,6 +64,22 @@ public interface MetricsIndexerSource extends BaseSource {
   String SLOW_POST_OPEN = "slowPostOpenCalls";
   String SLOW_POST_OPEN_DESC = "The number of postOpen calls slower than the configured threshold";
 
+  String ASYNC_POST_INDEX_WRITE_FALLBACK = "asyncPostIndexWriteFallbackCalls";
+  String ASYNC_POST_INDEX_WRITE_FALLBACK_DESC = "The number of post index writes done on the handler as too many asynchronous ones were pending";
+
+  String COALESCED_POST_INDEX_UPDATES = "coalescedPostIndexUpdates";
+  String COALESCED_POST_INDEX_UPDATES_DESC = "The number of pending post index updates skipped as a later batch verified the same index row";
+
+  String INDEX_WRITE_BATCH_SIZE = "indexWriteBatchSize";
+  String INDEX_WRITE_BATCH_SIZE_DESC = "Histogram for the number of index updates written together by the index write multiplexer";
+  String INDEX_WRITE_QUEUE_TIME = "indexWriteQueueTime";
+  String INDEX_WRITE_QUEUE_TIME_DESC = "Histogram for the time in milliseconds index updates wait in the index write multiplexer";
+
+  String INDEX_REPAIR_TIME = "indexRepairTime";
+  String INDEX_REPAIR_TIME_DESC = "Histogram for the time in milliseconds for rebuilding a batch of unverified global index rows on read";
+  String INDEX_REPAIR_ROWS = "indexRepairRows";
+  String INDEX_REPAIR_ROWS_DESC = "The number of unverified global index rows rebuilt on read";
+
   /**
    * Updates the index preparation time histogram (preBatchMutate).
    *
@@ -136,6 +152,43 @@ public interface MetricsIndexerSource extends BaseSource {
    */
   void incrementNumSlowPostOpenCalls();
 
+  /**
+   * Increments the number of post index writes done on the handler instead of asynchronously.
+   */
+  void incrementNumAsyncPostIndexWriteFallbackCalls();
+
+  /**
+   * Increments the number of pending post index updates skipped as a later batch verified the same index row.
+   * @param n the number of post index updates skipped
+   */
+  void incrementNumCoalescedPostIndexUpdates(long n);
+
+  /**
+   * Updates the histogram for the number of index updates written together by the index write multiplexer.
+   * @param size the number of index updates written together
+   */
+  void updateIndexWriteBatchSize(long size);
+
+  /**
+   * Updates the histogram for the time index updates wait in the index write multiplexer.
+   * @param t time taken in milliseconds
+   */
+  void updateIndexWriteQueueTime(long t);
+
+  /**
+   * Updates the time histogram for rebuilding a batch of unverified global index rows on read.
+   *
+   * @param t time taken in milliseconds
+   */
+  void updateIndexRepairTime(long t);
+
+  /**
+   * Increments the number of unverified global index rows rebuilt on read.
+   *
+   * @param rows number of rows rebuilt
+   */
+  void incrementNumIndexRepairRows(long rows);
+
   /**
    * Updates the preIncrementAfterRowLock time histogram.
    *
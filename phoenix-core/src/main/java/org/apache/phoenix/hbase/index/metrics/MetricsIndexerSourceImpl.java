@@ -39,6 +39,12 @@ public class MetricsIndexerSourceImpl extends BaseSourceImpl implements MetricsI
     private final MutableFastCounter slowPostOpenCalls;
     private final MetricHistogram duplicateKeyTimeHisto;
     private final MutableFastCounter slowDuplicateKeyCalls;
+    private final MutableFastCounter asyncPostIndexWriteFallbackCalls;
+    private final MutableFastCounter coalescedPostIndexUpdates;
+    private final MetricHistogram indexWriteBatchSizeHisto;
+    private final MetricHistogram indexWriteQueueTimeHisto;
+    private final MetricHistogram indexRepairTimeHisto;
+    private final MutableFastCounter indexRepairRows;
 
     public MetricsIndexerSourceImpl() {
         this(METRICS_NAME, METRICS_DESCRIPTION, METRICS_CONTEXT, METRICS_JMX_CONTEXT);
@@ -62,6 +68,14 @@ public class MetricsIndexerSourceImpl extends BaseSourceImpl implements MetricsI
         slowPostOpenCalls = getMetricsRegistry().newCounter(SLOW_POST_OPEN, SLOW_POST_OPEN_DESC, 0L);
         duplicateKeyTimeHisto = getMetricsRegistry().newHistogram(DUPLICATE_KEY_TIME, DUPLICATE_KEY_TIME_DESC);
         slowDuplicateKeyCalls = getMetricsRegistry().newCounter(SLOW_DUPLICATE_KEY, SLOW_DUPLICATE_KEY_DESC, 0L);
+        asyncPostIndexWriteFallbackCalls = getMetricsRegistry().newCounter(ASYNC_POST_INDEX_WRITE_FALLBACK,
+            ASYNC_POST_INDEX_WRITE_FALLBACK_DESC, 0L);
+        coalescedPostIndexUpdates = getMetricsRegistry().newCounter(COALESCED_POST_INDEX_UPDATES,
+            COALESCED_POST_INDEX_UPDATES_DESC, 0L);
+        indexWriteBatchSizeHisto = getMetricsRegistry().newHistogram(INDEX_WRITE_BATCH_SIZE, INDEX_WRITE_BATCH_SIZE_DESC);
+        indexWriteQueueTimeHisto = getMetricsRegistry().newHistogram(INDEX_WRITE_QUEUE_TIME, INDEX_WRITE_QUEUE_TIME_DESC);
+        indexRepairTimeHisto = getMetricsRegistry().newHistogram(INDEX_REPAIR_TIME, INDEX_REPAIR_TIME_DESC);
+        indexRepairRows = getMetricsRegistry().newCounter(INDEX_REPAIR_ROWS, INDEX_REPAIR_ROWS_DESC, 0L);
     }
 
     @Override
@@ -133,4 +147,34 @@ public class MetricsIndexerSourceImpl extends BaseSourceImpl implements MetricsI
     public void incrementSlowDuplicateKeyCheckCalls() {
         slowDuplicateKeyCalls.incr();
     }
+
+    @Override
+    public void incrementNumAsyncPostIndexWriteFallbackCalls() {
+        asyncPostIndexWriteFallbackCalls.incr();
+    }
+
+    @Override
+    public void incrementNumCoalescedPostIndexUpdates(long n) {
+        coalescedPostIndexUpdates.incr(n);
+    }
+
+    @Override
+    public void updateIndexWriteBatchSize(long size) {
+        indexWriteBatchSizeHisto.add(size);
+    }
+
+    @Override
+    public void updateIndexWriteQueueTime(long t) {
+        indexWriteQueueTimeHisto.add(t);
+    }
+
+    @Override
+    public void updateIndexRepairTime(long t) {
+        indexRepairTimeHisto.add(t);
+    }
+
+    @Override
+    public void incrementNumIndexRepairRows(long rows) {
+        indexRepairRows.incr(rows);
+    }
 }
\ No newline at end of file
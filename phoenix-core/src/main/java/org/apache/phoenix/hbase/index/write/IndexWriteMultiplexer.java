@@ -0,0 +1,293 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.hbase.index.write;
+
+import java.io.IOException;
+import java.security.PrivilegedExceptionAction;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.ServerName;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.AsyncConnection;
+import org.apache.hadoop.hbase.client.Mutation;
+import org.apache.hadoop.hbase.coprocessor.HasRegionServerServices;
+import org.apache.hadoop.hbase.coprocessor.RegionCoprocessorEnvironment;
+import org.apache.hadoop.hbase.security.User;
+import org.apache.hadoop.hbase.util.Pair;
+import org.apache.phoenix.hbase.index.metrics.MetricsIndexerSource;
+import org.apache.phoenix.hbase.index.metrics.MetricsIndexerSourceFactory;
+import org.apache.phoenix.util.EnvironmentEdgeManager;
+import org.apache.phoenix.util.ServerUtil.ConnectionFactory;
+import org.apache.phoenix.util.ServerUtil.ConnectionType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Region server wide queue of the index updates to write, shared by all the handlers. The updates of an
+ * index table are held until enough of them are pending or the oldest of them waited long enough, and are
+ * then written together with a single {@link AsyncConnection} batch, which the HBase client groups into one
+ * multi RPC per destination region server. Small batches from many handlers thus become few large RPCs.
+ * The updates of an index table are written right away when no other handler is writing to it, as there
+ * is nothing to wait for then.
+ * <p>
+ * There is one multiplexer per region server and {@link ConnectionType}, as the connection type decides the
+ * retry policy of the writes. It is created from the region server configuration by the first committer
+ * asking for it, and closed once all the committers using it released it.
+ */
+public class IndexWriteMultiplexer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(IndexWriteMultiplexer.class);
+
+    /** Number of pending mutations of an index table that triggers writing them */
+    public static final String FLUSH_SIZE_CONF_KEY = "index.writer.multiplexer.flush.size";
+    private static final int DEFAULT_FLUSH_SIZE = 1000;
+    /** Max time in milliseconds a mutation waits for others to be written with */
+    public static final String FLUSH_INTERVAL_MS_CONF_KEY = "index.writer.multiplexer.flush.interval.ms";
+    private static final long DEFAULT_FLUSH_INTERVAL_MS = 2;
+
+    private static Map<Pair<ServerName, ConnectionType>, IndexWriteMultiplexer> multiplexers =
+            new ConcurrentHashMap<Pair<ServerName, ConnectionType>, IndexWriteMultiplexer>();
+
+    /**
+     * Returns the multiplexer of the region server of the given environment, which must be released with
+     * {@link #release()} once no longer used.
+     */
+    public static IndexWriteMultiplexer getMultiplexer(ConnectionType connectionType,
+            RegionCoprocessorEnvironment env) {
+        Pair<ServerName, ConnectionType> key = new Pair<>(env.getServerName(), connectionType);
+        synchronized (IndexWriteMultiplexer.class) {
+            IndexWriteMultiplexer multiplexer = multiplexers.get(key);
+            if (multiplexer == null) {
+                // Not the configuration of the region, which may be overridden by its table
+                Configuration conf = env instanceof HasRegionServerServices
+                        ? ((HasRegionServerServices) env).getRegionServerServices().getConfiguration()
+                        : env.getConfiguration();
+                try {
+                    multiplexer = new IndexWriteMultiplexer(key, conf);
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+                multiplexers.put(key, multiplexer);
+            }
+            multiplexer.refCount++;
+            return multiplexer;
+        }
+    }
+
+    public static int getMultiplexersCount() {
+        return multiplexers.size();
+    }
+
+    /**
+     * The mutations a handler asked to write to an index table, and the future completed once they are written
+     */
+    private static class PendingWrite {
+        private final List<Mutation> mutations;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+        private final long enqueueTime = EnvironmentEdgeManager.currentTimeMillis();
+
+        PendingWrite(List<Mutation> mutations) {
+            this.mutations = mutations;
+        }
+    }
+
+    /**
+     * The pending writes of an index table
+     */
+    private static class PendingWrites {
+        private List<PendingWrite> writes = new ArrayList<>();
+        private int mutationCount;
+        // Writes queued or being written
+        private final AtomicInteger activeWrites = new AtomicInteger();
+
+        synchronized List<PendingWrite> drain() {
+            List<PendingWrite> drained = writes;
+            writes = new ArrayList<>();
+            mutationCount = 0;
+            return drained;
+        }
+    }
+
+    private final Pair<ServerName, ConnectionType> key;
+    // Guarded by the IndexWriteMultiplexer class
+    private int refCount;
+    private final AsyncConnection connection;
+    private final ScheduledExecutorService flushScheduler;
+    private final int flushSize;
+    private final long flushIntervalMs;
+    private final long writeTimeoutMs;
+    private final MetricsIndexerSource metricSource;
+    private final Map<TableName, PendingWrites> pendingWrites = new ConcurrentHashMap<>();
+
+    private IndexWriteMultiplexer(Pair<ServerName, ConnectionType> key, Configuration conf) throws IOException {
+        this.key = key;
+        ConnectionType connectionType = key.getSecond();
+        final Configuration connectionConf = ConnectionFactory.getTypeSpecificConfiguration(connectionType, conf);
+        // Not as the user of the handler that happens to ask for the multiplexer first
+        this.connection = User.runAsLoginUser(new PrivilegedExceptionAction<AsyncConnection>() {
+            @Override
+            public AsyncConnection run() throws Exception {
+                return org.apache.hadoop.hbase.client.ConnectionFactory.createAsyncConnection(connectionConf).get();
+            }
+        });
+        this.flushScheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("index-write-multiplexer-" + connectionType + "-%d").setDaemon(true).build());
+        this.flushSize = conf.getInt(FLUSH_SIZE_CONF_KEY, DEFAULT_FLUSH_SIZE);
+        this.flushIntervalMs = conf.getLong(FLUSH_INTERVAL_MS_CONF_KEY, DEFAULT_FLUSH_INTERVAL_MS);
+        this.writeTimeoutMs = flushIntervalMs + connectionConf.getLong(HConstants.HBASE_CLIENT_OPERATION_TIMEOUT,
+                HConstants.DEFAULT_HBASE_CLIENT_OPERATION_TIMEOUT);
+        this.metricSource = MetricsIndexerSourceFactory.getInstance().create();
+    }
+
+    /**
+     * Releases the multiplexer, which is closed once released by all the committers that got it.
+     */
+    public void release() {
+        synchronized (IndexWriteMultiplexer.class) {
+            if (--refCount > 0) {
+                return;
+            }
+            multiplexers.remove(key);
+        }
+        close();
+    }
+
+    /**
+     * Returns the max time in milliseconds the mutations given to {@link #write(TableName, List)} take to be
+     * written, which is the time they may be held plus the operation timeout of the connection.
+     */
+    public long getWriteTimeoutMs() {
+        return writeTimeoutMs;
+    }
+
+    /**
+     * Queues the given mutations to be written to the given index table.
+     * @return the future completed once the mutations are written, or exceptionally if any of them failed
+     */
+    public CompletableFuture<Void> write(final TableName tableName, List<Mutation> mutations) {
+        PendingWrite write = new PendingWrite(mutations);
+        final PendingWrites pending = pendingWrites.computeIfAbsent(tableName,
+                new Function<TableName, PendingWrites>() {
+                    @Override
+                    public PendingWrites apply(TableName t) {
+                        return new PendingWrites();
+                    }
+                });
+        // Without other writes to the table queued or in flight, there is no write worth waiting for
+        boolean alone = pending.activeWrites.incrementAndGet() == 1;
+        write.future.whenComplete(new BiConsumer<Void, Throwable>() {
+            @Override
+            public void accept(Void result, Throwable t) {
+                pending.activeWrites.decrementAndGet();
+            }
+        });
+        boolean first;
+        List<PendingWrite> toFlush = null;
+        synchronized (pending) {
+            first = pending.writes.isEmpty();
+            pending.writes.add(write);
+            pending.mutationCount += mutations.size();
+            if (pending.mutationCount >= flushSize || (first && alone)) {
+                toFlush = pending.drain();
+            }
+        }
+        if (toFlush != null) {
+            flush(tableName, toFlush);
+        } else if (first) {
+            try {
+                flushScheduler.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        flush(tableName, pending.drain());
+                    }
+                }, flushIntervalMs, TimeUnit.MILLISECONDS);
+            } catch (RuntimeException e) {
+                // Closed, so write the pending mutations right away
+                flush(tableName, pending.drain());
+            }
+        }
+        return write.future;
+    }
+
+    private void flush(TableName tableName, List<PendingWrite> writes) {
+        if (writes.isEmpty()) {
+            return;
+        }
+        long now = EnvironmentEdgeManager.currentTimeMillis();
+        List<Mutation> mutations = new ArrayList<>();
+        for (PendingWrite write : writes) {
+            mutations.addAll(write.mutations);
+            metricSource.updateIndexWriteQueueTime(now - write.enqueueTime);
+        }
+        metricSource.updateIndexWriteBatchSize(mutations.size());
+        if (LOGGER.isTraceEnabled()) {
+            LOGGER.trace("Writing " + mutations.size() + " index updates of " + writes.size()
+                    + " batches to table: " + tableName);
+        }
+        List<CompletableFuture<Object>> results;
+        try {
+            results = connection.getTable(tableName).batch(mutations);
+        } catch (RuntimeException e) {
+            for (PendingWrite write : writes) {
+                write.future.completeExceptionally(e);
+            }
+            return;
+        }
+        int offset = 0;
+        for (final PendingWrite write : writes) {
+            List<CompletableFuture<Object>> writeResults = results.subList(offset, offset + write.mutations.size());
+            offset += write.mutations.size();
+            CompletableFuture.allOf(writeResults.toArray(new CompletableFuture[writeResults.size()]))
+                    .whenComplete(new BiConsumer<Void, Throwable>() {
+                        @Override
+                        public void accept(Void result, Throwable t) {
+                            if (t == null) {
+                                write.future.complete(null);
+                            } else {
+                                write.future.completeExceptionally(t);
+                            }
+                        }
+                    });
+        }
+    }
+
+    private void close() {
+        flushScheduler.shutdown();
+        for (Map.Entry<TableName, PendingWrites> entry : pendingWrites.entrySet()) {
+            flush(entry.getKey(), entry.getValue().drain());
+        }
+        try {
+            connection.close();
+        } catch (IOException e) {
+            LOGGER.warn("Unable to close the index write multiplexer connection", e);
+        }
+    }
+}
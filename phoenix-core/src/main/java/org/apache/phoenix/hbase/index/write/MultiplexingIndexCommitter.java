@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.hbase.index.write;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Mutation;
+import org.apache.hadoop.hbase.coprocessor.RegionCoprocessorEnvironment;
+import org.apache.phoenix.coprocessor.MetaDataProtocol;
+import org.apache.phoenix.hbase.index.exception.MultiIndexWriteFailureException;
+import org.apache.phoenix.hbase.index.table.HTableInterfaceReference;
+import org.apache.phoenix.hbase.index.util.KeyValueBuilder;
+import org.apache.phoenix.index.PhoenixIndexFailurePolicy;
+import org.apache.phoenix.util.EnvironmentEdgeManager;
+import org.apache.phoenix.util.IndexUtil;
+import org.apache.phoenix.util.ServerUtil.ConnectionType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Multimap;
+
+/**
+ * Like the {@link TrackingParallelWriterIndexCommitter}, attempts all the writes and reports the index tables
+ * that failed, but instead of each handler writing its own index updates with blocking batches, hands them to
+ * the region server wide {@link IndexWriteMultiplexer}, which writes the updates of all the handlers together.
+ * Enabled by setting {@link IndexWriter#INDEX_COMMITTER_CONF_KEY} to this class.
+ */
+public class MultiplexingIndexCommitter implements IndexCommitter {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MultiplexingIndexCommitter.class);
+
+    private IndexWriteMultiplexer retryingMultiplexer;
+    private IndexWriteMultiplexer noRetriesMultiplexer;
+    private RegionCoprocessorEnvironment env;
+    private KeyValueBuilder kvBuilder;
+    private boolean disableIndexOnFailure = false;
+    private volatile boolean stopped = false;
+
+    @Override
+    public void setup(IndexWriter parent, RegionCoprocessorEnvironment env, String name, boolean disableIndexOnFailure) {
+        this.env = env;
+        this.disableIndexOnFailure = disableIndexOnFailure;
+        this.retryingMultiplexer = IndexWriteMultiplexer.getMultiplexer(
+                ConnectionType.INDEX_WRITER_CONNECTION_WITH_CUSTOM_THREADS, env);
+        this.noRetriesMultiplexer = IndexWriteMultiplexer.getMultiplexer(
+                ConnectionType.INDEX_WRITER_CONNECTION_WITH_CUSTOM_THREADS_NO_RETRIES, env);
+        this.kvBuilder = KeyValueBuilder.get(env.getHBaseVersion());
+    }
+
+    @Override
+    public void write(Multimap<HTableInterfaceReference, Mutation> toWrite, boolean allowLocalUpdates, int clientVersion)
+            throws MultiIndexWriteFailureException {
+        String tableName = env.getRegion().getTableDescriptor().getTableName().getNameAsString();
+        // if the client can retry index writes, then we don't need to retry here
+        IndexWriteMultiplexer multiplexer = disableIndexOnFailure
+                && clientVersion >= MetaDataProtocol.MIN_CLIENT_RETRY_INDEX_WRITES
+                ? noRetriesMultiplexer : retryingMultiplexer;
+        List<HTableInterfaceReference> failures = new ArrayList<HTableInterfaceReference>();
+        Map<HTableInterfaceReference, CompletableFuture<Void>> writes =
+                new LinkedHashMap<HTableInterfaceReference, CompletableFuture<Void>>();
+        for (Entry<HTableInterfaceReference, Collection<Mutation>> entry : toWrite.asMap().entrySet()) {
+            HTableInterfaceReference tableReference = entry.getKey();
+            List<Mutation> mutations = kvBuilder.cloneIfNecessary((List<Mutation>)entry.getValue());
+            if (tableReference.getTableName().equals(tableName)) {
+                if (!allowLocalUpdates) {
+                    continue;
+                }
+                try {
+                    IndexUtil.writeLocalUpdates(env.getRegion(), mutations, true);
+                    continue;
+                } catch (IOException ignored) {
+                    // when it's failed we fall back to the standard & slow way
+                    if (LOGGER.isTraceEnabled()) {
+                        LOGGER.trace("indexRegion.batchMutate failed and fall back to the multiplexer. Got error="
+                                + ignored);
+                    }
+                }
+            }
+            if (stopped) {
+                failures.add(tableReference);
+                continue;
+            }
+            writes.put(tableReference, multiplexer.write(
+                    TableName.valueOf(tableReference.get().copyBytesIfNecessary()), mutations));
+        }
+
+        boolean interrupted = false;
+        long maxEndTime = EnvironmentEdgeManager.currentTimeMillis() + multiplexer.getWriteTimeoutMs();
+        for (Entry<HTableInterfaceReference, CompletableFuture<Void>> write : writes.entrySet()) {
+            try {
+                if (interrupted) {
+                    // the mutations may still be written, but we can no longer tell
+                    failures.add(write.getKey());
+                    continue;
+                }
+                write.getValue().get(Math.max(0, maxEndTime - EnvironmentEdgeManager.currentTimeMillis()),
+                        TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                interrupted = true;
+                failures.add(write.getKey());
+            } catch (TimeoutException e) {
+                LOGGER.warn("Timed out writing index updates to table: " + write.getKey());
+                failures.add(write.getKey());
+            } catch (ExecutionException e) {
+                LOGGER.warn("Failed to write index updates to table: " + write.getKey(), e.getCause());
+                failures.add(write.getKey());
+            }
+        }
+        if (interrupted) {
+            // reset the interrupt status on the thread
+            Thread.currentThread().interrupt();
+        }
+
+        // if any of the writes failed, then we need to propagate the failure
+        if (failures.size() > 0) {
+            throw new MultiIndexWriteFailureException(Collections.unmodifiableList(failures),
+                    disableIndexOnFailure && PhoenixIndexFailurePolicy.getDisableIndexOnFailure(env));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The multiplexers are shared across the region server, so they are only released, and closed once
+     * no other committer uses them.
+     */
+    @Override
+    public void stop(String why) {
+        synchronized (this) {
+            if (stopped) {
+                return;
+            }
+            this.stopped = true;
+        }
+        LOGGER.info("Shutting down " + this.getClass().getSimpleName() + " because " + why);
+        if (this.retryingMultiplexer != null) {
+            this.retryingMultiplexer.release();
+            this.noRetriesMultiplexer.release();
+        }
+    }
+
+    @Override
+    public boolean isStopped() {
+        return stopped;
+    }
+}
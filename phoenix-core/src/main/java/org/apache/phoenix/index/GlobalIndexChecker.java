@@ -26,13 +26,16 @@ import static org.apache.phoenix.index.IndexMaintainer.getIndexMaintainer;
 import static org.apache.phoenix.schema.types.PDataType.TRUE_BYTES;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.TreeSet;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
 import org.apache.hadoop.hbase.CoprocessorEnvironment;
 import org.apache.hadoop.hbase.DoNotRetryIOException;
 import org.apache.hadoop.hbase.TableName;
@@ -48,12 +51,16 @@ import org.apache.hadoop.hbase.coprocessor.ObserverContext;
 import org.apache.hadoop.hbase.coprocessor.RegionCoprocessor;
 import org.apache.hadoop.hbase.coprocessor.RegionCoprocessorEnvironment;
 import org.apache.hadoop.hbase.coprocessor.RegionObserver;
+import org.apache.hadoop.hbase.filter.MultiRowRangeFilter;
+import org.apache.hadoop.hbase.filter.MultiRowRangeFilter.RowRange;
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.hadoop.hbase.regionserver.Region;
 import org.apache.hadoop.hbase.regionserver.RegionScanner;
 import org.apache.hadoop.hbase.regionserver.ScannerContext;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.phoenix.coprocessor.BaseScannerRegionObserver;
+import org.apache.phoenix.hbase.index.metrics.MetricsIndexerSource;
+import org.apache.phoenix.hbase.index.metrics.MetricsIndexerSourceFactory;
 import org.apache.phoenix.hbase.index.table.HTableFactory;
 import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
 import org.apache.phoenix.query.QueryServices;
@@ -63,6 +70,8 @@ import org.apache.phoenix.util.IndexUtil;
 import org.apache.phoenix.util.SchemaUtil;
 import org.apache.phoenix.util.ServerUtil;
 
+import com.google.common.collect.Lists;
+
 /**
  * 
  * Coprocessor that verifies the scanned rows of a non-transactional global index.
@@ -70,6 +79,7 @@ import org.apache.phoenix.util.ServerUtil;
  */
 public class GlobalIndexChecker implements RegionCoprocessor, RegionObserver {
     private static final Log LOG = LogFactory.getLog(GlobalIndexChecker.class);
+    private MetricsIndexerSource metricsSource;
 
     /**
      * Class that verifies a given row of a non-transactional global index.
@@ -80,6 +90,11 @@ public class GlobalIndexChecker implements RegionCoprocessor, RegionObserver {
         RegionScanner scanner;
         private long ageThreshold;
         private int repairCount;
+        private int repairBatchSize;
+        // Index rows rebuilt by this scanner, which are not rebuilt again if they are still unverified
+        private final TreeSet<byte[]> repairedRows = new TreeSet<byte[]>(Bytes.BYTES_COMPARATOR);
+        // Set when the scanner is reopened after a repair, as the rebuilt rows are yet to be scanned
+        private boolean rescan;
         private Scan scan;
         private Scan indexScan;
         private Scan buildIndexScan = null;
@@ -106,6 +121,9 @@ public class GlobalIndexChecker implements RegionCoprocessor, RegionObserver {
             repairCount = env.getConfiguration().getInt(
                     QueryServices.GLOBAL_INDEX_ROW_REPAIR_COUNT_ATTRIB,
                     QueryServicesOptions.DEFAULT_GLOBAL_INDEX_REPAIR_COUNT);
+            repairBatchSize = env.getConfiguration().getInt(
+                    QueryServices.GLOBAL_INDEX_ROW_REPAIR_BATCH_SIZE_ATTRIB,
+                    QueryServicesOptions.DEFAULT_GLOBAL_INDEX_ROW_REPAIR_BATCH_SIZE);
             minTimestamp = scan.getTimeRange().getMin();
             maxTimestamp = scan.getTimeRange().getMax();
         }
@@ -125,6 +143,7 @@ public class GlobalIndexChecker implements RegionCoprocessor, RegionObserver {
             try {
                 boolean hasMore;
                 do {
+                    rescan = false;
                     hasMore = scanner.next(result);
                     if (result.isEmpty()) {
                         break;
@@ -132,9 +151,9 @@ public class GlobalIndexChecker implements RegionCoprocessor, RegionObserver {
                     if (verifyRowAndRepairIfNecessary(result)) {
                         break;
                     }
-                    // skip this row as it is invalid
+                    // skip this row as it is invalid, or scan it again if it has been repaired
                     // if there is no more row, then result will be an empty list
-                } while (hasMore);
+                } while (hasMore || rescan);
                 return hasMore;
             } catch (Throwable t) {
                 ServerUtil.throwIOException(region.getRegionInfo().getRegionNameAsString(), t);
@@ -185,6 +204,7 @@ public class GlobalIndexChecker implements RegionCoprocessor, RegionObserver {
             try {
                 boolean hasMore;
                 do {
+                    rescan = false;
                     hasMore = scanner.nextRaw(result);
                     if (result.isEmpty()) {
                         break;
@@ -192,9 +212,9 @@ public class GlobalIndexChecker implements RegionCoprocessor, RegionObserver {
                     if (verifyRowAndRepairIfNecessary(result)) {
                         break;
                     }
-                    // skip this row as it is invalid
+                    // skip this row as it is invalid, or scan it again if it has been repaired
                     // if there is no more row, then result will be an empty list
-                } while (hasMore);
+                } while (hasMore || rescan);
                 return hasMore;
             } catch (Throwable t) {
                 ServerUtil.throwIOException(region.getRegionInfo().getRegionNameAsString(), t);
@@ -210,7 +230,12 @@ public class GlobalIndexChecker implements RegionCoprocessor, RegionObserver {
             }
         }
 
-        private void repairIndexRows(byte[] indexRowKey, long ts, List<Cell> row) throws IOException {
+        /**
+         * Repairs the given unverified index row along with the unverified rows found in the rows that follow it,
+         * up to the repair batch size, by rebuilding them from their data table rows with a single scan. The scanner
+         * is then reopened at the given row, so that the rebuilt rows are scanned.
+         */
+        private void repairIndexRows(byte[] indexRowKey, long ts) throws IOException {
             // Build the data table row key from the index table row key
             if (buildIndexScan == null) {
                 buildIndexScan = new Scan();
@@ -237,48 +262,75 @@ public class GlobalIndexChecker implements RegionCoprocessor, RegionObserver {
                 buildIndexScan.setAttribute(BaseScannerRegionObserver.UNGROUPED_AGG, TRUE_BYTES);
                 buildIndexScan.setAttribute(PhoenixIndexCodec.INDEX_PROTO_MD, scan.getAttribute(PhoenixIndexCodec.INDEX_PROTO_MD));
                 buildIndexScan.setAttribute(BaseScannerRegionObserver.REBUILD_INDEXES, TRUE_BYTES);
-                buildIndexScan.setAttribute(BaseScannerRegionObserver.SCAN_LIMIT, Bytes.toBytes(repairCount));
                 buildIndexScan.setAttribute(BaseScannerRegionObserver.SKIP_REGION_BOUNDARY_CHECK, Bytes.toBytes(true));
             }
+            // The rows scanned before this one are not scanned again
+            if (scan.isReversed()) {
+                repairedRows.tailSet(indexRowKey, false).clear();
+            } else {
+                repairedRows.headSet(indexRowKey).clear();
+            }
+            // Collect the unverified rows that follow, so that they are repaired along with this one
+            List<byte[]> indexRowKeys = Lists.newArrayList(indexRowKey);
+            long minTs = ts;
+            List<Cell> row = new ArrayList<Cell>();
+            boolean hasMore = true;
+            for (int i = 1; i < repairBatchSize && hasMore; i++) {
+                row.clear();
+                hasMore = scanner.next(row);
+                if (row.isEmpty()) {
+                    break;
+                }
+                byte[] rowKey = CellUtil.cloneRow(row.get(0));
+                long rowTs = getMaxTimestamp(row);
+                if (!repairedRows.contains(rowKey) && !verifyRowAndRemoveEmptyColumn(row)) {
+                    indexRowKeys.add(rowKey);
+                    minTs = Math.min(minTs, rowTs);
+                }
+            }
+            long startTime = EnvironmentEdgeManager.currentTimeMillis();
             // Rebuild the index rows from the corresponding the rows in the the data table
-            byte[] dataRowKey = indexMaintainer.buildDataRowKey(new ImmutableBytesWritable(indexRowKey), viewConstants);
-            buildIndexScan.withStartRow(dataRowKey, true);
-            buildIndexScan.setTimeRange(ts, maxTimestamp);
+            TreeSet<byte[]> dataRowKeys = new TreeSet<byte[]>(Bytes.BYTES_COMPARATOR);
+            for (byte[] rowKey : indexRowKeys) {
+                dataRowKeys.add(indexMaintainer.buildDataRowKey(new ImmutableBytesWritable(rowKey), viewConstants));
+            }
+            buildIndexScan.withStartRow(dataRowKeys.first(), true);
+            buildIndexScan.setTimeRange(minTs, maxTimestamp);
             buildIndexScan.setRaw(true);
-            try (ResultScanner resultScanner = dataHTable.getScanner(buildIndexScan)){
-                resultScanner.next();
+            try {
+                if (dataRowKeys.size() == 1) {
+                    buildIndexScan.setAttribute(BaseScannerRegionObserver.SCAN_LIMIT, Bytes.toBytes(repairCount));
+                    try (ResultScanner resultScanner = dataHTable.getScanner(buildIndexScan)) {
+                        resultScanner.next();
+                    }
+                } else {
+                    // Skip from one data table row to the next, and stop after the last one
+                    List<RowRange> rowRanges = Lists.newArrayListWithExpectedSize(dataRowKeys.size());
+                    for (byte[] dataRowKey : dataRowKeys) {
+                        rowRanges.add(new RowRange(dataRowKey, true, dataRowKey, true));
+                    }
+                    Scan batchScan = new Scan(buildIndexScan);
+                    batchScan.setAttribute(BaseScannerRegionObserver.SCAN_LIMIT, null);
+                    batchScan.withStopRow(dataRowKeys.last(), true);
+                    batchScan.setFilter(new MultiRowRangeFilter(rowRanges));
+                    try (ResultScanner resultScanner = dataHTable.getScanner(batchScan)) {
+                        // Each data table region holding some of the rows returns the number of rows it rebuilt
+                        while (resultScanner.next() != null) {
+                        }
+                    }
+                }
             } catch (Throwable t) {
                 ServerUtil.throwIOException(dataHTable.getName().toString(), t);
             }
-            // Close the current scanner as the newly build row will not be visible to it
+            metricsSource.updateIndexRepairTime(EnvironmentEdgeManager.currentTimeMillis() - startTime);
+            metricsSource.incrementNumIndexRepairRows(indexRowKeys.size());
+            repairedRows.addAll(indexRowKeys);
+            // Close the current scanner as the newly build rows will not be visible to it
             scanner.close();
             // Open a new scanner starting from the current row
             indexScan.withStartRow(indexRowKey, true);
             scanner = region.getScanner(indexScan);
-            // Scan the newly build index rows
-            scanner.next(row);
-            if (row.isEmpty()) {
-                return;
-            }
-            // Check if the corresponding data table row exist
-            if (Bytes.compareTo(row.get(0).getRowArray(), row.get(0).getRowOffset(), row.get(0).getRowLength(),
-                    indexRowKey, 0, indexRowKey.length) == 0) {
-                if (!verifyRowAndRemoveEmptyColumn(row)) {
-                    // The corresponding row does not exist in the data table.
-                    // Need to delete the row from index if it is old enough
-                    deleteRowIfAgedEnough(indexRowKey, ts);
-                    row.clear();
-                }
-                return;
-            }
-            // This means the current index row is deleted by the rebuild process and we got the next row.
-            // If it is verified then we are good to go. If not, then we need to repair the new row
-            if (!verifyRowAndRemoveEmptyColumn(row)) {
-                // Rewind the scanner and let the row be scanned again so that it can be repaired
-                scanner.close();
-                scanner = region.getScanner(indexScan);
-                row.clear();
-            }
+            rescan = true;
         }
 
         private boolean isEmptyColumn(Cell cell) {
@@ -348,7 +400,8 @@ public class GlobalIndexChecker implements RegionCoprocessor, RegionObserver {
 
         /**
          * @param cellList is an input and output parameter and will either include a valid row or be an empty list
-         * @return true if there exists more rows, otherwise false
+         * @return true if the row is valid, otherwise false, in which case it is either skipped or scanned again
+         * after being repaired
          * @throws IOException
          */
         private boolean verifyRowAndRepairIfNecessary(List<Cell> cellList) throws IOException {
@@ -360,16 +413,24 @@ public class GlobalIndexChecker implements RegionCoprocessor, RegionObserver {
                 System.arraycopy(cell.getRowArray(), cell.getRowOffset(), rowKey, 0, cell.getRowLength());
                 long ts = getMaxTimestamp(cellList);
                 cellList.clear();
-                repairIndexRows(rowKey, ts, cellList);
-                if (cellList.isEmpty()) {
-                    // This means that the index row is invalid. Return false to tell the caller that this row should be skipped
-                    return false;
+                if (repairedRows.contains(rowKey)) {
+                    // The row is still unverified after being rebuilt, so the corresponding row does not exist in
+                    // the data table. Need to delete the row from index if it is old enough
+                    deleteRowIfAgedEnough(rowKey, ts);
+                } else {
+                    repairIndexRows(rowKey, ts);
                 }
-                return true;
+                // This means that the index row is invalid. Return false to tell the caller that this row should be skipped
+                return false;
             }
         }
     }
 
+    @Override
+    public void start(CoprocessorEnvironment e) throws IOException {
+        this.metricsSource = MetricsIndexerSourceFactory.getInstance().create();
+    }
+
     @Override
     public Optional<RegionObserver> getRegionObserver() {
         return Optional.of(this);
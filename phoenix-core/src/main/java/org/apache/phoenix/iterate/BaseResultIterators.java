@@ -40,6 +40,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.BitSet;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -86,6 +87,8 @@ import org.apache.phoenix.filter.DistinctPrefixFilter;
 import org.apache.phoenix.filter.EncodedQualifiersColumnProjectionFilter;
 import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
 import org.apache.phoenix.hbase.index.util.VersionUtil;
+import org.apache.phoenix.jdbc.PhoenixConnection;
+import org.apache.phoenix.job.SchedulingGroup;
 import org.apache.phoenix.join.HashCacheClient;
 import org.apache.phoenix.mapreduce.util.PhoenixConfigurationUtil;
 import org.apache.phoenix.parse.FilterableStatement;
@@ -121,6 +124,7 @@ import org.apache.phoenix.util.LogUtil;
 import org.apache.phoenix.util.PrefixByteCodec;
 import org.apache.phoenix.util.PrefixByteDecoder;
 import org.apache.phoenix.util.QueryUtil;
+import org.apache.phoenix.util.ReadOnlyProps;
 import org.apache.phoenix.util.SQLCloseables;
 import org.apache.phoenix.util.ScanUtil;
 import org.apache.phoenix.util.SchemaUtil;
@@ -158,11 +162,19 @@ public abstract class BaseResultIterators extends ExplainTable implements Result
     private Long estimatedRows;
     private Long estimatedSize;
     private Long estimateInfoTimestamp;
+    // Bytes of the guidepost chunks holding the keys of a point lookup, read when scanning them
+    private Long pointLookupScanBytesEstimate;
     private boolean hasGuidePosts;
     private Scan scan;
     private final boolean useStatsForParallelization;
     protected Map<ImmutableBytesPtr,ServerCache> caches;
     private final QueryPlan dataPlan;
+    // Scans of the iterators that may be split when they lag behind, see splitRemainingRange
+    private final Map<PeekingResultIterator, Scan> splittableScans = new IdentityHashMap<>();
+    private final List<Scan> splitScans = Lists.newArrayList();
+    // All iterators opened by getIterators, including those over split off key ranges
+    private Queue<PeekingResultIterator> allIterators;
+    private long maxQueryEndTime;
     
     static final Function<HRegionLocation, KeyRange> TO_KEY_RANGE = new Function<HRegionLocation, KeyRange>() {
         @Override
@@ -1119,6 +1131,10 @@ public abstract class BaseResultIterators extends ExplainTable implements Result
             if (!scans.isEmpty()) { // Add any remaining scans
                 parallelScans.add(scans);
             }
+            if (scanRanges.isPointLookup()) {
+                this.pointLookupScanBytesEstimate = emptyGuidePost ? Long.valueOf(gps.getByteCounts()[0])
+                        : hasGuidePosts ? Long.valueOf(estimates.bytesEstimate) : null;
+            }
             Long pageLimit = getUnfilteredPageLimit(scan);
             if (scanRanges.isPointLookup() || pageLimit != null) {
                 // If run in parallel, the limit is pushed to each parallel scan so must be accounted for in all of them
@@ -1235,12 +1251,12 @@ public abstract class BaseResultIterators extends ExplainTable implements Result
         final ConnectionQueryServices services = context.getConnection().getQueryServices();
         // Get query time out from Statement
         final long startTime = EnvironmentEdgeManager.currentTimeMillis();
-        final long maxQueryEndTime = startTime + context.getStatement().getQueryTimeoutInMillis();
+        maxQueryEndTime = startTime + context.getStatement().getQueryTimeoutInMillis();
         int numScans = size();
         // Capture all iterators so that if something goes wrong, we close them all
         // The iterators list is based on the submission of work, so it may not
         // contain them all (for example if work was rejected from the queue)
-        Queue<PeekingResultIterator> allIterators = new ConcurrentLinkedQueue<>();
+        allIterators = new ConcurrentLinkedQueue<>();
         List<PeekingResultIterator> iterators = new ArrayList<PeekingResultIterator>(numScans);
         ScanWrapper previousScan = new ScanWrapper(null);
         return getIterators(scans, services, isLocalIndex, allIterators, iterators, isReverse, maxQueryEndTime,
@@ -1299,6 +1315,9 @@ public abstract class BaseResultIterators extends ExplainTable implements Result
                         }
                         PeekingResultIterator iterator = scanPair.getSecond().get(timeOutForScan, TimeUnit.MILLISECONDS);
                         concatIterators.add(iterator);
+                        if (plan.useRoundRobinIterator()) {
+                            splittableScans.put(iterator, scanPair.getFirst());
+                        }
                         previousScan.setScan(scanPair.getFirst());
                     } catch (ExecutionException e) {
                         try { // Rethrow as SQLException
@@ -1391,6 +1410,59 @@ public abstract class BaseResultIterators extends ExplainTable implements Result
         return null; // Not reachable
     }
 
+    /**
+     * Splits the key range an iterator returned by {@link #getIterators()} has left to scan in two,
+     * so that the second half may be scanned by another thread while the iterator lags behind the
+     * others. Only iterators of round robin scans, which return rows in no particular order, can be
+     * split. The second half is scanned by an iterator returned by {@link #getSplitIterators()}.
+     * @param iterator iterator returned by {@link #getIterators()} or {@link #getSplitIterators()}
+     * @param lastKey row key of the last row read from the iterator
+     * @return the key at which the iterator must stop returning rows, or null if its range
+     * could not be split
+     */
+    public byte[] splitRemainingRange(PeekingResultIterator iterator, byte[] lastKey) {
+        Scan scan = splittableScans.get(iterator);
+        if (scan == null || ScanUtil.isLocalIndex(scan) || ScanUtil.isReversed(scan)
+                || !ScanUtil.isNonAggregateScan(scan)) {
+            return null;
+        }
+        byte[] splitKey = ScanUtil.getSplitKey(lastKey, scan.getStopRow());
+        if (splitKey == null) {
+            return null;
+        }
+        Scan splitScan = ScanUtil.newScan(scan);
+        splitScan.withStartRow(splitKey);
+        // Scans are retried from their actual start row, which must not fall before the split
+        splitScan.setAttribute(SCAN_ACTUAL_START_ROW, splitKey);
+        splitScans.add(splitScan);
+        // The iterator may be split again, this time up to the key it now stops at
+        Scan remainingScan = ScanUtil.newScan(scan);
+        remainingScan.withStopRow(splitKey);
+        splittableScans.put(iterator, remainingScan);
+        return splitKey;
+    }
+
+    /**
+     * Starts scanning the key ranges split off by {@link #splitRemainingRange(PeekingResultIterator, byte[])}
+     * since the last call and returns their iterators, which may be split in turn.
+     */
+    public List<PeekingResultIterator> getSplitIterators() throws SQLException {
+        if (splitScans.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<List<Scan>> nestedScans = Lists.newArrayListWithExpectedSize(splitScans.size());
+        for (Scan splitScan : splitScans) {
+            nestedScans.add(Lists.newArrayList(splitScan));
+        }
+        splitScans.clear();
+        List<PeekingResultIterator> iterators = new ArrayList<PeekingResultIterator>(nestedScans.size());
+        return getIterators(nestedScans, context.getConnection().getQueryServices(), false,
+                allIterators, iterators, false, maxQueryEndTime,
+                nestedScans.size(), new ScanWrapper(null), context.getConnection().getQueryServices()
+                        .getConfiguration().getInt(QueryConstants.HASH_JOIN_CACHE_RETRIES,
+                                QueryConstants.DEFAULT_HASH_JOIN_CACHE_RETRIES));
+    }
+
     private List<PeekingResultIterator> recreateIterators(ConnectionQueryServices services,
             boolean isLocalIndex, Queue<PeekingResultIterator> allIterators,
             List<PeekingResultIterator> iterators, boolean isReverse, long maxQueryEndTime,
@@ -1516,6 +1588,32 @@ public abstract class BaseResultIterators extends ExplainTable implements Result
     }
     
 
+    /**
+     * Returns the time by which the query must complete, set when the iterators are created,
+     * which bounds the waits of iterators that submit more work while they are read.
+     */
+    protected long getMaxQueryEndTime() {
+        return maxQueryEndTime;
+    }
+
+    /**
+     * Returns the group the scan tasks of this query are scheduled in on the client executor,
+     * so that the tenant (or the connection when there is none) gets a fair share of the
+     * executor. Point lookups get a group of their own with a higher weight so that they
+     * don't wait behind the scans of large queries.
+     */
+    protected SchedulingGroup getSchedulingGroup() {
+        PhoenixConnection connection = context.getConnection();
+        Object key = connection.getTenantId() == null ? connection : connection.getTenantId().getString();
+        ReadOnlyProps props = connection.getQueryServices().getProps();
+        if (context.getScanRanges().isPointLookup()) {
+            return new SchedulingGroup(key, props.getInt(QueryServices.POINT_LOOKUP_SCHEDULING_WEIGHT_ATTRIB,
+                    QueryServicesOptions.DEFAULT_POINT_LOOKUP_SCHEDULING_WEIGHT), true);
+        }
+        return new SchedulingGroup(key, props.getInt(QueryServices.SCHEDULING_WEIGHT_ATTRIB,
+                QueryServicesOptions.DEFAULT_SCHEDULING_WEIGHT), false);
+    }
+
     abstract protected String getName();    
     abstract protected void submitWork(List<List<Scan>> nestedScans, List<List<Pair<Scan,Future<PeekingResultIterator>>>> nestedFutures,
             Queue<PeekingResultIterator> allIterators, int estFlattenedSize, boolean isReverse, ParallelScanGrouper scanGrouper) throws SQLException;
@@ -1564,6 +1662,14 @@ public abstract class BaseResultIterators extends ExplainTable implements Result
     public Long getEstimatedByteCount() {
         return this.estimatedSize;
     }
+
+    /**
+     * Returns the number of bytes estimated from the stats to be read by the scans of a point
+     * lookup, or null if the query isn't a point lookup or there are no stats.
+     */
+    public Long getPointLookupScanBytesEstimate() {
+        return this.pointLookupScanBytesEstimate;
+    }
     
     @Override
     public String toString() {
@@ -0,0 +1,680 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.iterate;
+
+import static org.apache.phoenix.monitoring.TaskExecutionMetricsHolder.NO_OP_INSTANCE;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.AbstractQueue;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.io.WritableUtils;
+import org.apache.phoenix.iterate.OrderedResultIterator.ResultEntry;
+import org.apache.phoenix.job.JobManager.JobCallable;
+import org.apache.phoenix.monitoring.TaskExecutionMetricsHolder;
+import org.apache.phoenix.schema.tuple.ResultTuple;
+import org.apache.phoenix.schema.tuple.Tuple;
+import org.apache.phoenix.util.PhoenixKeyValueUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+
+/**
+ * Queue of {@link ResultEntry} sorted by an external merge sort, so that any number of entries
+ * is sorted within about thresholdBytes of memory.
+ * <p>
+ * Entries are kept in memory until the threshold is reached, at which point the buffer is handed
+ * over to the executor to be sorted and written to the first run file. From then on, the buffer is
+ * handed over whenever it reaches a share of the threshold, to be sorted and written to a run file
+ * while the next buffer fills, so that up to sortThreads runs are built in parallel. Once reading starts, the runs are merged, first in
+ * intermediate passes of {@link #MAX_MERGE_FAN_IN} runs if there are more, and the next batch of
+ * each run is read ahead on the executor while the current one is consumed. Nothing is written
+ * to disk if all entries fit in a single buffer.
+ * <p>
+ * The queue has no limit, since a bounded priority queue suits top N queries better, and
+ * entries may not be added once reading has started. Like {@link #peek()}, {@link #iterator()}
+ * starts reading. It returns the remaining entries in sorted order without removing them, by
+ * merging cursors of its own over the runs, which are closed once exhausted or with the queue.
+ */
+public class ExternalSortedQueue extends AbstractQueue<ResultEntry> implements SizeAwareQueue<ResultEntry> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ExternalSortedQueue.class);
+
+    static final int MAX_MERGE_FAN_IN = 64;
+    private static final int MIN_READ_AHEAD_BYTES = 64 * 1024;
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+
+    private final Comparator<ResultEntry> comparator;
+    private final ExecutorService executor;
+    private final Semaphore runPermits;
+    private final long thresholdBytes;
+    private final long runThresholdBytes;
+    private final List<PendingRun> pendingRuns = Lists.newArrayList();
+
+    private List<ResultEntry> buffer = Lists.newArrayList();
+    private long bufferBytes;
+    private long byteSize;
+    private int size;
+    private List<RunReader> readers;
+    private PriorityQueue<RunReader> mergeQueue;
+    private final List<RunReader> iteratorReaders = Lists.newArrayList();
+    private boolean closed;
+
+    public ExternalSortedQueue(Comparator<ResultEntry> comparator, long thresholdBytes,
+            ExecutorService executor, int sortThreads) {
+        this.comparator = comparator;
+        this.executor = executor;
+        this.runPermits = new Semaphore(Math.max(1, sortThreads));
+        this.thresholdBytes = thresholdBytes;
+        // Once spilling, runs being sorted and the buffer being filled share the threshold
+        this.runThresholdBytes = Math.max(1, thresholdBytes / (runPermits.availablePermits() + 1));
+    }
+
+    @Override
+    public boolean offer(ResultEntry e) {
+        if (closed || mergeQueue != null) {
+            throw new IllegalStateException("Cannot add entries once reading has started");
+        }
+        buffer.add(e);
+        size++;
+        bufferBytes += ResultEntry.sizeOf(e);
+        byteSize = Math.max(byteSize, bufferBytes);
+        // Nothing is spilled until the threshold is reached, as no run was built before that
+        if (bufferBytes >= (pendingRuns.isEmpty() ? thresholdBytes : runThresholdBytes)) {
+            final List<ResultEntry> entries = buffer;
+            buffer = Lists.newArrayList();
+            bufferBytes = 0;
+            pendingRuns.add(submitRunTask(new Callable<Run>() {
+                @Override
+                public Run call() throws Exception {
+                    Collections.sort(entries, comparator);
+                    return writeRun(entries.iterator(), entries.size());
+                }
+            }, Collections.<Run>emptyList()));
+        }
+        return true;
+    }
+
+    @Override
+    public ResultEntry poll() {
+        initMergeQueue();
+        RunReader reader = mergeQueue.poll();
+        if (reader == null) {
+            return null;
+        }
+        ResultEntry entry = reader.head;
+        if (reader.advance()) {
+            mergeQueue.add(reader);
+        }
+        size--;
+        return entry;
+    }
+
+    @Override
+    public ResultEntry peek() {
+        initMergeQueue();
+        RunReader reader = mergeQueue.peek();
+        return reader == null ? null : reader.head;
+    }
+
+    @Override
+    public Iterator<ResultEntry> iterator() {
+        initMergeQueue();
+        final PriorityQueue<RunReader> queue = new PriorityQueue<RunReader>(Math.max(1, mergeQueue.size()));
+        for (RunReader reader : mergeQueue) {
+            RunReader copy = reader.copy();
+            iteratorReaders.add(copy);
+            queue.add(copy);
+        }
+        return new Iterator<ResultEntry>() {
+            @Override
+            public boolean hasNext() {
+                return !queue.isEmpty();
+            }
+
+            @Override
+            public ResultEntry next() {
+                RunReader reader = queue.poll();
+                if (reader == null) {
+                    throw new NoSuchElementException();
+                }
+                ResultEntry entry = reader.head;
+                if (reader.advance()) {
+                    queue.add(reader);
+                } else {
+                    reader.close();
+                    iteratorReaders.remove(reader);
+                }
+                return entry;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public long getByteSize() {
+        return byteSize;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (RunReader reader : iteratorReaders) {
+            reader.close();
+        }
+        iteratorReaders.clear();
+        for (PendingRun pendingRun : pendingRuns) {
+            if (pendingRun.started.compareAndSet(false, true)) {
+                // Never started, so there is nothing to wait for but its input runs to delete
+                pendingRun.future.cancel(false);
+                for (Run run : pendingRun.inputs) {
+                    run.delete();
+                }
+                continue;
+            }
+            try {
+                pendingRun.future.get().delete();
+            } catch (Exception e) {
+                LOGGER.warn("Unable to clean up sorted run", e);
+            }
+        }
+        pendingRuns.clear();
+        if (readers != null) {
+            for (RunReader reader : readers) {
+                reader.close();
+            }
+            readers = null;
+        }
+        buffer = Collections.emptyList();
+        mergeQueue = new PriorityQueue<RunReader>();
+        size = 0;
+    }
+
+    private void initMergeQueue() {
+        if (mergeQueue != null) {
+            return;
+        }
+        if (closed) {
+            mergeQueue = new PriorityQueue<RunReader>();
+            return;
+        }
+        Collections.sort(buffer, comparator);
+        readers = Lists.newArrayList();
+        if (!buffer.isEmpty()) {
+            readers.add(new MemoryRunReader(buffer));
+        }
+        List<Run> runs = Lists.newArrayListWithExpectedSize(pendingRuns.size());
+        for (PendingRun pendingRun : pendingRuns) {
+            runs.add(await(pendingRun.future));
+        }
+        pendingRuns.clear();
+        if (LOGGER.isDebugEnabled() && !runs.isEmpty()) {
+            LOGGER.debug("Merging " + runs.size() + " sorted runs of " + size + " entries");
+        }
+        while (runs.size() > MAX_MERGE_FAN_IN) {
+            runs = mergeRuns(runs);
+        }
+        long readAheadBytes = Math.max(MIN_READ_AHEAD_BYTES, thresholdBytes / (2 * (runs.size() + 1)));
+        for (Run run : runs) {
+            readers.add(new FileRunReader(run, readAheadBytes, true, true));
+        }
+        mergeQueue = new PriorityQueue<RunReader>(Math.max(1, readers.size()));
+        for (RunReader reader : readers) {
+            if (reader.advance()) {
+                mergeQueue.add(reader);
+            }
+        }
+    }
+
+    /**
+     * Merge the runs in groups of {@link #MAX_MERGE_FAN_IN} into fewer, longer runs
+     */
+    private List<Run> mergeRuns(List<Run> runs) {
+        final long readAheadBytes = Math.max(MIN_READ_AHEAD_BYTES, runThresholdBytes / MAX_MERGE_FAN_IN);
+        for (final List<Run> group : Lists.partition(runs, MAX_MERGE_FAN_IN)) {
+            pendingRuns.add(submitRunTask(new Callable<Run>() {
+                @Override
+                public Run call() throws Exception {
+                    int count = 0;
+                    final PriorityQueue<RunReader> queue = new PriorityQueue<RunReader>(group.size());
+                    List<RunReader> groupReaders = Lists.newArrayListWithExpectedSize(group.size());
+                    try {
+                        for (Run run : group) {
+                            RunReader reader = new FileRunReader(run, readAheadBytes, false, true);
+                            groupReaders.add(reader);
+                            count += run.count;
+                            if (reader.advance()) {
+                                queue.add(reader);
+                            }
+                        }
+                        return writeRun(new Iterator<ResultEntry>() {
+                            @Override
+                            public boolean hasNext() {
+                                return !queue.isEmpty();
+                            }
+
+                            @Override
+                            public ResultEntry next() {
+                                RunReader reader = queue.poll();
+                                ResultEntry entry = reader.head;
+                                if (reader.advance()) {
+                                    queue.add(reader);
+                                }
+                                return entry;
+                            }
+
+                            @Override
+                            public void remove() {
+                                throw new UnsupportedOperationException();
+                            }
+                        }, count);
+                    } finally {
+                        for (RunReader reader : groupReaders) {
+                            reader.close();
+                        }
+                    }
+                }
+            }, group));
+        }
+        List<Run> mergedRuns = Lists.newArrayListWithExpectedSize(pendingRuns.size());
+        for (PendingRun pendingRun : pendingRuns) {
+            mergedRuns.add(await(pendingRun.future));
+        }
+        pendingRuns.clear();
+        return mergedRuns;
+    }
+
+    /**
+     * Submit a task building a run once one of the sortThreads permits is free, so that no more
+     * than that many runs are held in memory at a time. The task does nothing if the queue was
+     * closed before it started, in which case the close deletes the input runs it would merge.
+     */
+    private PendingRun submitRunTask(final Callable<Run> task, List<Run> inputs) {
+        while (!runPermits.tryAcquire()) {
+            Future<Run> oldestRun = null;
+            for (PendingRun pendingRun : pendingRuns) {
+                if (!pendingRun.future.isDone()) {
+                    oldestRun = pendingRun.future;
+                    break;
+                }
+            }
+            if (oldestRun == null) {
+                try {
+                    runPermits.acquire();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(e);
+                }
+                break;
+            }
+            await(oldestRun);
+        }
+        final AtomicBoolean started = new AtomicBoolean();
+        Future<Run> future = submit(new Callable<Run>() {
+            @Override
+            public Run call() throws Exception {
+                try {
+                    if (!started.compareAndSet(false, true)) {
+                        return null;
+                    }
+                    return task.call();
+                } finally {
+                    runPermits.release();
+                }
+            }
+        });
+        return new PendingRun(future, started, inputs);
+    }
+
+    private <T> Future<T> submit(final Callable<T> task) {
+        JobCallable<T> job = new JobCallable<T>() {
+            @Override
+            public T call() throws Exception {
+                return task.call();
+            }
+
+            @Override
+            public Object getJobId() {
+                return ExternalSortedQueue.this;
+            }
+
+            @Override
+            public TaskExecutionMetricsHolder getTaskExecutionMetric() {
+                return NO_OP_INSTANCE;
+            }
+        };
+        try {
+            return executor.submit(job);
+        } catch (RejectedExecutionException e) {
+            // The shared pool is saturated, so do the work on this thread instead
+            FutureTask<T> future = new FutureTask<T>(job);
+            future.run();
+            return future;
+        }
+    }
+
+    /**
+     * Wait for a task, running it on this thread if no thread of the shared pool has started it
+     * yet. This keeps a sort done from a thread of the pool from waiting on tasks queued behind
+     * it, and is safe since a task only ever runs once.
+     */
+    private static <T> T await(Future<T> future) {
+        if (!future.isDone() && future instanceof RunnableFuture) {
+            ((RunnableFuture<T>)future).run();
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    private static Run writeRun(Iterator<ResultEntry> entries, int count) throws IOException {
+        File file = File.createTempFile(UUID.randomUUID().toString(), null);
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(file.toPath()), STREAM_BUFFER_SIZE))) {
+            while (entries.hasNext()) {
+                writeEntry(out, entries.next());
+            }
+        } catch (IOException | RuntimeException e) {
+            file.delete();
+            throw e;
+        }
+        return new Run(file, count);
+    }
+
+    /**
+     * Write an entry as its sort keys and cells, each prefixed by its variable length encoded
+     * length. A null sort key is written as a length of 0 and others as their length plus one.
+     */
+    static void writeEntry(DataOutput out, ResultEntry entry) throws IOException {
+        ImmutableBytesWritable[] sortKeys = entry.sortKeys;
+        WritableUtils.writeVInt(out, sortKeys.length);
+        for (ImmutableBytesWritable sortKey : sortKeys) {
+            if (sortKey == null) {
+                WritableUtils.writeVInt(out, 0);
+            } else {
+                WritableUtils.writeVInt(out, sortKey.getLength() + 1);
+                out.write(sortKey.get(), sortKey.getOffset(), sortKey.getLength());
+            }
+        }
+        Tuple result = entry.getResult();
+        int cellCount = result.size();
+        WritableUtils.writeVInt(out, cellCount);
+        for (int i = 0; i < cellCount; i++) {
+            KeyValue kv = PhoenixKeyValueUtil.maybeCopyCell(result.getValue(i));
+            WritableUtils.writeVInt(out, kv.getLength());
+            out.write(kv.getBuffer(), kv.getOffset(), kv.getLength());
+        }
+    }
+
+    static ResultEntry readEntry(DataInput in) throws IOException {
+        ImmutableBytesWritable[] sortKeys = new ImmutableBytesWritable[WritableUtils.readVInt(in)];
+        for (int i = 0; i < sortKeys.length; i++) {
+            int length = WritableUtils.readVInt(in);
+            if (length > 0) {
+                byte[] sortKey = new byte[length - 1];
+                in.readFully(sortKey);
+                sortKeys[i] = new ImmutableBytesWritable(sortKey);
+            }
+        }
+        int cellCount = WritableUtils.readVInt(in);
+        List<Cell> cells = Lists.newArrayListWithExpectedSize(cellCount);
+        for (int i = 0; i < cellCount; i++) {
+            byte[] kv = new byte[WritableUtils.readVInt(in)];
+            in.readFully(kv);
+            cells.add(new KeyValue(kv, 0, kv.length));
+        }
+        return new ResultEntry(sortKeys, new ResultTuple(Result.create(cells)));
+    }
+
+    /** A sorted run of entries written to a file. */
+    private static final class Run {
+        private final File file;
+        private final int count;
+
+        private Run(File file, int count) {
+            this.file = file;
+            this.count = count;
+        }
+
+        private void delete() {
+            if (!file.delete() && file.exists()) {
+                LOGGER.warn("Unable to delete sorted run file " + file.getAbsolutePath());
+            }
+        }
+    }
+
+    /** A task building a run, which close() waits for only if it has started. */
+    private static final class PendingRun {
+        private final Future<Run> future;
+        private final AtomicBoolean started;
+        private final List<Run> inputs;
+
+        private PendingRun(Future<Run> future, AtomicBoolean started, List<Run> inputs) {
+            this.future = future;
+            this.started = started;
+            this.inputs = inputs;
+        }
+    }
+
+    /** Cursor over the entries of a sorted run, ordered by its current entry. */
+    private abstract class RunReader implements Comparable<RunReader> {
+        protected ResultEntry head;
+
+        /**
+         * Move to the next entry of the run
+         * @return false if the run is exhausted
+         */
+        abstract boolean advance();
+
+        /**
+         * @return a reader of its own over the rest of the run, positioned on the same entry
+         */
+        abstract RunReader copy();
+
+        void close() {
+        }
+
+        @Override
+        public int compareTo(RunReader other) {
+            return comparator.compare(head, other.head);
+        }
+    }
+
+    private final class MemoryRunReader extends RunReader {
+        private final List<ResultEntry> entries;
+        private int position;
+
+        private MemoryRunReader(List<ResultEntry> entries) {
+            this.entries = entries;
+        }
+
+        @Override
+        boolean advance() {
+            head = position < entries.size() ? entries.get(position++) : null;
+            return head != null;
+        }
+
+        @Override
+        RunReader copy() {
+            MemoryRunReader copy = new MemoryRunReader(entries);
+            copy.position = position - 1;
+            copy.advance();
+            return copy;
+        }
+    }
+
+    /**
+     * Reader of a run file by batches of about readAheadBytes, reading the next batch on the
+     * executor while the current one is consumed if readAhead is set. The run file is deleted
+     * on close if deleteRun is set.
+     */
+    private final class FileRunReader extends RunReader {
+        private final Run run;
+        private final long readAheadBytes;
+        private final boolean readAhead;
+        private final boolean deleteRun;
+        private final DataInputStream in;
+        private int remaining;
+        private List<ResultEntry> batch = Collections.emptyList();
+        private int position;
+        private Future<List<ResultEntry>> nextBatch;
+        // Number of entries of the run moved to so far
+        private int advanced;
+
+        private FileRunReader(Run run, long readAheadBytes, boolean readAhead, boolean deleteRun) {
+            this.run = run;
+            this.readAheadBytes = readAheadBytes;
+            this.readAhead = readAhead;
+            this.deleteRun = deleteRun;
+            this.remaining = run.count;
+            try {
+                this.in = new DataInputStream(new BufferedInputStream(
+                        Files.newInputStream(run.file.toPath()), STREAM_BUFFER_SIZE));
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            if (readAhead && remaining > 0) {
+                nextBatch = submitReadBatch();
+            }
+        }
+
+        @Override
+        boolean advance() {
+            if (position == batch.size()) {
+                if (nextBatch != null) {
+                    batch = await(nextBatch);
+                    nextBatch = remaining > 0 ? submitReadBatch() : null;
+                } else if (!readAhead && remaining > 0) {
+                    batch = readBatch();
+                } else {
+                    batch = Collections.emptyList();
+                }
+                position = 0;
+            }
+            head = position < batch.size() ? batch.get(position++) : null;
+            if (head == null) {
+                return false;
+            }
+            advanced++;
+            return true;
+        }
+
+        @Override
+        RunReader copy() {
+            FileRunReader copy = new FileRunReader(run, readAheadBytes, false, false);
+            try {
+                for (int i = 1; i < advanced; i++, copy.remaining--) {
+                    readEntry(copy.in);
+                }
+            } catch (IOException e) {
+                copy.close();
+                throw new RuntimeException(e);
+            }
+            copy.advanced = advanced - 1;
+            copy.advance();
+            return copy;
+        }
+
+        private Future<List<ResultEntry>> submitReadBatch() {
+            return submit(new Callable<List<ResultEntry>>() {
+                @Override
+                public List<ResultEntry> call() throws Exception {
+                    return readBatch();
+                }
+            });
+        }
+
+        private List<ResultEntry> readBatch() {
+            List<ResultEntry> entries = Lists.newArrayList();
+            try {
+                for (long bytes = 0; remaining > 0 && bytes < readAheadBytes; remaining--) {
+                    ResultEntry entry = readEntry(in);
+                    bytes += ResultEntry.sizeOf(entry);
+                    entries.add(entry);
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            return entries;
+        }
+
+        @Override
+        void close() {
+            if (nextBatch != null) {
+                // Let a pending read finish before closing its stream
+                try {
+                    nextBatch.get();
+                } catch (Exception ignored) {
+                }
+                nextBatch = null;
+            }
+            try {
+                in.close();
+            } catch (IOException ignored) {
+            }
+            if (deleteRun) {
+                run.delete();
+            }
+        }
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.iterate;
+
+import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_MULTI_GET_BATCH_COUNTER;
+import static org.apache.phoenix.monitoring.TaskExecutionMetricsHolder.NO_OP_INSTANCE;
+
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.hadoop.hbase.HRegionLocation;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.exception.SQLExceptionCode;
+import org.apache.phoenix.exception.SQLExceptionInfo;
+import org.apache.phoenix.execute.TupleProjector;
+import org.apache.phoenix.job.JobManager.JobCallable;
+import org.apache.phoenix.job.SchedulingGroup;
+import org.apache.phoenix.monitoring.TaskExecutionMetricsHolder;
+import org.apache.phoenix.query.ConnectionQueryServices;
+import org.apache.phoenix.schema.tuple.Tuple;
+import org.apache.phoenix.util.EnvironmentEdgeManager;
+import org.apache.phoenix.util.ServerUtil;
+
+import com.google.common.collect.Lists;
+
+/**
+ * ResultIterator that reads the rows of a large point lookup with batched multi-gets issued in
+ * parallel on the client executor, instead of a skip scan that seeks to every key and evaluates the
+ * skip scan filter on every cell of the regions holding them. The keys are grouped by the region
+ * holding them and each batch of gets reads at most batchSize keys of a single region. All batches
+ * are submitted when the first row is read, and the rows are returned in the order of the regions,
+ * in the order of the given gets within a region, skipping the rows that don't exist or that were
+ * filtered out. The batches must complete within the query timeout, and the batches not read yet
+ * are cancelled when one of them fails.
+ */
+public class MultiGetResultIterator implements ResultIterator {
+    private final ConnectionQueryServices services;
+    private final byte[] physicalTableName;
+    private final List<List<Get>> batches;
+    private final TupleProjector projector;
+    private final boolean useNewValueColumnQualifier;
+    private final BaseResultIterators iterators;
+    private final long queryTimeoutMs;
+    private long maxQueryEndTime;
+    private List<Future<Result[]>> futures;
+    private int batchIndex;
+    private Result[] results;
+    private int index;
+    private boolean closed;
+
+    /**
+     * @param services the query services used to locate the regions and read the rows
+     * @param physicalTableName the name of the HBase table to read the rows from
+     * @param gets the gets of the keys of the point lookup
+     * @param batchSize the max number of gets sent to a region in a single batch
+     * @param projector the projector of the scan, applied to the rows as the region observer would,
+     *            or null if the rows are not projected
+     * @param useNewValueColumnQualifier whether the projected value uses the new column qualifier
+     * @param iterators the scans the point lookup would otherwise be executed with, used to explain it
+     *            and to schedule the batches in the same group as its scans
+     * @param queryTimeoutMs the time in milliseconds all batches must be read in from the first row
+     */
+    public MultiGetResultIterator(ConnectionQueryServices services, byte[] physicalTableName, List<Get> gets,
+            int batchSize, TupleProjector projector, boolean useNewValueColumnQualifier,
+            BaseResultIterators iterators, long queryTimeoutMs) throws SQLException {
+        this.services = services;
+        this.physicalTableName = physicalTableName;
+        this.batches = batchByRegion(services.getAllTableRegions(physicalTableName), gets, batchSize);
+        this.projector = projector;
+        this.useNewValueColumnQualifier = useNewValueColumnQualifier;
+        this.iterators = iterators;
+        this.queryTimeoutMs = queryTimeoutMs;
+    }
+
+    /**
+     * Groups the gets by the region holding their row, in the order of the regions, and splits the
+     * gets of each region into batches of at most batchSize gets, keeping the order of the gets.
+     */
+    static List<List<Get>> batchByRegion(List<HRegionLocation> regions, List<Get> gets, int batchSize) {
+        List<byte[]> boundaries = Lists.newArrayListWithExpectedSize(regions.size());
+        for (int i = 0; i < regions.size() - 1; i++) {
+            boundaries.add(regions.get(i).getRegion().getEndKey());
+        }
+        Map<Integer, List<Get>> regionGets = new TreeMap<>();
+        for (Get get : gets) {
+            int regionIndex = Collections.binarySearch(boundaries, get.getRow(), Bytes.BYTES_COMPARATOR);
+            // A row equal to the end key of a region is the first row of the next region
+            regionIndex = regionIndex < 0 ? -(regionIndex + 1) : regionIndex + 1;
+            List<Get> getsOfRegion = regionGets.get(regionIndex);
+            if (getsOfRegion == null) {
+                getsOfRegion = Lists.newArrayList();
+                regionGets.put(regionIndex, getsOfRegion);
+            }
+            getsOfRegion.add(get);
+        }
+        List<List<Get>> batches = Lists.newArrayList();
+        for (List<Get> getsOfRegion : regionGets.values()) {
+            batches.addAll(Lists.partition(getsOfRegion, Math.max(1, batchSize)));
+        }
+        return batches;
+    }
+
+    private void submitBatches() {
+        ExecutorService executor = services.getExecutor();
+        final SchedulingGroup schedulingGroup = iterators.getSchedulingGroup();
+        futures = Lists.newArrayListWithExpectedSize(batches.size());
+        maxQueryEndTime = EnvironmentEdgeManager.currentTimeMillis() + queryTimeoutMs;
+        for (final List<Get> batch : batches) {
+            GLOBAL_MULTI_GET_BATCH_COUNTER.increment();
+            futures.add(executor.submit(new JobCallable<Result[]>() {
+
+                @Override
+                public Result[] call() throws Exception {
+                    // Tables are not thread safe, so each batch reads through a table of its own
+                    try (Table htable = services.getTable(physicalTableName)) {
+                        return htable.get(batch);
+                    }
+                }
+
+                @Override
+                public Object getJobId() {
+                    return MultiGetResultIterator.this;
+                }
+
+                @Override
+                public TaskExecutionMetricsHolder getTaskExecutionMetric() {
+                    return NO_OP_INSTANCE;
+                }
+
+                @Override
+                public SchedulingGroup getSchedulingGroup() {
+                    return schedulingGroup;
+                }
+            }));
+        }
+    }
+
+    @Override
+    public Tuple next() throws SQLException {
+        if (closed) {
+            return null;
+        }
+        if (futures == null) {
+            submitBatches();
+        }
+        while (true) {
+            while (results != null && index < results.length) {
+                Result result = results[index++];
+                if (result != null && !result.isEmpty()) {
+                    return PointLookupResultIterator.project(result, projector, useNewValueColumnQualifier);
+                }
+            }
+            if (batchIndex == futures.size()) {
+                close(); // Free up resources early
+                return null;
+            }
+            try {
+                results = getResults(futures.get(batchIndex++));
+            } catch (SQLException e) {
+                close(); // Cancel the batches not read yet
+                throw e;
+            }
+            index = 0;
+        }
+    }
+
+    private Result[] getResults(Future<Result[]> future) throws SQLException {
+        try {
+            long timeout = maxQueryEndTime - EnvironmentEdgeManager.currentTimeMillis();
+            if (timeout <= 0) {
+                throw new TimeoutException();
+            }
+            return future.get(timeout, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new SQLExceptionInfo.Builder(SQLExceptionCode.OPERATION_TIMED_OUT)
+                    .setMessage(". Query couldn't be completed in the alloted time: " + queryTimeoutMs + " ms")
+                    .setRootCause(e).build().buildException();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLExceptionInfo.Builder(SQLExceptionCode.INTERRUPTED_EXCEPTION)
+                    .setRootCause(e).build().buildException();
+        } catch (ExecutionException e) {
+            throw ServerUtil.parseServerException(e);
+        }
+    }
+
+    @Override
+    public void close() throws SQLException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        results = null;
+        if (futures != null) {
+            for (int i = batchIndex; i < futures.size(); i++) {
+                futures.get(i).cancel(false);
+            }
+        }
+    }
+
+    @Override
+    public void explain(List<String> planSteps) {
+        iterators.explain(planSteps);
+    }
+
+    @Override
+    public String toString() {
+        return "MultiGetResultIterator [physicalTableName=" + Bytes.toString(physicalTableName)
+                + ", batches=" + batches.size() + "]";
+    }
+}
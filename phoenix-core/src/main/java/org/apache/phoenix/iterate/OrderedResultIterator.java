@@ -26,6 +26,7 @@ import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Queue;
+import java.util.concurrent.ExecutorService;
 
 import org.apache.hadoop.hbase.KeyValue;
 import org.apache.hadoop.hbase.client.Result;
@@ -49,8 +50,9 @@ import com.google.common.collect.Ordering;
 /**
  * Result scanner that sorts aggregated rows by columns specified in the ORDER BY clause.
  * <p>
- * Note that currently the sort is entirely done in memory. 
- *  
+ * Rows are sorted in memory until thresholdBytes is reached, after which they are spooled to
+ * disk if spooling is enabled. Given a sort executor, a sort without limit is done as an external
+ * merge sort whose sorted runs are built in parallel, see {@link ExternalSortedQueue}.
  * 
  * @since 0.1
  */
@@ -142,6 +144,8 @@ public class OrderedResultIterator implements PeekingResultIterator {
     private final ResultIterator delegate;
     private final List<OrderByExpression> orderByExpressions;
     private final long estimatedByteSize;
+    private final ExecutorService sortExecutor;
+    private final int sortThreads;
     
     private PeekingResultIterator resultIterator;
     private long byteSize;
@@ -163,11 +167,21 @@ public class OrderedResultIterator implements PeekingResultIterator {
     public OrderedResultIterator(ResultIterator delegate,
             List<OrderByExpression> orderByExpressions, boolean spoolingEnabled,
             long thresholdBytes, Integer limit, Integer offset, int estimatedRowSize) {
+        this(delegate, orderByExpressions, spoolingEnabled, thresholdBytes, limit, offset,
+                estimatedRowSize, null, 0);
+    }
+
+    public OrderedResultIterator(ResultIterator delegate,
+            List<OrderByExpression> orderByExpressions, boolean spoolingEnabled,
+            long thresholdBytes, Integer limit, Integer offset, int estimatedRowSize,
+            ExecutorService sortExecutor, int sortThreads) {
         checkArgument(!orderByExpressions.isEmpty());
         this.delegate = delegate;
         this.orderByExpressions = orderByExpressions;
         this.spoolingEnabled = spoolingEnabled;
         this.thresholdBytes = thresholdBytes;
+        this.sortExecutor = sortExecutor;
+        this.sortThreads = sortThreads;
         this.offset = offset == null ? 0 : offset;
         if (limit != null) {
             this.limit = limit + this.offset;
@@ -257,7 +271,7 @@ public class OrderedResultIterator implements PeekingResultIterator {
         try{
             final SizeAwareQueue<ResultEntry> queueEntries =
                     PhoenixQueues.newResultEntrySortedQueue(comparator, limit, spoolingEnabled,
-                        thresholdBytes);
+                        thresholdBytes, sortExecutor, sortThreads);
             resultIterator = new PeekingResultIterator() {
                 int count = 0;
 
@@ -24,8 +24,13 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.util.Pair;
@@ -33,9 +38,13 @@ import org.apache.phoenix.cache.ServerCacheClient.ServerCache;
 import org.apache.phoenix.compile.QueryPlan;
 import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
 import org.apache.phoenix.job.JobManager.JobCallable;
+import org.apache.phoenix.job.JobManager.JobRunnable;
+import org.apache.phoenix.job.SchedulingGroup;
 import org.apache.phoenix.monitoring.ReadMetricQueue;
 import org.apache.phoenix.monitoring.ScanMetricsHolder;
 import org.apache.phoenix.monitoring.TaskExecutionMetricsHolder;
+import org.apache.phoenix.query.QueryServices;
+import org.apache.phoenix.query.QueryServicesOptions;
 import org.apache.phoenix.trace.util.Tracing;
 import org.apache.phoenix.util.LogUtil;
 import org.apache.phoenix.util.ScanUtil;
@@ -107,6 +116,14 @@ public class ParallelIterators extends BaseResultIterators {
         context.getOverallQueryMetrics().updateNumParallelScans(numScans);
         GLOBAL_NUM_PARALLEL_SCANS.update(numScans);
         final long renewLeaseThreshold = context.getConnection().getQueryServices().getRenewLeaseThresholdMilliSeconds();
+        int maxConcurrentScans = context.getConnection().getQueryServices().getProps().getInt(
+                QueryServices.MAX_CONCURRENT_SCANS_PER_QUERY_ATTRIB,
+                QueryServicesOptions.DEFAULT_MAX_CONCURRENT_SCANS_PER_QUERY);
+        // Keep a query with many scans from taking over the shared executor by only submitting
+        // a scan once one of the previous ones got its first results
+        ScanThrottle throttle = maxConcurrentScans > 0 && maxConcurrentScans < numScans
+                ? new ScanThrottle(executor, maxConcurrentScans) : null;
+        final SchedulingGroup schedulingGroup = getSchedulingGroup();
         for (final ScanLocator scanLocation : scanLocations) {
             final Scan scan = scanLocation.getScan();
             final ScanMetricsHolder scanMetricsHolder = ScanMetricsHolder.getInstance(readMetrics, physicalTableName,
@@ -117,7 +134,7 @@ public class ParallelIterators extends BaseResultIterators {
                         mutationState, tableRef, scan, scanMetricsHolder, renewLeaseThreshold, plan,
                         scanGrouper, caches);
             context.getConnection().addIteratorForLeaseRenewal(tableResultItr);
-            Future<PeekingResultIterator> future = executor.submit(Tracing.wrap(new JobCallable<PeekingResultIterator>() {
+            JobCallable<PeekingResultIterator> job = new JobCallable<PeekingResultIterator>() {
                 
                 @Override
                 public PeekingResultIterator call() throws Exception {
@@ -152,7 +169,22 @@ public class ParallelIterators extends BaseResultIterators {
                 public TaskExecutionMetricsHolder getTaskExecutionMetric() {
                     return taskMetrics;
                 }
-            }, "Parallel scanner for table: " + tableRef.getTable().getPhysicalName().getString()));
+
+                @Override
+                public SchedulingGroup getSchedulingGroup() {
+                    return schedulingGroup;
+                }
+            };
+            Callable<PeekingResultIterator> tracedJob = Tracing.wrap(job,
+                    "Parallel scanner for table: " + tableRef.getTable().getPhysicalName().getString());
+            Future<PeekingResultIterator> future;
+            if (throttle == null) {
+                future = executor.submit(tracedJob);
+            } else {
+                ScanTask task = new ScanTask(tracedJob, job);
+                throttle.submit(task);
+                future = task;
+            }
             // Add our future in the right place so that we can concatenate the
             // results of the inner futures versus merge sorting across all of them.
             nestedFutures.get(scanLocation.getOuterListIndex()).set(scanLocation.getInnerListIndex(), new Pair<Scan,Future<PeekingResultIterator>>(scan,future));
@@ -163,4 +195,100 @@ public class ParallelIterators extends BaseResultIterators {
     protected String getName() {
         return NAME;
     }
+
+    /**
+     * Scan whose future is handed out before it is submitted to the executor
+     */
+    private static final class ScanTask extends FutureTask<PeekingResultIterator> {
+        private final JobCallable<PeekingResultIterator> job;
+
+        private ScanTask(Callable<PeekingResultIterator> tracedJob, JobCallable<PeekingResultIterator> job) {
+            super(tracedJob);
+            this.job = job;
+        }
+
+        private void fail(Throwable t) {
+            setException(t);
+        }
+    }
+
+    /**
+     * Submits the scans of a query to the executor while at most maxConcurrentScans of them have
+     * not got their first results yet. The other scans wait in a queue, and each scan submits
+     * the next one once it is done, so no thread ever blocks on the limit.
+     */
+    private static final class ScanThrottle {
+        private final ExecutorService executor;
+        private final Queue<ScanTask> pending = new ConcurrentLinkedQueue<ScanTask>();
+        private final AtomicInteger permits;
+
+        private ScanThrottle(ExecutorService executor, int maxConcurrentScans) {
+            this.executor = executor;
+            this.permits = new AtomicInteger(maxConcurrentScans);
+        }
+
+        private void submit(ScanTask task) {
+            pending.add(task);
+            submitPending();
+        }
+
+        private boolean tryAcquire() {
+            while (true) {
+                int available = permits.get();
+                if (available == 0) {
+                    return false;
+                }
+                if (permits.compareAndSet(available, available - 1)) {
+                    return true;
+                }
+            }
+        }
+
+        private void release() {
+            permits.incrementAndGet();
+            submitPending();
+        }
+
+        private void submitPending() {
+            // Both adding a scan and releasing a permit check again, so no scan is left behind
+            while (!pending.isEmpty() && tryAcquire()) {
+                final ScanTask task = pending.poll();
+                // Skip the scans already cancelled by the consumer
+                if (task == null || task.isDone()) {
+                    permits.incrementAndGet();
+                    continue;
+                }
+                try {
+                    executor.submit(new JobRunnable<Void>() {
+                        @Override
+                        public void run() {
+                            try {
+                                task.run();
+                            } finally {
+                                release();
+                            }
+                        }
+
+                        @Override
+                        public Object getJobId() {
+                            return task.job.getJobId();
+                        }
+
+                        @Override
+                        public TaskExecutionMetricsHolder getTaskExecutionMetric() {
+                            return task.job.getTaskExecutionMetric();
+                        }
+
+                        @Override
+                        public SchedulingGroup getSchedulingGroup() {
+                            return task.job.getSchedulingGroup();
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    permits.incrementAndGet();
+                    task.fail(e);
+                }
+            }
+        }
+    }
 }
\ No newline at end of file
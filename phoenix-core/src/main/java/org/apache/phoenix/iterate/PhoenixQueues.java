@@ -20,6 +20,7 @@ package org.apache.phoenix.iterate;
 import java.io.IOException;
 import java.util.Comparator;
 import java.util.LinkedList;
+import java.util.concurrent.ExecutorService;
 
 import org.apache.curator.shaded.com.google.common.collect.Lists;
 import org.apache.hadoop.hbase.KeyValue;
@@ -84,6 +85,15 @@ public class PhoenixQueues {
         }
     }
 
+    public static SizeAwareQueue<ResultEntry> newResultEntrySortedQueue(
+            Comparator<ResultEntry> comparator, Integer limit, boolean spoolingEnabled,
+            long thresholdBytes, ExecutorService sortExecutor, int sortThreads) throws IOException {
+        if (spoolingEnabled && limit == null && sortExecutor != null && sortThreads > 0) {
+            return new ExternalSortedQueue(comparator, thresholdBytes, sortExecutor, sortThreads);
+        }
+        return newResultEntrySortedQueue(comparator, limit, spoolingEnabled, thresholdBytes);
+    }
+
     public static SizeAwareQueue<Tuple> newTupleQueue(boolean spoolingEnabled,
             long thresholdBytes) {
         if (spoolingEnabled) {
@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.iterate;
+
+import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_POINT_LOOKUP_GET_COUNTER;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.phoenix.execute.TupleProjector;
+import org.apache.phoenix.schema.tuple.ResultTuple;
+import org.apache.phoenix.schema.tuple.Tuple;
+import org.apache.phoenix.util.ByteUtil;
+import org.apache.phoenix.util.ServerUtil;
+
+import com.google.common.io.Closeables;
+
+/**
+ * ResultIterator that reads the rows of a point lookup with a single batch of gets on the calling
+ * thread, instead of scanning each key on the client executor, so that short key lookups don't pay
+ * for the thread hand-offs of the parallel scans. The gets are sent when the first row is read, and
+ * the rows are returned in the order of the given gets, skipping the rows that don't exist or that
+ * were filtered out. Rows are projected on the client when the scan would have projected them on
+ * the server.
+ */
+public class PointLookupResultIterator implements ResultIterator {
+    private final Table htable;
+    private final List<Get> gets;
+    private final TupleProjector projector;
+    private final boolean useNewValueColumnQualifier;
+    private final ResultIterators iterators;
+    private Result[] results;
+    private int index;
+    private boolean closed;
+
+    /**
+     * @param htable the table to read the rows from, which is closed along with this iterator
+     * @param gets the gets of the keys of the point lookup, in the order the rows are returned
+     * @param projector the projector of the scan, applied to the rows as the region observer would,
+     *            or null if the rows are not projected
+     * @param useNewValueColumnQualifier whether the projected value uses the new column qualifier
+     * @param iterators the scans the point lookup would otherwise be executed with, used to explain it
+     */
+    public PointLookupResultIterator(Table htable, List<Get> gets, TupleProjector projector,
+            boolean useNewValueColumnQualifier, ResultIterators iterators) {
+        this.htable = htable;
+        this.gets = gets;
+        this.projector = projector;
+        this.useNewValueColumnQualifier = useNewValueColumnQualifier;
+        this.iterators = iterators;
+    }
+
+    @Override
+    public Tuple next() throws SQLException {
+        if (closed) {
+            return null;
+        }
+        try {
+            if (results == null) {
+                GLOBAL_POINT_LOOKUP_GET_COUNTER.increment();
+                results = htable.get(gets);
+            }
+        } catch (IOException e) {
+            throw ServerUtil.parseServerException(e);
+        }
+        while (index < results.length) {
+            Result result = results[index++];
+            if (result != null && !result.isEmpty()) {
+                return project(result, projector, useNewValueColumnQualifier);
+            }
+        }
+        close(); // Free up resources early
+        return null;
+    }
+
+    static Tuple project(Result result, TupleProjector projector, boolean useNewValueColumnQualifier) {
+        Tuple tuple = new ResultTuple(result);
+        if (projector == null) {
+            return tuple;
+        }
+        Cell projected = projector.projectResults(tuple, useNewValueColumnQualifier)
+                .mergeWithDynColsListBytesAndGetValue(0, ByteUtil.EMPTY_BYTE_ARRAY);
+        return new ResultTuple(Result.create(Collections.singletonList(projected)));
+    }
+
+    @Override
+    public void close() throws SQLException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        results = null;
+        Closeables.closeQuietly(htable);
+    }
+
+    @Override
+    public void explain(List<String> planSteps) {
+        iterators.explain(planSteps);
+    }
+
+    @Override
+    public String toString() {
+        return "PointLookupResultIterator [htable=" + htable + ", gets=" + gets.size() + "]";
+    }
+}
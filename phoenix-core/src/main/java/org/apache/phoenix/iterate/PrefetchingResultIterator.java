@@ -0,0 +1,426 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.iterate;
+
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.hadoop.hbase.KeyValueUtil;
+import org.apache.phoenix.exception.SQLExceptionCode;
+import org.apache.phoenix.exception.SQLExceptionInfo;
+import org.apache.phoenix.monitoring.OverAllQueryMetrics;
+import org.apache.phoenix.schema.tuple.Tuple;
+import org.apache.phoenix.util.ServerUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * ResultIterator that reads the rows of another iterator ahead on a thread of the given executor,
+ * which must not be the executor of the scans the iterator waits on,
+ * so that fetching and decoding the next rows overlaps with the processing of the current ones by
+ * the application. The rows read ahead are buffered up to a maximum number of rows and bytes, after
+ * which the reading stops until half of the buffer has been consumed, so that no thread is held
+ * while the application is slower than the scans. The first row is read by the caller, which also
+ * starts the scans. The time spent by the caller waiting for rows that were not read ahead yet is
+ * tracked as the prefetch stall time of the query. The caller waits for rows at most for the
+ * query timeout.
+ * <p>
+ * Callers that must not block may use {@link #fetchAsync(int)} to have rows read ahead and only call
+ * {@link #next()} for rows that were read already.
+ */
+public class PrefetchingResultIterator implements ResultIterator {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PrefetchingResultIterator.class);
+
+    private final ResultIterator delegate;
+    private final ExecutorService executor;
+    private final int maxRows;
+    private final long maxBytes;
+    private final long timeoutMs;
+    private final OverAllQueryMetrics overAllQueryMetrics;
+
+    private final Lock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFetching = lock.newCondition();
+    // All fields below are guarded by lock
+    private final Deque<Tuple> buffer = new ArrayDeque<Tuple>();
+    private long bufferedBytes;
+    private boolean started;
+    private boolean fetching;
+    private boolean exhausted;
+    private boolean closed;
+    // Set when close() stopped waiting for the row being read, which then closes the delegate
+    private boolean closeDelegate;
+    // Set when the executor rejects the task, in which case the caller reads the rows itself
+    private boolean synchronous;
+    private Throwable exception;
+    private Future<?> fetchFuture;
+    private long stallTimeNs;
+    private boolean stallTimeReported;
+    private final List<Waiter> waiters = new ArrayList<Waiter>();
+
+    public PrefetchingResultIterator(ResultIterator delegate, ExecutorService executor, int maxRows,
+            long maxBytes, long timeoutMs, OverAllQueryMetrics overAllQueryMetrics) {
+        this.delegate = delegate;
+        this.executor = executor;
+        this.maxRows = Math.max(1, maxRows);
+        this.maxBytes = Math.max(1, maxBytes);
+        this.timeoutMs = timeoutMs;
+        this.overAllQueryMetrics = overAllQueryMetrics;
+    }
+
+    @Override
+    public Tuple next() throws SQLException {
+        long remainingNs = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        lock.lock();
+        try {
+            while (true) {
+                Tuple tuple = buffer.poll();
+                if (tuple != null) {
+                    bufferedBytes -= sizeOf(tuple);
+                    if (!fetching && !exhausted && exception == null
+                            && buffer.size() <= maxRows / 2 && bufferedBytes <= maxBytes / 2) {
+                        startFetching();
+                    }
+                    return tuple;
+                }
+                if (exception != null) {
+                    reportStallTime();
+                    if (exception instanceof SQLException) {
+                        throw (SQLException)exception;
+                    }
+                    if (exception instanceof RuntimeException) {
+                        throw (RuntimeException)exception;
+                    }
+                    throw ServerUtil.parseServerException(exception);
+                }
+                if (exhausted || closed) {
+                    reportStallTime();
+                    return null;
+                }
+                if (!started || synchronous) {
+                    // No fetch is running, so read the row on this thread, as a fetch that close() waits for
+                    started = true;
+                    fetching = true;
+                    lock.unlock();
+                    try {
+                        tuple = delegate.next();
+                    } finally {
+                        lock.lock();
+                        stopFetching();
+                        notEmpty.signalAll();
+                    }
+                    if (closeDelegate) {
+                        closeDelegate();
+                        return null;
+                    }
+                    if (tuple == null) {
+                        exhausted = true;
+                        reportStallTime();
+                    } else if (!synchronous) {
+                        startFetching();
+                    }
+                    return tuple;
+                }
+                if (!fetching) {
+                    startFetching();
+                    continue;
+                }
+                if (remainingNs <= 0) {
+                    throw new SQLExceptionInfo.Builder(SQLExceptionCode.OPERATION_TIMED_OUT)
+                            .setMessage(". Query couldn't be completed in the alloted time: " + timeoutMs + " ms")
+                            .build().buildException();
+                }
+                long startTime = System.nanoTime();
+                try {
+                    remainingNs = notEmpty.awaitNanos(remainingNs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SQLExceptionInfo.Builder(SQLExceptionCode.INTERRUPTED_EXCEPTION)
+                            .setRootCause(e).build().buildException();
+                } finally {
+                    stallTimeNs += System.nanoTime() - startTime;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reads rows ahead without blocking the caller until next() can return the given number of rows,
+     * or the remaining rows, or as many rows as the buffer holds, without blocking. The returned future
+     * completes with the number of rows that can be read without blocking then, which is 0 if there are
+     * no more rows, or completes exceptionally if reading the rows failed before any was read ahead
+     * or the executor rejected reading them, in which case the rows are left to {@link #next()}.
+     */
+    public CompletableFuture<Integer> fetchAsync(int numRows) {
+        Waiter waiter = new Waiter(Math.max(1, numRows));
+        List<Waiter> completed;
+        RejectedExecutionException rejected = null;
+        lock.lock();
+        try {
+            // The rows are read by the executor from the first one on
+            started = true;
+            if (!fetching && !exhausted && exception == null && !closed) {
+                rejected = startFetching();
+            }
+            if (rejected == null) {
+                waiters.add(waiter);
+            }
+            completed = takeCompletedWaiters(!fetching);
+        } finally {
+            lock.unlock();
+        }
+        complete(completed);
+        if (rejected != null) {
+            waiter.future.completeExceptionally(rejected);
+        }
+        return waiter.future;
+    }
+
+    /**
+     * Removes the waiters that can be completed, which are all of them when no rows are being read
+     */
+    private List<Waiter> takeCompletedWaiters(boolean notFetching) {
+        if (waiters.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Waiter> completed = new ArrayList<Waiter>(waiters.size());
+        Iterator<Waiter> iterator = waiters.iterator();
+        while (iterator.hasNext()) {
+            Waiter waiter = iterator.next();
+            if (notFetching || buffer.size() >= waiter.numRows) {
+                iterator.remove();
+                if (buffer.isEmpty() && exception != null) {
+                    waiter.error = exception;
+                } else {
+                    waiter.numRowsBuffered = buffer.size();
+                }
+                completed.add(waiter);
+            }
+        }
+        return completed;
+    }
+
+    // Completes the futures outside of the lock, as they may run callbacks calling back into this iterator
+    private static void complete(List<Waiter> completed) {
+        for (Waiter waiter : completed) {
+            if (waiter.error != null) {
+                waiter.future.completeExceptionally(waiter.error);
+            } else {
+                waiter.future.complete(waiter.numRowsBuffered);
+            }
+        }
+    }
+
+    /**
+     * Submits the reading of rows ahead, or returns the exception of the executor if it rejected it,
+     * in which case next() reads the rows on the caller's thread.
+     */
+    private RejectedExecutionException startFetching() {
+        fetching = true;
+        try {
+            fetchFuture = executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    fetch();
+                }
+            });
+            synchronous = false;
+            return null;
+        } catch (RejectedExecutionException e) {
+            fetching = false;
+            synchronous = true;
+            return e;
+        }
+    }
+
+    /**
+     * Reads rows from the delegate into the buffer until it is full, the delegate is exhausted
+     * or this iterator is closed.
+     */
+    private void fetch() {
+        boolean stopped = false;
+        while (!stopped) {
+            List<Waiter> completed;
+            lock.lock();
+            try {
+                if (closed || buffer.size() >= maxRows || bufferedBytes >= maxBytes) {
+                    stopFetching();
+                    stopped = true;
+                }
+                completed = takeCompletedWaiters(stopped);
+            } finally {
+                lock.unlock();
+            }
+            complete(completed);
+            if (stopped) {
+                closeDelegateIfClosed();
+                return;
+            }
+            Tuple tuple = null;
+            Throwable error = null;
+            try {
+                tuple = delegate.next();
+            } catch (Throwable t) {
+                error = t;
+            }
+            lock.lock();
+            try {
+                if (error != null || tuple == null) {
+                    exception = error;
+                    exhausted = tuple == null;
+                    stopFetching();
+                    stopped = true;
+                } else {
+                    buffer.add(tuple);
+                    bufferedBytes += sizeOf(tuple);
+                }
+                notEmpty.signalAll();
+                completed = takeCompletedWaiters(stopped);
+            } finally {
+                lock.unlock();
+            }
+            complete(completed);
+        }
+        closeDelegateIfClosed();
+    }
+
+    private void closeDelegateIfClosed() {
+        lock.lock();
+        try {
+            if (closeDelegate) {
+                closeDelegate();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void closeDelegate() {
+        closeDelegate = false;
+        try {
+            delegate.close();
+        } catch (SQLException e) {
+            LOGGER.warn("Failed to close " + delegate, e);
+        }
+    }
+
+    private void stopFetching() {
+        fetching = false;
+        notFetching.signalAll();
+    }
+
+    private static long sizeOf(Tuple tuple) {
+        long size = 0;
+        for (int i = 0; i < tuple.size(); i++) {
+            size += KeyValueUtil.length(tuple.getValue(i));
+        }
+        return size;
+    }
+
+    private void reportStallTime() {
+        if (!stallTimeReported) {
+            stallTimeReported = true;
+            overAllQueryMetrics.updatePrefetchStallTime(TimeUnit.NANOSECONDS.toMillis(stallTimeNs));
+        }
+    }
+
+    @Override
+    public void close() throws SQLException {
+        List<Waiter> completed;
+        InterruptedException interrupted = null;
+        boolean closedByReader;
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            notEmpty.signalAll();
+            if (fetching && fetchFuture != null && fetchFuture.cancel(false)) {
+                fetching = false;
+            }
+            buffer.clear();
+            bufferedBytes = 0;
+            reportStallTime();
+            completed = takeCompletedWaiters(true);
+            // Wait for the row being read to close the delegate on this thread, or else leave it to
+            // the thread reading the row
+            long remainingNs = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+            try {
+                while (fetching && remainingNs > 0) {
+                    remainingNs = notFetching.awaitNanos(remainingNs);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                interrupted = e;
+            }
+            closeDelegate = closedByReader = fetching;
+        } finally {
+            lock.unlock();
+        }
+        complete(completed);
+        if (!closedByReader) {
+            delegate.close();
+        }
+        if (interrupted != null) {
+            throw new SQLExceptionInfo.Builder(SQLExceptionCode.INTERRUPTED_EXCEPTION)
+                    .setRootCause(interrupted).build().buildException();
+        }
+    }
+
+    public ResultIterator getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public void explain(List<String> planSteps) {
+        delegate.explain(planSteps);
+    }
+
+    private static class Waiter {
+        private final int numRows;
+        private final CompletableFuture<Integer> future = new CompletableFuture<Integer>();
+        private int numRowsBuffered;
+        private Throwable error;
+
+        private Waiter(int numRows) {
+            this.numRows = numRows;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "PrefetchingResultIterator [delegate=" + delegate + ", maxRows=" + maxRows
+                + ", maxBytes=" + maxBytes + "]";
+    }
+}
@@ -27,11 +27,18 @@ import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
 
 import org.apache.phoenix.compile.QueryPlan;
 import org.apache.phoenix.compile.StatementContext;
 import org.apache.phoenix.query.ConnectionQueryServices;
+import org.apache.phoenix.query.QueryServices;
+import org.apache.phoenix.query.QueryServicesOptions;
 import org.apache.phoenix.schema.tuple.Tuple;
+import org.apache.phoenix.util.ReadOnlyProps;
 import org.apache.phoenix.util.ServerUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -46,6 +53,11 @@ import com.google.common.base.Throwables;
  * records. This iterator assumes that the PeekingResultIterators that it manages are not nested i.e. they directly
  * manage the underlying scanners. This kind of ResultIterator should only be used when one doesn't care about the order
  * in which records are returned.
+ * <p>
+ * With adaptive chunking enabled, once there are fewer open iterators than idle threads in the pool, for example
+ * because the scans of most regions are done while a few large ones lag behind, the key range each open iterator has
+ * left to scan is split in two and the second half is scanned by a new iterator, so that the idle threads help scan
+ * it. This happens again as long as threads are idle, up to a maximum number of splits per query.
  */
 public class RoundRobinResultIterator implements ResultIterator {
 
@@ -62,6 +74,9 @@ public class RoundRobinResultIterator implements ResultIterator {
     private boolean closed;
     private final QueryPlan plan;
 
+    private final int maxSplits;
+    private int numSplits;
+
     // For testing purposes
     private int numParallelFetches;
 
@@ -69,12 +84,19 @@ public class RoundRobinResultIterator implements ResultIterator {
         this.resultIterators = iterators;
         this.plan = plan;
         this.threshold = getThreshold();
+        ReadOnlyProps props = plan.getContext().getConnection().getQueryServices().getProps();
+        this.maxSplits = iterators instanceof BaseResultIterators
+                && props.getBoolean(QueryServices.ADAPTIVE_CHUNKING_ENABLED_ATTRIB,
+                        QueryServicesOptions.DEFAULT_ADAPTIVE_CHUNKING_ENABLED)
+                ? props.getInt(QueryServices.ADAPTIVE_CHUNKING_MAX_SPLITS_ATTRIB,
+                        QueryServicesOptions.DEFAULT_ADAPTIVE_CHUNKING_MAX_SPLITS) : 0;
     }
 
     public RoundRobinResultIterator(List<PeekingResultIterator> iterators, QueryPlan plan) {
         this.resultIterators = null;
         this.plan = plan;
         this.threshold = getThreshold();
+        this.maxSplits = 0;
         initOpenIterators(wrapToRoundRobinIterators(iterators));
     }
 
@@ -159,6 +181,11 @@ public class RoundRobinResultIterator implements ResultIterator {
         return numParallelFetches;
     }
 
+    @VisibleForTesting
+    int getNumberOfSplits() {
+        return numSplits;
+    }
+
     @VisibleForTesting
     QueryPlan getQueryPlan() {
         return plan;
@@ -171,6 +198,9 @@ public class RoundRobinResultIterator implements ResultIterator {
              * All the scanners have exhausted their cache. Submit the scanners back to the pool so that they can fetch
              * the next batch of records in parallel.
              */
+            if (numSplits < maxSplits) {
+                splitLaggingIterators();
+            }
             initOpenIterators(fetchNextBatch());
         } else if (openIterators.size() == 0 && resultIterators != null) {
             List<PeekingResultIterator> iterators = resultIterators.getIterators();
@@ -187,6 +217,46 @@ public class RoundRobinResultIterator implements ResultIterator {
         return roundRobinItrs;
     }
 
+    /**
+     * Splits the key ranges the open iterators have left to scan while there are idle threads in
+     * the pool, and adds iterators over the ranges split off to the open iterators.
+     */
+    private void splitLaggingIterators() throws SQLException {
+        ExecutorService executor = plan.getContext().getConnection().getQueryServices().getExecutor();
+        int idleThreads = 2 * openIterators.size();
+        if (executor instanceof ThreadPoolExecutor) {
+            ThreadPoolExecutor pool = (ThreadPoolExecutor)executor;
+            idleThreads = pool.getMaximumPoolSize() - pool.getActiveCount() - pool.getQueue().size();
+        }
+        int maxSplitsNow = Math.min(maxSplits - numSplits, idleThreads - openIterators.size());
+        if (maxSplitsNow <= 0) {
+            return;
+        }
+        BaseResultIterators iterators = (BaseResultIterators)resultIterators;
+        int splits = 0;
+        for (RoundRobinIterator itr : openIterators) {
+            if (splits == maxSplitsNow) {
+                break;
+            }
+            if (itr.lastKey == null) {
+                continue;
+            }
+            byte[] splitKey = iterators.splitRemainingRange(itr.delegate, itr.lastKey);
+            if (splitKey != null) {
+                itr.stopKey = splitKey;
+                splits++;
+            }
+        }
+        if (splits > 0) {
+            numSplits += splits;
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Splitting the remaining key ranges of " + splits + " of "
+                        + openIterators.size() + " iterators. ");
+            }
+            openIterators.addAll(wrapToRoundRobinIterators(iterators.getSplitIterators()));
+        }
+    }
+
     private void initOpenIterators(List<RoundRobinIterator> iterators) {
         openIterators.clear();
         openIterators.addAll(iterators);
@@ -240,7 +310,7 @@ public class RoundRobinResultIterator implements ResultIterator {
             for (Future<Tuple> future : futures) {
                 Tuple tuple = future.get();
                 if (tuple != null) {
-                    results.add(new RoundRobinIterator(openIterators.get(i).delegate, tuple));
+                    results.add(new RoundRobinIterator(openIterators.get(i), tuple));
                 } else {
                     // Underlying scanner is exhausted. So close it.
                     openIterators.get(i).close();
@@ -279,13 +349,16 @@ public class RoundRobinResultIterator implements ResultIterator {
     /**
      * Inner class that delegates to {@link PeekingResultIterator} keeping track the number of records it has read. Also
      * keeps track of the tuple the {@link PeekingResultIterator} read in the previous next() call before it ran out of
-     * underlying scanner cache.
+     * underlying scanner cache, and of the row key it read last and must stop at if its key range was split.
      */
     private class RoundRobinIterator implements PeekingResultIterator {
 
         private PeekingResultIterator delegate;
         private Tuple tuple;
         private int numRecordsRead;
+        private byte[] lastKey;
+        private byte[] stopKey;
+        private final ImmutableBytesWritable ptr = new ImmutableBytesWritable();
 
         private RoundRobinIterator(PeekingResultIterator itr, Tuple tuple) {
             this.delegate = itr;
@@ -293,6 +366,20 @@ public class RoundRobinResultIterator implements ResultIterator {
             this.numRecordsRead = 0;
         }
 
+        private RoundRobinIterator(RoundRobinIterator itr, Tuple tuple) {
+            this(itr.delegate, tuple);
+            this.lastKey = itr.lastKey;
+            this.stopKey = itr.stopKey;
+        }
+
+        private boolean isBeforeStopKey(Tuple t) {
+            if (stopKey == null) {
+                return true;
+            }
+            t.getKey(ptr);
+            return Bytes.compareTo(ptr.get(), ptr.getOffset(), ptr.getLength(), stopKey, 0, stopKey.length) < 0;
+        }
+
         @Override
         public void close() throws SQLException {
             delegate.close();
@@ -306,7 +393,16 @@ public class RoundRobinResultIterator implements ResultIterator {
                 return t;
             }
             numRecordsRead++;
-            return delegate.next();
+            Tuple t = delegate.next();
+            if (t == null || !isBeforeStopKey(t)) {
+                // The rest of the key range is scanned by another iterator
+                return null;
+            }
+            if (maxSplits > 0) {
+                t.getKey(ptr);
+                lastKey = ptr.copyBytes();
+            }
+            return t;
         }
 
         @Override
@@ -317,7 +413,8 @@ public class RoundRobinResultIterator implements ResultIterator {
         @Override
         public Tuple peek() throws SQLException {
             if (tuple != null) { return tuple; }
-            return delegate.peek();
+            Tuple t = delegate.peek();
+            return t == null || !isBeforeStopKey(t) ? null : t;
         }
 
         public int getNumRecordsRead() {
@@ -17,13 +17,23 @@
  */
 package org.apache.phoenix.iterate;
 
+import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_OFFSET_CHUNK_SKIPPED_COUNTER;
+import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_QUERY_TIMEOUT_COUNTER;
+
+import java.io.IOException;
 import java.sql.SQLException;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.util.Bytes;
@@ -31,21 +41,30 @@ import org.apache.hadoop.hbase.util.Pair;
 import org.apache.phoenix.cache.ServerCacheClient.ServerCache;
 import org.apache.phoenix.compile.QueryPlan;
 import org.apache.phoenix.coprocessor.BaseScannerRegionObserver;
+import org.apache.phoenix.exception.SQLExceptionCode;
+import org.apache.phoenix.exception.SQLExceptionInfo;
 import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
 import org.apache.phoenix.jdbc.PhoenixConnection;
 import org.apache.phoenix.job.JobManager.JobCallable;
+import org.apache.phoenix.job.SchedulingGroup;
 import org.apache.phoenix.monitoring.ReadMetricQueue;
 import org.apache.phoenix.monitoring.ScanMetricsHolder;
 import org.apache.phoenix.monitoring.TaskExecutionMetricsHolder;
 import org.apache.phoenix.parse.HintNode;
 import org.apache.phoenix.query.QueryConstants;
+import org.apache.phoenix.query.QueryServices;
+import org.apache.phoenix.query.QueryServicesOptions;
 import org.apache.phoenix.schema.tuple.Tuple;
 import org.apache.phoenix.schema.types.PInteger;
 import org.apache.phoenix.trace.util.Tracing;
+import org.apache.phoenix.util.EnvironmentEdgeManager;
 import org.apache.phoenix.util.QueryUtil;
+import org.apache.phoenix.util.ReadOnlyProps;
+import org.apache.phoenix.util.ServerUtil;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 
 
 /**
@@ -60,6 +79,8 @@ public class SerialIterators extends BaseResultIterators {
 	private static final String NAME = "SERIAL";
     private final ParallelIteratorFactory iteratorFactory;
     private final Integer offset;
+    private final boolean countOffsetChunks;
+    private final int maxConcurrentOffsetChunkCounts;
     
     public SerialIterators(QueryPlan plan, Integer perScanLimit, Integer offset,
             ParallelIteratorFactory iteratorFactory, ParallelScanGrouper scanGrouper, Scan scan, Map<ImmutableBytesPtr,ServerCache> caches, QueryPlan dataPlan)
@@ -70,6 +91,15 @@ public class SerialIterators extends BaseResultIterators {
         Preconditions.checkArgument(
                 offset != null || perScanLimit != null || plan.getStatement().getHint().hasHint(HintNode.Hint.SERIAL));
         this.iteratorFactory = iteratorFactory;
+        ReadOnlyProps props = context.getConnection().getQueryServices().getProps();
+        this.countOffsetChunks = offset != null
+                && props.getBoolean(QueryServices.OFFSET_CHUNK_COUNT_ENABLED_ATTRIB,
+                        QueryServicesOptions.DEFAULT_OFFSET_CHUNK_COUNT_ENABLED)
+                && offset >= props.getInt(QueryServices.OFFSET_CHUNK_COUNT_MIN_OFFSET_ATTRIB,
+                        QueryServicesOptions.DEFAULT_OFFSET_CHUNK_COUNT_MIN_OFFSET);
+        this.maxConcurrentOffsetChunkCounts = Math.max(1, props.getInt(
+                QueryServices.OFFSET_CHUNK_COUNT_MAX_CONCURRENT_ATTRIB,
+                QueryServicesOptions.DEFAULT_OFFSET_CHUNK_COUNT_MAX_CONCURRENT));
     }
 
     @Override
@@ -95,6 +125,7 @@ public class SerialIterators extends BaseResultIterators {
                 flattenedScans = Lists.reverse(flattenedScans);
             }
             final List<Scan> finalScans = flattenedScans;
+            final SchedulingGroup schedulingGroup = getSchedulingGroup();
             Future<PeekingResultIterator> future = executor.submit(Tracing.wrap(new JobCallable<PeekingResultIterator>() {
                 @Override
                 public PeekingResultIterator call() throws Exception {
@@ -116,6 +147,11 @@ public class SerialIterators extends BaseResultIterators {
                 public TaskExecutionMetricsHolder getTaskExecutionMetric() {
                     return taskMetrics;
                 }
+
+                @Override
+                public SchedulingGroup getSchedulingGroup() {
+                    return schedulingGroup;
+                }
             }, "Serial scanner for table: " + tableRef.getTable().getPhysicalName().getString()));
             // Add our singleton Future which will execute serially
             nestedFutures.add(Collections.singletonList(new Pair<Scan, Future<PeekingResultIterator>>(flattenedScans.get(0), future)));
@@ -141,6 +177,12 @@ public class SerialIterators extends BaseResultIterators {
         private PeekingResultIterator currentIterator;
         private Integer remainingOffset;
         private Map<ImmutableBytesPtr,ServerCache> caches;
+        private boolean offsetChunksCounted;
+        // Set once the chunk where the offset ends is known, to stop the counts of the later chunks
+        private final AtomicBoolean offsetChunkCountsCancelled = new AtomicBoolean();
+        private final List<Future<PeekingResultIterator>> offsetChunkCounts = new CopyOnWriteArrayList<>();
+        // Iterators of the counts that completed but were not taken yet, guarded by itself
+        private final Set<PeekingResultIterator> openOffsetChunkCounts = Sets.newIdentityHashSet();
         
         private SerialIterator(List<Scan> flattenedScans, String tableName, long renewLeaseThreshold, Integer offset, Map<ImmutableBytesPtr,ServerCache> caches) throws SQLException {
             this.scans = Lists.newArrayListWithExpectedSize(flattenedScans.size());
@@ -170,6 +212,13 @@ public class SerialIterators extends BaseResultIterators {
             if (index >= scans.size()) {
                 return EMPTY_ITERATOR;
             }
+            if (countOffsetChunks && !offsetChunksCounted && scans.size() > 1) {
+                offsetChunksCounted = true;
+                PeekingResultIterator offsetChunkItr = skipOffsetChunks();
+                if (offsetChunkItr != null) {
+                    return offsetChunkItr;
+                }
+            }
             ReadMetricQueue readMetrics = context.getReadMetricsQueue();
             while (index < scans.size()) {
                 Scan currentScan = scans.get(index++);
@@ -198,6 +247,169 @@ public class SerialIterators extends BaseResultIterators {
             return EMPTY_ITERATOR;
         }
         
+        /**
+         * Counts the rows of the chunks in parallel instead of skipping the offset one chunk after
+         * the other. Each count scans its chunk skipping the whole offset on the server, which
+         * returns the offset remaining after the chunk, so that the chunks having all their rows
+         * within the offset are skipped without being scanned again. Only the chunk where the
+         * offset ends is scanned again, with the offset remaining before it, unless it's the
+         * first chunk, in which case its count already returns the rows after the offset. At most
+         * maxConcurrentOffsetChunkCounts chunks are counted at a time, in order, and the counts of
+         * the chunks after the one where the offset ends are cancelled as soon as it is known.
+         * @return the iterator over the rows after the offset if it was returned by a count,
+         * and otherwise null, with the index and remaining offset set to scan the chunk where
+         * the offset ends.
+         */
+        private PeekingResultIterator skipOffsetChunks() throws SQLException {
+            final int offset = remainingOffset;
+            List<Future<PeekingResultIterator>> futures = offsetChunkCounts;
+            try {
+                for (int i = 0; i < Math.min(maxConcurrentOffsetChunkCounts, scans.size()); i++) {
+                    futures.add(submitOffsetChunkCount(scans.get(i), offset));
+                }
+                int remaining = offset;
+                for (int i = 0; i < futures.size(); i++) {
+                    PeekingResultIterator peekingItr = getOffsetChunkCount(futures.get(i));
+                    Tuple tuple = peekingItr.peek();
+                    Integer chunkRemainingOffset = tuple == null ? Integer.valueOf(offset) : QueryUtil.getRemainingOffset(tuple);
+                    if (chunkRemainingOffset != null && offset - chunkRemainingOffset <= remaining) {
+                        // All the rows of the chunk are within the offset
+                        remaining -= offset - chunkRemainingOffset;
+                        peekingItr.close();
+                        GLOBAL_OFFSET_CHUNK_SKIPPED_COUNTER.increment();
+                        if (futures.size() < scans.size()) {
+                            futures.add(submitOffsetChunkCount(scans.get(futures.size()), offset));
+                        }
+                        continue;
+                    }
+                    if (remaining == offset) {
+                        // Nothing was skipped before the chunk, so its count returned the rows after the offset
+                        index = i + 1;
+                        remainingOffset = null;
+                        return peekingItr;
+                    }
+                    peekingItr.close();
+                    index = i;
+                    remainingOffset = remaining == 0 ? null : remaining;
+                    return null;
+                }
+                index = scans.size();
+                return EMPTY_ITERATOR;
+            } catch (IOException e) {
+                throw ServerUtil.parseServerException(e);
+            } finally {
+                cancelOffsetChunkCounts();
+            }
+        }
+
+        /**
+         * Cancels the counts that were not taken without waiting for them. Counts still in
+         * progress close their iterator themselves once they see they were cancelled.
+         */
+        private void cancelOffsetChunkCounts() throws SQLException {
+            offsetChunkCountsCancelled.set(true);
+            for (Future<PeekingResultIterator> future : offsetChunkCounts) {
+                future.cancel(false);
+            }
+            List<PeekingResultIterator> unused;
+            synchronized (openOffsetChunkCounts) {
+                unused = Lists.newArrayList(openOffsetChunkCounts);
+                openOffsetChunkCounts.clear();
+            }
+            SQLException toThrow = null;
+            for (PeekingResultIterator peekingItr : unused) {
+                try {
+                    peekingItr.close();
+                } catch (SQLException e) {
+                    if (toThrow == null) {
+                        toThrow = e;
+                    }
+                }
+            }
+            if (toThrow != null) {
+                throw toThrow;
+            }
+        }
+
+        private Future<PeekingResultIterator> submitOffsetChunkCount(Scan scan, int offset) throws IOException {
+            ExecutorService executor = context.getConnection().getQueryServices().getExecutor();
+            final ReadMetricQueue readMetrics = context.getReadMetricsQueue();
+            final TaskExecutionMetricsHolder taskMetrics = new TaskExecutionMetricsHolder(readMetrics, tableName);
+            final SchedulingGroup schedulingGroup = getSchedulingGroup();
+            final Scan countScan = new Scan(scan);
+            // Ask for the remaining offset even if the last chunk has fewer rows than the offset
+            countScan.setAttribute(QueryConstants.LAST_SCAN, null);
+            countScan.setAttribute(BaseScannerRegionObserver.SCAN_OFFSET, PInteger.INSTANCE.toBytes(offset));
+            return executor.submit(new JobCallable<PeekingResultIterator>() {
+                @Override
+                public PeekingResultIterator call() throws Exception {
+                    if (offsetChunkCountsCancelled.get()) {
+                        return null;
+                    }
+                    ScanMetricsHolder scanMetricsHolder =
+                            ScanMetricsHolder.getInstance(readMetrics, tableName, countScan,
+                                context.getConnection().getLogLevel());
+                    TableResultIterator itr =
+                            new TableResultIterator(mutationState, countScan, scanMetricsHolder,
+                                    renewLeaseThreshold, plan, scanGrouper, caches);
+                    PeekingResultIterator peekingItr = iteratorFactory.newIterator(context, itr, countScan, tableName, plan);
+                    peekingItr.peek();
+                    synchronized (openOffsetChunkCounts) {
+                        if (offsetChunkCountsCancelled.get()) {
+                            peekingItr.close();
+                            return null;
+                        }
+                        // Closed on cancellation unless taken by getOffsetChunkCount before
+                        openOffsetChunkCounts.add(peekingItr);
+                    }
+                    context.getConnection().addIteratorForLeaseRenewal(itr);
+                    return peekingItr;
+                }
+
+                @Override
+                public Object getJobId() {
+                    return SerialIterators.this;
+                }
+
+                @Override
+                public TaskExecutionMetricsHolder getTaskExecutionMetric() {
+                    return taskMetrics;
+                }
+
+                @Override
+                public SchedulingGroup getSchedulingGroup() {
+                    return schedulingGroup;
+                }
+            });
+        }
+
+        private PeekingResultIterator getOffsetChunkCount(Future<PeekingResultIterator> future) throws SQLException {
+            int queryTimeOut = context.getStatement().getQueryTimeoutInMillis();
+            try {
+                long timeOutForCount = getMaxQueryEndTime() - EnvironmentEdgeManager.currentTimeMillis();
+                if (timeOutForCount < 0) {
+                    throw new TimeoutException();
+                }
+                PeekingResultIterator peekingItr = future.get(timeOutForCount, TimeUnit.MILLISECONDS);
+                synchronized (openOffsetChunkCounts) {
+                    openOffsetChunkCounts.remove(peekingItr);
+                }
+                return peekingItr;
+            } catch (TimeoutException e) {
+                context.getOverallQueryMetrics().queryTimedOut();
+                GLOBAL_QUERY_TIMEOUT_COUNTER.increment();
+                throw new SQLExceptionInfo.Builder(SQLExceptionCode.OPERATION_TIMED_OUT)
+                        .setMessage(". Query couldn't be completed in the alloted time: " + queryTimeOut + " ms")
+                        .setRootCause(e).build().buildException();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLExceptionInfo.Builder(SQLExceptionCode.INTERRUPTED_EXCEPTION)
+                        .setRootCause(e).build().buildException();
+            } catch (ExecutionException e) {
+                throw ServerUtil.parseServerException(e);
+            }
+        }
+
         @Override
         public Tuple next() throws SQLException {
             return currentIterator().next();
@@ -208,8 +420,12 @@ public class SerialIterators extends BaseResultIterators {
 
         @Override
         public void close() throws SQLException {
-            if (currentIterator != null) {
-                currentIterator.close();
+            try {
+                if (currentIterator != null) {
+                    currentIterator.close();
+                }
+            } finally {
+                cancelOffsetChunkCounts();
             }
         }
 
@@ -53,8 +53,11 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -664,6 +667,44 @@ public class PhoenixConnection implements Connection, MetaDataMutated, SQLClosea
         }
     }
 
+    /**
+     * Commits the mutations of the connection on the async executor, without blocking the caller.
+     * The connection must not be used until the returned future completes.
+     */
+    public CompletableFuture<Void> commitAsync() {
+        return executeAsync(new Callable<Void>() {
+            @Override
+            public Void call() throws SQLException {
+                commit();
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Runs the given call on the async executor, completing the returned future with its result
+     * or the exception it threw, or the exception of the executor if it is full. The async executor
+     * is bounded and separate from the client executor, on which the call waits for its scans.
+     */
+    <T> CompletableFuture<T> executeAsync(final Callable<T> call) {
+        final CompletableFuture<T> future = new CompletableFuture<T>();
+        try {
+            getQueryServices().getAsyncExecutor().submit(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        future.complete(call.call());
+                    } catch (Throwable t) {
+                        future.completeExceptionally(t);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
     @Override
     public void commit() throws SQLException {
         CallRunner.run(new CallRunner.CallableThrowable<Void, SQLException>() {
@@ -45,6 +45,8 @@ import java.util.BitSet;
 import java.util.Calendar;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 
 import org.apache.phoenix.compile.BindManager;
 import org.apache.phoenix.compile.MutationPlan;
@@ -193,6 +195,32 @@ public class PhoenixPreparedStatement extends PhoenixStatement implements Prepar
         return executeQuery(statement,createQueryLogger(statement,query));
     }
 
+    /**
+     * Executes the query on the async executor, without blocking the caller, like
+     * {@link PhoenixStatement#executeQueryAsync(String)}.
+     */
+    public CompletableFuture<PhoenixResultSet> executeQueryAsync() {
+        return connection.executeAsync(new Callable<PhoenixResultSet>() {
+            @Override
+            public PhoenixResultSet call() throws SQLException {
+                return (PhoenixResultSet)executeQuery();
+            }
+        });
+    }
+
+    /**
+     * Executes the mutation on the async executor, without blocking the caller, like
+     * {@link PhoenixStatement#executeUpdateAsync(String)}.
+     */
+    public CompletableFuture<Integer> executeUpdateAsync() {
+        return connection.executeAsync(new Callable<Integer>() {
+            @Override
+            public Integer call() throws SQLException {
+                return executeUpdate();
+            }
+        });
+    }
+
     @Override
     public int executeUpdate() throws SQLException {
         throwIfUnboundParameters();
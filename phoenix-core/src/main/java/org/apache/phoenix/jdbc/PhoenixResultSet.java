@@ -47,6 +47,7 @@ import java.util.Arrays;
 import java.util.Calendar;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import com.google.common.primitives.Bytes;
 import com.google.protobuf.InvalidProtocolBufferException;
@@ -66,6 +67,7 @@ import org.apache.phoenix.exception.SQLExceptionInfo;
 import org.apache.phoenix.execute.TupleProjector;
 import org.apache.phoenix.expression.Expression;
 import org.apache.phoenix.expression.ProjectedColumnExpression;
+import org.apache.phoenix.iterate.PrefetchingResultIterator;
 import org.apache.phoenix.iterate.ResultIterator;
 import org.apache.phoenix.log.QueryLogInfo;
 import org.apache.phoenix.log.QueryLogger;
@@ -73,6 +75,8 @@ import org.apache.phoenix.log.QueryStatus;
 import org.apache.phoenix.monitoring.MetricType;
 import org.apache.phoenix.monitoring.OverAllQueryMetrics;
 import org.apache.phoenix.monitoring.ReadMetricQueue;
+import org.apache.phoenix.query.QueryServices;
+import org.apache.phoenix.query.QueryServicesOptions;
 import org.apache.phoenix.schema.PColumn;
 import org.apache.phoenix.schema.PColumnImpl;
 import org.apache.phoenix.schema.tuple.ResultTuple;
@@ -91,6 +95,7 @@ import org.apache.phoenix.schema.types.PTimestamp;
 import org.apache.phoenix.schema.types.PTinyint;
 import org.apache.phoenix.schema.types.PVarbinary;
 import org.apache.phoenix.schema.types.PVarchar;
+import org.apache.phoenix.util.ReadOnlyProps;
 import org.apache.phoenix.util.SQLCloseable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -134,7 +139,7 @@ public class PhoenixResultSet implements ResultSet, SQLCloseable {
     private final static Integer INTEGER_FALSE = Integer.valueOf(0);
     private final static Tuple BEFORE_FIRST = ResultTuple.EMPTY_TUPLE;
 
-    private final ResultIterator scanner;
+    private ResultIterator scanner;
     private final RowProjector rowProjector;
     private final PhoenixStatement statement;
     private final StatementContext context;
@@ -160,11 +165,21 @@ public class PhoenixResultSet implements ResultSet, SQLCloseable {
     public PhoenixResultSet(ResultIterator resultIterator, RowProjector rowProjector,
             StatementContext ctx) throws SQLException {
         this.rowProjector = rowProjector;
-        this.scanner = resultIterator;
         this.context = ctx;
         this.statement = context.getStatement();
         this.readMetricsQueue = context.getReadMetricsQueue();
         this.overAllQueryMetrics = context.getOverallQueryMetrics();
+        if (!rowProjector.hasAggregateFunctions()
+                && context.getConnection().getQueryServices().getProps().getBoolean(
+                QueryServices.RESULT_SET_PREFETCH_ENABLED_ATTRIB,
+                QueryServicesOptions.DEFAULT_RESULT_SET_PREFETCH_ENABLED)) {
+            // Read rows ahead so that the scans overlap with the processing of the rows. Aggregate
+            // functions are projected from the aggregators the iterator resets for each group,
+            // so their rows are never read ahead.
+            this.scanner = newPrefetchingIterator(resultIterator);
+        } else {
+            this.scanner = resultIterator;
+        }
         this.queryLogger = context.getQueryLogger() != null ? context.getQueryLogger() : QueryLogger.NO_OP_INSTANCE;
         this.wildcardIncludesDynamicCols = this.context.getConnection().getQueryServices()
                 .getConfiguration().getBoolean(WILDCARD_QUERY_DYNAMIC_COLS_ATTRIB,
@@ -179,6 +194,49 @@ public class PhoenixResultSet implements ResultSet, SQLCloseable {
         }
     }
     
+    private PrefetchingResultIterator newPrefetchingIterator(ResultIterator resultIterator) {
+        ReadOnlyProps props = context.getConnection().getQueryServices().getProps();
+        return new PrefetchingResultIterator(resultIterator,
+                context.getConnection().getQueryServices().getAsyncExecutor(),
+                props.getInt(QueryServices.RESULT_SET_PREFETCH_MAX_ROWS_ATTRIB,
+                        QueryServicesOptions.DEFAULT_RESULT_SET_PREFETCH_MAX_ROWS),
+                props.getLong(QueryServices.RESULT_SET_PREFETCH_MAX_BYTES_ATTRIB,
+                        QueryServicesOptions.DEFAULT_RESULT_SET_PREFETCH_MAX_BYTES),
+                context.getStatement().getQueryTimeoutInMillis(),
+                overAllQueryMetrics);
+    }
+
+    /**
+     * Reads rows ahead on the async executor without blocking the caller. The returned future
+     * completes once {@link #next()} can return numRows rows without blocking, or all the remaining
+     * rows, or as many rows as can be read ahead (see {@link QueryServices#RESULT_SET_PREFETCH_MAX_ROWS_ATTRIB}),
+     * with the number of rows that can be read without blocking, which is 0 at the end of the rows.
+     * Applications that must not block can request the next rows when they are done with the previous
+     * ones, so that no more rows are read than the application can take. The future completes
+     * exceptionally with a {@link java.util.concurrent.RejectedExecutionException} if the async
+     * executor is full, in which case {@link #next()} reads the rows on the caller's thread. Rows of
+     * queries projecting aggregate functions cannot be read ahead (see
+     * {@link RowProjector#hasAggregateFunctions()}), for which the future completes exceptionally with
+     * a {@link SQLFeatureNotSupportedException} and {@link #next()} must be used instead.
+     */
+    public CompletableFuture<Integer> fetchAsync(int numRows) {
+        try {
+            checkOpen();
+            if (rowProjector.hasAggregateFunctions()) {
+                throw new SQLFeatureNotSupportedException(
+                        "Rows of queries projecting aggregate functions cannot be fetched asynchronously");
+            }
+        } catch (SQLException e) {
+            CompletableFuture<Integer> future = new CompletableFuture<Integer>();
+            future.completeExceptionally(e);
+            return future;
+        }
+        if (!(scanner instanceof PrefetchingResultIterator)) {
+            scanner = newPrefetchingIterator(scanner);
+        }
+        return ((PrefetchingResultIterator)scanner).fetchAsync(numRows);
+    }
+
     @Override
     public boolean absolute(int row) throws SQLException {
         throw new SQLFeatureNotSupportedException();
@@ -1375,6 +1433,9 @@ public class PhoenixResultSet implements ResultSet, SQLCloseable {
     
     @VisibleForTesting
     public ResultIterator getUnderlyingIterator() {
+        if (scanner instanceof PrefetchingResultIterator) {
+            return ((PrefetchingResultIterator)scanner).getDelegate();
+        }
         return scanner;
     }
     
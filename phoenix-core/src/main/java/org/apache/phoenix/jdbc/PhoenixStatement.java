@@ -17,6 +17,7 @@
  */
 package org.apache.phoenix.jdbc;
 
+import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_HASH_JOIN_SORT_MERGE_FALLBACK_COUNTER;
 import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_MUTATION_SQL_COUNTER;
 import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_QUERY_TIME;
 import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_SELECT_SQL_COUNTER;
@@ -39,6 +40,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileSystem;
@@ -92,6 +95,7 @@ import org.apache.phoenix.expression.RowKeyColumnExpression;
 import org.apache.phoenix.iterate.MaterializedResultIterator;
 import org.apache.phoenix.iterate.ParallelScanGrouper;
 import org.apache.phoenix.iterate.ResultIterator;
+import org.apache.phoenix.join.MaxServerCacheSizeExceededException;
 import org.apache.phoenix.log.LogLevel;
 import org.apache.phoenix.log.QueryLogInfo;
 import org.apache.phoenix.log.QueryStatus;
@@ -152,6 +156,7 @@ import org.apache.phoenix.parse.UpsertStatement;
 import org.apache.phoenix.parse.UseSchemaStatement;
 import org.apache.phoenix.query.HBaseFactoryProvider;
 import org.apache.phoenix.query.KeyRange;
+import org.apache.phoenix.query.ParsedStatementCache;
 import org.apache.phoenix.query.QueryConstants;
 import org.apache.phoenix.query.QueryServices;
 import org.apache.phoenix.query.QueryServicesOptions;
@@ -251,6 +256,7 @@ public class PhoenixStatement implements Statement, SQLCloseable {
     private int maxRows;
     private int fetchSize = -1;
     private int queryTimeoutMillis;
+    private boolean sortMergeJoinForced = false;
     
     public PhoenixStatement(PhoenixConnection connection) {
         this.connection = connection;
@@ -310,7 +316,26 @@ public class PhoenixStatement implements Statement, SQLCloseable {
                         plan = connection.getQueryServices().getOptimizer().optimize(PhoenixStatement.this, plan);
                          // this will create its own trace internally, so we don't wrap this
                          // whole thing in tracing
-                        ResultIterator resultIterator = plan.iterator();
+                        ResultIterator resultIterator;
+                        try {
+                            resultIterator = plan.iterator();
+                        } catch (SQLException | RuntimeException e) {
+                            if (!shouldFallbackToSortMergeJoin(stmt, e)) {
+                                throw e;
+                            }
+                            LOGGER.info(LogUtil.addCustomAnnotations("Hash join cache exceeded "
+                                    + QueryServices.MAX_SERVER_CACHE_SIZE_ATTRIB
+                                    + ", retrying query with sort merge join", connection));
+                            GLOBAL_HASH_JOIN_SORT_MERGE_FALLBACK_COUNTER.increment();
+                            // Recompile with every join, including those of subqueries and derived
+                            // tables, forced to a sort merge join
+                            sortMergeJoinForced = true;
+                            try {
+                                return executeQuery(stmt, doRetryOnMetaNotFoundError, queryLogger);
+                            } finally {
+                                sortMergeJoinForced = false;
+                            }
+                        }
                         if (LOGGER.isDebugEnabled()) {
                             String explainPlan = QueryUtil.getExplainPlan(resultIterator);
                             LOGGER.debug(LogUtil.addCustomAnnotations("Explain plan: " + explainPlan, connection));
@@ -450,6 +475,35 @@ public class PhoenixStatement implements Statement, SQLCloseable {
         }
     }
 
+    /**
+     * Returns whether to retry a query whose hash cache built for a join did not fit within
+     * {@link QueryServices#MAX_SERVER_CACHE_SIZE_ATTRIB}. The retry forces all joins to sort merge
+     * joins, which spool their sorted inputs to disk instead of broadcasting the build side to the
+     * region servers.
+     */
+    private boolean shouldFallbackToSortMergeJoin(CompilableStatement stmt, Exception e) {
+        if (!(stmt instanceof ExecutableSelectStatement) || sortMergeJoinForced
+                || !connection.getQueryServices().getProps().getBoolean(
+                        QueryServices.HASH_JOIN_SORT_MERGE_FALLBACK_ENABLED_ATTRIB,
+                        QueryServicesOptions.DEFAULT_HASH_JOIN_SORT_MERGE_FALLBACK_ENABLED)) {
+            return false;
+        }
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof MaxServerCacheSizeExceededException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the statement is being recompiled with all of its joins, at any nesting
+     * level, executed as sort merge joins as if hinted with USE_SORT_MERGE_JOIN
+     */
+    public boolean isSortMergeJoinForced() {
+        return sortMergeJoinForced;
+    }
+
     protected static interface CompilableStatement extends BindableStatement {
         public <T extends StatementPlan> T compilePlan (PhoenixStatement stmt, Sequence.ValueOp seqAction) throws SQLException;
     }
@@ -1728,13 +1782,25 @@ public class PhoenixStatement implements Statement, SQLCloseable {
     }
     
     protected CompilableStatement parseStatement(String sql) throws SQLException {
+        ParsedStatementCache cache = connection.getQueryServices().getParsedStatementCache();
+        CompilableStatement statement = (CompilableStatement)cache.get(sql);
+        if (statement != null) {
+            return statement;
+        }
         PhoenixStatementParser parser = null;
         try {
             parser = new PhoenixStatementParser(sql, new ExecutableNodeFactory());
         } catch (IOException e) {
             throw ServerUtil.parseServerException(e);
         }
-        CompilableStatement statement = parser.parseStatement();
+        statement = parser.parseStatement();
+        // DDL statements are executed rarely and may be modified while compiled, so only
+        // cache the statements whose parse nodes are never modified
+        if (statement instanceof ExecutableSelectStatement
+                || statement instanceof ExecutableUpsertStatement
+                || statement instanceof ExecutableDeleteStatement) {
+            cache.put(sql, statement);
+        }
         return statement;
     }
     
@@ -1807,6 +1873,34 @@ public class PhoenixStatement implements Statement, SQLCloseable {
         return executeQuery(stmt,createQueryLogger(stmt,sql));
     }
 
+    /**
+     * Compiles and executes the given query on the async executor, without blocking the caller.
+     * The rows of the returned result set may be read ahead without blocking through
+     * {@link PhoenixResultSet#fetchAsync(int)}. The statement must not be used until the returned
+     * future completes.
+     */
+    public CompletableFuture<PhoenixResultSet> executeQueryAsync(final String sql) {
+        return connection.executeAsync(new Callable<PhoenixResultSet>() {
+            @Override
+            public PhoenixResultSet call() throws SQLException {
+                return (PhoenixResultSet)executeQuery(sql);
+            }
+        });
+    }
+
+    /**
+     * Executes the given mutation on the async executor, without blocking the caller. The
+     * statement must not be used until the returned future completes.
+     */
+    public CompletableFuture<Integer> executeUpdateAsync(final String sql) {
+        return connection.executeAsync(new Callable<Integer>() {
+            @Override
+            public Integer call() throws SQLException {
+                return executeUpdate(sql);
+            }
+        });
+    }
+
     @Override
     public int executeUpdate(String sql) throws SQLException {
         CompilableStatement stmt = parseStatement(sql);
@@ -25,11 +25,23 @@ import java.util.concurrent.TimeUnit;
  *
  * An bounded blocking queue implementation that keeps a virtual queue of elements on per-producer
  * basis and iterates through each producer queue in round robin fashion.
+ * <p>
+ * Producers may belong to weighted groups, such as the tenants of a multi-tenant application,
+ * which are served by stride scheduling: every group moves forward in virtual time by an amount
+ * inversely proportional to its weight each time an element is taken from it, and the group that
+ * is the furthest behind is served next. A group that was idle starts again at the current virtual
+ * time, so it does not get ahead of the busy groups. The number of elements of a group that were
+ * taken and are still running may be limited, see {@link #finished(Object)}. While every group
+ * with queued elements runs as many elements as allowed, {@link #poll()} returns null although
+ * the queue is not empty, and the blocking polls wait for an element to finish.
  *
  */
 public abstract class AbstractRoundRobinQueue<E> extends AbstractQueue<E>
         implements BlockingQueue<E>{
 
+    // Virtual time taken by an element of a group of weight 1
+    private static final long STRIDE = 1L << 20;
+
     /**
      * Construct an AbstractBlockingRoundRobinQueue that limits the size of the queued elements
      * to at most maxSize. Attempts to insert new elements after that point will cause the
@@ -43,21 +55,32 @@ public abstract class AbstractRoundRobinQueue<E> extends AbstractQueue<E>
      * @param newProducerToFront If true, new producers go to the front of the round-robin list, if false, they go to the end.
      */
     public AbstractRoundRobinQueue(int maxSize, boolean newProducerToFront) {
-        this.producerMap = new HashMap<Object,ProducerList<E>>();
-        this.producerLists = new LinkedList<ProducerList<E>>();
+        this(maxSize, newProducerToFront, 0);
+    }
+
+    /**
+     * @param newProducerToFront If true, new producers go to the front of the round-robin list, if false, they go to the end.
+     * @param maxRunningPerGroup Max number of elements of a group that may be running at a time, or 0 for no limit.
+     */
+    public AbstractRoundRobinQueue(int maxSize, boolean newProducerToFront, int maxRunningPerGroup) {
+        this.groupMap = new HashMap<Object,Group<E>>();
+        this.running = Collections.newSetFromMap(new IdentityHashMap<E,Boolean>());
         this.lock = new Object();
         this.newProducerToFront = newProducerToFront;
         this.maxSize = maxSize;
+        this.maxRunningPerGroup = maxRunningPerGroup;
     }
 
     @Override
     public Iterator<E> iterator() {
         synchronized(lock) {
             ArrayList<E> allElements = new ArrayList<E>(this.size);
-            ListIterator<ProducerList<E>> iter = this.producerLists.listIterator(this.currentProducer);
-            while(iter.hasNext()) {
-                ProducerList<E> tList = iter.next();
-                allElements.addAll(tList.list);
+            for (Group<E> group : this.groupMap.values()) {
+                ListIterator<ProducerList<E>> iter = group.producerLists.listIterator(group.currentProducer);
+                while(iter.hasNext()) {
+                    ProducerList<E> tList = iter.next();
+                    allElements.addAll(tList.list);
+                }
             }
             return allElements.iterator();
         }
@@ -89,17 +112,27 @@ public abstract class AbstractRoundRobinQueue<E> extends AbstractQueue<E>
             if (this.size == this.maxSize) {
                 return false;
             }
-            producerList = this.producerMap.get(producerKey);
+            Group<E> group = getGroup(extractGroup(o));
+            if (group.size == 0) {
+                // A group that was idle gets no credit for the time it was
+                group.pass = Math.max(group.pass, this.virtualTime);
+            }
+            group.weight = Math.max(1, extractWeight(o));
+            producerList = group.producerMap.get(producerKey);
             if (producerList == null) {
                 producerList = new ProducerList<E>(producerKey);
-                this.producerMap.put(producerKey, producerList);
-                this.producerLists.add(this.currentProducer, producerList);
+                group.producerMap.put(producerKey, producerList);
+                group.producerLists.add(group.currentProducer, producerList);
                 if (!this.newProducerToFront) {
-                    incrementCurrentProducerPointer();
+                    group.incrementCurrentProducerPointer();
                 }
             }
             producerList.list.add(o);
+            group.size++;
             this.size++;
+            if (this.maxRunningPerGroup > 0 && group.running >= this.maxRunningPerGroup) {
+                throttled(o);
+            }
             lock.notifyAll();
         }
         return true;
@@ -110,6 +143,53 @@ public abstract class AbstractRoundRobinQueue<E> extends AbstractQueue<E>
      */
     protected abstract Object extractProducer(E o);
 
+    /**
+     * Implementations may extract the key of the group of the producer of an element, which is
+     * null by default so that all producers share a single group.
+     */
+    protected Object extractGroup(E o) {
+        return null;
+    }
+
+    /**
+     * Implementations may extract the weight of the group of an element, which is 1 by default.
+     * The group takes the weight of the last element added to it.
+     */
+    protected int extractWeight(E o) {
+        return 1;
+    }
+
+    /**
+     * Called when an element is added while its group is running as many elements as allowed.
+     */
+    protected void throttled(E o) {
+    }
+
+    /**
+     * Must be called when an element is done running if the number of running elements per
+     * group is limited. Elements count as running from the time {@link #poll()} or one of the
+     * blocking polls takes them, which is the only place they are counted, so elements that
+     * were drained, removed or never went through the queue, such as the first task of a new
+     * thread of a thread pool, are ignored. A thread pool must therefore start all its threads
+     * upfront and keep them for the limit to apply to all its tasks.
+     */
+    public void finished(E o) {
+        if (this.maxRunningPerGroup <= 0) {
+            return;
+        }
+        synchronized(lock) {
+            if (!this.running.remove(o)) {
+                return;
+            }
+            Group<E> group = this.groupMap.get(extractGroup(o));
+            if (group != null) {
+                group.running--;
+                removeIfIdle(group);
+            }
+            lock.notifyAll();
+        }
+    }
+
     @Override
     public void put(E o) {
         offer(o);
@@ -118,58 +198,65 @@ public abstract class AbstractRoundRobinQueue<E> extends AbstractQueue<E>
     @Override
     public E take() throws InterruptedException {
         synchronized(lock) {
-            while (this.size == 0) {
+            E element;
+            // Elements of groups running as many elements as allowed have to wait
+            while ((element = poll()) == null) {
                 this.lock.wait();
             }
-            E element = poll();
-            assert element != null;
             return element;
         }
     }
 
+    /**
+     * Waits past the timeout while the queue holds elements of groups running as many elements
+     * as allowed, so that a thread pool does not retire its threads while work is still queued.
+     */
     @Override
     public E poll(long timeout, TimeUnit unit) throws InterruptedException {
         long endAt = System.currentTimeMillis() + unit.toMillis(timeout);
         synchronized(lock) {
+            E element;
             long waitTime = endAt - System.currentTimeMillis();
-            while (this.size == 0 && waitTime > 0) {
-                this.lock.wait(waitTime);
+            while ((element = poll()) == null) {
+                if (this.size > 0) {
+                    // Woken up by finished once a group is under its limit again
+                    this.lock.wait();
+                } else if (waitTime > 0) {
+                    this.lock.wait(waitTime);
+                } else {
+                    break;
+                }
                 waitTime = endAt - System.currentTimeMillis();
             }
-            return poll();
+            return element;
         }
     }
 
     @Override
     public E poll() {
+        return poll(false);
+    }
+
+    private E poll(boolean ignoreRunningLimit) {
         synchronized(lock) {
-            ListIterator<ProducerList<E>> iter = this.producerLists.listIterator(this.currentProducer);
-            while (iter.hasNext()) {
-                ProducerList<E> tList = iter.next();
-                if (tList.list.isEmpty()) {
-                    iter.remove();
-                    this.producerMap.remove(tList.producer);
-                    adjustCurrentProducerPointer();
-                } else {
-                    E element = tList.list.removeFirst();
-                    this.size--;
-                    assert element != null;
-                    // This is the round robin part. When we take an element from the current thread's queue
-                    // we move on to the next thread.
-                    if (tList.list.isEmpty()) {
-                        iter.remove();
-                        this.producerMap.remove(tList.producer);
-                        adjustCurrentProducerPointer();
-                    } else {
-                        incrementCurrentProducerPointer();
-                    }
-                    lock.notifyAll();
-                    return element;
-                }
+            Group<E> group = nextGroup(ignoreRunningLimit);
+            if (group == null) {
+                assert !ignoreRunningLimit || this.size == 0;
+                return null;
             }
-            assert this.size == 0;
+            E element = group.poll();
+            this.size--;
+            assert element != null;
+            group.pass += STRIDE / group.weight;
+            updateVirtualTime();
+            if (this.maxRunningPerGroup > 0 && !ignoreRunningLimit) {
+                group.running++;
+                this.running.add(element);
+            }
+            removeIfIdle(group);
+            lock.notifyAll();
+            return element;
         }
-        return null;
     }
 
     /**
@@ -177,21 +264,25 @@ public abstract class AbstractRoundRobinQueue<E> extends AbstractQueue<E>
      */
     protected E pollProducer(Object producer) {
         synchronized(lock) {
-            ProducerList<E> tList = this.producerMap.get(producer);
-            if (tList != null && !tList.list.isEmpty()) {
-                E element = tList.list.removeFirst();
-                this.size--;
-                if (tList.list.isEmpty()) {
-                    this.producerLists.remove(tList);
-                    this.producerMap.remove(tList.producer);
-                    // we need to adjust the current thread pointer in case it pointed to this thread list, which is now removed
-                    adjustCurrentProducerPointer();
+            for (Group<E> group : this.groupMap.values()) {
+                ProducerList<E> tList = group.producerMap.get(producer);
+                if (tList != null && !tList.list.isEmpty()) {
+                    E element = tList.list.removeFirst();
+                    group.size--;
+                    this.size--;
+                    if (tList.list.isEmpty()) {
+                        group.producerLists.remove(tList);
+                        group.producerMap.remove(tList.producer);
+                        // we need to adjust the current thread pointer in case it pointed to this thread list, which is now removed
+                        group.adjustCurrentProducerPointer();
+                    }
+                    removeIfIdle(group);
+                    lock.notifyAll();
+                    assert element != null;
+                    // Since this is only processing the current thread's work, we'll leave the
+                    // round-robin part alone and just return the work
+                    return element;
                 }
-                lock.notifyAll();
-                assert element != null;
-                // Since this is only processing the current thread's work, we'll leave the
-                // round-robin part alone and just return the work
-                return element;
             }
         }
         return null;
@@ -200,22 +291,24 @@ public abstract class AbstractRoundRobinQueue<E> extends AbstractQueue<E>
     @Override
     public E peek() {
         synchronized(lock) {
-            ListIterator<ProducerList<E>> iter = this.producerLists.listIterator(this.currentProducer);
-            while (iter.hasNext()) {
-                ProducerList<E> tList = iter.next();
-                if (tList.list.isEmpty()) {
-                    iter.remove();
-                    this.producerMap.remove(tList.producer);
-                    adjustCurrentProducerPointer();
-                } else {
-                    E element = tList.list.getFirst();
-                    assert element != null;
-                    return element;
+            Group<E> group = nextGroup(false);
+            return group == null ? null : group.peek();
+        }
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        synchronized(lock) {
+            for (Group<E> group : this.groupMap.values()) {
+                if (group.remove(o)) {
+                    this.size--;
+                    removeIfIdle(group);
+                    lock.notifyAll();
+                    return true;
                 }
             }
-            assert this.size == 0;
         }
-        return null;
+        return false;
     }
 
     @Override
@@ -230,8 +323,6 @@ public abstract class AbstractRoundRobinQueue<E> extends AbstractQueue<E>
             int drained = drainTo(c, this.size);
             assert drained == originalSize;
             assert this.size == 0;
-            assert this.producerLists.isEmpty();
-            assert this.producerMap.isEmpty();
             return drained;
         }
     }
@@ -246,7 +337,8 @@ public abstract class AbstractRoundRobinQueue<E> extends AbstractQueue<E>
         synchronized(this.lock) {
             int i = 0;
             while(i < maxElements) {
-                E element = poll();
+                // Drained elements do not run, so they are not limited
+                E element = poll(true);
                 if (element != null) {
                     c.add(element);
                     i++;
@@ -260,7 +352,9 @@ public abstract class AbstractRoundRobinQueue<E> extends AbstractQueue<E>
 
     @Override
     public int remainingCapacity() {
-        return Integer.MAX_VALUE;
+        synchronized(this.lock) {
+            return Math.max(0, this.maxSize - this.size);
+        }
     }
 
     @Override
@@ -269,22 +363,153 @@ public abstract class AbstractRoundRobinQueue<E> extends AbstractQueue<E>
             return this.size;
         }
     }
-    
-    private void incrementCurrentProducerPointer() {
-        synchronized(lock) {
+
+    private Group<E> getGroup(Object groupKey) {
+        Group<E> group = this.groupMap.get(groupKey);
+        if (group == null) {
+            group = new Group<E>(groupKey);
+            group.pass = this.virtualTime;
+            this.groupMap.put(groupKey, group);
+        }
+        return group;
+    }
+
+    /**
+     * Returns the group with queued elements that is the furthest behind in virtual time, skipping
+     * the groups running as many elements as allowed unless ignoreRunningLimit is set.
+     */
+    private Group<E> nextGroup(boolean ignoreRunningLimit) {
+        Group<E> next = null;
+        for (Group<E> group : this.groupMap.values()) {
+            if (group.size == 0) {
+                continue;
+            }
+            if (!ignoreRunningLimit && this.maxRunningPerGroup > 0 && group.running >= this.maxRunningPerGroup) {
+                continue;
+            }
+            if (next == null || group.pass < next.pass) {
+                next = group;
+            }
+        }
+        return next;
+    }
+
+    /**
+     * Move the virtual time forward to the group with queued elements that is the furthest behind.
+     */
+    private void updateVirtualTime() {
+        long minPass = Long.MAX_VALUE;
+        for (Group<E> group : this.groupMap.values()) {
+            if (group.size > 0) {
+                minPass = Math.min(minPass, group.pass);
+            }
+        }
+        if (minPass != Long.MAX_VALUE) {
+            this.virtualTime = Math.max(this.virtualTime, minPass);
+        }
+    }
+
+    /**
+     * Forget a group once it has neither queued nor running elements, so that it starts again
+     * at the current virtual time.
+     */
+    private void removeIfIdle(Group<E> group) {
+        if (group.size == 0 && group.running <= 0) {
+            this.groupMap.remove(group.key);
+        }
+    }
+
+    private static class Group<E> {
+        public Group(Object key) {
+            this.key = key;
+            this.producerMap = new HashMap<Object,ProducerList<E>>();
+            this.producerLists = new LinkedList<ProducerList<E>>();
+        }
+        private final Object key;
+        private final Map<Object,ProducerList<E>> producerMap;
+        private final LinkedList<ProducerList<E>> producerLists;
+        private int currentProducer;
+        private int size;
+        private int weight = 1;
+        private long pass;
+        private int running;
+
+        private E poll() {
+            ListIterator<ProducerList<E>> iter = this.producerLists.listIterator(this.currentProducer);
+            while (iter.hasNext()) {
+                ProducerList<E> tList = iter.next();
+                if (tList.list.isEmpty()) {
+                    iter.remove();
+                    this.producerMap.remove(tList.producer);
+                    adjustCurrentProducerPointer();
+                } else {
+                    E element = tList.list.removeFirst();
+                    this.size--;
+                    // This is the round robin part. When we take an element from the current thread's queue
+                    // we move on to the next thread.
+                    if (tList.list.isEmpty()) {
+                        iter.remove();
+                        this.producerMap.remove(tList.producer);
+                        adjustCurrentProducerPointer();
+                    } else {
+                        incrementCurrentProducerPointer();
+                    }
+                    return element;
+                }
+            }
+            // The pointer was past the last producer with elements, so start over from the first one
+            if (this.currentProducer != 0 && this.size > 0) {
+                this.currentProducer = 0;
+                return poll();
+            }
+            return null;
+        }
+
+        private E peek() {
+            ListIterator<ProducerList<E>> iter = this.producerLists.listIterator(this.currentProducer);
+            while (iter.hasNext()) {
+                ProducerList<E> tList = iter.next();
+                if (!tList.list.isEmpty()) {
+                    return tList.list.getFirst();
+                }
+            }
+            for (ProducerList<E> tList : this.producerLists) {
+                if (!tList.list.isEmpty()) {
+                    return tList.list.getFirst();
+                }
+            }
+            return null;
+        }
+
+        private boolean remove(Object o) {
+            ListIterator<ProducerList<E>> iter = this.producerLists.listIterator();
+            while (iter.hasNext()) {
+                ProducerList<E> tList = iter.next();
+                if (tList.list.remove(o)) {
+                    this.size--;
+                    if (tList.list.isEmpty()) {
+                        iter.remove();
+                        this.producerMap.remove(tList.producer);
+                        adjustCurrentProducerPointer();
+                    }
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void incrementCurrentProducerPointer() {
             if (this.producerLists.size() == 0) {
                 this.currentProducer = 0;
             } else {
                 this.currentProducer = (this.currentProducer+1)%this.producerLists.size();
             }
         }
-    }
-    
-    /**
-     * Adjusts the current pointer to a decrease in size.
-     */
-    private void adjustCurrentProducerPointer() {
-        synchronized(lock) {
+
+        /**
+         * Adjusts the current pointer to a decrease in size.
+         */
+        private void adjustCurrentProducerPointer() {
             if (this.producerLists.size() == 0) {
                 this.currentProducer = 0;
             } else {
@@ -302,11 +527,13 @@ public abstract class AbstractRoundRobinQueue<E> extends AbstractQueue<E>
         private final LinkedList<E> list;
     }
 
-    private final Map<Object,ProducerList<E>> producerMap;
-    private final LinkedList<ProducerList<E>> producerLists;
+    private final Map<Object,Group<E>> groupMap;
+    // Elements taken from the queue that count as running in their group until they finish
+    private final Set<E> running;
     private final Object lock;
     private final boolean newProducerToFront;
-    private int currentProducer;
+    private final int maxRunningPerGroup;
+    private long virtualTime;
     private int size;
     private int maxSize;
 }
@@ -17,11 +17,13 @@
  */
 package org.apache.phoenix.job;
 
+import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_INTERACTIVE_TASK_QUEUE_WAIT_TIME;
 import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_REJECTED_TASK_COUNTER;
 import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_TASK_END_TO_END_TIME;
 import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_TASK_EXECUTED_COUNTER;
 import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_TASK_EXECUTION_TIME;
 import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_TASK_QUEUE_WAIT_TIME;
+import static org.apache.phoenix.monitoring.GlobalClientMetrics.GLOBAL_THROTTLED_TASK_COUNTER;
 
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
@@ -39,6 +41,8 @@ import java.util.concurrent.atomic.AtomicLong;
 import javax.annotation.Nullable;
 
 import org.apache.phoenix.monitoring.TaskExecutionMetricsHolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 /**
@@ -51,10 +55,18 @@ import com.google.common.util.concurrent.ThreadFactoryBuilder;
 @SuppressWarnings("rawtypes")
 public class JobManager<T> extends AbstractRoundRobinQueue<T> {
 	
+    private static final Logger LOGGER = LoggerFactory.getLogger(JobManager.class);
     private static final AtomicLong PHOENIX_POOL_INDEX = new AtomicLong(1);
 	
     public JobManager(int maxSize) {
-        super(maxSize, true); // true -> new producers move to front of queue; this reduces latency.
+        this(maxSize, 0);
+    }
+
+    /**
+     * @param maxRunningPerGroup max number of tasks of a {@link SchedulingGroup} running at a time, or 0 for no limit
+     */
+    public JobManager(int maxSize, int maxRunningPerGroup) {
+        super(maxSize, true, maxRunningPerGroup); // true -> new producers move to front of queue; this reduces latency.
     }
 
 	@Override
@@ -65,24 +77,77 @@ public class JobManager<T> extends AbstractRoundRobinQueue<T> {
         return o;
     }        
 
+    @Override
+    protected Object extractGroup(T o) {
+        if (o instanceof JobFutureTask) {
+            return ((JobFutureTask)o).getSchedulingGroup();
+        }
+        return null;
+    }
+
+    @Override
+    protected int extractWeight(T o) {
+        SchedulingGroup group = (SchedulingGroup)extractGroup(o);
+        return group == null ? 1 : group.getWeight();
+    }
+
+    @Override
+    protected void throttled(T o) {
+        GLOBAL_THROTTLED_TASK_COUNTER.increment();
+    }
+
     public static interface JobRunnable<T> extends Runnable {
         public Object getJobId();
         public TaskExecutionMetricsHolder getTaskExecutionMetric();
+        /**
+         * Returns the group whose tasks share the executor fairly with other groups, or null for the default group.
+         */
+        public default SchedulingGroup getSchedulingGroup() {
+            return null;
+        }
     }
 
     public static ThreadPoolExecutor createThreadPoolExec(int keepAliveMs, int size, int queueSize, boolean useInstrumentedThreadPool) {
+        return createThreadPoolExec(keepAliveMs, size, queueSize, useInstrumentedThreadPool, false);
+    }
+
+    /**
+     * Creates the executor of client side tasks. With useVirtualThreads, tasks run on virtual
+     * threads, so that size may be in the thousands since a task blocked on an RPC does not hold
+     * a platform thread. Platform threads are used if the JVM does not support virtual threads.
+     */
+    public static ThreadPoolExecutor createThreadPoolExec(int keepAliveMs, int size, int queueSize, boolean useInstrumentedThreadPool, boolean useVirtualThreads) {
+        return createThreadPoolExec(keepAliveMs, size, queueSize, useInstrumentedThreadPool, useVirtualThreads, 0);
+    }
+
+    /**
+     * Creates the executor of client side tasks, whose queue serves the {@link SchedulingGroup}s
+     * of the tasks by weighted fair sharing, running at most maxRunningPerGroup tasks of a group
+     * at a time unless it is 0. The limit only applies to tasks taken from the queue, so the
+     * threads of such an executor are all started upfront and kept, since the executor hands
+     * tasks straight to the threads it starts.
+     */
+    public static ThreadPoolExecutor createThreadPoolExec(int keepAliveMs, int size, int queueSize, boolean useInstrumentedThreadPool, boolean useVirtualThreads, int maxRunningPerGroup) {
         BlockingQueue<Runnable> queue;
         if (queueSize == 0) {
             queue = new SynchronousQueue<Runnable>(); // Specialized for 0 length.
         } else {
-            queue = new JobManager<Runnable>(queueSize);
+            queue = new JobManager<Runnable>(queueSize, maxRunningPerGroup);
         }
         String name = "phoenix-" + PHOENIX_POOL_INDEX.getAndIncrement();
+        ThreadFactory baseFactory = null;
+        if (useVirtualThreads) {
+            baseFactory = getVirtualThreadFactory();
+            if (baseFactory == null) {
+                LOGGER.warn("Virtual threads are not supported by this JVM, using platform threads for " + name);
+            }
+        }
         ThreadFactory threadFactory = new ThreadFactoryBuilder()
-                .setNameFormat(name + "-thread-%s")
+                .setNameFormat(name + (baseFactory == null ? "-thread-%s" : "-virtual-thread-%s"))
                 .setDaemon(true)
                 .setThreadFactory(
-                        new ContextClassLoaderThreadFactory(JobManager.class.getClassLoader()))
+                        new ContextClassLoaderThreadFactory(JobManager.class.getClassLoader(),
+                                baseFactory == null ? Executors.defaultThreadFactory() : baseFactory))
                 .build();
         ThreadPoolExecutor exec;
         if (useInstrumentedThreadPool) {
@@ -111,12 +176,50 @@ public class JobManager<T> extends AbstractRoundRobinQueue<T> {
                 protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
                     return new JobFutureTask<T>(runnable, value);
                 }
+
+                @Override
+                protected void afterExecute(Runnable task, Throwable t) {
+                    try {
+                        super.afterExecute(task, t);
+                    } finally {
+                        taskFinished(getQueue(), task);
+                    }
+                }
             };
         }
-        exec.allowCoreThreadTimeOut(true); // ... and allow core threads to time out.  This just keeps things clean when idle, and is nice for ftests modes, etc., where we'd especially like these not to linger.
+        if (queue instanceof JobManager && maxRunningPerGroup > 0) {
+            // Every task goes through the queue, which limits the running tasks of each group
+            exec.prestartAllCoreThreads();
+        } else {
+            exec.allowCoreThreadTimeOut(true); // ... and allow core threads to time out.  This just keeps things clean when idle, and is nice for ftests modes, etc., where we'd especially like these not to linger.
+        }
         return exec;
     }
 
+    /**
+     * Lets the queue know a task it handed out is done, if it limits running tasks per group
+     */
+    @SuppressWarnings("unchecked")
+    private static void taskFinished(BlockingQueue<Runnable> queue, Runnable task) {
+        if (queue instanceof JobManager) {
+            ((JobManager<Runnable>)queue).finished(task);
+        }
+    }
+
+    /**
+     * Returns a factory of virtual threads, looked up reflectively since they only exist as of
+     * JDK 21, or null if the JVM does not support them.
+     */
+    static ThreadFactory getVirtualThreadFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            return (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Not available before JDK 21, nor on JDK 19 and 20 without preview features enabled
+            return null;
+        }
+    }
+
     /**
      * Subclasses FutureTask for the sole purpose of providing {@link #getCallable()}, which is used to extract the producer in the {@link JobBasedRoundRobinQueue}
      */
@@ -124,15 +227,19 @@ public class JobManager<T> extends AbstractRoundRobinQueue<T> {
         private final Object jobId;
         @Nullable
         private final TaskExecutionMetricsHolder taskMetric;
+        @Nullable
+        private final SchedulingGroup schedulingGroup;
         
         public JobFutureTask(Runnable r, T t) {
             super(r, t);
             if(r instanceof JobRunnable){
               	this.jobId = ((JobRunnable)r).getJobId();
               	this.taskMetric = ((JobRunnable)r).getTaskExecutionMetric();
+              	this.schedulingGroup = ((JobRunnable)r).getSchedulingGroup();
             } else {
             	this.jobId = this;
             	this.taskMetric = null;
+            	this.schedulingGroup = null;
             }
         }
         
@@ -142,15 +249,21 @@ public class JobManager<T> extends AbstractRoundRobinQueue<T> {
             if (c instanceof JobCallable) {
                 this.jobId = ((JobCallable<T>) c).getJobId();
                 this.taskMetric = ((JobCallable<T>) c).getTaskExecutionMetric();
+                this.schedulingGroup = ((JobCallable<T>) c).getSchedulingGroup();
             } else {
                 this.jobId = this;
                 this.taskMetric = null;
+                this.schedulingGroup = null;
             }
         }
         
         public Object getJobId() {
             return jobId;
         }
+
+        public SchedulingGroup getSchedulingGroup() {
+            return schedulingGroup;
+        }
     }
     
     /**
@@ -199,6 +312,12 @@ public class JobManager<T> extends AbstractRoundRobinQueue<T> {
     public static interface JobCallable<T> extends Callable<T> {
         public Object getJobId();
         public TaskExecutionMetricsHolder getTaskExecutionMetric();
+        /**
+         * Returns the group whose tasks share the executor fairly with other groups, or null for the default group.
+         */
+        public default SchedulingGroup getSchedulingGroup() {
+            return null;
+        }
     }
 
 
@@ -215,7 +334,11 @@ public class JobManager<T> extends AbstractRoundRobinQueue<T> {
         private final ClassLoader contextClassLoader;
 
         public ContextClassLoaderThreadFactory(ClassLoader contextClassLoader) {
-            baseFactory = Executors.defaultThreadFactory();
+            this(contextClassLoader, Executors.defaultThreadFactory());
+        }
+
+        public ContextClassLoaderThreadFactory(ClassLoader contextClassLoader, ThreadFactory baseFactory) {
+            this.baseFactory = baseFactory;
             this.contextClassLoader = contextClassLoader;
         }
 
@@ -266,6 +389,10 @@ public class JobManager<T> extends AbstractRoundRobinQueue<T> {
             InstrumentedJobFutureTask instrumentedTask = (InstrumentedJobFutureTask)task;
             long queueWaitTime = System.currentTimeMillis() - instrumentedTask.getTaskSubmissionTime();
             GLOBAL_TASK_QUEUE_WAIT_TIME.update(queueWaitTime);
+            SchedulingGroup group = instrumentedTask.getSchedulingGroup();
+            if (group != null && group.isInteractive()) {
+                GLOBAL_INTERACTIVE_TASK_QUEUE_WAIT_TIME.update(queueWaitTime);
+            }
             TaskExecutionMetricsHolder metrics = getRequestMetric(task);
             if (metrics != null) {
                 metrics.getTaskQueueWaitTime().change(queueWaitTime);
@@ -288,6 +415,7 @@ public class JobManager<T> extends AbstractRoundRobinQueue<T> {
                 }
                 GLOBAL_TASK_EXECUTION_TIME.update(taskExecutionTime);
                 GLOBAL_TASK_END_TO_END_TIME.update(endToEndTaskTime);
+                taskFinished(getQueue(), task);
             }
         }
 
@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.job;
+
+import com.google.common.base.Objects;
+
+/**
+ * Group of jobs, such as the scans of a tenant, sharing the client executor fairly with the other
+ * groups in proportion to its weight. Interactive groups, like those of point lookups, are kept
+ * apart from the other jobs of the same key so that they do not wait behind them.
+ */
+public final class SchedulingGroup {
+    private final Object key;
+    private final int weight;
+    private final boolean interactive;
+
+    public SchedulingGroup(Object key, int weight, boolean interactive) {
+        this.key = key;
+        this.weight = Math.max(1, weight);
+        this.interactive = interactive;
+    }
+
+    public Object getKey() {
+        return key;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+
+    public boolean isInteractive() {
+        return interactive;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof SchedulingGroup)) {
+            return false;
+        }
+        SchedulingGroup other = (SchedulingGroup)obj;
+        return interactive == other.interactive && Objects.equal(key, other.key);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(key, interactive);
+    }
+
+    @Override
+    public String toString() {
+        return "SchedulingGroup [key=" + key + ", weight=" + weight + ", interactive=" + interactive + "]";
+    }
+}
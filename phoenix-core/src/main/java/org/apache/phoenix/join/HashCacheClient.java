@@ -86,6 +86,7 @@ public class HashCacheClient  {
      * region servers for regions of the table that will use the cache
      * that intersect with the minMaxKeyRange.
      * @param scanner scanner for the table or intermediate results being cached
+     * @param runtimeFilter if not null, collects the join keys of the cached rows
      * @return client-side {@link ServerCache} representing the added hash cache
      * @throws SQLException 
      * @throws MaxServerCacheSizeExceededException if size of hash cache exceeds max allowed
@@ -94,12 +95,12 @@ public class HashCacheClient  {
     public ServerCache addHashCache(
             ScanRanges keyRanges, byte[] cacheId, ResultIterator iterator, long estimatedSize, List<Expression> onExpressions,
             boolean singleValueOnly, boolean usePersistentCache, PTable cacheUsingTable, Expression keyRangeRhsExpression,
-            List<Expression> keyRangeRhsValues) throws SQLException {
+            List<Expression> keyRangeRhsValues, HashJoinRuntimeFilter runtimeFilter) throws SQLException {
         /**
          * Serialize and compress hashCacheTable
          */
         ImmutableBytesWritable ptr = new ImmutableBytesWritable();
-        serialize(ptr, iterator, estimatedSize, onExpressions, singleValueOnly, keyRangeRhsExpression, keyRangeRhsValues);
+        serialize(ptr, iterator, estimatedSize, onExpressions, singleValueOnly, keyRangeRhsExpression, keyRangeRhsValues, runtimeFilter);
         ServerCache cache = serverCache.addServerCache(keyRanges, cacheId, ptr, ByteUtil.EMPTY_BYTE_ARRAY, new HashCacheFactory(), cacheUsingTable, usePersistentCache, true);
         return cache;
     }
@@ -118,7 +119,7 @@ public class HashCacheClient  {
         return serverCache.addServerCache(startkeyOfRegion, cache, new HashCacheFactory(), ByteUtil.EMPTY_BYTE_ARRAY, pTable);
     }
     
-    private void serialize(ImmutableBytesWritable ptr, ResultIterator iterator, long estimatedSize, List<Expression> onExpressions, boolean singleValueOnly, Expression keyRangeRhsExpression, List<Expression> keyRangeRhsValues) throws SQLException {
+    private void serialize(ImmutableBytesWritable ptr, ResultIterator iterator, long estimatedSize, List<Expression> onExpressions, boolean singleValueOnly, Expression keyRangeRhsExpression, List<Expression> keyRangeRhsValues, HashJoinRuntimeFilter runtimeFilter) throws SQLException {
         long maxSize = serverCache.getConnection().getQueryServices().getProps().getLong(QueryServices.MAX_SERVER_CACHE_SIZE_ATTRIB, QueryServicesOptions.DEFAULT_MAX_SERVER_CACHE_SIZE);
         estimatedSize = Math.min(estimatedSize, maxSize);
         if (estimatedSize > Integer.MAX_VALUE) {
@@ -147,6 +148,9 @@ public class HashCacheClient  {
                 if (keyRangeRhsExpression != null) {
                     keyRangeRhsValues.add(evaluateKeyExpression(keyRangeRhsExpression, result, tempPtr));
                 }
+                if (runtimeFilter != null) {
+                    runtimeFilter.add(result, tempPtr);
+                }
                 nRows++;
             }
             TrustedByteArrayOutputStream sizeOut = new TrustedByteArrayOutputStream(Bytes.SIZEOF_INT);
@@ -161,8 +165,9 @@ public class HashCacheClient  {
                 int maxCompressedSize = Snappy.maxCompressedLength(baOut.size());
                 byte[] compressed = new byte[maxCompressedSize]; // size for worst case
                 int compressedSize = Snappy.compress(baOut.getBuffer(), 0, baOut.size(), compressed, 0);
-                // Last realloc to size of compressed buffer.
-                ptr.set(compressed,0,compressedSize);
+                // No need to trim the worst case sized buffer, as only the compressed bytes
+                // are serialized when the cache is sent
+                ptr.set(compressed, 0, compressedSize);
             } finally {
                 dataOut.close();
             }
@@ -26,11 +26,8 @@ import java.io.IOException;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import net.jcip.annotations.Immutable;
 
@@ -83,13 +80,19 @@ public class HashCacheFactory implements ServerCacheFactory {
 
     @Immutable
     private class HashCacheImpl implements HashCache {
-        private final Map<ImmutableBytesPtr,List<Tuple>> hashCache;
+        private final byte[] hashCacheBytes;
+        private final HashCacheTable hashCache;
+        // Tuples of the rows of each probed key, indexed by the first row of the key. They are
+        // materialized on the first probe of a key and shared by later probes, so the probe path
+        // allocates only for keys it has not seen before.
+        private final AtomicReferenceArray<List<Tuple>> probedRows;
         private final MemoryChunk memoryChunk;
         private final boolean singleValueOnly;
         private final int clientVersion;
         
         private HashCacheImpl(byte[] hashCacheBytes, MemoryChunk memoryChunk, int clientVersion) {
             try {
+                this.hashCacheBytes = hashCacheBytes;
                 this.memoryChunk = memoryChunk;
                 this.clientVersion = clientVersion;
                 byte[] hashCacheByteArray = hashCacheBytes;
@@ -114,38 +117,70 @@ public class HashCacheFactory implements ServerCacheFactory {
                 this.singleValueOnly = singleValueOnly;
                 offset += exprSize;
                 int nRows = dataInput.readInt();
-                long estimatedSize = SizedUtil.sizeOfMap(nRows, SizedUtil.IMMUTABLE_BYTES_WRITABLE_SIZE, SizedUtil.RESULT_SIZE) + hashCacheBytes.length;
-                this.memoryChunk.resize(estimatedSize);
-                HashMap<ImmutableBytesPtr,List<Tuple>> hashCacheMap = new HashMap<ImmutableBytesPtr,List<Tuple>>(nRows * 5 / 4);
+                this.memoryChunk.resize(HashCacheTable.estimateSize(nRows) + estimateProbedRowsSize(nRows) + hashCacheBytes.length);
+                HashCacheTable hashCacheTable = new HashCacheTable(nRows);
                 offset += Bytes.SIZEOF_INT;
-                // Build Map with evaluated hash key as key and row as value
+                // Index the rows in place by their evaluated hash key. The tuples built here
+                // are only needed to evaluate the key and are not retained.
+                ImmutableBytesWritable value = new ImmutableBytesWritable();
                 for (int i = 0; i < nRows; i++) {
                     int resultSize = (int)Bytes.readVLong(hashCacheByteArray, offset);
                     offset += WritableUtils.decodeVIntSize(hashCacheByteArray[offset]);
-                    ImmutableBytesWritable value = new ImmutableBytesWritable(hashCacheByteArray,offset,resultSize);
+                    value.set(hashCacheByteArray, offset, resultSize);
                     Tuple result = new ResultTuple(ResultUtil.toResult(value));
                     ImmutableBytesPtr key = TupleUtil.getConcatenatedValue(result, onExpressions);
-                    List<Tuple> tuples = hashCacheMap.get(key);
-                    if (tuples == null) {
-                        tuples = new LinkedList<Tuple>();
-                        hashCacheMap.put(key, tuples);
-                    }
-                    tuples.add(result);
+                    hashCacheTable.put(key, key.hashCode(), offset, resultSize);
                     offset += resultSize;
                 }
-                this.hashCache = Collections.unmodifiableMap(hashCacheMap);
+                // Account for the key arena now that all keys are known
+                this.memoryChunk.resize(hashCacheTable.getEstimatedSize() + estimateProbedRowsSize(nRows) + hashCacheBytes.length);
+                this.hashCache = hashCacheTable;
+                this.probedRows = new AtomicReferenceArray<List<Tuple>>(nRows);
             } catch (IOException e) { // Not possible with ByteArrayInputStream
                 throw new RuntimeException(e);
             }
         }
 
+        /**
+         * Only the slots are charged to the memory chunk. The tuples themselves, at most one per
+         * row of the cache, are not: they point into the cache bytes rather than copying them, and
+         * only exist for the keys that are actually probed.
+         */
+        private long estimateProbedRowsSize(int nRows) {
+            return SizedUtil.ARRAY_SIZE + (long)SizedUtil.POINTER_SIZE * nRows;
+        }
+
+        private List<Tuple> getRows(int firstRow) {
+            List<Tuple> tuples = probedRows.get(firstRow);
+            if (tuples == null) {
+                tuples = newRows(firstRow);
+                // Tuples are immutable, so losing a race only wastes the allocation
+                if (!probedRows.compareAndSet(firstRow, null, tuples)) {
+                    tuples = probedRows.get(firstRow);
+                }
+            }
+            return tuples;
+        }
+
+        private List<Tuple> newRows(int firstRow) {
+            List<Tuple> tuples = new ArrayList<Tuple>(1);
+            for (int row = firstRow; row != HashCacheTable.NO_ROW; row = hashCache.getNextRow(row)) {
+                ImmutableBytesWritable value = new ImmutableBytesWritable(hashCacheBytes,
+                        hashCache.getRowOffset(row), hashCache.getRowLength(row));
+                tuples.add(new ResultTuple(ResultUtil.toResult(value)));
+            }
+            return Collections.unmodifiableList(tuples);
+        }
+
         @Override
         public String toString() {
-            StringBuilder sb = new StringBuilder();
-            Set<ImmutableBytesPtr> keySet = hashCache.keySet();
-            for (ImmutableBytesPtr key : keySet) {
-                sb.append("key: " + key + " value: " + hashCache.get(key));
-            }
+            final StringBuilder sb = new StringBuilder();
+            hashCache.forEachKey(new HashCacheTable.KeyVisitor() {
+                @Override
+                public void visit(byte[] keyBuffer, int keyOffset, int keyLength, int firstRow) {
+                    sb.append("key: " + new ImmutableBytesPtr(keyBuffer, keyOffset, keyLength) + " value: " + getRows(firstRow));
+                }
+            });
             return sb.toString();
         }
 
@@ -156,13 +191,16 @@ public class HashCacheFactory implements ServerCacheFactory {
         
         @Override
         public List<Tuple> get(ImmutableBytesPtr hashKey) throws IOException {
-            List<Tuple> ret = hashCache.get(hashKey);
-            if (singleValueOnly && ret != null && ret.size() > 1) {
+            int firstRow = hashCache.getFirstRow(hashKey, hashKey.hashCode());
+            if (firstRow == HashCacheTable.NO_ROW) {
+                return null;
+            }
+            if (singleValueOnly && hashCache.getNextRow(firstRow) != HashCacheTable.NO_ROW) {
                 SQLException ex = new SQLExceptionInfo.Builder(SQLExceptionCode.SINGLE_ROW_SUBQUERY_RETURNS_MULTIPLE_ROWS).build().buildException();
                 ServerUtil.throwIOException(ex.getMessage(), ex);
             }
             
-            return ret;
+            return getRows(firstRow);
         }
 
         @Override
@@ -171,4 +209,3 @@ public class HashCacheFactory implements ServerCacheFactory {
         }
     }
 }
-
@@ -0,0 +1,212 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.join;
+
+import java.util.Arrays;
+
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.util.SizedUtil;
+
+/**
+ * Open addressing hash table used by the server side hash join cache. Rather than
+ * materializing a key object and a {@link org.apache.phoenix.schema.tuple.Tuple} per
+ * row, it only records the offset and length of each row inside the byte array the
+ * cache was deserialized from, while the join keys are copied into a single arena.
+ * All state lives in a handful of primitive arrays, so the footprint is a small,
+ * predictable multiple of the number of rows and no per row objects are retained.
+ * 
+ * Rows sharing a join key are chained in insertion order through {@link #getNextRow(int)}.
+ * The table is filled once with {@link #put(ImmutableBytesWritable, int, int, int)} and
+ * is read only afterwards, so it may be shared by concurrent scanners.
+ */
+final class HashCacheTable {
+    static final int NO_ROW = -1;
+
+    private static final int MIN_CAPACITY = 16;
+    private static final int MIN_ARENA_SIZE = 64;
+    // Keep the table at most 3/4 full so that probe sequences stay short
+    private static final int LOAD_FACTOR_NUMERATOR = 4;
+    private static final int LOAD_FACTOR_DENOMINATOR = 3;
+
+    private final int mask;
+    // Per slot state. A slot is free when its head row is NO_ROW.
+    private final int[] slotHeads;
+    private final int[] slotTails;
+    private final int[] slotHashes;
+    private final int[] slotKeyOffsets;
+    private final int[] slotKeyLengths;
+    // Per row state
+    private final int[] rowOffsets;
+    private final int[] rowLengths;
+    private final int[] nextRows;
+
+    private byte[] keyArena;
+    private int keyArenaSize;
+    private int rowCount;
+    private int keyCount;
+
+    HashCacheTable(int maxRows) {
+        int capacity = capacityFor(maxRows);
+        this.mask = capacity - 1;
+        this.slotHeads = new int[capacity];
+        Arrays.fill(slotHeads, NO_ROW);
+        this.slotTails = new int[capacity];
+        this.slotHashes = new int[capacity];
+        this.slotKeyOffsets = new int[capacity];
+        this.slotKeyLengths = new int[capacity];
+        this.rowOffsets = new int[maxRows];
+        this.rowLengths = new int[maxRows];
+        this.nextRows = new int[maxRows];
+        this.keyArena = new byte[MIN_ARENA_SIZE];
+    }
+
+    private static int capacityFor(int maxRows) {
+        long minCapacity = Math.max(MIN_CAPACITY, (long)maxRows * LOAD_FACTOR_NUMERATOR / LOAD_FACTOR_DENOMINATOR + 1);
+        if (minCapacity > (1 << 30)) {
+            throw new IllegalArgumentException("Too many rows for hash cache: " + maxRows);
+        }
+        return Integer.highestOneBit((int)minCapacity - 1) << 1;
+    }
+
+    /**
+     * Estimate of the memory used by a table for the given number of rows,
+     * excluding the key arena which grows as keys are added.
+     */
+    static long estimateSize(int maxRows) {
+        return SizedUtil.OBJECT_SIZE + 8L * SizedUtil.ARRAY_SIZE
+                + 5L * SizedUtil.INT_SIZE * capacityFor(maxRows)
+                + 3L * SizedUtil.INT_SIZE * maxRows;
+    }
+
+    /**
+     * @return the memory used by this table, including the key arena
+     */
+    long getEstimatedSize() {
+        return estimateSize(rowOffsets.length) + keyArena.length;
+    }
+
+    /**
+     * Add a row to the table.
+     * @param key the join key of the row. Its bytes are copied, so it may be reused by the caller.
+     * @param hash the hash code of the key, as computed by {@link ImmutableBytesWritable#hashCode()}
+     * @param rowOffset offset of the serialized row in the cache bytes
+     * @param rowLength length of the serialized row in the cache bytes
+     */
+    void put(ImmutableBytesWritable key, int hash, int rowOffset, int rowLength) {
+        if (rowCount == rowOffsets.length) {
+            throw new IllegalStateException("Hash cache table is full: " + rowCount + " rows");
+        }
+        int row = rowCount++;
+        rowOffsets[row] = rowOffset;
+        rowLengths[row] = rowLength;
+        nextRows[row] = NO_ROW;
+        int slot = findSlot(key.get(), key.getOffset(), key.getLength(), hash);
+        if (slotHeads[slot] == NO_ROW) {
+            slotHeads[slot] = row;
+            slotHashes[slot] = hash;
+            slotKeyOffsets[slot] = appendKey(key.get(), key.getOffset(), key.getLength());
+            slotKeyLengths[slot] = key.getLength();
+            keyCount++;
+        } else {
+            nextRows[slotTails[slot]] = row;
+        }
+        slotTails[slot] = row;
+    }
+
+    /**
+     * @return the first row with the given join key or {@link #NO_ROW} if there is none
+     */
+    int getFirstRow(ImmutableBytesWritable key, int hash) {
+        return slotHeads[findSlot(key.get(), key.getOffset(), key.getLength(), hash)];
+    }
+
+    /**
+     * @return the next row with the same join key as the given row or {@link #NO_ROW} if there is none
+     */
+    int getNextRow(int row) {
+        return nextRows[row];
+    }
+
+    int getRowOffset(int row) {
+        return rowOffsets[row];
+    }
+
+    int getRowLength(int row) {
+        return rowLengths[row];
+    }
+
+    int getRowCount() {
+        return rowCount;
+    }
+
+    int getKeyCount() {
+        return keyCount;
+    }
+
+    /**
+     * Visit every distinct key along with the first row having that key.
+     */
+    void forEachKey(KeyVisitor visitor) {
+        for (int slot = 0; slot <= mask; slot++) {
+            if (slotHeads[slot] != NO_ROW) {
+                visitor.visit(keyArena, slotKeyOffsets[slot], slotKeyLengths[slot], slotHeads[slot]);
+            }
+        }
+    }
+
+    interface KeyVisitor {
+        void visit(byte[] keyBuffer, int keyOffset, int keyLength, int firstRow);
+    }
+
+    /*
+     * Linear probing: returns either the slot holding the key or the free slot where it belongs.
+     * Since the table is never more than 3/4 full, a free slot is always found.
+     */
+    private int findSlot(byte[] key, int keyOffset, int keyLength, int hash) {
+        int slot = mix(hash) & mask;
+        while (slotHeads[slot] != NO_ROW) {
+            if (slotHashes[slot] == hash
+                    && Bytes.equals(keyArena, slotKeyOffsets[slot], slotKeyLengths[slot], key, keyOffset, keyLength)) {
+                break;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    // Spread the bits of the byte hash, which clusters badly in the low bits for short keys
+    private static int mix(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private int appendKey(byte[] key, int keyOffset, int keyLength) {
+        if (keyArenaSize + keyLength > keyArena.length) {
+            long newSize = Math.max((long)keyArena.length * 2, (long)keyArenaSize + keyLength);
+            if (newSize > Integer.MAX_VALUE - 8) {
+                throw new IllegalStateException("Hash cache join keys exceed " + (Integer.MAX_VALUE - 8) + " bytes");
+            }
+            keyArena = Arrays.copyOf(keyArena, (int)newSize);
+        }
+        int offset = keyArenaSize;
+        System.arraycopy(key, keyOffset, keyArena, offset, keyLength);
+        keyArenaSize += keyLength;
+        return offset;
+    }
+}
@@ -169,6 +169,10 @@ public class HashJoinInfo {
 
     }
 
+    public static boolean isHashJoin(Scan scan) {
+        return scan.getAttribute(HASH_JOIN) != null;
+    }
+
     @SuppressWarnings("unchecked")
     public static HashJoinInfo deserializeHashJoinFromScan(Scan scan) {
         byte[] join = scan.getAttribute(HASH_JOIN);
@@ -0,0 +1,198 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.join;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.hadoop.hbase.filter.CompareFilter.CompareOp;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.phoenix.expression.AndExpression;
+import org.apache.phoenix.expression.ComparisonExpression;
+import org.apache.phoenix.expression.Determinism;
+import org.apache.phoenix.expression.Expression;
+import org.apache.phoenix.expression.InListExpression;
+import org.apache.phoenix.expression.LiteralExpression;
+import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
+import org.apache.phoenix.schema.IllegalDataException;
+import org.apache.phoenix.schema.SortOrder;
+import org.apache.phoenix.schema.TypeMismatchException;
+import org.apache.phoenix.schema.tuple.Tuple;
+import org.apache.phoenix.schema.types.PBoolean;
+import org.apache.phoenix.schema.types.PDataType;
+import org.apache.phoenix.schema.types.PLong;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Summary of the join key values of the build side of a hash join, collected while the
+ * hash cache is serialized. It is turned into a filter on the probe side scan so that
+ * region servers drop rows that cannot find a match before they reach the join.
+ * 
+ * While the number of distinct keys stays at or below the configured limit, the filter is
+ * an IN list of the exact keys. Beyond that only the min and max key are tracked and the
+ * filter becomes a range check. Null keys never match an inner or semi join and are ignored.
+ * 
+ * The keys are collected in the type the join compares them in, which may differ from the type
+ * of the probe side join key. They are converted to the probe side type when the filter is
+ * built, so that the filter never rejects a row the join would have matched.
+ */
+public class HashJoinRuntimeFilter {
+    private final Expression rhsExpression;
+    private final int maxInListSize;
+    private final PDataType type;
+    private final SortOrder sortOrder;
+    private Set<ImmutableBytesPtr> distinctKeys;
+    private ImmutableBytesPtr minKey;
+    private ImmutableBytesPtr maxKey;
+
+    public HashJoinRuntimeFilter(Expression rhsExpression, int maxInListSize) {
+        this.rhsExpression = rhsExpression;
+        this.maxInListSize = maxInListSize;
+        this.type = rhsExpression.getDataType();
+        this.sortOrder = rhsExpression.getSortOrder();
+        this.distinctKeys = new LinkedHashSet<ImmutableBytesPtr>();
+    }
+
+    /**
+     * @return true if a filter can be built for values of the given expression
+     */
+    public static boolean isSupported(Expression rhsExpression) {
+        return rhsExpression.getDataType() != null && !rhsExpression.getDataType().isArrayType();
+    }
+
+    public void add(Tuple tuple, ImmutableBytesWritable ptr) {
+        rhsExpression.reset();
+        if (!rhsExpression.evaluate(tuple, ptr) || ptr.getLength() == 0) {
+            return;
+        }
+        if (distinctKeys != null) {
+            ImmutableBytesPtr key = new ImmutableBytesPtr(ptr.copyBytes());
+            if (distinctKeys.add(key) && distinctKeys.size() > maxInListSize) {
+                // Too many keys for an IN list, fall back to a range only
+                distinctKeys = null;
+            }
+        }
+        if (minKey == null || compare(ptr, minKey) < 0) {
+            minKey = new ImmutableBytesPtr(ptr.copyBytes());
+        }
+        if (maxKey == null || compare(ptr, maxKey) > 0) {
+            maxKey = new ImmutableBytesPtr(ptr.copyBytes());
+        }
+    }
+
+    private int compare(ImmutableBytesWritable ptr1, ImmutableBytesWritable ptr2) {
+        return type.compareTo(ptr1, sortOrder, ptr2, sortOrder, type);
+    }
+
+    /**
+     * @return the value converted to the probe side type, or null if it is out of its range or,
+     * for a decimal converted to an integral type, not a whole number
+     */
+    private Object toLhsValue(Object value, PDataType lhsType) {
+        if (lhsType == type) {
+            return value;
+        }
+        try {
+            return lhsType.toObject(value, type);
+        } catch (IllegalDataException | ArithmeticException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Build the filter to apply to the probe side.
+     * @param lhsExpression the probe side join key, compiled against the scanned table
+     * @param ptr temporary pointer
+     * @return a boolean expression that is true for every probe side row that may have a match,
+     * or null if the build side keys do not restrict the probe side
+     * @throws TypeMismatchException if the build side keys cannot be converted to the type of the
+     * probe side join key
+     */
+    public Expression newFilter(Expression lhsExpression, ImmutableBytesWritable ptr,
+            boolean rowKeyOrderOptimizable) throws SQLException {
+        if (minKey == null) {
+            return LiteralExpression.newConstant(false, PBoolean.INSTANCE, Determinism.ALWAYS);
+        }
+        PDataType lhsType = lhsExpression.getDataType();
+        if (lhsType == null || !type.isCastableTo(lhsType)) {
+            throw TypeMismatchException.newException(type, lhsType, toString());
+        }
+        if (distinctKeys != null) {
+            List<Expression> children = Lists.newArrayListWithExpectedSize(distinctKeys.size() + 1);
+            children.add(lhsExpression);
+            for (ImmutableBytesPtr key : distinctKeys) {
+                Object value = type.toObject(key, sortOrder);
+                Object lhsValue = toLhsValue(value, lhsType);
+                // A key without an exact counterpart in the probe side type cannot match any row
+                if (lhsValue != null && type.compareTo(value, lhsValue, lhsType) == 0) {
+                    children.add(LiteralExpression.newConstant(lhsValue, lhsType));
+                }
+            }
+            if (children.size() == 1) {
+                return LiteralExpression.newConstant(false, PBoolean.INSTANCE, Determinism.ALWAYS);
+            }
+            return InListExpression.create(children, false, ptr, rowKeyOrderOptimizable);
+        }
+        List<Expression> bounds = Lists.newArrayListWithExpectedSize(2);
+        Expression lowerBound = newBound(lhsExpression, lhsType, minKey, true, ptr, rowKeyOrderOptimizable);
+        if (lowerBound != null) {
+            bounds.add(lowerBound);
+        }
+        Expression upperBound = newBound(lhsExpression, lhsType, maxKey, false, ptr, rowKeyOrderOptimizable);
+        if (upperBound != null) {
+            bounds.add(upperBound);
+        }
+        return bounds.isEmpty() ? null : AndExpression.create(bounds);
+    }
+
+    /**
+     * Build an inclusive bound on the probe side key from the min or max build side key. When
+     * the key is rounded while converted to the probe side type, the bound becomes exclusive if
+     * it was rounded past the key, so that it still admits exactly the values on the key's side.
+     * @return the bound, or null if the key is out of the range of the probe side type
+     */
+    private Expression newBound(Expression lhsExpression, PDataType lhsType, ImmutableBytesPtr key,
+            boolean isLower, ImmutableBytesWritable ptr, boolean rowKeyOrderOptimizable) throws SQLException {
+        Object value = type.toObject(key, sortOrder);
+        Object boundValue = value;
+        if (value instanceof BigDecimal && lhsType.isCoercibleTo(PLong.INSTANCE)) {
+            // Round towards the inside of the range, as an integral type cannot hold the fraction
+            boundValue = ((BigDecimal)value).setScale(0, isLower ? RoundingMode.CEILING : RoundingMode.FLOOR);
+        }
+        Object lhsValue = toLhsValue(boundValue, lhsType);
+        if (lhsValue == null) {
+            return null;
+        }
+        int cmp = type.compareTo(value, lhsValue, lhsType);
+        CompareOp op = isLower ? (cmp > 0 ? CompareOp.GREATER : CompareOp.GREATER_OR_EQUAL)
+                : (cmp < 0 ? CompareOp.LESS : CompareOp.LESS_OR_EQUAL);
+        return ComparisonExpression.create(op, Arrays.<Expression> asList(lhsExpression,
+                LiteralExpression.newConstant(lhsValue, lhsType)), ptr, rowKeyOrderOptimizable);
+    }
+
+    @Override
+    public String toString() {
+        return distinctKeys != null ? "IN (" + distinctKeys.size() + " keys)" : "RANGE [" + minKey + ", " + maxKey + "]";
+    }
+}
@@ -0,0 +1,334 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.mapreduce.index;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.compile.MutationPlan;
+import org.apache.phoenix.compile.QueryPlan;
+import org.apache.phoenix.compile.ServerBuildIndexCompiler;
+import org.apache.phoenix.compile.StatementContext;
+import org.apache.phoenix.coprocessor.BaseScannerRegionObserver;
+import org.apache.phoenix.coprocessor.tasks.IndexRebuildTask;
+import org.apache.phoenix.iterate.MapReduceParallelScanGrouper;
+import org.apache.phoenix.iterate.TableResultIterator;
+import org.apache.phoenix.jdbc.PhoenixConnection;
+import org.apache.phoenix.mapreduce.util.ConnectionUtil;
+import org.apache.phoenix.monitoring.ScanMetricsHolder;
+import org.apache.phoenix.query.KeyRange;
+import org.apache.phoenix.schema.PIndexState;
+import org.apache.phoenix.schema.PTable;
+import org.apache.phoenix.schema.SortOrder;
+import org.apache.phoenix.schema.task.Task;
+import org.apache.phoenix.schema.tuple.Tuple;
+import org.apache.phoenix.schema.types.PLong;
+import org.apache.phoenix.util.EnvironmentEdgeManager;
+import org.apache.phoenix.util.PhoenixRuntime;
+import org.apache.phoenix.util.SchemaUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+
+/**
+ * Builds a local or non-transactional global index from the calling process, without a MapReduce job. As with
+ * {@link PhoenixServerBuildIndexMapper}, the region servers build the index rows from the data table regions;
+ * this class only runs the scans compiled by {@link ServerBuildIndexCompiler}, a bounded number of them at a
+ * time. The key ranges already built are checkpointed in SYSTEM.TASK, so that a failed or killed build resumes
+ * where it stopped, as of the same timestamp. Checkpoints are stored as INDEX_REBUILD tasks marked with
+ * {@link #CHECKPOINT} in their data, which servers of any version can read, and are deleted once the build
+ * completes or is restarted from scratch.
+ */
+public class IndexBuildCoordinator {
+    private static final Logger LOGGER = LoggerFactory.getLogger(IndexBuildCoordinator.class);
+
+    /** Max number of data table key ranges, regions or their guideposts, whose index rows are built at the same time */
+    public static final String PARALLELISM_CONF_KEY = "phoenix.index.tool.inprocess.parallelism";
+    public static final int DEFAULT_PARALLELISM = 8;
+
+    public static final String CHECKPOINT = "InProcessBuildCheckpoint";
+    public static final String BUILD_TIMESTAMP = "BuildTimestamp";
+    public static final String COMPLETED_RANGES = "CompletedRanges";
+
+    private final Configuration configuration;
+    private final Connection connection;
+    private final String schemaName;
+    private final String dataTable;
+    private final String indexTable;
+    private final String tenantId;
+    private final int parallelism;
+
+    private PhoenixConnection taskConnection;
+    private Timestamp taskTimestamp;
+    private long buildTimestamp;
+    private List<KeyRange> completedRanges = new ArrayList<>();
+
+    /**
+     * @param configuration the configuration of the tool
+     * @param connection the connection of the tool, used to activate the index once built
+     */
+    public IndexBuildCoordinator(Configuration configuration, Connection connection, String schemaName,
+            String dataTable, String indexTable, String tenantId) {
+        this.configuration = configuration;
+        this.connection = connection;
+        this.schemaName = schemaName;
+        this.dataTable = dataTable;
+        this.indexTable = indexTable;
+        this.tenantId = tenantId;
+        this.parallelism = configuration.getInt(PARALLELISM_CONF_KEY, DEFAULT_PARALLELISM);
+    }
+
+    /**
+     * Builds the index and marks it active.
+     * @param buildTimestamp the timestamp to build the index as of, unless an earlier build is resumed
+     * @param resume whether to resume an earlier build of the index that did not complete
+     * @return the number of data table rows scanned to build the index rows
+     */
+    public long build(long buildTimestamp, boolean resume) throws SQLException, IOException, InterruptedException {
+        // SYSTEM.TASK is not tenant specific
+        Configuration globalConfiguration = new Configuration(configuration);
+        globalConfiguration.unset(PhoenixRuntime.TENANT_ID_ATTRIB);
+        try (Connection conn = ConnectionUtil.getInputConnection(globalConfiguration)) {
+            taskConnection = conn.unwrap(PhoenixConnection.class);
+            Task.TaskRecord checkpoint = null;
+            for (Task.TaskRecord taskRecord : getCheckpoints()) {
+                if (resume && checkpoint == null) {
+                    checkpoint = taskRecord;
+                } else {
+                    // Left behind by a build that was abandoned, or restarted from scratch
+                    deleteCheckpoint(taskRecord.getTimeStamp());
+                }
+            }
+            if (checkpoint != null) {
+                taskTimestamp = checkpoint.getTimeStamp();
+                JsonObject data = new JsonParser().parse(checkpoint.getData()).getAsJsonObject();
+                this.buildTimestamp = data.get(BUILD_TIMESTAMP).getAsLong();
+                for (JsonElement range : data.getAsJsonArray(COMPLETED_RANGES)) {
+                    completedRanges.add(KeyRange.getKeyRange(
+                            Bytes.toBytesBinary(range.getAsJsonArray().get(0).getAsString()),
+                            Bytes.toBytesBinary(range.getAsJsonArray().get(1).getAsString())));
+                }
+                LOGGER.info("Resuming the build of index " + indexTable + " as of " + this.buildTimestamp
+                        + " with " + completedRanges.size() + " key ranges already built");
+            } else {
+                taskTimestamp = new Timestamp(EnvironmentEdgeManager.currentTimeMillis());
+                this.buildTimestamp = buildTimestamp;
+                checkpoint(null);
+            }
+            long rowCount = buildRanges();
+            IndexToolUtil.updateIndexState(connection, SchemaUtil.getQualifiedTableName(schemaName, dataTable),
+                    indexTable, PIndexState.ACTIVE);
+            deleteCheckpoint(taskTimestamp);
+            return rowCount;
+        } finally {
+            taskConnection = null;
+        }
+    }
+
+    /**
+     * @return whether the task record is the checkpoint of an in process build rather than a task to execute
+     */
+    public static boolean isCheckpoint(Task.TaskRecord taskRecord) {
+        if (taskRecord.getTaskType() != PTable.TaskType.INDEX_REBUILD || taskRecord.getData() == null
+                || !taskRecord.getData().contains(CHECKPOINT)) {
+            return false;
+        }
+        JsonElement data = new JsonParser().parse(taskRecord.getData());
+        return data.isJsonObject() && data.getAsJsonObject().has(CHECKPOINT);
+    }
+
+    /**
+     * @return the checkpoints of earlier builds of the index that did not complete, the latest first
+     */
+    private List<Task.TaskRecord> getCheckpoints() throws SQLException {
+        List<Task.TaskRecord> checkpoints = new ArrayList<>();
+        for (Task.TaskRecord taskRecord : Task.queryTaskTable(taskConnection, schemaName, dataTable,
+                PTable.TaskType.INDEX_REBUILD, tenantId, indexTable)) {
+            if (isCheckpoint(taskRecord)
+                    && PTable.TaskStatus.STARTED.toString().equals(taskRecord.getStatus())) {
+                JsonObject data = new JsonParser().parse(taskRecord.getData()).getAsJsonObject();
+                if (indexTable.equals(data.get(IndexRebuildTask.INDEX_NAME).getAsString())) {
+                    checkpoints.add(taskRecord);
+                }
+            }
+        }
+        Collections.sort(checkpoints, new Comparator<Task.TaskRecord>() {
+            @Override
+            public int compare(Task.TaskRecord o1, Task.TaskRecord o2) {
+                return o2.getTimeStamp().compareTo(o1.getTimeStamp());
+            }
+        });
+        return checkpoints;
+    }
+
+    private void deleteCheckpoint(Timestamp timestamp) throws IOException {
+        Task.deleteTask(taskConnection, PTable.TaskType.INDEX_REBUILD, timestamp, tenantId, schemaName, dataTable,
+                false);
+    }
+
+    private String getCheckpointData() {
+        JsonObject data = new JsonObject();
+        data.addProperty(CHECKPOINT, true);
+        data.addProperty(IndexRebuildTask.INDEX_NAME, indexTable);
+        data.addProperty(BUILD_TIMESTAMP, buildTimestamp);
+        JsonArray ranges = new JsonArray();
+        for (KeyRange completedRange : completedRanges) {
+            JsonArray range = new JsonArray();
+            range.add(new JsonPrimitive(Bytes.toStringBinary(completedRange.getLowerRange())));
+            range.add(new JsonPrimitive(Bytes.toStringBinary(completedRange.getUpperRange())));
+            ranges.add(range);
+        }
+        data.add(COMPLETED_RANGES, ranges);
+        return data.toString();
+    }
+
+    /**
+     * Records the given key range as built, or only the start of the build if it is null.
+     */
+    private synchronized void checkpoint(KeyRange range) throws IOException {
+        if (range != null) {
+            completedRanges.add(range);
+            completedRanges = KeyRange.coalesce(completedRanges);
+        }
+        Task.addTask(taskConnection, PTable.TaskType.INDEX_REBUILD, tenantId, schemaName, dataTable,
+                PTable.TaskStatus.STARTED.toString(), getCheckpointData(), null, taskTimestamp, null, false);
+    }
+
+    private synchronized boolean isCompleted(KeyRange range) {
+        for (KeyRange completedRange : completedRanges) {
+            if (completedRange.intersect(range).equals(range)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private long buildRanges() throws SQLException, IOException, InterruptedException {
+        final Properties props = new Properties();
+        props.setProperty(PhoenixRuntime.CURRENT_SCN_ATTRIB, Long.toString(buildTimestamp));
+        props.setProperty(PhoenixRuntime.BUILD_INDEX_AT_ATTRIB, Long.toString(buildTimestamp));
+        try (Connection conn = ConnectionUtil.getInputConnection(configuration, props)) {
+            PhoenixConnection phoenixConnection = conn.unwrap(PhoenixConnection.class);
+            String qDataTable = SchemaUtil.getQualifiedTableName(schemaName, dataTable);
+            String qIndexTable = SchemaUtil.getQualifiedTableName(schemaName, indexTable);
+            PTable pIndexTable = PhoenixRuntime.getTableNoCache(phoenixConnection, qIndexTable);
+            MutationPlan plan = new ServerBuildIndexCompiler(phoenixConnection, qDataTable).compile(pIndexTable);
+            plan.getContext().getScan().setTimeRange(0, buildTimestamp);
+            final QueryPlan queryPlan = plan.getQueryPlan();
+            // Initialize the query plan so it sets up the parallel scans
+            queryPlan.iterator(MapReduceParallelScanGrouper.getInstance()).close();
+
+            ExecutorService executor = Executors.newFixedThreadPool(parallelism,
+                    new ThreadFactoryBuilder().setDaemon(true).setNameFormat("index-build-" + indexTable + "-%d")
+                            .build());
+            try {
+                List<Future<Long>> futures = new ArrayList<>();
+                int scanCount = 0;
+                // The scans of a region may be grouped with those of the next regions, so each scan is built and
+                // checkpointed on its own
+                for (List<Scan> scans : queryPlan.getScans()) {
+                    for (final Scan scan : scans) {
+                        scanCount++;
+                        final KeyRange range = KeyRange.getKeyRange(scan.getStartRow(), scan.getStopRow());
+                        if (isCompleted(range)) {
+                            continue;
+                        }
+                        futures.add(executor.submit(new Callable<Long>() {
+                            @Override
+                            public Long call() throws Exception {
+                                long rowCount = buildRange(queryPlan, scan);
+                                checkpoint(range);
+                                return rowCount;
+                            }
+                        }));
+                    }
+                }
+                LOGGER.info("Building index " + indexTable + " from " + futures.size() + " of " + scanCount
+                        + " data table key ranges, " + parallelism + " at a time");
+                long rowCount = 0;
+                for (Future<Long> future : futures) {
+                    rowCount += future.get();
+                }
+                return rowCount;
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof SQLException) {
+                    throw (SQLException) cause;
+                }
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                throw new IOException(cause);
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Runs a scan of the data table, returning the number of rows the region servers built index rows from.
+     */
+    private long buildRange(QueryPlan queryPlan, Scan scan) throws SQLException {
+        StatementContext context = queryPlan.getContext();
+        PhoenixConnection phoenixConnection = context.getConnection();
+        String tableName = queryPlan.getTableRef().getTable().getPhysicalName().getString();
+        long renewScannerLeaseThreshold = phoenixConnection.getQueryServices().getRenewLeaseThresholdMilliSeconds();
+        // Skip the region boundary check exception if we encounter a split, as for MapReduce
+        scan.setAttribute(BaseScannerRegionObserver.SKIP_REGION_BOUNDARY_CHECK, Bytes.toBytes(true));
+        ScanMetricsHolder scanMetricsHolder = ScanMetricsHolder.getInstance(context.getReadMetricsQueue(),
+                tableName, scan, phoenixConnection.getLogLevel());
+        TableResultIterator iterator = new TableResultIterator(phoenixConnection.getMutationState(), scan,
+                scanMetricsHolder, renewScannerLeaseThreshold, queryPlan, MapReduceParallelScanGrouper.getInstance());
+        long rowCount = 0;
+        try {
+            for (Tuple tuple = iterator.next(); tuple != null; tuple = iterator.next()) {
+                // A single Cell will be returned with the count(*) - we decode that here
+                Cell kv = tuple.getValue(0);
+                ImmutableBytesWritable ptr = new ImmutableBytesWritable(kv.getValueArray(),
+                        kv.getValueOffset(), kv.getValueLength());
+                rowCount += PLong.INSTANCE.getCodec().decodeLong(ptr, SortOrder.getDefault());
+            }
+        } finally {
+            iterator.close();
+        }
+        return rowCount;
+    }
+}
@@ -171,6 +171,15 @@ public class IndexTool extends Configured implements Tool {
                     false,
                     "Applicable on top of -direct option."
                             + "If specified, runs index build in Foreground. Default - Runs the build in background.");
+    private static final Option IN_PROCESS_OPTION =
+            new Option(
+                    "inproc",
+                    "in-process",
+                    false,
+                    "Applicable on top of -direct option, for local and non-transactional global indexes. "
+                            + "If specified, builds the index from this process without a MapReduce job, driving "
+                            + "the region servers to build the index from the data table regions in parallel. "
+                            + "Resumes the earlier build of the index if it did not complete");
     private static final Option OUTPUT_PATH_OPTION = new Option("op", "output-path", true,
             "Output path where the files are written");
     private static final Option SNAPSHOT_OPTION = new Option("snap", "snapshot", false,
@@ -193,6 +202,7 @@ public class IndexTool extends Configured implements Tool {
         options.addOption(PARTIAL_REBUILD_OPTION);
         options.addOption(DIRECT_API_OPTION);
         options.addOption(RUN_FOREGROUND_OPTION);
+        options.addOption(IN_PROCESS_OPTION);
         options.addOption(OUTPUT_PATH_OPTION);
         options.addOption(SNAPSHOT_OPTION);
         options.addOption(TENANT_ID_OPTION);
@@ -252,6 +262,16 @@ public class IndexTool extends Configured implements Tool {
             throw new IllegalStateException(RUN_FOREGROUND_OPTION.getLongOpt()
                     + " is applicable only for " + DIRECT_API_OPTION.getLongOpt());
         }
+        if (cmdLine.hasOption(IN_PROCESS_OPTION.getOpt())) {
+            if (!cmdLine.hasOption(DIRECT_API_OPTION.getOpt()) || !cmdLine.hasOption(INDEX_TABLE_OPTION.getOpt())) {
+                throw new IllegalStateException(IN_PROCESS_OPTION.getLongOpt() + " is applicable only for "
+                        + DIRECT_API_OPTION.getLongOpt() + " with an " + INDEX_TABLE_OPTION.getLongOpt());
+            }
+            if (cmdLine.hasOption(PARTIAL_REBUILD_OPTION.getOpt()) || cmdLine.hasOption(SNAPSHOT_OPTION.getOpt())) {
+                throw new IllegalStateException(IN_PROCESS_OPTION.getLongOpt() + " is not compatible with "
+                        + PARTIAL_REBUILD_OPTION.getLongOpt() + " or " + SNAPSHOT_OPTION.getLongOpt());
+            }
+        }
         boolean splitIndex = cmdLine.hasOption(AUTO_SPLIT_INDEX_OPTION.getOpt()) || cmdLine.hasOption(SPLIT_INDEX_OPTION.getOpt());
         if (splitIndex && !cmdLine.hasOption(INDEX_TABLE_OPTION.getOpt())) {
             throw new IllegalStateException("Must pass an index name for the split index option");
@@ -668,6 +688,17 @@ public class IndexTool extends Configured implements Tool {
                     LOGGER.info(String.format("Will split index %s , autosplit=%s , autoSplitNumRegions=%s , samplingRate=%s", indexTable, autosplit, autosplitNumRegions, samplingRate));
                     splitIndexTable(connection.unwrap(PhoenixConnection.class), autosplit, autosplitNumRegions, samplingRate, configuration);
                 }
+            }
+            if (cmdLine.hasOption(IN_PROCESS_OPTION.getOpt())) {
+                if (!isLocalIndexBuild && pDataTable.isTransactional()) {
+                    throw new IllegalArgumentException(IN_PROCESS_OPTION.getLongOpt()
+                            + " does not support global indexes on transactional tables");
+                }
+                LOGGER.info("Running Index Build in process. Waits for the build to complete. This may take a long time!.");
+                long rowCount = new IndexBuildCoordinator(configuration, connection, schemaName, dataTable,
+                        indexTable, tenantId).build(pIndexTable.getTimeStamp() + 1, !shouldDeleteBeforeRebuild);
+                LOGGER.info("Built index " + indexTable + " from " + rowCount + " data table rows");
+                return 0;
             }
 			Path outputPath = null;
 			FileSystem fs = null;
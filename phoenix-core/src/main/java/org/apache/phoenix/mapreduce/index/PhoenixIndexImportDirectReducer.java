@@ -78,8 +78,12 @@ public class PhoenixIndexImportDirectReducer extends
                     PTable.TaskType.INDEX_REBUILD, tenantId, indexName);
             if (taskRecords != null && taskRecords.size() > 0) {
                 for (Task.TaskRecord taskRecord : taskRecords) {
+                    if (IndexBuildCoordinator.isCheckpoint(taskRecord)) {
+                        // The progress of an in process build of the index, not a rebuild request
+                        continue;
+                    }
                     TaskRegionObserver.SelfHealingTask.setEndTaskStatus(
-                            connection.unwrap(PhoenixConnection.class), taskRecords.get(0),
+                            connection.unwrap(PhoenixConnection.class), taskRecord,
                             PTable.TaskStatus.COMPLETED.toString());
                 }
             }
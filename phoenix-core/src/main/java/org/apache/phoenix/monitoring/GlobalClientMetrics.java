@@ -17,16 +17,21 @@
  */
 package org.apache.phoenix.monitoring;
 
+import static org.apache.phoenix.monitoring.MetricType.HASH_JOIN_SORT_MERGE_FALLBACK_COUNTER;
 import static org.apache.phoenix.monitoring.MetricType.HCONNECTIONS_COUNTER;
+import static org.apache.phoenix.monitoring.MetricType.INTERACTIVE_TASK_QUEUE_WAIT_TIME;
 import static org.apache.phoenix.monitoring.MetricType.MEMORY_CHUNK_BYTES;
 import static org.apache.phoenix.monitoring.MetricType.MEMORY_WAIT_TIME;
+import static org.apache.phoenix.monitoring.MetricType.MULTI_GET_BATCH_COUNTER;
 import static org.apache.phoenix.monitoring.MetricType.MUTATION_BATCH_FAILED_SIZE;
 import static org.apache.phoenix.monitoring.MetricType.MUTATION_BATCH_SIZE;
 import static org.apache.phoenix.monitoring.MetricType.MUTATION_BYTES;
 import static org.apache.phoenix.monitoring.MetricType.MUTATION_COMMIT_TIME;
 import static org.apache.phoenix.monitoring.MetricType.MUTATION_SQL_COUNTER;
 import static org.apache.phoenix.monitoring.MetricType.NUM_PARALLEL_SCANS;
+import static org.apache.phoenix.monitoring.MetricType.OFFSET_CHUNK_SKIPPED_COUNTER;
 import static org.apache.phoenix.monitoring.MetricType.OPEN_PHOENIX_CONNECTIONS_COUNTER;
+import static org.apache.phoenix.monitoring.MetricType.POINT_LOOKUP_GET_COUNTER;
 import static org.apache.phoenix.monitoring.MetricType.QUERY_FAILED_COUNTER;
 import static org.apache.phoenix.monitoring.MetricType.QUERY_SERVICES_COUNTER;
 import static org.apache.phoenix.monitoring.MetricType.QUERY_TIME;
@@ -42,6 +47,7 @@ import static org.apache.phoenix.monitoring.MetricType.TASK_QUEUE_WAIT_TIME;
 import static org.apache.phoenix.monitoring.MetricType.PHOENIX_CONNECTIONS_THROTTLED_COUNTER;
 import static org.apache.phoenix.monitoring.MetricType.PHOENIX_CONNECTIONS_ATTEMPTED_COUNTER;
 import static org.apache.phoenix.monitoring.MetricType.TASK_REJECTED_COUNTER;
+import static org.apache.phoenix.monitoring.MetricType.TASK_THROTTLED_COUNTER;
 
 import static org.apache.phoenix.monitoring.MetricType.COUNT_RPC_CALLS;
 import static org.apache.phoenix.monitoring.MetricType.COUNT_REMOTE_RPC_CALLS;
@@ -93,8 +99,14 @@ public enum GlobalClientMetrics {
     GLOBAL_SELECT_SQL_COUNTER(SELECT_SQL_COUNTER),
     GLOBAL_TASK_EXECUTED_COUNTER(TASK_EXECUTED_COUNTER),
     GLOBAL_REJECTED_TASK_COUNTER(TASK_REJECTED_COUNTER),
+    GLOBAL_INTERACTIVE_TASK_QUEUE_WAIT_TIME(INTERACTIVE_TASK_QUEUE_WAIT_TIME),
+    GLOBAL_THROTTLED_TASK_COUNTER(TASK_THROTTLED_COUNTER),
     GLOBAL_QUERY_TIMEOUT_COUNTER(QUERY_TIMEOUT_COUNTER),
     GLOBAL_FAILED_QUERY_COUNTER(QUERY_FAILED_COUNTER),
+    GLOBAL_HASH_JOIN_SORT_MERGE_FALLBACK_COUNTER(HASH_JOIN_SORT_MERGE_FALLBACK_COUNTER),
+    GLOBAL_POINT_LOOKUP_GET_COUNTER(POINT_LOOKUP_GET_COUNTER),
+    GLOBAL_MULTI_GET_BATCH_COUNTER(MULTI_GET_BATCH_COUNTER),
+    GLOBAL_OFFSET_CHUNK_SKIPPED_COUNTER(OFFSET_CHUNK_SKIPPED_COUNTER),
     GLOBAL_SPOOL_FILE_COUNTER(SPOOL_FILE_COUNTER),
     GLOBAL_OPEN_PHOENIX_CONNECTIONS(OPEN_PHOENIX_CONNECTIONS_COUNTER),
     GLOBAL_QUERY_SERVICES_COUNTER(QUERY_SERVICES_COUNTER),
@@ -47,6 +47,8 @@ public enum MetricType {
     TASK_EXECUTION_TIME("tx", "Time in milliseconds tasks took to execute",LogLevel.DEBUG, PLong.INSTANCE),
     TASK_EXECUTED_COUNTER("te", "Counter for number of tasks submitted to the thread pool executor",LogLevel.DEBUG, PLong.INSTANCE),
     TASK_REJECTED_COUNTER("tr", "Counter for number of tasks that were rejected by the thread pool executor",LogLevel.DEBUG, PLong.INSTANCE),
+    INTERACTIVE_TASK_QUEUE_WAIT_TIME("tiw", "Time in milliseconds tasks of interactive queries such as point lookups had to wait in the queue of the thread pool executor",LogLevel.OFF, PLong.INSTANCE),
+    TASK_THROTTLED_COUNTER("tt", "Counter for number of tasks queued while their scheduling group was running as many tasks as allowed",LogLevel.OFF, PLong.INSTANCE),
     // spool metrics
     SPOOL_FILE_SIZE("ss", "Size of spool files created in bytes",LogLevel.DEBUG, PLong.INSTANCE),
     SPOOL_FILE_COUNTER("sn", "Number of spool files created",LogLevel.DEBUG, PLong.INSTANCE),
@@ -54,8 +56,13 @@ public enum MetricType {
     MEMORY_CHUNK_BYTES("mc", "Number of bytes allocated by the memory manager",LogLevel.DEBUG, PLong.INSTANCE),
     MEMORY_WAIT_TIME("mw", "Number of milliseconds threads needed to wait for memory to be allocated through memory manager",LogLevel.DEBUG, PLong.INSTANCE),
     CACHE_REFRESH_SPLITS_COUNTER("cr", "Number of times cache was refreshed because of splits",LogLevel.DEBUG, PLong.INSTANCE),
+    HASH_JOIN_SORT_MERGE_FALLBACK_COUNTER("hjf", "Number of hash join queries retried as sort merge join because the hash cache was too big",LogLevel.OFF, PLong.INSTANCE),
+    POINT_LOOKUP_GET_COUNTER("pg", "Number of point lookup queries executed with gets on the calling thread instead of scans",LogLevel.OFF, PLong.INSTANCE),
+    MULTI_GET_BATCH_COUNTER("mgb", "Number of batches of gets sent for point lookup queries executed with multi-gets instead of a skip scan",LogLevel.OFF, PLong.INSTANCE),
+    OFFSET_CHUNK_SKIPPED_COUNTER("ocs", "Number of scan chunks of OFFSET queries skipped as their rows counted in parallel were all within the offset",LogLevel.OFF, PLong.INSTANCE),
     WALL_CLOCK_TIME_MS("tq", "Wall clock time elapsed for the overall query execution",LogLevel.INFO, PLong.INSTANCE),
     RESULT_SET_TIME_MS("tn", "Wall clock time elapsed for reading all records using resultSet.next()",LogLevel.INFO, PLong.INSTANCE),
+    RESULT_SET_PREFETCH_STALL_TIME_MS("tps", "Wall clock time resultSet.next() waited for records that were not prefetched yet",LogLevel.OFF, PLong.INSTANCE),
     OPEN_PHOENIX_CONNECTIONS_COUNTER("o", "Number of open phoenix connections",LogLevel.OFF, PLong.INSTANCE),
     QUERY_SERVICES_COUNTER("cqs", "Number of ConnectionQueryServicesImpl instantiated",LogLevel.OFF, PLong.INSTANCE),
     HCONNECTIONS_COUNTER("h", "Number of HConnections created by phoenix driver",LogLevel.OFF, PLong.INSTANCE),
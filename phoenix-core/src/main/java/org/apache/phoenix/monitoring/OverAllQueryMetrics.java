@@ -21,6 +21,7 @@ import static org.apache.phoenix.monitoring.MetricType.CACHE_REFRESH_SPLITS_COUN
 import static org.apache.phoenix.monitoring.MetricType.NUM_PARALLEL_SCANS;
 import static org.apache.phoenix.monitoring.MetricType.QUERY_FAILED_COUNTER;
 import static org.apache.phoenix.monitoring.MetricType.QUERY_TIMEOUT_COUNTER;
+import static org.apache.phoenix.monitoring.MetricType.RESULT_SET_PREFETCH_STALL_TIME_MS;
 import static org.apache.phoenix.monitoring.MetricType.RESULT_SET_TIME_MS;
 import static org.apache.phoenix.monitoring.MetricType.WALL_CLOCK_TIME_MS;
 
@@ -38,6 +39,7 @@ public class OverAllQueryMetrics {
     private final CombinableMetric numParallelScans;
     private final CombinableMetric wallClockTimeMS;
     private final CombinableMetric resultSetTimeMS;
+    private final CombinableMetric prefetchStallTimeMS;
     private final CombinableMetric queryTimedOut;
     private final CombinableMetric queryFailed;
     private final CombinableMetric cacheRefreshedDueToSplits;
@@ -48,6 +50,7 @@ public class OverAllQueryMetrics {
         numParallelScans = MetricUtil.getCombinableMetric(isRequestMetricsEnabled,connectionLogLevel, NUM_PARALLEL_SCANS);
         wallClockTimeMS = MetricUtil.getCombinableMetric(isRequestMetricsEnabled,connectionLogLevel, WALL_CLOCK_TIME_MS);
         resultSetTimeMS = MetricUtil.getCombinableMetric(isRequestMetricsEnabled,connectionLogLevel, RESULT_SET_TIME_MS);
+        prefetchStallTimeMS = MetricUtil.getCombinableMetric(isRequestMetricsEnabled,connectionLogLevel, RESULT_SET_PREFETCH_STALL_TIME_MS);
         queryTimedOut = MetricUtil.getCombinableMetric(isRequestMetricsEnabled,connectionLogLevel, QUERY_TIMEOUT_COUNTER);
         queryFailed = MetricUtil.getCombinableMetric(isRequestMetricsEnabled,connectionLogLevel, QUERY_FAILED_COUNTER);
         cacheRefreshedDueToSplits = MetricUtil.getCombinableMetric(isRequestMetricsEnabled,connectionLogLevel, CACHE_REFRESH_SPLITS_COUNTER);
@@ -87,11 +90,16 @@ public class OverAllQueryMetrics {
         resultSetTimeMS.change(resultSetWatch.getElapsedTimeInMs());
     }
 
+    public void updatePrefetchStallTime(long stallTimeMS) {
+        prefetchStallTimeMS.change(stallTimeMS);
+    }
+
     public Map<MetricType, Long> publish() {
         Map<MetricType, Long> metricsForPublish = new HashMap<>();
         metricsForPublish.put(numParallelScans.getMetricType(), numParallelScans.getValue());
         metricsForPublish.put(wallClockTimeMS.getMetricType(), wallClockTimeMS.getValue());
         metricsForPublish.put(resultSetTimeMS.getMetricType(), resultSetTimeMS.getValue());
+        metricsForPublish.put(prefetchStallTimeMS.getMetricType(), prefetchStallTimeMS.getValue());
         metricsForPublish.put(queryTimedOut.getMetricType(), queryTimedOut.getValue());
         metricsForPublish.put(queryFailed.getMetricType(), queryFailed.getValue());
         metricsForPublish.put(cacheRefreshedDueToSplits.getMetricType(), cacheRefreshedDueToSplits.getValue());
@@ -102,6 +110,7 @@ public class OverAllQueryMetrics {
         numParallelScans.reset();
         wallClockTimeMS.reset();
         resultSetTimeMS.reset();
+        prefetchStallTimeMS.reset();
         queryTimedOut.reset();
         queryFailed.reset();
         cacheRefreshedDueToSplits.reset();
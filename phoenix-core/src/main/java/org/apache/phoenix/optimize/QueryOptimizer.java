@@ -34,10 +34,12 @@ import org.apache.phoenix.compile.IndexStatementRewriter;
 import org.apache.phoenix.compile.JoinCompiler;
 import org.apache.phoenix.compile.QueryCompiler;
 import org.apache.phoenix.compile.QueryPlan;
+import org.apache.phoenix.compile.ScanRanges;
 import org.apache.phoenix.compile.SequenceManager;
 import org.apache.phoenix.compile.StatementContext;
 import org.apache.phoenix.compile.StatementNormalizer;
 import org.apache.phoenix.compile.SubqueryRewriter;
+import org.apache.phoenix.execute.ScanPlan;
 import org.apache.phoenix.iterate.ParallelIteratorFactory;
 import org.apache.phoenix.jdbc.PhoenixConnection;
 import org.apache.phoenix.jdbc.PhoenixStatement;
@@ -71,8 +73,10 @@ import org.apache.phoenix.schema.PTable.IndexType;
 import org.apache.phoenix.schema.PTableType;
 import org.apache.phoenix.schema.TableRef;
 import org.apache.phoenix.schema.types.PDataType;
+import org.apache.phoenix.util.CostUtil;
 import org.apache.phoenix.util.EnvironmentEdgeManager;
 import org.apache.phoenix.util.IndexUtil;
+import org.apache.phoenix.util.ReadOnlyProps;
 
 import com.google.common.collect.Lists;
 
@@ -111,7 +115,41 @@ public class QueryOptimizer {
     
     public QueryPlan optimize(QueryPlan dataPlan, PhoenixStatement statement, List<? extends PDatum> targetColumns, ParallelIteratorFactory parallelIteratorFactory) throws SQLException {
         List<QueryPlan> plans = getApplicablePlans(dataPlan, statement, targetColumns, parallelIteratorFactory, true);
-        return plans.get(0);
+        QueryPlan plan = plans.get(0);
+        if (plan instanceof ScanPlan) {
+            chooseMultiGet((ScanPlan) plan);
+        }
+        return plan;
+    }
+
+    /**
+     * Chooses whether the keys of a large point lookup are read with parallel multi-gets batched by
+     * region instead of a skip scan. If the stats are available, multi-gets are only used when they
+     * are estimated to be cheaper than scanning the guidepost chunks holding the keys, otherwise they
+     * are used for any point lookup with at least the configured min number of keys. It is applied to
+     * the candidate plans before they are compared, so that their costs account for the multi-gets.
+     */
+    private static void chooseMultiGet(ScanPlan plan) throws SQLException {
+        if (plan.useMultiGet()) {
+            return;
+        }
+        ScanRanges scanRanges = plan.getContext().getScanRanges();
+        ReadOnlyProps props = plan.getContext().getConnection().getQueryServices().getProps();
+        if (!scanRanges.isPointLookup()
+                || !props.getBoolean(QueryServices.MULTI_GET_ENABLED_ATTRIB, QueryServicesOptions.DEFAULT_MULTI_GET_ENABLED)
+                || scanRanges.getPointLookupCount() < props.getInt(QueryServices.MULTI_GET_MIN_KEYS_ATTRIB,
+                        QueryServicesOptions.DEFAULT_MULTI_GET_MIN_KEYS)) {
+            return;
+        }
+        Long scanBytes = plan.getPointLookupScanBytesEstimate();
+        if (scanBytes != null) {
+            Cost skipScanCost = new Cost(0, 0, scanBytes);
+            Cost multiGetCost = CostUtil.estimateMultiGetCost(scanRanges.getPointLookupCount());
+            if (multiGetCost.compareTo(skipScanCost) >= 0) {
+                return;
+            }
+        }
+        plan.setUseMultiGet(true);
     }
     
     public List<QueryPlan> getBestPlan(QueryPlan dataPlan, PhoenixStatement statement, SelectStatement select, ColumnResolver resolver, List<? extends PDatum> targetColumns, ParallelIteratorFactory parallelIteratorFactory) throws SQLException {
@@ -238,7 +276,16 @@ public class QueryOptimizer {
             }
         }
         
-        return hintedPlan == null ? orderPlansBestToWorst(select, plans, stopAtBestPlan) : plans;
+        if (hintedPlan != null) {
+            return plans;
+        }
+        // Reading the keys of a point lookup with multi-gets changes the cost of a plan
+        for (QueryPlan plan : plans) {
+            if (plan instanceof ScanPlan) {
+                chooseMultiGet((ScanPlan) plan);
+            }
+        }
+        return orderPlansBestToWorst(select, plans, stopAtBestPlan);
     }
     
     private QueryPlan getHintedQueryPlan(PhoenixStatement statement, SelectStatement select, List<PTable> indexes, List<? extends PDatum> targetColumns, ParallelIteratorFactory parallelIteratorFactory, List<QueryPlan> plans) throws SQLException {
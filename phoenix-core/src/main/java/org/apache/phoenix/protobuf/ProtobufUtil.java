@@ -137,8 +137,10 @@ public class ProtobufUtil {
     public static ServerCachingProtos.ImmutableBytesWritable toProto(ImmutableBytesWritable w) {
         ServerCachingProtos.ImmutableBytesWritable.Builder builder = 
         		ServerCachingProtos.ImmutableBytesWritable.newBuilder();
-        builder.setByteArray(ByteStringer.wrap(w.get()));
-        builder.setOffset(w.getOffset());
+        // Only wrap the bytes in use, as the backing array may be much larger than the
+        // value (for example a worst case sized compression buffer)
+        builder.setByteArray(ByteStringer.wrap(w.get(), w.getOffset(), w.getLength()));
+        builder.setOffset(0);
         builder.setLength(w.getLength());
         return builder.build();
     }
@@ -36,6 +36,7 @@ import org.apache.phoenix.util.ReadOnlyProps;
  */
 public abstract class BaseQueryServicesImpl implements QueryServices {
     private final ThreadPoolExecutor executor;
+    private final ThreadPoolExecutor asyncExecutor;
     private final MemoryManager memoryManager;
     private final ReadOnlyProps props;
     private final QueryOptimizer queryOptimizer;
@@ -43,9 +44,18 @@ public abstract class BaseQueryServicesImpl implements QueryServices {
     public BaseQueryServicesImpl(ReadOnlyProps defaultProps, QueryServicesOptions options) {
         this.executor =  JobManager.createThreadPoolExec(
                 options.getKeepAliveMs(), 
-                options.getThreadPoolSize(), 
+                options.isVirtualThreadsEnabled()
+                        ? options.getVirtualThreadPoolSize() : options.getThreadPoolSize(),
                 options.getQueueSize(),
-                options.isGlobalMetricsEnabled());
+                options.isGlobalMetricsEnabled(),
+                options.isVirtualThreadsEnabled(),
+                options.getMaxRunningTasksPerGroup());
+        this.asyncExecutor = JobManager.createThreadPoolExec(
+                options.getKeepAliveMs(),
+                options.getAsyncThreadPoolSize(),
+                options.getAsyncQueueSize(),
+                options.isGlobalMetricsEnabled(),
+                options.isVirtualThreadsEnabled());
         this.memoryManager = new GlobalMemoryManager(
                 Runtime.getRuntime().maxMemory() * options.getMaxMemoryPerc() / 100);
         this.props = options.getProps(defaultProps);
@@ -57,6 +67,11 @@ public abstract class BaseQueryServicesImpl implements QueryServices {
         return executor;
     }
 
+    @Override
+    public ThreadPoolExecutor getAsyncExecutor() {
+        return asyncExecutor;
+    }
+
     @Override
     public MemoryManager getMemoryManager() {
         return memoryManager;
@@ -184,4 +184,9 @@ public interface ConnectionQueryServices extends QueryServices, MetaDataMutated
      */
     public void deleteMutexCell(String tenantId, String schemaName, String tableName,
             String columnName, String familyName) throws SQLException;
+
+    /**
+     * @return the cache of the statements parsed by the connections of these services
+     */
+    public ParsedStatementCache getParsedStatementCache();
 }
@@ -302,6 +302,7 @@ public class ConnectionQueryServicesImpl extends DelegateQueryServices implement
     private final User user;
     private final ConcurrentHashMap<ImmutableBytesWritable,ConnectionQueryServices> childServices;
     private final GuidePostsCacheWrapper tableStatsCache;
+    private final ParsedStatementCache parsedStatementCache;
 
     // Cache the latest meta data here for future connections
     // writes guarded by "latestMetaDataLock"
@@ -428,6 +429,7 @@ public class ConnectionQueryServicesImpl extends DelegateQueryServices implement
         // A little bit of a smell to leak `this` here, but should not be a problem
         this.tableStatsCache = GUIDE_POSTS_CACHE_PROVIDER.getGuidePostsCache(props.get(GUIDE_POSTS_CACHE_FACTORY_CLASS,
                 QueryServicesOptions.DEFAULT_GUIDE_POSTS_CACHE_FACTORY_CLASS), this, config);
+        this.parsedStatementCache = new ParsedStatementCache(props);
 
         this.isAutoUpgradeEnabled = config.getBoolean(AUTO_UPGRADE_ENABLED, QueryServicesOptions.DEFAULT_AUTO_UPGRADE_ENABLED);
         this.maxConnectionsAllowed = config.getInt(QueryServices.CLIENT_CONNECTION_MAX_ALLOWED_CONNECTIONS,
@@ -3983,6 +3985,11 @@ public class ConnectionQueryServicesImpl extends DelegateQueryServices implement
         }
     }
 
+    @Override
+    public ParsedStatementCache getParsedStatementCache() {
+        return parsedStatementCache;
+    }
+
     private byte[] getSysMutexPhysicalTableNameBytes() throws IOException, SQLException {
         byte[] sysMutexPhysicalTableNameBytes = null;
         try(Admin admin = getAdmin()) {
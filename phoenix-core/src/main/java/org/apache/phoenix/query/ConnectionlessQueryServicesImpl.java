@@ -121,6 +121,7 @@ public class ConnectionlessQueryServicesImpl extends DelegateQueryServices imple
     private volatile SQLException initializationException;
     private final Map<String, List<HRegionLocation>> tableSplits = Maps.newHashMap();
     private final GuidePostsCacheWrapper guidePostsCache;
+    private final ParsedStatementCache parsedStatementCache;
     private final Configuration config;
 
     private User user;
@@ -156,6 +157,7 @@ public class ConnectionlessQueryServicesImpl extends DelegateQueryServices imple
 
         this.guidePostsCache = GUIDE_POSTS_CACHE_PROVIDER.getGuidePostsCache(props.get(GUIDE_POSTS_CACHE_FACTORY_CLASS,
                 QueryServicesOptions.DEFAULT_GUIDE_POSTS_CACHE_FACTORY_CLASS), null, config);
+        this.parsedStatementCache = new ParsedStatementCache(props);
     }
 
     private PMetaData newEmptyMetaData() {
@@ -777,4 +779,9 @@ public class ConnectionlessQueryServicesImpl extends DelegateQueryServices imple
     public void deleteMutexCell(String tenantId, String schemaName, String tableName,
             String columnName, String familyName) throws SQLException {
     }
+
+    @Override
+    public ParsedStatementCache getParsedStatementCache() {
+        return parsedStatementCache;
+    }
 }
@@ -382,4 +382,9 @@ public class DelegateConnectionQueryServices extends DelegateQueryServices imple
     public void deleteMutexCell(String tenantId, String schemaName, String tableName,
             String columnName, String familyName) throws SQLException {
     }
+
+    @Override
+    public ParsedStatementCache getParsedStatementCache() {
+        return getDelegate().getParsedStatementCache();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.query;
+
+import org.apache.phoenix.parse.BindableStatement;
+import org.apache.phoenix.util.ReadOnlyProps;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Cache of the statements parsed from SQL text, shared by all the connections of a
+ * {@link ConnectionQueryServices}, so that statements executed repeatedly are not parsed again.
+ * Parsing does not depend on the schema, the tenant or the bind values, which are resolved when
+ * the statement is compiled, so the cached statements never need to be invalidated. Only statements
+ * whose parse nodes are immutable may be cached, as they are compiled by multiple connections at
+ * the same time.
+ */
+public class ParsedStatementCache {
+    private final Cache<String, BindableStatement> cache;
+
+    public ParsedStatementCache(ReadOnlyProps props) {
+        this(props.getInt(QueryServices.PARSED_STATEMENT_CACHE_SIZE_ATTRIB,
+                QueryServicesOptions.DEFAULT_PARSED_STATEMENT_CACHE_SIZE));
+    }
+
+    public ParsedStatementCache(int maxSize) {
+        this.cache = maxSize <= 0 ? null : CacheBuilder.newBuilder().maximumSize(maxSize)
+                .<String, BindableStatement>build();
+    }
+
+    /**
+     * @return the statement parsed from the given SQL, or null if it is not cached
+     */
+    public BindableStatement get(String sql) {
+        return cache == null ? null : cache.getIfPresent(sql);
+    }
+
+    public void put(String sql, BindableStatement statement) {
+        if (cache != null) {
+            cache.put(sql, statement);
+        }
+    }
+
+    public long size() {
+        return cache == null ? 0 : cache.size();
+    }
+
+    public void clear() {
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+    }
+}
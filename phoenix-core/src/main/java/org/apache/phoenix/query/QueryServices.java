@@ -43,6 +43,52 @@ public interface QueryServices extends SQLCloseable {
     public static final String KEEP_ALIVE_MS_ATTRIB = "phoenix.query.keepAliveMs";
     public static final String THREAD_POOL_SIZE_ATTRIB = "phoenix.query.threadPoolSize";
     public static final String QUEUE_SIZE_ATTRIB = "phoenix.query.queueSize";
+    // Whether client tasks such as parallel scans run on virtual threads, which requires JDK 21 or later
+    public static final String VIRTUAL_THREADS_ENABLED_ATTRIB = "phoenix.query.virtualThreads.enabled";
+    // Max number of threads of the client executor when it uses virtual threads
+    public static final String VIRTUAL_THREAD_POOL_SIZE_ATTRIB = "phoenix.query.virtualThreadPoolSize";
+    // Number of threads of the executor of asynchronous statement execution and of result sets reading rows ahead
+    public static final String ASYNC_THREAD_POOL_SIZE_ATTRIB = "phoenix.query.async.threadPoolSize";
+    // Max number of tasks queued by the executor of asynchronous statement execution and of reading rows ahead
+    public static final String ASYNC_QUEUE_SIZE_ATTRIB = "phoenix.query.async.queueSize";
+    // Max number of parallel scan tasks of a query running at a time, or 0 for no limit
+    public static final String MAX_CONCURRENT_SCANS_PER_QUERY_ATTRIB = "phoenix.query.maxConcurrentScansPerQuery";
+    // Share of the client executor the tasks of a tenant (or connection without tenant) get relative to others
+    public static final String SCHEDULING_WEIGHT_ATTRIB = "phoenix.query.schedulingWeight";
+    // Share of the client executor the tasks of point lookups get relative to other queries
+    public static final String POINT_LOOKUP_SCHEDULING_WEIGHT_ATTRIB = "phoenix.query.pointLookupSchedulingWeight";
+    // Max number of tasks of a tenant (or connection without tenant) running at a time, or 0 for no limit.
+    // With a limit, the threads of the client executor are all started upfront and never retired
+    public static final String MAX_RUNNING_TASKS_PER_GROUP_ATTRIB = "phoenix.query.maxRunningTasksPerGroup";
+    // Whether the key ranges of round robin scans that lag behind are split at runtime for idle threads to help scan them
+    public static final String ADAPTIVE_CHUNKING_ENABLED_ATTRIB = "phoenix.query.adaptiveChunking.enabled";
+    // Max number of times the key ranges of the scans of a query are split at runtime
+    public static final String ADAPTIVE_CHUNKING_MAX_SPLITS_ATTRIB = "phoenix.query.adaptiveChunking.maxSplits";
+    // Whether result sets read rows ahead on the async executor while the application processes the current ones.
+    // Rows of queries projecting aggregate functions are never read ahead
+    public static final String RESULT_SET_PREFETCH_ENABLED_ATTRIB = "phoenix.query.resultSetPrefetch.enabled";
+    // Max number of rows a result set reads ahead
+    public static final String RESULT_SET_PREFETCH_MAX_ROWS_ATTRIB = "phoenix.query.resultSetPrefetch.maxRows";
+    // Max size in bytes of the rows a result set reads ahead
+    public static final String RESULT_SET_PREFETCH_MAX_BYTES_ATTRIB = "phoenix.query.resultSetPrefetch.maxBytes";
+    // Maximum number of parsed queries, upserts and deletes cached by SQL text, or 0 to disable the cache
+    public static final String PARSED_STATEMENT_CACHE_SIZE_ATTRIB = "phoenix.query.parsedStatementCacheSize";
+    // Whether point lookups are executed with gets on the calling thread instead of parallel scans
+    public static final String POINT_LOOKUP_GETS_ENABLED_ATTRIB = "phoenix.query.pointLookupGets.enabled";
+    // Max number of keys of a point lookup executed with gets on the calling thread
+    public static final String POINT_LOOKUP_GETS_MAX_KEYS_ATTRIB = "phoenix.query.pointLookupGets.maxKeys";
+    // Whether large point lookups may be executed with parallel multi-gets batched by region instead of a skip scan
+    public static final String MULTI_GET_ENABLED_ATTRIB = "phoenix.query.multiGet.enabled";
+    // Min number of keys of a point lookup for multi-gets to be considered instead of a skip scan
+    public static final String MULTI_GET_MIN_KEYS_ATTRIB = "phoenix.query.multiGet.minKeys";
+    // Max number of gets sent to a region in a single batch of a multi-get
+    public static final String MULTI_GET_BATCH_SIZE_ATTRIB = "phoenix.query.multiGet.batchSize";
+    // Whether the chunks of an OFFSET query are counted in parallel to skip the ones within the offset
+    public static final String OFFSET_CHUNK_COUNT_ENABLED_ATTRIB = "phoenix.query.offsetChunkCount.enabled";
+    // Min offset of a query for its chunks to be counted in parallel
+    public static final String OFFSET_CHUNK_COUNT_MIN_OFFSET_ATTRIB = "phoenix.query.offsetChunkCount.minOffset";
+    // Max number of chunks of an OFFSET query counted at a time
+    public static final String OFFSET_CHUNK_COUNT_MAX_CONCURRENT_ATTRIB = "phoenix.query.offsetChunkCount.maxConcurrent";
     public static final String THREAD_TIMEOUT_MS_ATTRIB = "phoenix.query.timeoutMs";
     public static final String SERVER_SPOOL_THRESHOLD_BYTES_ATTRIB =
             "phoenix.query.server.spoolThresholdBytes";
@@ -50,6 +96,9 @@ public interface QueryServices extends SQLCloseable {
             "phoenix.query.client.spoolThresholdBytes";
     public static final String CLIENT_ORDERBY_SPOOLING_ENABLED_ATTRIB =
             "phoenix.query.client.orderBy.spooling.enabled";
+    // Number of sorted runs a client side ORDER BY without limit builds in parallel when spooling, or 0 for a single spooling queue
+    public static final String CLIENT_ORDERBY_SORT_THREADS_ATTRIB =
+            "phoenix.query.client.orderBy.sortThreads";
     public static final String CLIENT_JOIN_SPOOLING_ENABLED_ATTRIB =
             "phoenix.query.client.join.spooling.enabled";
     public static final String SERVER_ORDERBY_SPOOLING_ENABLED_ATTRIB =
@@ -86,6 +135,12 @@ public interface QueryServices extends SQLCloseable {
     public static final String MAX_MEMORY_PERC_ATTRIB = "phoenix.query.maxGlobalMemoryPercentage";
     public static final String MAX_TENANT_MEMORY_PERC_ATTRIB = "phoenix.query.maxTenantMemoryPercentage";
     public static final String MAX_SERVER_CACHE_SIZE_ATTRIB = "phoenix.query.maxServerCacheBytes";
+    // Whether to retry a hash join as a sort merge join when its hash cache exceeds MAX_SERVER_CACHE_SIZE_ATTRIB
+    public static final String HASH_JOIN_SORT_MERGE_FALLBACK_ENABLED_ATTRIB = "phoenix.query.hashJoinSortMergeFallbackEnabled";
+    // Whether to filter the probe side scan of a hash join by the join keys collected from the build side
+    public static final String HASH_JOIN_RUNTIME_FILTER_ENABLED_ATTRIB = "phoenix.query.hashJoinRuntimeFilterEnabled";
+    // Number of distinct build side join keys above which the runtime filter degrades to a min/max range
+    public static final String HASH_JOIN_RUNTIME_FILTER_MAX_IN_LIST_SIZE_ATTRIB = "phoenix.query.hashJoinRuntimeFilterMaxInListSize";
     public static final String DATE_FORMAT_TIMEZONE_ATTRIB = "phoenix.query.dateFormatTimeZone";
     public static final String DATE_FORMAT_ATTRIB = "phoenix.query.dateFormat";
     public static final String TIME_FORMAT_ATTRIB = "phoenix.query.timeFormat";
@@ -114,7 +169,17 @@ public interface QueryServices extends SQLCloseable {
     public static final String GROUPBY_SPILL_FILES_ATTRIB = "phoenix.groupby.spillFiles";
     public static final String GROUPBY_MAX_CACHE_SIZE_ATTRIB = "phoenix.groupby.maxCacheSize";
     public static final String GROUPBY_ESTIMATED_DISTINCT_VALUES_ATTRIB = "phoenix.groupby.estimatedDistinctValues";
+    // Max number of threads of a region server reading spilled group by partitions back in parallel
+    public static final String GROUPBY_SPILL_MERGE_THREADS_ATTRIB = "phoenix.groupby.spillMergeThreads";
+    // Whether COUNT and SUM group by state is kept in primitive slots of an off heap hash table when possible,
+    // instead of an Aggregator[] per group in the spillable group by cache
+    public static final String GROUPBY_OFF_HEAP_ENABLED_ATTRIB = "phoenix.groupby.offHeap";
+    // Number of hash partitions of the off heap group by table, which is the unit of spilling
+    public static final String GROUPBY_OFF_HEAP_PARTITIONS_ATTRIB = "phoenix.groupby.offHeapPartitions";
     public static final String AGGREGATE_CHUNK_SIZE_INCREASE_ATTRIB = "phoenix.aggregate.chunk_size_increase";
+    // Number of rows an ungrouped aggregate scan evaluates COUNT, SUM, MIN and MAX over at a time as primitive
+    // column vectors, or 0 to aggregate row by row
+    public static final String AGGREGATE_BATCH_SIZE_ATTRIB = "phoenix.aggregate.batchSize";
 
     public static final String CALL_QUEUE_PRODUCER_ATTRIB_NAME = "CALL_QUEUE_PRODUCER";
 
@@ -350,6 +415,8 @@ public interface QueryServices extends SQLCloseable {
     public static final String GLOBAL_INDEX_ROW_AGE_THRESHOLD_TO_DELETE_MS_ATTRIB = "phoenix.global.index.row.age.threshold.to.delete.ms";
     // The maximum number of global index rows to be rebuild at a time
     public static final String GLOBAL_INDEX_ROW_REPAIR_COUNT_ATTRIB = "phoenix.global.index.row.repair.count.ms";
+    // The maximum number of global index rows scanned ahead for unverified rows to be rebuilt in a single batch
+    public static final String GLOBAL_INDEX_ROW_REPAIR_BATCH_SIZE_ATTRIB = "phoenix.global.index.row.repair.batch.size";
     // Enable the IndexRegionObserver Coprocessor
     public static final String INDEX_REGION_OBSERVER_ENABLED_ATTRIB = "phoenix.index.region.observer.enabled";
 
@@ -383,6 +450,11 @@ public interface QueryServices extends SQLCloseable {
      * Get executor service used for parallel scans
      */
     public ThreadPoolExecutor getExecutor();
+    /**
+     * Get executor service used for asynchronous statement execution and for reading rows ahead,
+     * whose tasks wait on the parallel scans of the executor returned by {@link #getExecutor()}
+     */
+    public ThreadPoolExecutor getAsyncExecutor();
     /**
      * Get the memory manager used to track memory usage
      */
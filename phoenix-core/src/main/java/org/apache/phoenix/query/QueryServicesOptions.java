@@ -20,6 +20,8 @@ package org.apache.phoenix.query;
 import static org.apache.hadoop.hbase.HConstants.DEFAULT_HBASE_CLIENT_SCANNER_TIMEOUT_PERIOD;
 import static org.apache.phoenix.query.QueryServices.ALLOW_ONLINE_TABLE_SCHEMA_UPDATE;
 import static org.apache.phoenix.query.QueryServices.ALLOW_VIEWS_ADD_NEW_CF_BASE_TABLE;
+import static org.apache.phoenix.query.QueryServices.ASYNC_QUEUE_SIZE_ATTRIB;
+import static org.apache.phoenix.query.QueryServices.ASYNC_THREAD_POOL_SIZE_ATTRIB;
 import static org.apache.phoenix.query.QueryServices.AUTO_UPGRADE_ENABLED;
 import static org.apache.phoenix.query.QueryServices.CALL_QUEUE_PRODUCER_ATTRIB_NAME;
 import static org.apache.phoenix.query.QueryServices.CALL_QUEUE_ROUND_ROBIN_ATTRIB;
@@ -55,6 +57,7 @@ import static org.apache.phoenix.query.QueryServices.MASTER_INFO_PORT_ATTRIB;
 import static org.apache.phoenix.query.QueryServices.MAX_CLIENT_METADATA_CACHE_SIZE_ATTRIB;
 import static org.apache.phoenix.query.QueryServices.MAX_MEMORY_PERC_ATTRIB;
 import static org.apache.phoenix.query.QueryServices.MAX_MUTATION_SIZE_ATTRIB;
+import static org.apache.phoenix.query.QueryServices.MAX_RUNNING_TASKS_PER_GROUP_ATTRIB;
 import static org.apache.phoenix.query.QueryServices.MAX_SERVER_CACHE_SIZE_ATTRIB;
 import static org.apache.phoenix.query.QueryServices.MAX_SERVER_CACHE_TIME_TO_LIVE_MS_ATTRIB;
 import static org.apache.phoenix.query.QueryServices.MAX_SERVER_METADATA_CACHE_SIZE_ATTRIB;
@@ -101,6 +104,8 @@ import static org.apache.phoenix.query.QueryServices.UPLOAD_BINARY_DATA_TYPE_ENC
 import static org.apache.phoenix.query.QueryServices.USE_BYTE_BASED_REGEX_ATTRIB;
 import static org.apache.phoenix.query.QueryServices.USE_INDEXES_ATTRIB;
 import static org.apache.phoenix.query.QueryServices.USE_STATS_FOR_PARALLELIZATION;
+import static org.apache.phoenix.query.QueryServices.VIRTUAL_THREADS_ENABLED_ATTRIB;
+import static org.apache.phoenix.query.QueryServices.VIRTUAL_THREAD_POOL_SIZE_ATTRIB;
 
 import java.util.HashSet;
 import java.util.Map.Entry;
@@ -133,17 +138,43 @@ public class QueryServicesOptions {
 	public static final int DEFAULT_KEEP_ALIVE_MS = 60000;
 	public static final int DEFAULT_THREAD_POOL_SIZE = 128;
 	public static final int DEFAULT_QUEUE_SIZE = 5000;
+	public static final boolean DEFAULT_VIRTUAL_THREADS_ENABLED = false;
+	public static final int DEFAULT_VIRTUAL_THREAD_POOL_SIZE = 10000;
+	public static final int DEFAULT_ASYNC_THREAD_POOL_SIZE = 32;
+	public static final int DEFAULT_ASYNC_QUEUE_SIZE = 1000;
+	public static final int DEFAULT_MAX_CONCURRENT_SCANS_PER_QUERY = 0; // no limit
+	public static final int DEFAULT_SCHEDULING_WEIGHT = 1;
+	public static final int DEFAULT_POINT_LOOKUP_SCHEDULING_WEIGHT = 10;
+	public static final int DEFAULT_MAX_RUNNING_TASKS_PER_GROUP = 0; // no limit
+	public static final boolean DEFAULT_ADAPTIVE_CHUNKING_ENABLED = false;
+	public static final int DEFAULT_ADAPTIVE_CHUNKING_MAX_SPLITS = 32;
+	public static final boolean DEFAULT_RESULT_SET_PREFETCH_ENABLED = false;
+	public static final int DEFAULT_RESULT_SET_PREFETCH_MAX_ROWS = 1000;
+	public static final long DEFAULT_RESULT_SET_PREFETCH_MAX_BYTES = 4 * 1024 * 1024; // 4 Mb
+	public static final int DEFAULT_PARSED_STATEMENT_CACHE_SIZE = 1000;
+	public static final boolean DEFAULT_POINT_LOOKUP_GETS_ENABLED = false;
+	public static final int DEFAULT_POINT_LOOKUP_GETS_MAX_KEYS = 100;
+	public static final boolean DEFAULT_MULTI_GET_ENABLED = false;
+	public static final int DEFAULT_MULTI_GET_MIN_KEYS = 1000;
+	public static final int DEFAULT_MULTI_GET_BATCH_SIZE = 100;
+	public static final boolean DEFAULT_OFFSET_CHUNK_COUNT_ENABLED = false;
+	public static final int DEFAULT_OFFSET_CHUNK_COUNT_MIN_OFFSET = 10000;
+	public static final int DEFAULT_OFFSET_CHUNK_COUNT_MAX_CONCURRENT = 8;
 	public static final int DEFAULT_THREAD_TIMEOUT_MS = 600000; // 10min
 	public static final int DEFAULT_SPOOL_THRESHOLD_BYTES = 1024 * 1024 * 20; // 20m
 	public static final int DEFAULT_SERVER_SPOOL_THRESHOLD_BYTES = 1024 * 1024 * 20; // 20m
 	public static final int DEFAULT_CLIENT_SPOOL_THRESHOLD_BYTES = 1024 * 1024 * 20; // 20m
 	public static final boolean DEFAULT_CLIENT_ORDERBY_SPOOLING_ENABLED = true;
+	public static final int DEFAULT_CLIENT_ORDERBY_SORT_THREADS = 4;
 	public static final boolean DEFAULT_CLIENT_JOIN_SPOOLING_ENABLED = true;
 	public static final boolean DEFAULT_SERVER_ORDERBY_SPOOLING_ENABLED = true;
     public static final String DEFAULT_SPOOL_DIRECTORY = System.getProperty("java.io.tmpdir");
 	public static final int DEFAULT_MAX_MEMORY_PERC = 15; // 15% of heap
 	public static final int DEFAULT_MAX_TENANT_MEMORY_PERC = 100;
 	public static final long DEFAULT_MAX_SERVER_CACHE_SIZE = 1024*1024*100;  // 100 Mb
+    public static final boolean DEFAULT_HASH_JOIN_SORT_MERGE_FALLBACK_ENABLED = false;
+    public static final boolean DEFAULT_HASH_JOIN_RUNTIME_FILTER_ENABLED = false;
+    public static final int DEFAULT_HASH_JOIN_RUNTIME_FILTER_MAX_IN_LIST_SIZE = 1000;
     public static final int DEFAULT_TARGET_QUERY_CONCURRENCY = 32;
     public static final int DEFAULT_MAX_QUERY_CONCURRENCY = 64;
     public static final String DEFAULT_DATE_FORMAT = DateUtil.DEFAULT_DATE_FORMAT;
@@ -171,6 +202,7 @@ public class QueryServicesOptions {
     public static final int DEFAULT_MAX_INTRA_REGION_PARALLELIZATION = DEFAULT_MAX_QUERY_CONCURRENCY;
     public static final int DEFAULT_DISTINCT_VALUE_COMPRESS_THRESHOLD = 1024 * 1024 * 1; // 1 Mb
     public static final int DEFAULT_AGGREGATE_CHUNK_SIZE_INCREASE = 1024 * 1024 * 1; // 1 Mb
+    public static final int DEFAULT_AGGREGATE_BATCH_SIZE = 0; // aggregate row by row
     public static final int DEFAULT_INDEX_MUTATE_BATCH_SIZE_THRESHOLD = 3;
     public static final long DEFAULT_MAX_SPOOL_TO_DISK_BYTES = 1024000000;
     // Only the first chunked batches are fetched in parallel, so this default
@@ -189,6 +221,7 @@ public class QueryServicesOptions {
     // Number of spill files / partitions the keys are distributed to
     // Each spill file fits 2GB of data
     public static final int DEFAULT_GROUPBY_SPILL_FILES = 2;
+    public static final int DEFAULT_GROUPBY_SPILL_MERGE_THREADS = 4;
     // Max size of 1st level main memory cache in bytes --> upper bound
     public static final long DEFAULT_GROUPBY_MAX_CACHE_MAX = 1024L*1024L*100L;  // 100 Mb
 
@@ -198,6 +231,8 @@ public class QueryServicesOptions {
     public static final long DEFAULT_MAX_SERVER_METADATA_CACHE_SIZE =  1024L*1024L*20L; // 20 Mb
     public static final long DEFAULT_MAX_CLIENT_METADATA_CACHE_SIZE =  1024L*1024L*10L; // 10 Mb
     public static final int DEFAULT_GROUPBY_ESTIMATED_DISTINCT_VALUES = 1000;
+    public static final boolean DEFAULT_GROUPBY_OFF_HEAP_ENABLED = false;
+    public static final int DEFAULT_GROUPBY_OFF_HEAP_PARTITIONS = 16;
     public static final int DEFAULT_CLOCK_SKEW_INTERVAL = 2000;
     public static final boolean DEFAULT_INDEX_FAILURE_HANDLING_REBUILD = true; // auto rebuild on
     public static final boolean DEFAULT_INDEX_FAILURE_BLOCK_WRITE = false; 
@@ -357,6 +392,7 @@ public class QueryServicesOptions {
 
     public static final long DEFAULT_GLOBAL_INDEX_ROW_AGE_THRESHOLD_TO_DELETE_MS = 10*60*1000; /* 10 min */
     public static final int DEFAULT_GLOBAL_INDEX_REPAIR_COUNT = 1;
+    public static final int DEFAULT_GLOBAL_INDEX_ROW_REPAIR_BATCH_SIZE = 100;
     public static final boolean DEFAULT_INDEX_REGION_OBSERVER_ENABLED = true;
 
     public static final boolean DEFAULT_ALLOW_SPLITTABLE_SYSTEM_CATALOG_ROLLBACK = false;
@@ -637,6 +673,26 @@ public class QueryServicesOptions {
         return config.getInt(QUEUE_SIZE_ATTRIB, DEFAULT_QUEUE_SIZE);
     }
 
+    public int getAsyncThreadPoolSize() {
+        return config.getInt(ASYNC_THREAD_POOL_SIZE_ATTRIB, DEFAULT_ASYNC_THREAD_POOL_SIZE);
+    }
+
+    public int getAsyncQueueSize() {
+        return config.getInt(ASYNC_QUEUE_SIZE_ATTRIB, DEFAULT_ASYNC_QUEUE_SIZE);
+    }
+
+    public int getMaxRunningTasksPerGroup() {
+        return config.getInt(MAX_RUNNING_TASKS_PER_GROUP_ATTRIB, DEFAULT_MAX_RUNNING_TASKS_PER_GROUP);
+    }
+
+    public boolean isVirtualThreadsEnabled() {
+        return config.getBoolean(VIRTUAL_THREADS_ENABLED_ATTRIB, DEFAULT_VIRTUAL_THREADS_ENABLED);
+    }
+
+    public int getVirtualThreadPoolSize() {
+        return config.getInt(VIRTUAL_THREAD_POOL_SIZE_ATTRIB, DEFAULT_VIRTUAL_THREAD_POOL_SIZE);
+    }
+
     public int getMaxMemoryPerc() {
         return config.getInt(MAX_MEMORY_PERC_ATTRIB, DEFAULT_MAX_MEMORY_PERC);
     }
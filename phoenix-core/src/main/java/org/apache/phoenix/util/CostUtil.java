@@ -17,6 +17,7 @@
  */
 package org.apache.phoenix.util;
 
+import org.apache.hadoop.hbase.HConstants;
 import org.apache.phoenix.compile.GroupByCompiler.GroupBy;
 import org.apache.phoenix.optimize.Cost;
 import org.apache.phoenix.query.QueryServices;
@@ -78,6 +79,16 @@ public class CostUtil {
                 (rhsBytes * Math.log(rhsBytes) + (hasKeyRangeExpression ? 0 : lhsBytes)) / parallelLevel + outputBytes);
     }
 
+    /**
+     * Estimate the cost of reading the rows of a point lookup with multi-gets. Each get is
+     * assumed to read a whole block, whereas a scan reads the blocks holding several keys once.
+     * @param keyCount the number of keys of the point lookup
+     * @return the cost
+     */
+    public static Cost estimateMultiGetCost(int keyCount) {
+        return new Cost(0, 0, (double) keyCount * HConstants.DEFAULT_BLOCKSIZE);
+    }
+
     /**
      * Estimate the parallel level of an operation
      * @param runningOnServer if the operation will be running on server side
@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.util;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Utilities for direct and memory mapped {@link ByteBuffer}s.
+ */
+public class DirectBufferUtil {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DirectBufferUtil.class);
+
+    // Unsafe.invokeCleaner(ByteBuffer) on Java 9 and later
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+    // DirectBuffer.cleaner() and Cleaner.clean() on Java 8
+    private static final Method CLEANER;
+    private static final Method CLEAN;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        Method cleaner = null;
+        Method clean = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            unsafe = theUnsafe.get(null);
+        } catch (Throwable t) {
+            invokeCleaner = null;
+            try {
+                cleaner = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+                clean = Class.forName("sun.misc.Cleaner").getMethod("clean");
+            } catch (Throwable t2) {
+                cleaner = null;
+                LOGGER.debug("Direct buffers can't be freed explicitly and are left to the garbage collector", t2);
+            }
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+        CLEANER = cleaner;
+        CLEAN = clean;
+    }
+
+    /** Not constructed */
+    private DirectBufferUtil() { }
+
+    /**
+     * Release the native memory of a direct buffer, or unmap a memory mapped buffer, right away
+     * instead of whenever the buffer happens to be garbage collected. The buffer, and any view or
+     * duplicate of it, must not be used afterwards. Views and duplicates themselves, as well as
+     * buffers of JVMs that don't allow freeing them, are left to the garbage collector.
+     *
+     * @param buffer the buffer to release, can be null or a heap buffer, in which case this is a no-op
+     */
+    public static void free(ByteBuffer buffer) {
+        if (buffer == null || !buffer.isDirect()) {
+            return;
+        }
+        try {
+            if (INVOKE_CLEANER != null) {
+                // Throws for views and duplicates, which have no cleaner of their own
+                INVOKE_CLEANER.invoke(UNSAFE, buffer);
+            } else if (CLEANER != null) {
+                Object cleaner = CLEANER.invoke(buffer);
+                // Views and duplicates have no cleaner of their own
+                if (cleaner != null) {
+                    CLEAN.invoke(cleaner);
+                }
+            }
+        } catch (Throwable t) {
+            // Leave it to the garbage collector
+            LOGGER.debug("Unable to free direct buffer", t);
+        }
+    }
+}
@@ -36,6 +36,7 @@ import java.util.NavigableSet;
 import java.util.TreeMap;
 
 import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.client.Get;
 import org.apache.hadoop.hbase.client.Mutation;
 import org.apache.hadoop.hbase.client.RegionInfo;
 import org.apache.hadoop.hbase.client.Scan;
@@ -51,6 +52,7 @@ import org.apache.phoenix.compile.ScanRanges;
 import org.apache.phoenix.compile.StatementContext;
 import org.apache.phoenix.coprocessor.BaseScannerRegionObserver;
 import org.apache.phoenix.coprocessor.MetaDataProtocol;
+import org.apache.phoenix.coprocessor.ScanRegionObserver;
 import org.apache.phoenix.exception.SQLExceptionCode;
 import org.apache.phoenix.exception.SQLExceptionInfo;
 import org.apache.phoenix.execute.DescVarLengthFastByteComparisons;
@@ -60,6 +62,7 @@ import org.apache.phoenix.filter.MultiEncodedCQKeyValueComparisonFilter;
 import org.apache.phoenix.filter.SkipScanFilter;
 import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
 import org.apache.phoenix.hbase.index.util.VersionUtil;
+import org.apache.phoenix.join.HashJoinInfo;
 import org.apache.phoenix.query.KeyRange;
 import org.apache.phoenix.query.KeyRange.Bound;
 import org.apache.phoenix.query.QueryConstants;
@@ -127,6 +130,62 @@ public class ScanUtil {
                 scan.getAttribute(BaseScannerRegionObserver.SCAN_OFFSET) == null;
     }
 
+    /**
+     * Returns whether the rows of the given scan may be read with gets instead. Gets are not processed
+     * by the region observers, so only non aggregate scans that don't need any of them to transform or
+     * order their rows qualify, other than for the projection of the rows by the {@link TupleProjector}
+     * of the scan, which the caller must then apply.
+     */
+    public static boolean isGetPossible(Scan scan) {
+        if (!isSimpleScan(scan) || isLocalIndex(scan) || isReversed(scan) || HashJoinInfo.isHashJoin(scan)) {
+            return false;
+        }
+        for (String attribute : REGION_OBSERVER_ATTRIBUTES) {
+            if (scan.getAttribute(attribute) != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static final String[] REGION_OBSERVER_ATTRIBUTES = {
+            BaseScannerRegionObserver.SPECIFIC_ARRAY_INDEX,
+            BaseScannerRegionObserver.DATA_TABLE_COLUMNS_TO_JOIN,
+            BaseScannerRegionObserver.TX_STATE,
+            BaseScannerRegionObserver.CHECK_VERIFY_COLUMN,
+            ScanRegionObserver.WILDCARD_SCAN_INCLUDES_DYNAMIC_COLUMNS };
+
+    /**
+     * Creates a get of the given row with the columns, filter, time range and attributes of the given
+     * scan, for which {@link #isGetPossible(Scan)} must be true.
+     */
+    public static Get newGet(Scan scan, byte[] row) throws IOException {
+        Get get = new Get(row);
+        for (Map.Entry<byte[], NavigableSet<byte[]>> entry : scan.getFamilyMap().entrySet()) {
+            if (entry.getValue() == null) {
+                get.addFamily(entry.getKey());
+            } else {
+                for (byte[] qualifier : entry.getValue()) {
+                    get.addColumn(entry.getKey(), qualifier);
+                }
+            }
+        }
+        get.setFilter(scan.getFilter());
+        get.setTimeRange(scan.getTimeRange().getMin(), scan.getTimeRange().getMax());
+        for (Map.Entry<byte[], TimeRange> entry : scan.getColumnFamilyTimeRange().entrySet()) {
+            get.setColumnFamilyTimeRange(entry.getKey(), entry.getValue().getMin(), entry.getValue().getMax());
+        }
+        get.readVersions(scan.getMaxVersions());
+        get.setCacheBlocks(scan.getCacheBlocks());
+        get.setConsistency(scan.getConsistency());
+        get.setReplicaId(scan.getReplicaId());
+        get.setIsolationLevel(scan.getIsolationLevel());
+        for (Map.Entry<String, byte[]> entry : scan.getAttributesMap().entrySet()) {
+            get.setAttribute(entry.getKey(), entry.getValue());
+        }
+        return get;
+    }
+
     // Use getTenantId and pass in column name to match against
     // in as PSchema attribute. If column name matches in 
     // KeyExpressions, set on scan as attribute
@@ -851,6 +910,38 @@ public class ScanUtil {
         return filterIterator;
     }
     
+    /**
+     * Returns a key about halfway between the given keys, splitting the rest of a scan that read
+     * up to lastKey in two, or null if there is no key between them.
+     * @param lastKey the last key read, which is excluded
+     * @param stopKey the stop key of the scan, where an empty key means the end of the table
+     */
+    public static byte[] getSplitKey(byte[] lastKey, byte[] stopKey) {
+        byte[] upperKey = stopKey;
+        if (upperKey.length == 0) {
+            upperKey = new byte[Math.max(1, lastKey.length)];
+            Arrays.fill(upperKey, (byte)0xFF);
+        }
+        if (Bytes.compareTo(lastKey, upperKey) >= 0) {
+            return null;
+        }
+        byte[][] splitKeys;
+        try {
+            splitKeys = Bytes.split(lastKey, upperKey, 1);
+        } catch (IllegalArgumentException e) {
+            // Thrown when the keys are too close to be split
+            return null;
+        }
+        if (splitKeys == null) {
+            return null;
+        }
+        byte[] splitKey = splitKeys[1];
+        if (Bytes.compareTo(splitKey, lastKey) <= 0 || Bytes.compareTo(splitKey, upperKey) >= 0) {
+            return null;
+        }
+        return splitKey;
+    }
+
     /**
      * Selecting underlying scanners in a round-robin fashion is possible if there is no ordering of
      * rows needed, not even row key order. Also no point doing round robin of scanners if fetch
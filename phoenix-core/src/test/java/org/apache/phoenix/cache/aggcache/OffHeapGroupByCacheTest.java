@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.cache.aggcache;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.regionserver.RegionScanner;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.expression.Expression;
+import org.apache.phoenix.expression.LiteralExpression;
+import org.apache.phoenix.expression.RowKeyColumnExpression;
+import org.apache.phoenix.expression.aggregator.Aggregator;
+import org.apache.phoenix.expression.aggregator.ServerAggregators;
+import org.apache.phoenix.expression.function.CountAggregateFunction;
+import org.apache.phoenix.expression.function.SingleAggregateFunction;
+import org.apache.phoenix.expression.function.SumAggregateFunction;
+import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
+import org.apache.phoenix.memory.GlobalMemoryManager;
+import org.apache.phoenix.memory.InsufficientMemoryException;
+import org.apache.phoenix.query.QueryServices;
+import org.apache.phoenix.schema.RowKeyValueAccessor;
+import org.apache.phoenix.schema.tuple.SingleKeyValueTuple;
+import org.apache.phoenix.schema.tuple.Tuple;
+import org.apache.phoenix.schema.types.PLong;
+import org.apache.phoenix.util.PhoenixKeyValueUtil;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.google.common.collect.Maps;
+
+public class OffHeapGroupByCacheTest {
+
+    private static ServerAggregators newServerAggregators() throws Exception {
+        LiteralExpression dummy = LiteralExpression.newConstant(null, PLong.INSTANCE);
+        Expression column = new RowKeyColumnExpression(dummy, new RowKeyValueAccessor(Arrays.asList(dummy), 0));
+        CountAggregateFunction count = new CountAggregateFunction(Collections.<Expression> singletonList(column));
+        List<SingleAggregateFunction> functions = Arrays.<SingleAggregateFunction> asList(count,
+                new SumAggregateFunction(Collections.<Expression> singletonList(column), count));
+        return ServerAggregators.deserialize(ServerAggregators.serialize(functions, 0), null, null);
+    }
+
+    private static Tuple newTuple(long value) {
+        byte[] bytes = PLong.INSTANCE.toBytes(value);
+        return new SingleKeyValueTuple(PhoenixKeyValueUtil.newKeyValue(bytes, 0, bytes.length, bytes, 0, 0, bytes, 0, 0, 0, bytes, 0, 0, Cell.Type.Put));
+    }
+
+    private static Configuration newConfiguration(boolean spillable) {
+        Configuration conf = new Configuration(false);
+        conf.setBoolean(QueryServices.GROUPBY_SPILLABLE_ATTRIB, spillable);
+        conf.setInt(QueryServices.GROUPBY_OFF_HEAP_PARTITIONS_ATTRIB, 8);
+        return conf;
+    }
+
+    private static ImmutableBytesPtr newKey(int group) {
+        return new ImmutableBytesPtr(Bytes.toBytes("group" + group));
+    }
+
+    /**
+     * Aggregate the values of each group in several passes over the groups, and check that
+     * the cache returns each group once with the same state as plain aggregators.
+     */
+    private static void assertAggregates(GlobalMemoryManager memoryManager, int groups, int passes) throws Exception {
+        ServerAggregators aggregators = newServerAggregators();
+        OffHeapGroupByCache cache = new OffHeapGroupByCache(memoryManager, newConfiguration(true), aggregators, 10);
+        for (int pass = 0; pass < passes; pass++) {
+            for (int group = 0; group < groups; group++) {
+                aggregators.aggregate(cache.cache(newKey(group)), newTuple(group * 10L + pass));
+            }
+        }
+        // Groups added again after being spilled must not be counted twice
+        assertEquals(groups, cache.size());
+        Map<ImmutableBytesPtr, byte[]> results = Maps.newHashMap();
+        RegionScanner scanner = cache.getScanner(Mockito.mock(RegionScanner.class));
+        List<Cell> cells = new ArrayList<Cell>();
+        boolean hasMore;
+        do {
+            cells.clear();
+            hasMore = scanner.next(cells);
+            for (Cell cell : cells) {
+                assertEquals(null, results.put(new ImmutableBytesPtr(CellUtil.cloneRow(cell)), CellUtil.cloneValue(cell)));
+            }
+        } while (hasMore);
+        scanner.close();
+        assertEquals(memoryManager.getMaxMemory(), memoryManager.getAvailableMemory());
+
+        assertEquals(groups, results.size());
+        for (int group = 0; group < groups; group++) {
+            ServerAggregators expectedAggregators = newServerAggregators();
+            Aggregator[] expected = expectedAggregators.newAggregators();
+            for (int pass = 0; pass < passes; pass++) {
+                expectedAggregators.aggregate(expected, newTuple(group * 10L + pass));
+            }
+            byte[] value = results.get(newKey(group));
+            assertNotNull(value);
+            assertArrayEquals(expectedAggregators.toBytes(expected), value);
+        }
+    }
+
+    @Test
+    public void testInMemory() throws Exception {
+        assertAggregates(new GlobalMemoryManager(10 * 1024 * 1024), 1000, 3);
+    }
+
+    @Test
+    public void testSpillPartitions() throws Exception {
+        // Enough for a few partitions at a time, so that most groups are spilled and merged back
+        assertAggregates(new GlobalMemoryManager(256 * 1024), 10000, 3);
+    }
+
+    @Test
+    public void testInsufficientMemoryWithoutSpilling() throws Exception {
+        GlobalMemoryManager memoryManager = new GlobalMemoryManager(64 * 1024);
+        ServerAggregators aggregators = newServerAggregators();
+        OffHeapGroupByCache cache = new OffHeapGroupByCache(memoryManager, newConfiguration(false), aggregators, 10);
+        try {
+            for (int group = 0; group < 10000; group++) {
+                aggregators.aggregate(cache.cache(newKey(group)), newTuple(group));
+            }
+            fail();
+        } catch (InsufficientMemoryException e) {
+            // expected
+        } finally {
+            cache.close();
+        }
+        assertEquals(memoryManager.getMaxMemory(), memoryManager.getAvailableMemory());
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.cache.aggcache;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.cache.aggcache.SpillManager.SpilledEntryIterator;
+import org.apache.phoenix.expression.Expression;
+import org.apache.phoenix.expression.LiteralExpression;
+import org.apache.phoenix.expression.RowKeyColumnExpression;
+import org.apache.phoenix.expression.aggregator.Aggregator;
+import org.apache.phoenix.expression.aggregator.ServerAggregators;
+import org.apache.phoenix.expression.function.CountAggregateFunction;
+import org.apache.phoenix.expression.function.MaxAggregateFunction;
+import org.apache.phoenix.expression.function.SingleAggregateFunction;
+import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
+import org.apache.phoenix.schema.RowKeyValueAccessor;
+import org.apache.phoenix.schema.tuple.SingleKeyValueTuple;
+import org.apache.phoenix.schema.types.PLong;
+import org.apache.phoenix.util.PhoenixKeyValueUtil;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.google.common.collect.Maps;
+
+public class SpillManagerTest {
+
+    private static ServerAggregators newServerAggregators() throws Exception {
+        LiteralExpression dummy = LiteralExpression.newConstant(null, PLong.INSTANCE);
+        Expression column = new RowKeyColumnExpression(dummy, new RowKeyValueAccessor(Arrays.asList(dummy), 0));
+        CountAggregateFunction count = new CountAggregateFunction(Collections.<Expression> singletonList(column));
+        List<SingleAggregateFunction> functions = Arrays.<SingleAggregateFunction> asList(count,
+                new MaxAggregateFunction(Collections.<Expression> singletonList(column), count));
+        return ServerAggregators.deserialize(ServerAggregators.serialize(functions, 0), null, null);
+    }
+
+    @Test
+    public void testParallelEntryIterator() throws Exception {
+        final int groups = 5000;
+        ServerAggregators aggregators = newServerAggregators();
+        // Keys of even groups are still in the LRU cache, so must not be returned
+        SpillableGroupByCache.QueryCache cache = Mockito.mock(SpillableGroupByCache.QueryCache.class);
+        when(cache.isKeyContained(any(ImmutableBytesPtr.class))).thenAnswer(new Answer<Boolean>() {
+            @Override
+            public Boolean answer(InvocationOnMock invocation) throws Throwable {
+                ImmutableBytesPtr key = (ImmutableBytesPtr)invocation.getArguments()[0];
+                return Bytes.toInt(key.get(), key.getOffset(), key.getLength()) % 2 == 0;
+            }
+        });
+        Map<ImmutableBytesPtr, byte[]> expected = Maps.newHashMap();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        SpillManager spillManager = new SpillManager(3, aggregators, new Configuration(false), cache);
+        try {
+            for (int group = 0; group < groups; group++) {
+                Aggregator[] groupAggregators = aggregators.newAggregators();
+                byte[] value = PLong.INSTANCE.toBytes((long)group);
+                aggregators.aggregate(groupAggregators, new SingleKeyValueTuple(PhoenixKeyValueUtil.newKeyValue(
+                        value, 0, value.length, value, 0, 0, value, 0, 0, 0, value, 0, 0, Cell.Type.Put)));
+                ImmutableBytesPtr key = new ImmutableBytesPtr(Bytes.toBytes(group));
+                spillManager.spill(key, groupAggregators);
+                if (group % 2 != 0) {
+                    expected.put(key, aggregators.toBytes(groupAggregators));
+                }
+            }
+
+            SpilledEntryIterator iterator = spillManager.newEntryIterator(executor);
+            try {
+                int count = 0;
+                while (iterator.hasNext()) {
+                    Map.Entry<ImmutableBytesWritable, Aggregator[]> entry = iterator.next();
+                    byte[] value = expected.remove(new ImmutableBytesPtr(entry.getKey()));
+                    assertArrayEquals(value, aggregators.toBytes(entry.getValue()));
+                    count++;
+                }
+                assertEquals(groups / 2, count);
+                assertEquals(0, expected.size());
+            } finally {
+                iterator.close();
+            }
+        } finally {
+            spillManager.close();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testCloseBeforeExhausted() throws Exception {
+        ServerAggregators aggregators = newServerAggregators();
+        SpillableGroupByCache.QueryCache cache = Mockito.mock(SpillableGroupByCache.QueryCache.class);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        SpillManager spillManager = new SpillManager(2, aggregators, new Configuration(false), cache);
+        try {
+            for (int group = 0; group < 5000; group++) {
+                spillManager.spill(new ImmutableBytesPtr(Bytes.toBytes(group)), aggregators.newAggregators());
+            }
+            SpilledEntryIterator iterator = spillManager.newEntryIterator(executor);
+            iterator.next();
+            // Must not block on the tasks waiting for room in the queue
+            iterator.close();
+        } finally {
+            spillManager.close();
+            executor.shutdown();
+        }
+    }
+}
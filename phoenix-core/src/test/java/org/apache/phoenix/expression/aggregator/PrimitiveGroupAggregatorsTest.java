@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.expression.aggregator;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.LongBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.phoenix.expression.Expression;
+import org.apache.phoenix.expression.LiteralExpression;
+import org.apache.phoenix.expression.RowKeyColumnExpression;
+import org.apache.phoenix.expression.function.CountAggregateFunction;
+import org.apache.phoenix.expression.function.MaxAggregateFunction;
+import org.apache.phoenix.expression.function.SingleAggregateFunction;
+import org.apache.phoenix.expression.function.SumAggregateFunction;
+import org.apache.phoenix.schema.RowKeyValueAccessor;
+import org.apache.phoenix.schema.tuple.SingleKeyValueTuple;
+import org.apache.phoenix.schema.tuple.Tuple;
+import org.apache.phoenix.schema.types.PDataType;
+import org.apache.phoenix.schema.types.PDouble;
+import org.apache.phoenix.schema.types.PInteger;
+import org.apache.phoenix.schema.types.PLong;
+import org.apache.phoenix.util.PhoenixKeyValueUtil;
+import org.junit.Test;
+
+public class PrimitiveGroupAggregatorsTest {
+
+    private static Expression newColumn(PDataType type) throws Exception {
+        LiteralExpression dummy = LiteralExpression.newConstant(null, type);
+        return new RowKeyColumnExpression(dummy, new RowKeyValueAccessor(Arrays.asList(dummy), 0));
+    }
+
+    private static ServerAggregators newServerAggregators(PDataType type, boolean withMax) throws Exception {
+        Expression column = newColumn(type);
+        CountAggregateFunction count = new CountAggregateFunction(Collections.<Expression> singletonList(column));
+        List<SingleAggregateFunction> functions = withMax
+                ? Arrays.<SingleAggregateFunction> asList(count,
+                        new MaxAggregateFunction(Collections.<Expression> singletonList(column), count))
+                : Arrays.<SingleAggregateFunction> asList(count,
+                        new SumAggregateFunction(Collections.<Expression> singletonList(column), count));
+        return ServerAggregators.deserialize(ServerAggregators.serialize(functions, 0), null, null);
+    }
+
+    private static Tuple newTuple(PDataType type, Object value) {
+        byte[] bytes = type.toBytes(value);
+        return new SingleKeyValueTuple(PhoenixKeyValueUtil.newKeyValue(bytes, 0, bytes.length, bytes, 0, 0, bytes, 0, 0, 0, bytes, 0, 0, Cell.Type.Put));
+    }
+
+    private static void assertSameAsAggregators(PDataType type, Object[][] groupValues) throws Exception {
+        ServerAggregators aggregators = newServerAggregators(type, false);
+        PrimitiveGroupAggregators groupAggregators = new PrimitiveGroupAggregators(aggregators.getAggregators());
+        int slotsPerGroup = groupAggregators.getSlotsPerGroup();
+        LongBuffer state = LongBuffer.allocate(groupValues.length * slotsPerGroup);
+        // Interleave the groups to make sure each keeps its own state
+        for (int j = 0; j < 3; j++) {
+            for (int i = 0; i < groupValues.length; i++) {
+                if (j < groupValues[i].length) {
+                    aggregators.aggregate(groupAggregators.getAggregators(state, i * slotsPerGroup),
+                            newTuple(type, groupValues[i][j]));
+                }
+            }
+        }
+        for (int i = 0; i < groupValues.length; i++) {
+            ServerAggregators expectedAggregators = newServerAggregators(type, false);
+            Aggregator[] expected = expectedAggregators.newAggregators();
+            for (Object value : groupValues[i]) {
+                expectedAggregators.aggregate(expected, newTuple(type, value));
+            }
+            assertArrayEquals(expectedAggregators.toBytes(expected),
+                    aggregators.toBytes(groupAggregators.getAggregators(state, i * slotsPerGroup)));
+        }
+    }
+
+    @Test
+    public void testLongSum() throws Exception {
+        assertSameAsAggregators(PLong.INSTANCE, new Object[][] {{1L, 2L, 3L}, {-5L}, {}, {Long.MAX_VALUE, -1L}});
+    }
+
+    @Test
+    public void testIntSum() throws Exception {
+        assertSameAsAggregators(PInteger.INSTANCE, new Object[][] {{1, 2, 3}, {}, {Integer.MAX_VALUE, Integer.MAX_VALUE}});
+    }
+
+    @Test
+    public void testDoubleSum() throws Exception {
+        assertSameAsAggregators(PDouble.INSTANCE, new Object[][] {{1.5, 2.25}, {-0.5}, {}});
+    }
+
+    @Test
+    public void testIsSupported() throws Exception {
+        assertTrue(PrimitiveGroupAggregators.isSupported(newServerAggregators(PLong.INSTANCE, false).getAggregators()));
+        assertFalse(PrimitiveGroupAggregators.isSupported(newServerAggregators(PLong.INSTANCE, true).getAggregators()));
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.expression.aggregator;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.filter.CompareFilter.CompareOp;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.expression.CaseExpression;
+import org.apache.phoenix.expression.CoerceExpression;
+import org.apache.phoenix.expression.ComparisonExpression;
+import org.apache.phoenix.expression.DoubleMultiplyExpression;
+import org.apache.phoenix.expression.DoubleSubtractExpression;
+import org.apache.phoenix.expression.Expression;
+import org.apache.phoenix.expression.KeyValueColumnExpression;
+import org.apache.phoenix.expression.LiteralExpression;
+import org.apache.phoenix.expression.LongAddExpression;
+import org.apache.phoenix.expression.LongMultiplyExpression;
+import org.apache.phoenix.expression.LongSubtractExpression;
+import org.apache.phoenix.expression.function.AbsFunction;
+import org.apache.phoenix.expression.function.CountAggregateFunction;
+import org.apache.phoenix.expression.function.MaxAggregateFunction;
+import org.apache.phoenix.expression.function.MinAggregateFunction;
+import org.apache.phoenix.expression.function.SingleAggregateFunction;
+import org.apache.phoenix.expression.function.SumAggregateFunction;
+import org.apache.phoenix.schema.PColumnImpl;
+import org.apache.phoenix.schema.PNameFactory;
+import org.apache.phoenix.schema.SortOrder;
+import org.apache.phoenix.schema.tuple.MultiKeyValueTuple;
+import org.apache.phoenix.schema.tuple.Tuple;
+import org.apache.phoenix.schema.types.PDataType;
+import org.apache.phoenix.schema.types.PDouble;
+import org.apache.phoenix.schema.types.PInteger;
+import org.apache.phoenix.schema.types.PLong;
+import org.apache.phoenix.schema.types.PVarchar;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class ServerAggregatorsTest {
+    private static final byte[] FAMILY = Bytes.toBytes("0");
+    private static final Expression A = newColumn("A", PLong.INSTANCE, 0);
+    private static final Expression B = newColumn("B", PInteger.INSTANCE, 1);
+    private static final Expression D = newColumn("D", PDouble.INSTANCE, 2);
+    private static final Expression S = newColumn("S", PVarchar.INSTANCE, 3);
+
+    private static Expression newColumn(String name, PDataType type, int position) {
+        return new KeyValueColumnExpression(new PColumnImpl(PNameFactory.newName(name),
+                PNameFactory.newName(FAMILY), type, null, null, true, position, SortOrder.getDefault(), 0, null,
+                false, null, false, false, Bytes.toBytes(name), HConstants.LATEST_TIMESTAMP));
+    }
+
+    private static List<Expression> list(Expression... expressions) {
+        return Arrays.asList(expressions);
+    }
+
+    private static ServerAggregators newServerAggregators() throws Exception {
+        Expression one = LiteralExpression.newConstant(1L, PLong.INSTANCE);
+        Expression zero = LiteralExpression.newConstant(0L, PLong.INSTANCE);
+        Expression two = LiteralExpression.newConstant(2.0, PDouble.INSTANCE);
+        Expression longB = CoerceExpression.create(B, PLong.INSTANCE);
+        Expression aTimesBPlusOne = new LongAddExpression(list(new LongMultiplyExpression(list(A, B)), one));
+        Expression aGreaterThanB = new ComparisonExpression(list(A, longB), CompareOp.GREATER);
+        Expression dGreaterThanZero = new ComparisonExpression(
+                list(D, LiteralExpression.newConstant(0.0, PDouble.INSTANCE)), CompareOp.GREATER);
+        List<SingleAggregateFunction> functions = Arrays.<SingleAggregateFunction> asList(
+                new CountAggregateFunction(Collections.singletonList(one)),
+                new CountAggregateFunction(list(B)),
+                new CountAggregateFunction(list(S)),
+                new SumAggregateFunction(list(A)),
+                new SumAggregateFunction(list(B)),
+                new SumAggregateFunction(list(aTimesBPlusOne)),
+                new SumAggregateFunction(list(D)),
+                new SumAggregateFunction(list(new DoubleSubtractExpression(list(new DoubleMultiplyExpression(list(D, two)), A)))),
+                new SumAggregateFunction(list(new CaseExpression(list(one, aGreaterThanB, zero)))),
+                new MinAggregateFunction(list(new LongSubtractExpression(list(A, B)))),
+                new MaxAggregateFunction(list(aTimesBPlusOne)),
+                new MaxAggregateFunction(list(D)),
+                new MinAggregateFunction(list(new CaseExpression(list(D, dGreaterThanZero)))),
+                new MaxAggregateFunction(list(S)),
+                // Evaluated row by row as a whole, as ABS has no batch form
+                new SumAggregateFunction(list(new AbsFunction(list(A)))),
+                new SumAggregateFunction(list(new LongAddExpression(list(A, new AbsFunction(list(B)))))));
+        return ServerAggregators.deserialize(ServerAggregators.serialize(functions, 0), null, null);
+    }
+
+    private static Tuple newRow(Random random, int i) {
+        byte[] row = Bytes.toBytes(i);
+        List<Cell> cells = Lists.newArrayList();
+        if (random.nextInt(5) != 0) {
+            long a = random.nextInt(10) == 0 ? Long.MAX_VALUE - random.nextInt(10) : random.nextInt(2000) - 1000;
+            cells.add(new KeyValue(row, FAMILY, Bytes.toBytes("A"), PLong.INSTANCE.toBytes(a)));
+        }
+        if (random.nextInt(5) != 0) {
+            cells.add(new KeyValue(row, FAMILY, Bytes.toBytes("B"), PInteger.INSTANCE.toBytes(random.nextInt(21) - 10)));
+        }
+        if (random.nextInt(5) != 0) {
+            int kind = random.nextInt(20);
+            double d = kind == 0 ? -0.0 : kind == 1 ? 0.0 : kind == 2 ? Double.POSITIVE_INFINITY
+                    : (random.nextDouble() - 0.5) * 1e6;
+            cells.add(new KeyValue(row, FAMILY, Bytes.toBytes("D"), PDouble.INSTANCE.toBytes(d)));
+        }
+        if (random.nextInt(5) != 0) {
+            cells.add(new KeyValue(row, FAMILY, Bytes.toBytes("S"), PVarchar.INSTANCE.toBytes("s" + random.nextInt(100))));
+        }
+        return new MultiKeyValueTuple(cells);
+    }
+
+    @Test
+    public void testBatchMatchesRowByRow() throws Exception {
+        Random random = new Random(42);
+        for (int batchSize : new int[] {1, 7, 64}) {
+            Tuple[] rows = new Tuple[500];
+            for (int i = 0; i < rows.length; i++) {
+                rows[i] = newRow(random, i);
+            }
+
+            ServerAggregators rowAggregators = newServerAggregators();
+            Aggregator[] rowState = rowAggregators.getAggregators();
+            for (Tuple row : rows) {
+                rowAggregators.aggregate(rowState, row);
+            }
+
+            ServerAggregators batchAggregators = newServerAggregators();
+            Aggregator[] batchState = batchAggregators.getAggregators();
+            Tuple[] batch = new Tuple[batchSize];
+            for (int i = 0; i < rows.length; i += batchSize) {
+                // The last batch is partial when the batch size doesn't divide the number of rows
+                int count = Math.min(batchSize, rows.length - i);
+                System.arraycopy(rows, i, batch, 0, count);
+                batchAggregators.aggregate(batchState, batch, count);
+            }
+
+            assertArrayEquals(rowAggregators.toBytes(rowState), batchAggregators.toBytes(batchState));
+        }
+    }
+
+    @Test
+    public void testBatchOfNullRows() throws Exception {
+        Tuple[] rows = new Tuple[3];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = new MultiKeyValueTuple(Collections.<Cell> singletonList(
+                    new KeyValue(Bytes.toBytes(i), FAMILY, Bytes.toBytes("Z"), Bytes.toBytes(i))));
+        }
+        ServerAggregators rowAggregators = newServerAggregators();
+        Aggregator[] rowState = rowAggregators.getAggregators();
+        for (Tuple row : rows) {
+            rowAggregators.aggregate(rowState, row);
+        }
+        ServerAggregators batchAggregators = newServerAggregators();
+        Aggregator[] batchState = batchAggregators.getAggregators();
+        batchAggregators.aggregate(batchState, rows, rows.length);
+        assertArrayEquals(rowAggregators.toBytes(rowState), batchAggregators.toBytes(batchState));
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.expression.batch;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.filter.CompareFilter.CompareOp;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.expression.CaseExpression;
+import org.apache.phoenix.expression.ComparisonExpression;
+import org.apache.phoenix.expression.Expression;
+import org.apache.phoenix.expression.KeyValueColumnExpression;
+import org.apache.phoenix.expression.LiteralExpression;
+import org.apache.phoenix.expression.LongAddExpression;
+import org.apache.phoenix.expression.LongMultiplyExpression;
+import org.apache.phoenix.expression.batch.ColumnVector.Kind;
+import org.apache.phoenix.expression.function.AbsFunction;
+import org.apache.phoenix.schema.PColumnImpl;
+import org.apache.phoenix.schema.PNameFactory;
+import org.apache.phoenix.schema.SortOrder;
+import org.apache.phoenix.schema.tuple.MultiKeyValueTuple;
+import org.apache.phoenix.schema.tuple.Tuple;
+import org.apache.phoenix.schema.types.PLong;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+public class BatchExpressionTest {
+    private static final byte[] FAMILY = Bytes.toBytes("0");
+    private static final Expression A = newColumn("A", 0);
+    private static final Expression B = newColumn("B", 1);
+
+    private static Expression newColumn(String name, int position) {
+        return new KeyValueColumnExpression(new PColumnImpl(PNameFactory.newName(name),
+                PNameFactory.newName(FAMILY), PLong.INSTANCE, null, null, true, position, SortOrder.getDefault(),
+                0, null, false, null, false, false, Bytes.toBytes(name), HConstants.LATEST_TIMESTAMP));
+    }
+
+    private static List<Expression> list(Expression... expressions) {
+        return Arrays.asList(expressions);
+    }
+
+    private static Tuple newRow(int i, Long a, Long b) {
+        byte[] row = Bytes.toBytes(i);
+        List<Cell> cells = Lists.newArrayList();
+        if (a != null) {
+            cells.add(new KeyValue(row, FAMILY, Bytes.toBytes("A"), PLong.INSTANCE.toBytes(a)));
+        }
+        if (b != null) {
+            cells.add(new KeyValue(row, FAMILY, Bytes.toBytes("B"), PLong.INSTANCE.toBytes(b)));
+        }
+        return new MultiKeyValueTuple(cells);
+    }
+
+    @Test
+    public void testCaseOverComparison() throws Exception {
+        Expression one = LiteralExpression.newConstant(1L, PLong.INSTANCE);
+        // CASE WHEN A > B THEN A * B END + 1
+        Expression expression = new LongAddExpression(list(new CaseExpression(list(
+                new LongMultiplyExpression(list(A, B)), new ComparisonExpression(list(A, B), CompareOp.GREATER))),
+                one));
+        BatchExpression batchExpression = BatchExpression.create(expression, 4,
+                Maps.<Expression, BatchExpression> newHashMap());
+        assertFalse(batchExpression.isRowByRow());
+        assertEquals(Kind.LONG, batchExpression.getKind());
+
+        Tuple[] rows = new Tuple[] {newRow(0, 3L, 2L), newRow(1, 2L, 3L), newRow(2, null, 1L), newRow(3, 5L, 4L)};
+        ColumnVector vector = batchExpression.evaluate(rows, 4, 0);
+        assertArrayEquals(new boolean[] {false, true, true, false}, vector.getNulls());
+        assertEquals(7, vector.getLongs()[0]);
+        assertEquals(21, vector.getLongs()[3]);
+
+        // A partial batch only updates the rows it holds
+        vector = batchExpression.evaluate(new Tuple[] {newRow(4, 1L, 0L), null, null, null}, 1, 1);
+        assertFalse(vector.getNulls()[0]);
+        assertEquals(1, vector.getLongs()[0]);
+    }
+
+    @Test
+    public void testRowByRowOnlyAtRoot() throws Exception {
+        Map<Expression, BatchExpression> shared = Maps.newHashMap();
+        Expression abs = new AbsFunction(list(A));
+        assertTrue(BatchExpression.create(abs, 4, shared).isRowByRow());
+        // ABS may not be evaluated for every row below the root, so the whole sum is evaluated row by row
+        BatchExpression sum = BatchExpression.create(new LongAddExpression(list(B, abs)), 4, shared);
+        assertTrue(sum.isRowByRow());
+        assertEquals(Kind.LONG, sum.getKind());
+    }
+
+    @Test
+    public void testSharedSubexpressions() throws Exception {
+        Map<Expression, BatchExpression> shared = Maps.newHashMap();
+        BatchExpression product = BatchExpression.create(new LongMultiplyExpression(list(A, B)), 4, shared);
+        assertSame(product, BatchExpression.create(new LongMultiplyExpression(list(newColumn("A", 0), B)), 4, shared));
+        assertSame(shared.get(A), BatchExpression.create(A, 4, shared));
+    }
+}
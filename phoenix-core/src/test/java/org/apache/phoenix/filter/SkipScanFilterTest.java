@@ -577,6 +577,32 @@ public class SkipScanFilterTest extends TestCase {
                                 PInteger.INSTANCE.toBytes(8),
                                 PInteger.INSTANCE.toBytes(11))))
         );
+        // Large slot, which is searched by galloping from the current position
+        KeyRange[] evenKeys = new KeyRange[500];
+        for (int i = 0; i < evenKeys.length; i++) {
+            byte[] key = Bytes.toBytes(String.format("%03d", i * 2));
+            evenKeys[i] = PChar.INSTANCE.getKeyRange(key, true, key, true);
+        }
+        testCases.addAll(
+                foreach(new KeyRange[][]{
+                        evenKeys,
+                        {
+                        PChar.INSTANCE.getKeyRange(Bytes.toBytes("a"), true, Bytes.toBytes("a"), true),
+                        PChar.INSTANCE.getKeyRange(Bytes.toBytes("c"), true, Bytes.toBytes("c"), true),
+                        }},
+                    new int[]{3,1},
+                    null,
+                    new Include("000a"),
+                    new SeekNext("000b", "000c"),
+                    new Include("000c"),
+                    new SeekNext("001a", "002a"),
+                    new SeekNext("003c", "004a"),
+                    new SeekNext("501a", "502a"),
+                    new Include("502c"),
+                    new SeekNext("502d", "504a"),
+                    new Include("998c"),
+                    new Finished("999a"))
+        );
         return testCases;
     }
 
@@ -0,0 +1,229 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.iterate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.iterate.OrderedResultIterator.ResultEntry;
+import org.apache.phoenix.schema.tuple.SingleKeyValueTuple;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Function;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Ordering;
+import com.google.common.collect.Sets;
+
+/**
+ * Test class for {@link ExternalSortedQueue}.
+ */
+public class ExternalSortedQueueTest {
+    private static final byte[] FAMILY = Bytes.toBytes("f");
+    private static final byte[] QUALIFIER = Bytes.toBytes("q");
+
+    // Sorts by the first sort key, nulls first
+    @SuppressWarnings("unchecked")
+    private static final Comparator<ResultEntry> COMPARATOR =
+            Ordering.from(new ImmutableBytesWritable.Comparator()).nullsFirst().onResultOf(
+                new Function<ResultEntry, ImmutableBytesWritable>() {
+                    @Override
+                    public ImmutableBytesWritable apply(ResultEntry entry) {
+                        return entry.getSortKey(0);
+                    }
+                });
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testInMemory() throws Exception {
+        assertSorted(new ExternalSortedQueue(COMPARATOR, Long.MAX_VALUE, executor, 4), 1000);
+    }
+
+    @Test
+    public void testInMemoryUpToThreshold() throws Exception {
+        ExternalSortedQueue inMemory = new ExternalSortedQueue(COMPARATOR, Long.MAX_VALUE, executor, 4);
+        long byteSize;
+        try {
+            fill(inMemory, 1000);
+            byteSize = inMemory.getByteSize();
+        } finally {
+            inMemory.close();
+        }
+        // No run is built, nor read, as long as the entries fit within the threshold
+        assertSorted(new ExternalSortedQueue(COMPARATOR, byteSize + 1, executor, 4), 1000);
+        assertEquals(0, ((ThreadPoolExecutor)executor).getTaskCount());
+        assertSorted(new ExternalSortedQueue(COMPARATOR, byteSize / 2, executor, 4), 1000);
+        assertTrue(((ThreadPoolExecutor)executor).getTaskCount() > 0);
+    }
+
+    @Test
+    public void testParallelRuns() throws Exception {
+        assertSorted(new ExternalSortedQueue(COMPARATOR, 64 * 1024, executor, 4), 10000);
+    }
+
+    @Test
+    public void testMergePasses() throws Exception {
+        // Every entry is a run of its own, so that runs are merged in several passes
+        int count = ExternalSortedQueue.MAX_MERGE_FAN_IN * 5;
+        assertSorted(new ExternalSortedQueue(COMPARATOR, 1, executor, 2), count);
+    }
+
+    @Test
+    public void testRejectedExecution() throws Exception {
+        // Runs are built on the caller thread when the pool does not accept tasks
+        executor.shutdown();
+        assertSorted(new ExternalSortedQueue(COMPARATOR, 1024, executor, 4), 1000);
+    }
+
+    @Test
+    public void testCloseBeforeExhausted() throws Exception {
+        ExternalSortedQueue queue = new ExternalSortedQueue(COMPARATOR, 1024, executor, 4);
+        fill(queue, 1000);
+        assertTrue(queue.poll() != null);
+        queue.close();
+        assertNull(queue.poll());
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void testCloseWithQueuedRuns() throws Exception {
+        // Keep the only thread of the pool busy so that the runs stay queued
+        executor.shutdown();
+        executor = Executors.newFixedThreadPool(1);
+        final CountDownLatch latch = new CountDownLatch(1);
+        executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        ExternalSortedQueue queue = new ExternalSortedQueue(COMPARATOR, 1024, executor, 4);
+        try {
+            fill(queue, 1000);
+        } finally {
+            // Returns without waiting for the queued runs, which then do nothing
+            queue.close();
+            latch.countDown();
+        }
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void testIterator() throws Exception {
+        ExternalSortedQueue queue = new ExternalSortedQueue(COMPARATOR, 1024, executor, 4);
+        try {
+            fill(queue, 1000);
+            for (int i = 0; i < 10; i++) {
+                assertTrue(queue.poll() != null);
+            }
+            // Iterating twice, and abandoning an iterator, leaves the queue as it was
+            Iterator<ResultEntry> abandoned = queue.iterator();
+            abandoned.next();
+            List<ResultEntry> iterated = Lists.newArrayList(queue.iterator());
+            assertEquals(990, iterated.size());
+            assertEquals(990, queue.size());
+            // Entries with equal sort keys may come in any order
+            Set<Integer> iteratedRows = Sets.newHashSet();
+            Set<Integer> polledRows = Sets.newHashSet();
+            ResultEntry previous = null;
+            for (ResultEntry expected : iterated) {
+                if (previous != null) {
+                    assertTrue(COMPARATOR.compare(previous, expected) <= 0);
+                }
+                ResultEntry entry = queue.poll();
+                assertEquals(0, COMPARATOR.compare(expected, entry));
+                iteratedRows.add(Bytes.toInt(CellUtil.cloneRow(expected.getResult().getValue(0))));
+                polledRows.add(Bytes.toInt(CellUtil.cloneRow(entry.getResult().getValue(0))));
+                previous = expected;
+            }
+            assertEquals(polledRows, iteratedRows);
+            assertNull(queue.poll());
+            assertFalse(queue.iterator().hasNext());
+        } finally {
+            queue.close();
+        }
+    }
+
+    private static void fill(ExternalSortedQueue queue, int count) {
+        Random random = new Random(count);
+        for (int i = 0; i < count; i++) {
+            int value = random.nextInt(count);
+            // Every tenth entry has a null sort key
+            ImmutableBytesWritable sortKey = i % 10 == 0 ? null : new ImmutableBytesWritable(Bytes.toBytes(value));
+            KeyValue kv = new KeyValue(Bytes.toBytes(i), FAMILY, QUALIFIER, Bytes.toBytes(sortKey == null ? -1 : value));
+            queue.add(new ResultEntry(new ImmutableBytesWritable[] { sortKey }, new SingleKeyValueTuple(kv)));
+        }
+    }
+
+    private static void assertSorted(ExternalSortedQueue queue, int count) throws Exception {
+        try {
+            fill(queue, count);
+            assertEquals(count, queue.size());
+            ResultEntry previous = null;
+            int read = 0;
+            for (ResultEntry entry = queue.poll(); entry != null; entry = queue.poll()) {
+                if (previous != null) {
+                    assertTrue(COMPARATOR.compare(previous, entry) <= 0);
+                }
+                Cell cell = entry.getResult().getValue(0);
+                int value = Bytes.toInt(CellUtil.cloneValue(cell));
+                ImmutableBytesWritable sortKey = entry.getSortKey(0);
+                assertEquals(sortKey == null ? -1 : Bytes.toInt(sortKey.copyBytes()), value);
+                previous = entry;
+                read++;
+            }
+            assertEquals(count, read);
+            assertEquals(0, queue.size());
+        } finally {
+            queue.close();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.iterate;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.HRegionLocation;
+import org.apache.hadoop.hbase.ServerName;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.RegionInfoBuilder;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class MultiGetResultIteratorTest {
+    private static final TableName TABLE_NAME = TableName.valueOf("T");
+    private static final ServerName SERVER_NAME = ServerName.valueOf("localhost", 16020, 0);
+
+    private static List<HRegionLocation> newRegions(String... splits) {
+        List<HRegionLocation> regions = Lists.newArrayList();
+        byte[] startKey = HConstants.EMPTY_START_ROW;
+        for (int i = 0; i <= splits.length; i++) {
+            byte[] endKey = i == splits.length ? HConstants.EMPTY_END_ROW : Bytes.toBytes(splits[i]);
+            regions.add(new HRegionLocation(RegionInfoBuilder.newBuilder(TABLE_NAME).setStartKey(startKey)
+                    .setEndKey(endKey).build(), SERVER_NAME));
+            startKey = endKey;
+        }
+        return regions;
+    }
+
+    private static List<Get> newGets(String... rows) {
+        List<Get> gets = Lists.newArrayList();
+        for (String row : rows) {
+            gets.add(new Get(Bytes.toBytes(row)));
+        }
+        return gets;
+    }
+
+    private static void assertBatches(List<List<Get>> batches, String[]... expectedRows) {
+        assertEquals(expectedRows.length, batches.size());
+        for (int i = 0; i < expectedRows.length; i++) {
+            List<String> rows = Lists.newArrayList();
+            for (Get get : batches.get(i)) {
+                rows.add(Bytes.toString(get.getRow()));
+            }
+            assertEquals(Arrays.asList(expectedRows[i]), rows);
+        }
+    }
+
+    @Test
+    public void testBatchByRegion() {
+        List<List<Get>> batches = MultiGetResultIterator.batchByRegion(newRegions("c", "f"),
+                newGets("a", "b", "bb", "c", "d", "f", "g", "h", "i"), 2);
+        assertBatches(batches, new String[] { "a", "b" }, new String[] { "bb" },
+                new String[] { "c", "d" }, new String[] { "f", "g" }, new String[] { "h", "i" });
+    }
+
+    @Test
+    public void testBatchByRegionKeepsOrderOfGetsWithinRegion() {
+        List<List<Get>> batches = MultiGetResultIterator.batchByRegion(newRegions("m"),
+                newGets("z", "b", "n", "a"), 10);
+        assertBatches(batches, new String[] { "b", "a" }, new String[] { "z", "n" });
+    }
+
+    @Test
+    public void testBatchByRegionWithSingleRegion() {
+        List<List<Get>> batches = MultiGetResultIterator.batchByRegion(newRegions(),
+                newGets("a", "b", "c"), 0);
+        assertBatches(batches, new String[] { "a" }, new String[] { "b" }, new String[] { "c" });
+    }
+}
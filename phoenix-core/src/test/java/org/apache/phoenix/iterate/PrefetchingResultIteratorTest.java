@@ -0,0 +1,310 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.iterate;
+
+import static org.apache.phoenix.query.QueryConstants.SINGLE_COLUMN;
+import static org.apache.phoenix.query.QueryConstants.SINGLE_COLUMN_FAMILY;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.log.LogLevel;
+import org.apache.phoenix.monitoring.MetricType;
+import org.apache.phoenix.monitoring.OverAllQueryMetrics;
+import org.apache.phoenix.schema.tuple.SingleKeyValueTuple;
+import org.apache.phoenix.schema.tuple.Tuple;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class PrefetchingResultIteratorTest {
+    private static final long TIMEOUT_MS = 60000;
+
+    private ExecutorService executor;
+    private OverAllQueryMetrics metrics;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(2);
+        metrics = new OverAllQueryMetrics(true, LogLevel.OFF);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private static List<Tuple> newTuples(int count) {
+        List<Tuple> tuples = Lists.newArrayListWithExpectedSize(count);
+        for (int i = 0; i < count; i++) {
+            tuples.add(new SingleKeyValueTuple(new KeyValue(Bytes.toBytes(i), SINGLE_COLUMN_FAMILY,
+                    SINGLE_COLUMN, Bytes.toBytes(i))));
+        }
+        return tuples;
+    }
+
+    private static void assertTuples(List<Tuple> expected, ResultIterator iterator) throws SQLException {
+        for (Tuple tuple : expected) {
+            assertTrue(tuple == iterator.next());
+        }
+        assertNull(iterator.next());
+        assertNull(iterator.next());
+    }
+
+    @Test
+    public void testPrefetch() throws Exception {
+        List<Tuple> tuples = newTuples(100);
+        ResultIterator iterator = new PrefetchingResultIterator(new MaterializedResultIterator(tuples),
+                executor, 8, Long.MAX_VALUE, TIMEOUT_MS, metrics);
+        assertTuples(tuples, iterator);
+        iterator.close();
+        assertTrue(metrics.publish().containsKey(MetricType.RESULT_SET_PREFETCH_STALL_TIME_MS));
+    }
+
+    @Test
+    public void testPrefetchBoundedByBytes() throws Exception {
+        List<Tuple> tuples = newTuples(100);
+        ResultIterator iterator = new PrefetchingResultIterator(new MaterializedResultIterator(tuples),
+                executor, 1000, 1, TIMEOUT_MS, metrics);
+        assertTuples(tuples, iterator);
+        iterator.close();
+    }
+
+    @Test
+    public void testRejectedExecution() throws Exception {
+        executor.shutdown();
+        List<Tuple> tuples = newTuples(10);
+        ResultIterator iterator = new PrefetchingResultIterator(new MaterializedResultIterator(tuples),
+                executor, 4, Long.MAX_VALUE, TIMEOUT_MS, metrics);
+        assertTuples(tuples, iterator);
+        iterator.close();
+    }
+
+    @Test
+    public void testErrorAfterRows() throws Exception {
+        final List<Tuple> tuples = newTuples(5);
+        ResultIterator failing = new MaterializedResultIterator(tuples) {
+            private int count;
+
+            @Override
+            public Tuple next() throws SQLException {
+                if (count++ == tuples.size()) {
+                    throw new SQLException("Scan failed");
+                }
+                return super.next();
+            }
+        };
+        ResultIterator iterator = new PrefetchingResultIterator(failing, executor, 100, Long.MAX_VALUE, TIMEOUT_MS, metrics);
+        for (Tuple tuple : tuples) {
+            assertTrue(tuple == iterator.next());
+        }
+        try {
+            iterator.next();
+            fail();
+        } catch (SQLException e) {
+            assertEquals("Scan failed", e.getMessage());
+        }
+        iterator.close();
+    }
+
+    @Test
+    public void testCloseWhileFetching() throws Exception {
+        final CountDownLatch fetching = new CountDownLatch(1);
+        final AtomicBoolean closed = new AtomicBoolean();
+        ResultIterator slow = new MaterializedResultIterator(newTuples(1000)) {
+            @Override
+            public Tuple next() throws SQLException {
+                fetching.countDown();
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.next();
+            }
+
+            @Override
+            public void close() {
+                closed.set(true);
+            }
+        };
+        ResultIterator iterator = new PrefetchingResultIterator(slow, executor, 100, Long.MAX_VALUE, TIMEOUT_MS, metrics);
+        iterator.next();
+        assertTrue(fetching.await(10, TimeUnit.SECONDS));
+        iterator.close();
+        assertTrue(closed.get());
+        assertNull(iterator.next());
+    }
+
+    @Test
+    public void testNextTimesOut() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        ResultIterator blocked = new MaterializedResultIterator(newTuples(10)) {
+            private int count;
+
+            @Override
+            public Tuple next() throws SQLException {
+                if (count++ == 1) {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.next();
+            }
+        };
+        ResultIterator iterator = new PrefetchingResultIterator(blocked, executor, 100, Long.MAX_VALUE,
+                100, metrics);
+        iterator.next();
+        try {
+            iterator.next();
+            fail();
+        } catch (SQLTimeoutException e) {
+        }
+        release.countDown();
+        iterator.close();
+    }
+
+    @Test
+    public void testCloseWhileReadingFirstRow() throws Exception {
+        final CountDownLatch reading = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicBoolean inRead = new AtomicBoolean();
+        final AtomicBoolean closed = new AtomicBoolean();
+        final AtomicBoolean closedWhileReading = new AtomicBoolean();
+        ResultIterator slow = new MaterializedResultIterator(newTuples(10)) {
+            @Override
+            public Tuple next() throws SQLException {
+                inRead.set(true);
+                reading.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                inRead.set(false);
+                return super.next();
+            }
+
+            @Override
+            public void close() {
+                closedWhileReading.set(inRead.get());
+                closed.set(true);
+            }
+        };
+        final ResultIterator iterator = new PrefetchingResultIterator(slow, executor, 100,
+                Long.MAX_VALUE, TIMEOUT_MS, metrics);
+        Future<Tuple> next = executor.submit(new Callable<Tuple>() {
+            @Override
+            public Tuple call() throws SQLException {
+                return iterator.next();
+            }
+        });
+        assertTrue(reading.await(10, TimeUnit.SECONDS));
+        Future<?> close = executor.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws SQLException {
+                iterator.close();
+                return null;
+            }
+        });
+        Thread.sleep(100);
+        assertFalse(closed.get());
+        release.countDown();
+        close.get(10, TimeUnit.SECONDS);
+        next.get(10, TimeUnit.SECONDS);
+        assertTrue(closed.get());
+        assertFalse(closedWhileReading.get());
+    }
+
+    @Test
+    public void testFetchAsync() throws Exception {
+        List<Tuple> tuples = newTuples(100);
+        PrefetchingResultIterator iterator = new PrefetchingResultIterator(
+                new MaterializedResultIterator(tuples), executor, 16, Long.MAX_VALUE, TIMEOUT_MS, metrics);
+        int count = 0;
+        int numRows;
+        while ((numRows = iterator.fetchAsync(10).get(10, TimeUnit.SECONDS)) > 0) {
+            assertTrue(numRows <= 16);
+            // The rows that were fetched can be read without blocking
+            for (int i = 0; i < numRows; i++) {
+                assertTrue(tuples.get(count++) == iterator.next());
+            }
+        }
+        assertEquals(tuples.size(), count);
+        assertNull(iterator.next());
+        assertEquals(0, iterator.fetchAsync(1).get(10, TimeUnit.SECONDS).intValue());
+        iterator.close();
+    }
+
+    @Test
+    public void testFetchAsyncRejectedExecution() throws Exception {
+        executor.shutdown();
+        List<Tuple> tuples = newTuples(10);
+        PrefetchingResultIterator iterator = new PrefetchingResultIterator(
+                new MaterializedResultIterator(tuples), executor, 4, Long.MAX_VALUE, TIMEOUT_MS, metrics);
+        try {
+            iterator.fetchAsync(4).get(10, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+        // The rows are read by the caller instead
+        assertTuples(tuples, iterator);
+        iterator.close();
+    }
+
+    @Test
+    public void testFetchAsyncError() throws Exception {
+        ResultIterator failing = new MaterializedResultIterator(newTuples(1)) {
+            @Override
+            public Tuple next() throws SQLException {
+                throw new SQLException("Scan failed");
+            }
+        };
+        PrefetchingResultIterator iterator = new PrefetchingResultIterator(failing, executor, 10,
+                Long.MAX_VALUE, TIMEOUT_MS, metrics);
+        try {
+            iterator.fetchAsync(1).get(10, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertEquals("Scan failed", e.getCause().getMessage());
+        }
+        iterator.close();
+    }
+}
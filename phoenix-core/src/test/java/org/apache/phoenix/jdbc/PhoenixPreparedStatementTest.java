@@ -18,13 +18,18 @@
 package org.apache.phoenix.jdbc;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.fail;
 
 import java.sql.*;
 import java.util.Properties;
 
 import org.apache.phoenix.exception.SQLExceptionCode;
+import org.apache.phoenix.parse.SQLParser;
+import org.apache.phoenix.parse.UpsertStatement;
 import org.apache.phoenix.query.BaseConnectionlessQueryTest;
+import org.apache.phoenix.query.ParsedStatementCache;
 import org.apache.phoenix.query.QueryConstants;
 import org.apache.phoenix.query.QueryServices;
 import org.apache.phoenix.query.QueryServicesOptions;
@@ -32,6 +37,55 @@ import org.junit.Test;
 
 public class PhoenixPreparedStatementTest extends BaseConnectionlessQueryTest {
 
+    @Test
+    public void testParsedStatementCache() throws Exception {
+        Connection connection = DriverManager.getConnection(getUrl());
+        ParsedStatementCache cache = connection.unwrap(PhoenixConnection.class).getQueryServices()
+                .getParsedStatementCache();
+        String query = "SELECT a_string FROM " + ATABLE + " WHERE organization_id = ? AND entity_id = ?";
+        PhoenixPreparedStatement stmt = connection.prepareStatement(query).unwrap(PhoenixPreparedStatement.class);
+        assertNotNull(cache.get(query));
+        // The cached statement is rebound with the parameters of each statement
+        stmt.setString(1, "000000000000001");
+        stmt.setString(2, "000000000000002");
+        assertEquals(1, stmt.optimizeQuery().getContext().getScanRanges().getPointLookupCount());
+        PhoenixPreparedStatement stmt2 = connection.prepareStatement(query).unwrap(PhoenixPreparedStatement.class);
+        stmt2.setString(1, "000000000000003");
+        stmt2.setString(2, "000000000000004");
+        assertEquals("000000000000004", stmt2.getParameters().get(1));
+        assertEquals(1, stmt2.optimizeQuery().getContext().getScanRanges().getPointLookupCount());
+
+        String ddl = "CREATE TABLE T_PARSED_STATEMENT_CACHE (k VARCHAR PRIMARY KEY)";
+        connection.prepareStatement(ddl);
+        assertNull(cache.get(ddl));
+    }
+
+    @Test
+    public void testParsedUpsertWithRowTimestampCompiledTwice() throws Exception {
+        Connection connection = DriverManager.getConnection(getUrl());
+        ParsedStatementCache cache = connection.unwrap(PhoenixConnection.class).getQueryServices()
+                .getParsedStatementCache();
+        connection.createStatement().execute("CREATE TABLE T_PARSED_ROW_TIMESTAMP "
+                + "(k VARCHAR NOT NULL, ts DATE NOT NULL, v VARCHAR CONSTRAINT pk PRIMARY KEY (k, ts ROW_TIMESTAMP))");
+        String upsert = "UPSERT INTO T_PARSED_ROW_TIMESTAMP (k, v) VALUES (?, ?)";
+        for (int i = 0; i < 2; i++) {
+            PreparedStatement stmt = connection.prepareStatement(upsert);
+            stmt.setString(1, "k" + i);
+            stmt.setString(2, "v" + i);
+            // The row timestamp value added at compile time must not be added to the cached statement
+            assertEquals(1, stmt.executeUpdate());
+        }
+        assertEquals(2, ((UpsertStatement)cache.get(upsert)).getValues().size());
+    }
+
+    @Test
+    public void testParsedStatementCacheDisabled() throws Exception {
+        ParsedStatementCache cache = new ParsedStatementCache(0);
+        cache.put("SELECT 1", new SQLParser("SELECT 1").parseStatement());
+        assertNull(cache.get("SELECT 1"));
+        assertEquals(0, cache.size());
+    }
+
     @Test
     public void testSetParameter_InvalidIndex() throws Exception {
         Properties connectionProperties = new Properties();
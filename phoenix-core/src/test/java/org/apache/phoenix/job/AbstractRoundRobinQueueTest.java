@@ -0,0 +1,238 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.job;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Test class for {@link AbstractRoundRobinQueue}.
+ */
+public class AbstractRoundRobinQueueTest {
+
+    private static class Element {
+        private final String producer;
+        private final String group;
+        private final int weight;
+
+        private Element(String producer, String group, int weight) {
+            this.producer = producer;
+            this.group = group;
+            this.weight = weight;
+        }
+    }
+
+    private static class TestQueue extends AbstractRoundRobinQueue<Element> {
+        private int throttled;
+
+        private TestQueue(int maxRunningPerGroup) {
+            this(maxRunningPerGroup, 100);
+        }
+
+        private TestQueue(int maxRunningPerGroup, int maxSize) {
+            super(maxSize, false, maxRunningPerGroup);
+        }
+
+        @Override
+        protected Object extractProducer(Element o) {
+            return o.producer;
+        }
+
+        @Override
+        protected Object extractGroup(Element o) {
+            return o.group;
+        }
+
+        @Override
+        protected int extractWeight(Element o) {
+            return o.weight;
+        }
+
+        @Override
+        protected void throttled(Element o) {
+            throttled++;
+        }
+    }
+
+    @Test
+    public void testRoundRobinProducers() {
+        TestQueue queue = new TestQueue(0);
+        Element a1 = new Element("a", null, 1);
+        Element a2 = new Element("a", null, 1);
+        Element b1 = new Element("b", null, 1);
+        queue.add(a1);
+        queue.add(a2);
+        queue.add(b1);
+        assertEquals(3, queue.size());
+        assertSame(a1, queue.poll());
+        assertSame(b1, queue.poll());
+        assertSame(a2, queue.poll());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void testWeightedGroups() {
+        TestQueue queue = new TestQueue(0);
+        for (int i = 0; i < 40; i++) {
+            queue.add(new Element("batch", "batch", 1));
+            queue.add(new Element("interactive", "interactive", 3));
+        }
+        int interactive = 0;
+        for (int i = 0; i < 40; i++) {
+            if ("interactive".equals(queue.poll().group)) {
+                interactive++;
+            }
+        }
+        // Three times as many elements of the group of weight 3, give or take ties
+        assertTrue(Math.abs(interactive - 30) <= 1);
+    }
+
+    @Test
+    public void testIdleGroupStartsAtCurrentTime() {
+        TestQueue queue = new TestQueue(0);
+        for (int i = 0; i < 20; i++) {
+            queue.add(new Element("a", "a", 1));
+        }
+        for (int i = 0; i < 10; i++) {
+            assertEquals("a", queue.poll().group);
+        }
+        for (int i = 0; i < 10; i++) {
+            queue.add(new Element("b", "b", 1));
+        }
+        // The new group gets its share from now on, not the ten elements it missed
+        List<String> groups = Lists.newArrayList();
+        for (int i = 0; i < 4; i++) {
+            groups.add(queue.poll().group);
+        }
+        assertEquals(2, countOf(groups, "a"));
+        assertEquals(2, countOf(groups, "b"));
+    }
+
+    @Test
+    public void testMaxRunningPerGroup() throws Exception {
+        TestQueue queue = new TestQueue(1);
+        Element a1 = new Element("a", "a", 1);
+        Element a2 = new Element("a", "a", 1);
+        Element b1 = new Element("b", "b", 1);
+        queue.add(a1);
+        queue.add(a2);
+        queue.add(b1);
+        assertSame(a1, queue.poll());
+        assertSame(b1, queue.poll());
+        // Group a is running as many elements as allowed
+        assertNull(queue.poll());
+        assertEquals(1, queue.size());
+        queue.finished(a1);
+        assertSame(a2, queue.poll());
+
+        // Elements that were not taken from the queue are not counted when they finish
+        Element a3 = new Element("a", "a", 1);
+        Element a4 = new Element("a", "a", 1);
+        queue.finished(a3);
+        queue.add(a4);
+        assertEquals(1, queue.throttled);
+        assertNull(queue.poll());
+        queue.finished(a2);
+        queue.finished(a2);
+        assertSame(a4, queue.poll(1, TimeUnit.MILLISECONDS));
+        queue.add(new Element("a", "a", 1));
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void testTimedPollWaitsForGroupUnderLimit() throws Exception {
+        final TestQueue queue = new TestQueue(1);
+        final Element a1 = new Element("a", "a", 1);
+        Element a2 = new Element("a", "a", 1);
+        queue.add(a1);
+        queue.add(a2);
+        assertSame(a1, queue.poll());
+        Thread finisher = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                queue.finished(a1);
+            }
+        };
+        finisher.start();
+        // Waits past its timeout rather than returning null while a2 is queued
+        assertSame(a2, queue.poll(1, TimeUnit.MILLISECONDS));
+        finisher.join();
+        assertNull(queue.poll(1, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testRemainingCapacity() {
+        TestQueue queue = new TestQueue(0, 2);
+        assertEquals(2, queue.remainingCapacity());
+        queue.add(new Element("a", "a", 1));
+        assertEquals(1, queue.remainingCapacity());
+        queue.add(new Element("b", "b", 1));
+        assertEquals(0, queue.remainingCapacity());
+        assertFalse(queue.offer(new Element("c", "c", 1)));
+    }
+
+    @Test
+    public void testRemoveAndDrain() {
+        TestQueue queue = new TestQueue(1);
+        Element a1 = new Element("a", "a", 1);
+        Element a2 = new Element("a", "a", 1);
+        Element a3 = new Element("a", "a", 1);
+        queue.add(a1);
+        queue.add(a2);
+        queue.add(a3);
+        assertTrue(queue.remove(a2));
+        assertEquals(2, queue.size());
+        assertSame(a1, queue.poll());
+        // Draining ignores the limit of running elements
+        List<Element> drained = Lists.newArrayList();
+        assertEquals(1, queue.drainTo(drained));
+        assertSame(a3, drained.get(0));
+        assertEquals(0, queue.size());
+        // A drained element was never counted as running, so a1 still is
+        queue.finished(a3);
+        queue.add(a2);
+        assertNull(queue.poll());
+        queue.finished(a1);
+        assertSame(a2, queue.poll());
+    }
+
+    private static int countOf(List<String> groups, String group) {
+        int count = 0;
+        for (String g : groups) {
+            if (g.equals(group)) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
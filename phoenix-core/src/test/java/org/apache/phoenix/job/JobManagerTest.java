@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.job;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.phoenix.job.JobManager.JobCallable;
+import org.apache.phoenix.monitoring.TaskExecutionMetricsHolder;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Test class for {@link JobManager}.
+ */
+public class JobManagerTest {
+
+    @Test
+    public void testVirtualThreads() throws Exception {
+        ThreadPoolExecutor executor = JobManager.createThreadPoolExec(1000, 1000, 10, false, true);
+        try {
+            Thread thread = executor.submit(new Callable<Thread>() {
+                @Override
+                public Thread call() throws Exception {
+                    return Thread.currentThread();
+                }
+            }).get();
+            assertTrue(thread.isDaemon());
+            assertEquals(JobManager.class.getClassLoader(), thread.getContextClassLoader());
+            // Platform threads are used where virtual threads are not supported
+            boolean virtual = JobManager.getVirtualThreadFactory() != null;
+            assertEquals(virtual, thread.getName().contains("-virtual-thread-"));
+            if (virtual) {
+                assertTrue((Boolean) Thread.class.getMethod("isVirtual").invoke(thread));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testPlatformThreads() throws Exception {
+        ThreadPoolExecutor executor = JobManager.createThreadPoolExec(1000, 10, 10, false, false);
+        try {
+            Thread thread = executor.submit(new Callable<Thread>() {
+                @Override
+                public Thread call() throws Exception {
+                    return Thread.currentThread();
+                }
+            }).get();
+            assertTrue(thread.isDaemon());
+            assertTrue(thread.getName().contains("-thread-"));
+            assertTrue(!thread.getName().contains("-virtual-thread-"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testMaxRunningPerGroupFromColdPool() throws Exception {
+        // Submitted right away, before the pool would have started any thread of its own
+        ThreadPoolExecutor executor = JobManager.createThreadPoolExec(1000, 4, 10, false, false, 1);
+        try {
+            final SchedulingGroup group = new SchedulingGroup("tenant", 1, false);
+            final AtomicInteger running = new AtomicInteger();
+            final AtomicInteger maxRunning = new AtomicInteger();
+            List<Future<Void>> futures = Lists.newArrayList();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(new JobCallable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        int current = running.incrementAndGet();
+                        synchronized (maxRunning) {
+                            maxRunning.set(Math.max(maxRunning.get(), current));
+                        }
+                        Thread.sleep(20);
+                        running.decrementAndGet();
+                        return null;
+                    }
+
+                    @Override
+                    public Object getJobId() {
+                        return this;
+                    }
+
+                    @Override
+                    public TaskExecutionMetricsHolder getTaskExecutionMetric() {
+                        return TaskExecutionMetricsHolder.NO_OP_INSTANCE;
+                    }
+
+                    @Override
+                    public SchedulingGroup getSchedulingGroup() {
+                        return group;
+                    }
+                }));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+            assertEquals(1, maxRunning.get());
+            assertEquals(4, executor.getPoolSize());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.join;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.hbase.index.util.ImmutableBytesPtr;
+import org.junit.Test;
+
+public class HashCacheTableTest {
+
+    private static ImmutableBytesPtr key(String key) {
+        return new ImmutableBytesPtr(Bytes.toBytes(key));
+    }
+
+    private static List<Integer> getRowOffsets(HashCacheTable table, ImmutableBytesPtr key) {
+        List<Integer> offsets = new ArrayList<Integer>();
+        for (int row = table.getFirstRow(key, key.hashCode()); row != HashCacheTable.NO_ROW; row = table.getNextRow(row)) {
+            offsets.add(table.getRowOffset(row));
+        }
+        return offsets;
+    }
+
+    @Test
+    public void testDuplicateKeysKeepInsertionOrder() {
+        HashCacheTable table = new HashCacheTable(4);
+        table.put(key("a"), key("a").hashCode(), 0, 10);
+        table.put(key("b"), key("b").hashCode(), 10, 5);
+        table.put(key("a"), key("a").hashCode(), 15, 7);
+        table.put(key("a"), key("a").hashCode(), 22, 3);
+        assertEquals(4, table.getRowCount());
+        assertEquals(2, table.getKeyCount());
+        assertEquals(Integer.valueOf(0), getRowOffsets(table, key("a")).get(0));
+        assertEquals(Integer.valueOf(15), getRowOffsets(table, key("a")).get(1));
+        assertEquals(Integer.valueOf(22), getRowOffsets(table, key("a")).get(2));
+        assertEquals(1, getRowOffsets(table, key("b")).size());
+        int row = table.getFirstRow(key("b"), key("b").hashCode());
+        assertEquals(5, table.getRowLength(row));
+        assertEquals(HashCacheTable.NO_ROW, table.getFirstRow(key("c"), key("c").hashCode()));
+    }
+
+    @Test
+    public void testCollidingHashes() {
+        // Force every key into the same probe sequence
+        HashCacheTable table = new HashCacheTable(100);
+        for (int i = 0; i < 100; i++) {
+            table.put(key("k" + i), 42, i, 1);
+        }
+        for (int i = 0; i < 100; i++) {
+            ImmutableBytesPtr k = key("k" + i);
+            assertEquals(HashCacheTable.NO_ROW, table.getNextRow(table.getFirstRow(k, 42)));
+            assertEquals(i, table.getRowOffset(table.getFirstRow(k, 42)));
+        }
+        assertEquals(HashCacheTable.NO_ROW, table.getFirstRow(key("k100"), 42));
+    }
+
+    @Test
+    public void testKeysAreCopied() {
+        HashCacheTable table = new HashCacheTable(2);
+        byte[] buffer = Bytes.toBytes("xyz");
+        ImmutableBytesPtr ptr = new ImmutableBytesPtr(buffer, 1, 2);
+        int hash = ptr.hashCode();
+        table.put(ptr, hash, 0, 1);
+        buffer[1] = 'q';
+        assertEquals(HashCacheTable.NO_ROW, table.getFirstRow(ptr, hash));
+        assertEquals(0, table.getRowOffset(table.getFirstRow(key("yz"), key("yz").hashCode())));
+    }
+
+    @Test
+    public void testEstimatedSizeIncludesKeys() {
+        HashCacheTable table = new HashCacheTable(1000);
+        long emptySize = table.getEstimatedSize();
+        assertTrue(emptySize >= HashCacheTable.estimateSize(1000));
+        for (int i = 0; i < 1000; i++) {
+            table.put(key("row key number " + i), key("row key number " + i).hashCode(), i, 1);
+        }
+        assertTrue(table.getEstimatedSize() > emptySize);
+    }
+}
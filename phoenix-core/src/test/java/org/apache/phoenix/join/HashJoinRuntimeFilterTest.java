@@ -0,0 +1,155 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.join;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.phoenix.expression.Expression;
+import org.apache.phoenix.expression.InListExpression;
+import org.apache.phoenix.expression.LiteralExpression;
+import org.apache.phoenix.expression.RowKeyColumnExpression;
+import org.apache.phoenix.schema.RowKeyValueAccessor;
+import org.apache.phoenix.schema.tuple.SingleKeyValueTuple;
+import org.apache.phoenix.schema.tuple.Tuple;
+import org.apache.phoenix.schema.types.PBoolean;
+import org.apache.phoenix.schema.types.PDataType;
+import org.apache.phoenix.schema.types.PDecimal;
+import org.apache.phoenix.schema.types.PIntegerArray;
+import org.apache.phoenix.schema.types.PInteger;
+import org.apache.phoenix.schema.types.PLong;
+import org.apache.phoenix.util.PhoenixKeyValueUtil;
+import org.junit.Test;
+
+public class HashJoinRuntimeFilterTest {
+
+    private static Expression newKeyExpression() throws Exception {
+        return newKeyExpression(PInteger.INSTANCE);
+    }
+
+    private static Expression newKeyExpression(PDataType type) throws Exception {
+        LiteralExpression dummy = LiteralExpression.newConstant(null, type);
+        RowKeyValueAccessor accessor = new RowKeyValueAccessor(Arrays.asList(dummy), 0);
+        return new RowKeyColumnExpression(dummy, accessor);
+    }
+
+    private static Tuple newTuple(int key) {
+        return newTuple(PInteger.INSTANCE, key);
+    }
+
+    private static Tuple newTuple(PDataType type, Object key) {
+        byte[] bytes = type.toBytes(key);
+        return new SingleKeyValueTuple(PhoenixKeyValueUtil.newKeyValue(bytes, 0, bytes.length, bytes, 0, 0, bytes, 0, 0, 0, bytes, 0, 0, Cell.Type.Put));
+    }
+
+    private static boolean matches(Expression filter, int key) {
+        ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+        return filter.evaluate(newTuple(key), ptr) && Boolean.TRUE.equals(PBoolean.INSTANCE.toObject(ptr));
+    }
+
+    private static HashJoinRuntimeFilter newRuntimeFilter(int maxInListSize, int... keys) throws Exception {
+        HashJoinRuntimeFilter runtimeFilter = new HashJoinRuntimeFilter(newKeyExpression(), maxInListSize);
+        ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+        for (int key : keys) {
+            runtimeFilter.add(newTuple(key), ptr);
+        }
+        return runtimeFilter;
+    }
+
+    @Test
+    public void testEmptyBuildSide() throws Exception {
+        Expression filter = newRuntimeFilter(10).newFilter(newKeyExpression(), new ImmutableBytesWritable(), true);
+        assertEquals(LiteralExpression.newConstant(false, PBoolean.INSTANCE), filter);
+    }
+
+    @Test
+    public void testInList() throws Exception {
+        Expression filter = newRuntimeFilter(10, 5, 1, 5, 9).newFilter(newKeyExpression(), new ImmutableBytesWritable(), true);
+        assertTrue(filter instanceof InListExpression);
+        assertTrue(matches(filter, 1));
+        assertTrue(matches(filter, 5));
+        assertTrue(matches(filter, 9));
+        assertFalse(matches(filter, 2));
+        assertFalse(matches(filter, 10));
+    }
+
+    @Test
+    public void testRangeWhenTooManyKeys() throws Exception {
+        Expression filter = newRuntimeFilter(2, 5, 1, 9).newFilter(newKeyExpression(), new ImmutableBytesWritable(), true);
+        assertFalse(filter instanceof InListExpression);
+        assertTrue(matches(filter, 1));
+        assertTrue(matches(filter, 2));
+        assertTrue(matches(filter, 9));
+        assertFalse(matches(filter, 0));
+        assertFalse(matches(filter, 10));
+    }
+
+    private static HashJoinRuntimeFilter newRuntimeFilter(int maxInListSize, PDataType type, Object... keys) throws Exception {
+        HashJoinRuntimeFilter runtimeFilter = new HashJoinRuntimeFilter(newKeyExpression(type), maxInListSize);
+        ImmutableBytesWritable ptr = new ImmutableBytesWritable();
+        for (Object key : keys) {
+            runtimeFilter.add(newTuple(type, key), ptr);
+        }
+        return runtimeFilter;
+    }
+
+    @Test
+    public void testInListOfWiderType() throws Exception {
+        Expression filter = newRuntimeFilter(10, PDecimal.INSTANCE, new BigDecimal("1.5"), new BigDecimal("2"), new BigDecimal("9.0"))
+                .newFilter(newKeyExpression(), new ImmutableBytesWritable(), true);
+        assertTrue(filter instanceof InListExpression);
+        assertFalse(matches(filter, 1));
+        assertTrue(matches(filter, 2));
+        assertTrue(matches(filter, 9));
+        // No build side key has an INTEGER counterpart
+        filter = newRuntimeFilter(10, PLong.INSTANCE, 1L + Integer.MAX_VALUE, Long.MIN_VALUE)
+                .newFilter(newKeyExpression(), new ImmutableBytesWritable(), true);
+        assertEquals(LiteralExpression.newConstant(false, PBoolean.INSTANCE), filter);
+    }
+
+    @Test
+    public void testRangeOfWiderType() throws Exception {
+        Expression filter = newRuntimeFilter(2, PDecimal.INSTANCE, new BigDecimal("1.5"), new BigDecimal("4"), new BigDecimal("9.5"))
+                .newFilter(newKeyExpression(), new ImmutableBytesWritable(), true);
+        assertFalse(matches(filter, 1));
+        assertTrue(matches(filter, 2));
+        assertTrue(matches(filter, 9));
+        assertFalse(matches(filter, 10));
+        // Bounds out of the INTEGER range do not restrict the probe side
+        filter = newRuntimeFilter(2, PLong.INSTANCE, 5L, 6L, 1L + Integer.MAX_VALUE)
+                .newFilter(newKeyExpression(), new ImmutableBytesWritable(), true);
+        assertFalse(matches(filter, 4));
+        assertTrue(matches(filter, 5));
+        assertTrue(matches(filter, Integer.MAX_VALUE));
+        assertNull(newRuntimeFilter(2, PLong.INSTANCE, Long.MIN_VALUE, 0L, Long.MAX_VALUE)
+                .newFilter(newKeyExpression(), new ImmutableBytesWritable(), true));
+    }
+
+    @Test
+    public void testArrayKeysNotSupported() throws Exception {
+        assertTrue(HashJoinRuntimeFilter.isSupported(newKeyExpression()));
+        assertFalse(HashJoinRuntimeFilter.isSupported(LiteralExpression.newConstant(null, PIntegerArray.INSTANCE)));
+    }
+}
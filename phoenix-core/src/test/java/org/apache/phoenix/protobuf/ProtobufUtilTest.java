@@ -0,0 +1,43 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.protobuf;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.phoenix.coprocessor.generated.ServerCachingProtos;
+import org.junit.Test;
+
+public class ProtobufUtilTest {
+
+    @Test
+    public void testImmutableBytesWritableOnlySerializesValue() throws Exception {
+        byte[] backingArray = new byte[1024];
+        byte[] value = Bytes.toBytes("value");
+        System.arraycopy(value, 0, backingArray, 10, value.length);
+        ServerCachingProtos.ImmutableBytesWritable proto =
+                ProtobufUtil.toProto(new ImmutableBytesWritable(backingArray, 10, value.length));
+        assertEquals(value.length, proto.getByteArray().size());
+
+        ImmutableBytesWritable ptr = ProtobufUtil.toImmutableBytesWritable(
+                ServerCachingProtos.ImmutableBytesWritable.newBuilder().mergeFrom(proto.toByteArray()).build());
+        assertArrayEquals(value, ptr.copyBytes());
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.phoenix.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel.MapMode;
+
+import org.junit.Test;
+
+public class DirectBufferUtilTest {
+
+    @Test
+    public void testFreeIgnoresNullAndHeapBuffers() {
+        DirectBufferUtil.free(null);
+        ByteBuffer heap = ByteBuffer.allocate(8);
+        DirectBufferUtil.free(heap);
+        heap.putLong(0, 1L);
+        assertEquals(1L, heap.getLong(0));
+    }
+
+    @Test
+    public void testFreeDirectBufferAndViews() {
+        ByteBuffer direct = ByteBuffer.allocateDirect(64);
+        // Views have no memory of their own, so are left alone
+        DirectBufferUtil.free(direct.slice());
+        DirectBufferUtil.free(direct.duplicate());
+        direct.putLong(0, 1L);
+        assertEquals(1L, direct.getLong(0));
+        DirectBufferUtil.free(direct);
+    }
+
+    @Test
+    public void testFreeMappedBuffer() throws Exception {
+        File file = File.createTempFile("DirectBufferUtilTest", null);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            MappedByteBuffer mapped = raf.getChannel().map(MapMode.READ_WRITE, 0, 64);
+            mapped.putLong(0, 1L);
+            DirectBufferUtil.free(mapped);
+        } finally {
+            assertEquals(true, file.delete());
+        }
+    }
+}
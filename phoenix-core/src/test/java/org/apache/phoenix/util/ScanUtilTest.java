@@ -18,11 +18,14 @@
 package org.apache.phoenix.util;
 
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 
+import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.phoenix.query.KeyRange;
 import org.apache.phoenix.query.KeyRange.Bound;
@@ -465,5 +468,23 @@ public class ScanUtilTest {
             assertArrayEquals(expectedStartKey, startKey);
             assertArrayEquals(expectedEndKey, endKey);
         }
+
+        @Test
+        public void testGetSplitKey() {
+            byte[] lastKey = Bytes.toBytes("key100");
+            byte[] stopKey = Bytes.toBytes("key900");
+            byte[] splitKey = ScanUtil.getSplitKey(lastKey, stopKey);
+            assertTrue(Bytes.compareTo(splitKey, lastKey) > 0);
+            assertTrue(Bytes.compareTo(splitKey, stopKey) < 0);
+
+            // An empty stop key is the end of the table
+            splitKey = ScanUtil.getSplitKey(lastKey, HConstants.EMPTY_END_ROW);
+            assertTrue(Bytes.compareTo(splitKey, lastKey) > 0);
+
+            // No key between the two
+            assertNull(ScanUtil.getSplitKey(lastKey, lastKey));
+            assertNull(ScanUtil.getSplitKey(lastKey, Bytes.add(lastKey, new byte[] {0})));
+            assertNull(ScanUtil.getSplitKey(new byte[] {(byte)0xFF}, HConstants.EMPTY_END_ROW));
+        }
     }
 }